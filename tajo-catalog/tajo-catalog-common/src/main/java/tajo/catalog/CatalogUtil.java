@@ -99,6 +99,8 @@ public class CatalogUtil {
       return StoreType.RCFILE;
     } else if (typeStr.equalsIgnoreCase(StoreType.TREVNI.name())) {
       return StoreType.TREVNI;
+    } else if (typeStr.equalsIgnoreCase(StoreType.COLFILE.name())) {
+      return StoreType.COLFILE;
     } else {
       return null;
     }
@@ -43,6 +43,8 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
   @Expose private Long numNulls = null;
   @Expose private Datum minValue = null;
   @Expose private Datum maxValue = null;
+  private HyperLogLog ndvSketch = null;
+  private Histogram histogram = null;
 
   public ColumnStat(Column column) {
     builder = ColumnStatProto.newBuilder();
@@ -131,6 +133,46 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     this.maxValue = maxValue;
   }
 
+  /**
+   * @return the sketch of the distinct values, which is used to merge the
+   * numbers of distinct values of multiple outputs
+   */
+  public HyperLogLog getNdvSketch() {
+    ColumnStatProtoOrBuilder p = viaProto ? proto : builder;
+    if (ndvSketch != null) {
+      return this.ndvSketch;
+    }
+    if (!p.hasNdvSketch()) {
+      return null;
+    }
+    this.ndvSketch = HyperLogLog.fromByteArray(p.getNdvSketch().toByteArray());
+
+    return this.ndvSketch;
+  }
+
+  public void setNdvSketch(HyperLogLog ndvSketch) {
+    setModified();
+    this.ndvSketch = ndvSketch;
+  }
+
+  public Histogram getHistogram() {
+    ColumnStatProtoOrBuilder p = viaProto ? proto : builder;
+    if (histogram != null) {
+      return this.histogram;
+    }
+    if (!p.hasHistogram()) {
+      return null;
+    }
+    this.histogram = new Histogram(getColumn().getDataType(), p.getHistogram());
+
+    return this.histogram;
+  }
+
+  public void setHistogram(Histogram histogram) {
+    setModified();
+    this.histogram = histogram;
+  }
+
   public Long getNumNulls() {
     ColumnStatProtoOrBuilder p = viaProto ? proto : builder;
     if (numNulls != null) {
@@ -181,6 +223,9 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     stat.numNulls = numNulls;
     stat.minValue = minValue;
     stat.maxValue = maxValue;
+    stat.ndvSketch = ndvSketch == null ? null :
+        HyperLogLog.fromByteArray(ndvSketch.toByteArray());
+    stat.histogram = histogram;
 
     return stat;
   }
@@ -210,6 +255,12 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     if (this.maxValue == null && p.hasMaxValue()) {
       this.maxValue = TupleUtil.createFromBytes(getColumn().getDataType(), p.getMaxValue().toByteArray());
     }
+    if (this.ndvSketch == null && p.hasNdvSketch()) {
+      this.ndvSketch = HyperLogLog.fromByteArray(p.getNdvSketch().toByteArray());
+    }
+    if (this.histogram == null && p.hasHistogram()) {
+      this.histogram = new Histogram(getColumn().getDataType(), p.getHistogram());
+    }
   }
 
   @Override
@@ -242,5 +293,11 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     if (this.maxValue != null) {
       builder.setMaxValue(ByteString.copyFrom(this.maxValue.asByteArray()));
     }
+    if (this.ndvSketch != null) {
+      builder.setNdvSketch(ByteString.copyFrom(this.ndvSketch.toByteArray()));
+    }
+    if (this.histogram != null) {
+      builder.setHistogram(this.histogram.getProto());
+    }
   }
 }
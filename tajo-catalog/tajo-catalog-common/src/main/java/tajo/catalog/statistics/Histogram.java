@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.catalog.statistics;
+
+import com.google.protobuf.ByteString;
+import tajo.catalog.proto.CatalogProtos.HistogramProto;
+import tajo.common.ProtoObject;
+import tajo.common.TajoDataTypes.DataType;
+import tajo.datum.Datum;
+
+import java.util.*;
+
+/**
+ * An equi-depth histogram of the values of a column.
+ *
+ * The i-th bucket has the values greater than the upper bound of the
+ * (i-1)-th bucket and less than or equal to its own upper bound, and the
+ * buckets have about the same number of values.
+ */
+public class Histogram implements ProtoObject<HistogramProto> {
+  public static final int DEFAULT_NUM_BUCKETS = 64;
+
+  private final Datum [] upperBounds;
+  private final long [] counts;
+
+  public Histogram(Datum [] upperBounds, long [] counts) {
+    this.upperBounds = upperBounds;
+    this.counts = counts;
+  }
+
+  public Histogram(DataType type, HistogramProto proto) {
+    upperBounds = new Datum[proto.getUpperBoundCount()];
+    counts = new long[upperBounds.length];
+    for (int i = 0; i < upperBounds.length; i++) {
+      upperBounds[i] = TupleUtil.createFromBytes(type,
+          proto.getUpperBound(i).toByteArray());
+      counts[i] = proto.getCount(i);
+    }
+  }
+
+  /**
+   * Builds a histogram from a sample of the values.
+   *
+   * @param sample the sampled values, which are sorted in place
+   * @param numValues the number of all values
+   */
+  public static Histogram build(List<Datum> sample, long numValues,
+                                int numBuckets) {
+    Collections.sort(sample);
+    double scale = (double) numValues / sample.size();
+    List<Datum> bounds = new ArrayList<Datum>();
+    List<Long> bucketCounts = new ArrayList<Long>();
+    int start = 0;
+    int end;
+    for (int i = 1; i <= numBuckets && start < sample.size(); i++) {
+      end = (int) ((long) sample.size() * i / numBuckets);
+      if (end <= start) {
+        continue;
+      }
+      // the equal values are kept in the same bucket.
+      while (end < sample.size() &&
+          sample.get(end).compareTo(sample.get(end - 1)) == 0) {
+        end++;
+      }
+      bounds.add(sample.get(end - 1));
+      bucketCounts.add(Math.round(scale * end) - Math.round(scale * start));
+      start = end;
+    }
+    return new Histogram(bounds.toArray(new Datum[bounds.size()]),
+        toArray(bucketCounts));
+  }
+
+  private static long [] toArray(List<Long> values) {
+    long [] array = new long[values.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = values.get(i);
+    }
+    return array;
+  }
+
+  /**
+   * Merges the histograms of disjoint sets of values.
+   *
+   * The buckets of all the histograms are sorted by their upper bounds, and
+   * they are grouped into the new buckets of about the same number of
+   * values. It is an approximation because a bucket is never split.
+   */
+  public static Histogram merge(List<Histogram> histograms, int numBuckets) {
+    List<Integer> order = new ArrayList<Integer>();
+    final List<Datum> bounds = new ArrayList<Datum>();
+    List<Long> bucketCounts = new ArrayList<Long>();
+    long total = 0;
+    for (Histogram histogram : histograms) {
+      for (int i = 0; i < histogram.upperBounds.length; i++) {
+        order.add(bounds.size());
+        bounds.add(histogram.upperBounds[i]);
+        bucketCounts.add(histogram.counts[i]);
+        total += histogram.counts[i];
+      }
+    }
+    Collections.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return bounds.get(o1).compareTo(bounds.get(o2));
+      }
+    });
+
+    List<Datum> mergedBounds = new ArrayList<Datum>();
+    List<Long> mergedCounts = new ArrayList<Long>();
+    long count = 0;
+    long cumulative = 0;
+    int bucket = 1;
+    int idx;
+    for (int i = 0; i < order.size(); i++) {
+      idx = order.get(i);
+      count += bucketCounts.get(idx);
+      cumulative += bucketCounts.get(idx);
+      if (i == order.size() - 1 || (cumulative >= total * bucket / numBuckets
+          && bounds.get(order.get(i + 1)).compareTo(bounds.get(idx)) != 0)) {
+        mergedBounds.add(bounds.get(idx));
+        mergedCounts.add(count);
+        count = 0;
+        while (bucket < numBuckets && cumulative >= total * bucket / numBuckets) {
+          bucket++;
+        }
+      }
+    }
+    return new Histogram(
+        mergedBounds.toArray(new Datum[mergedBounds.size()]),
+        toArray(mergedCounts));
+  }
+
+  public int getNumBuckets() {
+    return upperBounds.length;
+  }
+
+  public Datum getUpperBound(int bucket) {
+    return upperBounds[bucket];
+  }
+
+  public long getCount(int bucket) {
+    return counts[bucket];
+  }
+
+  /**
+   * Estimates the number of the values less than or equal to a value,
+   * assuming that a bucket whose range contains the value has half of its
+   * values less than or equal to it.
+   */
+  public long estimateNumValuesLeq(Datum value) {
+    long num = 0;
+    for (int i = 0; i < upperBounds.length; i++) {
+      if (upperBounds[i].compareTo(value) <= 0) {
+        num += counts[i];
+      } else if (i > 0 && upperBounds[i - 1].compareTo(value) == 0) {
+        // the values of this bucket are greater than the value.
+        return num;
+      } else {
+        return num + counts[i] / 2;
+      }
+    }
+    return num;
+  }
+
+  @Override
+  public void initFromProto() {
+  }
+
+  @Override
+  public HistogramProto getProto() {
+    HistogramProto.Builder builder = HistogramProto.newBuilder();
+    for (int i = 0; i < upperBounds.length; i++) {
+      builder.addUpperBound(ByteString.copyFrom(upperBounds[i].asByteArray()));
+      builder.addCount(counts[i]);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof Histogram) {
+      Histogram other = (Histogram) obj;
+      return Arrays.equals(upperBounds, other.upperBounds) &&
+          Arrays.equals(counts, other.counts);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < upperBounds.length; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append("<=").append(upperBounds[i]).append(": ").append(counts[i]);
+    }
+    return sb.append("]").toString();
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.catalog.statistics;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values.
+ *
+ * A value is hashed into 64 bits, whose first bits choose one of
+ * 2^precision registers, and the register keeps the maximum position of the
+ * first 1-bit of the other bits. Two sketches of the same precision are
+ * merged by taking the maximum of each register, so the sketches of the
+ * outputs of tasks are merged into the sketch of the whole output.
+ */
+public class HyperLogLog {
+  public static final int DEFAULT_PRECISION = 11;
+
+  private final int precision;
+  private final byte [] registers;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  public HyperLogLog(int precision) {
+    Preconditions.checkArgument(precision >= 4 && precision <= 16,
+        "The precision must be between 4 and 16: %s", precision);
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  private HyperLogLog(byte [] registers) {
+    this.precision = Integer.numberOfTrailingZeros(registers.length);
+    this.registers = registers;
+  }
+
+  /**
+   * @param bytes the registers returned by {@link #toByteArray()}
+   */
+  public static HyperLogLog fromByteArray(byte [] bytes) {
+    Preconditions.checkArgument(Integer.bitCount(bytes.length) == 1,
+        "Invalid HyperLogLog registers of %s bytes", bytes.length);
+    return new HyperLogLog(bytes.clone());
+  }
+
+  public byte [] toByteArray() {
+    return registers.clone();
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  public void offer(byte [] value) {
+    offerHash(hash(value));
+  }
+
+  public void offerHash(long hash) {
+    int idx = (int) (hash >>> (64 - precision));
+    // the position of the first 1-bit, which is at most 64 - precision + 1
+    byte rank = (byte) (Long.numberOfLeadingZeros(
+        (hash << precision) | (1L << (precision - 1))) + 1);
+    if (registers[idx] < rank) {
+      registers[idx] = rank;
+    }
+  }
+
+  public void merge(HyperLogLog other) {
+    Preconditions.checkArgument(precision == other.precision,
+        "Cannot merge the sketches of different precisions: %s and %s",
+        precision, other.precision);
+    for (int i = 0; i < registers.length; i++) {
+      if (registers[i] < other.registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int numZeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        numZeros++;
+      }
+    }
+
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+    // the linear counting is more accurate for a small cardinality.
+    if (estimate <= 2.5 * m && numZeros > 0) {
+      estimate = m * Math.log((double) m / numZeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * 64-bit FNV-1a hash, followed by the finalization of MurmurHash3 to mix
+   * the bits.
+   */
+  static long hash(byte [] bytes) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -22,6 +22,7 @@ import com.google.common.collect.Lists;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class StatisticsUtil {
@@ -42,12 +43,17 @@ public class StatisticsUtil {
     return aggregated;
   }
 
+  @SuppressWarnings("unchecked")
   public static TableStat aggregateTableStat(List<TableStat> tableStats) {
     if(tableStats == null || tableStats.size() == 0 || tableStats.get(0) == null)
       return null;
     TableStat aggregated = new TableStat();
 
     ColumnStat [] css = null;
+    // the sketches and histograms of each column, which are merged at last
+    HyperLogLog [] sketches = null;
+    boolean [] sketchMissing = null;
+    List<Histogram> [] histograms = null;
     if (tableStats.size() > 0) {
       for (TableStat ts : tableStats) {
         // A TableStats cannot contain any ColumnStat if there is no output.
@@ -57,6 +63,12 @@ public class StatisticsUtil {
           for (int i = 0; i < css.length; i++) {
             css[i] = new ColumnStat(ts.getColumnStats().get(i).getColumn());
           }
+          sketches = new HyperLogLog[css.length];
+          sketchMissing = new boolean[css.length];
+          histograms = new List[css.length];
+          for (int i = 0; i < css.length; i++) {
+            histograms[i] = new ArrayList<Histogram>();
+          }
           break;
         }
       }
@@ -77,6 +89,10 @@ public class StatisticsUtil {
         }
         css[i].setNumDistVals(css[i].getNumDistValues() + cs.getNumDistValues());
         css[i].setNumNulls(css[i].getNumNulls() + cs.getNumNulls());
+        mergeSketch(sketches, sketchMissing, i, cs);
+        if (cs.getHistogram() != null) {
+          histograms[i].add(cs.getHistogram());
+        }
         if (!cs.minIsNotSet() && (css[i].minIsNotSet() ||
             css[i].getMinValue().compareTo(cs.getMinValue()) > 0)) {
           css[i].setMinValue(cs.getMinValue());
@@ -96,9 +112,36 @@ public class StatisticsUtil {
 
     //aggregated.setAvgRows(aggregated.getNumRows() / tableStats.size());
     if (css != null) {
+      for (int i = 0; i < css.length; i++) {
+        // the sum of the numbers of distinct values is replaced by the
+        // estimate of the merged sketch if every output has a sketch.
+        if (sketches[i] != null && !sketchMissing[i]) {
+          css[i].setNdvSketch(sketches[i]);
+          css[i].setNumDistVals(sketches[i].estimate());
+        }
+        if (histograms[i].size() > 0) {
+          css[i].setHistogram(Histogram.merge(histograms[i],
+              Histogram.DEFAULT_NUM_BUCKETS));
+        }
+      }
       aggregated.setColumnStats(Lists.newArrayList(css));
     }
 
     return aggregated;
   }
+
+  private static void mergeSketch(HyperLogLog [] sketches,
+                                  boolean [] sketchMissing, int idx,
+                                  ColumnStat cs) {
+    HyperLogLog sketch = cs.getNdvSketch();
+    if (sketch == null ||
+        (sketches[idx] != null &&
+            sketches[idx].getPrecision() != sketch.getPrecision())) {
+      sketchMissing[idx] = true;
+    } else if (sketches[idx] == null) {
+      sketches[idx] = HyperLogLog.fromByteArray(sketch.toByteArray());
+    } else {
+      sketches[idx].merge(sketch);
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tajo.catalog.statistics;
+
+import org.junit.Test;
+import tajo.catalog.CatalogUtil;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestHistogram {
+
+  private static List<Datum> createValues(int from, int to) {
+    List<Datum> values = new ArrayList<Datum>();
+    for (int i = from; i < to; i++) {
+      values.add(DatumFactory.createInt4(i));
+    }
+    return values;
+  }
+
+  private static long sumCounts(Histogram histogram) {
+    long sum = 0;
+    for (int i = 0; i < histogram.getNumBuckets(); i++) {
+      sum += histogram.getCount(i);
+    }
+    return sum;
+  }
+
+  @Test
+  public void testBuild() {
+    Histogram histogram = Histogram.build(createValues(0, 1000), 1000, 10);
+    assertEquals(10, histogram.getNumBuckets());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(100 * i + 99, histogram.getUpperBound(i).asInt4());
+      assertEquals(100, histogram.getCount(i));
+    }
+    assertEquals(500, histogram.estimateNumValuesLeq(
+        DatumFactory.createInt4(499)));
+
+    // a sample of 1000 values out of 10000 values
+    histogram = Histogram.build(createValues(0, 1000), 10000, 10);
+    assertEquals(10000, sumCounts(histogram));
+
+    // the equal values are in the same bucket.
+    List<Datum> values = createValues(0, 10);
+    for (int i = 0; i < 90; i++) {
+      values.add(DatumFactory.createInt4(5));
+    }
+    histogram = Histogram.build(values, 100, 10);
+    for (int i = 1; i < histogram.getNumBuckets(); i++) {
+      assertTrue(histogram.getUpperBound(i - 1).compareTo(
+          histogram.getUpperBound(i)) < 0);
+    }
+    assertEquals(100, sumCounts(histogram));
+  }
+
+  @Test
+  public void testMerge() {
+    List<Histogram> histograms = new ArrayList<Histogram>();
+    histograms.add(Histogram.build(createValues(0, 1000), 1000, 20));
+    histograms.add(Histogram.build(createValues(500, 1500), 1000, 20));
+    Histogram merged = Histogram.merge(histograms, 10);
+
+    assertTrue(merged.getNumBuckets() <= 10);
+    assertEquals(2000, sumCounts(merged));
+    assertEquals(1499, merged.getUpperBound(merged.getNumBuckets() - 1).asInt4());
+    long leq = merged.estimateNumValuesLeq(DatumFactory.createInt4(999));
+    assertTrue(leq + " is not close to 1500", Math.abs(leq - 1500) <= 100);
+  }
+
+  @Test
+  public void testProto() {
+    Histogram histogram = Histogram.build(createValues(0, 1000), 1000, 10);
+    Histogram fromProto = new Histogram(CatalogUtil.newDataTypeWithoutLen(Type.INT4),
+        histogram.getProto());
+    assertEquals(histogram, fromProto);
+  }
+}
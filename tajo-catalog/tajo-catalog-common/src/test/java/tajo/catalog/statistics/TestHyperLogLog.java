@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tajo.catalog.statistics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestHyperLogLog {
+
+  private static void assertEstimate(long expected, long estimate) {
+    // the standard error of the default precision is about 2.3%.
+    assertTrue(estimate + " is not close to " + expected,
+        Math.abs(estimate - expected) <= expected * 0.08 + 2);
+  }
+
+  @Test
+  public void testEstimate() {
+    for (int n : new int[] {0, 1, 10, 1000, 100000}) {
+      HyperLogLog sketch = new HyperLogLog();
+      for (int i = 0; i < n; i++) {
+        sketch.offer(("value_" + i).getBytes());
+        // the duplicates are not counted.
+        sketch.offer(("value_" + (i / 2)).getBytes());
+      }
+      assertEstimate(n, sketch.estimate());
+    }
+  }
+
+  @Test
+  public void testMerge() {
+    HyperLogLog sketch1 = new HyperLogLog();
+    HyperLogLog sketch2 = new HyperLogLog();
+    for (int i = 0; i < 30000; i++) {
+      sketch1.offer(("value_" + i).getBytes());
+    }
+    // a half of them overlap the values of sketch1.
+    for (int i = 15000; i < 45000; i++) {
+      sketch2.offer(("value_" + i).getBytes());
+    }
+    sketch1.merge(sketch2);
+    assertEstimate(45000, sketch1.estimate());
+
+    HyperLogLog copy = HyperLogLog.fromByteArray(sketch1.toByteArray());
+    assertEquals(sketch1.estimate(), copy.estimate());
+    assertEquals(HyperLogLog.DEFAULT_PRECISION, copy.getPrecision());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentPrecisions() {
+    new HyperLogLog(10).merge(new HyperLogLog(12));
+  }
+}
@@ -20,10 +20,16 @@ package tajo.catalog.statistics;
 
 import com.google.common.collect.Lists;
 import org.junit.Test;
+import tajo.catalog.Column;
 import tajo.catalog.proto.CatalogProtos.StatType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
 
 public class TestStatisticsUtil {
   @Test
@@ -65,4 +71,43 @@ public class TestStatisticsUtil {
     assertNotNull(StatisticsUtil.aggregateTableStat(
         Lists.newArrayList(stat1, stat2, stat3)));
   }
+
+  private static TableStat createTableStat(int from, int to, boolean sketch) {
+    HyperLogLog ndvSketch = new HyperLogLog();
+    List<Datum> values = new ArrayList<Datum>();
+    for (int i = from; i < to; i++) {
+      ndvSketch.offer(DatumFactory.createInt4(i).asByteArray());
+      values.add(DatumFactory.createInt4(i));
+    }
+    ColumnStat columnStat = new ColumnStat(new Column("id", Type.INT4));
+    columnStat.setNumDistVals(to - from);
+    columnStat.setHistogram(Histogram.build(values, to - from, 10));
+    if (sketch) {
+      columnStat.setNdvSketch(ndvSketch);
+    }
+
+    TableStat stat = new TableStat();
+    stat.setNumRows(to - from);
+    stat.addColumnStat(columnStat);
+    // through the proto, as the stats of tasks are reported
+    return new TableStat(stat.getProto());
+  }
+
+  @Test
+  public void testAggregateNumDistVals() {
+    TableStat agg = StatisticsUtil.aggregateTableStat(Lists.newArrayList(
+        createTableStat(0, 10000, true), createTableStat(5000, 15000, true)));
+    ColumnStat columnStat = agg.getColumnStats().get(0);
+    // the overlapped values are counted once.
+    long ndv = columnStat.getNumDistValues();
+    assertTrue(ndv + " is not close to 15000", Math.abs(ndv - 15000) < 1000);
+    assertNotNull(columnStat.getNdvSketch());
+    assertEquals(20000, columnStat.getHistogram().estimateNumValuesLeq(
+        DatumFactory.createInt4(15000)));
+
+    // the numbers are summed up if an output has no sketch.
+    agg = StatisticsUtil.aggregateTableStat(Lists.newArrayList(
+        createTableStat(0, 10000, true), createTableStat(5000, 15000, false)));
+    assertEquals(20000, agg.getColumnStats().get(0).getNumDistValues().longValue());
+  }
 }
@@ -27,6 +27,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import tajo.catalog.*;
 import tajo.catalog.proto.CatalogProtos.*;
+import tajo.catalog.statistics.ColumnStat;
 import tajo.catalog.statistics.TableStat;
 import tajo.common.TajoDataTypes.Type;
 import tajo.conf.TajoConf;
@@ -94,6 +95,7 @@ public class DBStore implements CatalogStore {
         createBaseTable();
       } else {
         LOG.info("The base tables of CatalogServer already is initialized.");
+        addColumnStatsIfMissing();
       }
     } catch (SQLException se) {
       throw new InternalException(
@@ -298,7 +300,8 @@ public class DBStore implements CatalogStore {
           + C_TABLE_ID + " VARCHAR(256) NOT NULL REFERENCES TABLES (" + C_TABLE_ID + ") "
           + "ON DELETE CASCADE, "
           + "num_rows BIGINT, "
-          + "num_bytes BIGINT)";
+          + "num_bytes BIGINT, "
+          + "col_stats BLOB)";
       if (LOG.isDebugEnabled()) {
         LOG.debug(stats_ddl);
       }
@@ -318,6 +321,34 @@ public class DBStore implements CatalogStore {
     }
   }
   
+  /**
+   * A catalog created before the column statistics were kept has no
+   * <code>col_stats</code> column in its statistics table.
+   */
+  private void addColumnStatsIfMissing() throws SQLException {
+    wlock.lock();
+    try {
+      ResultSet res = conn.getMetaData().getColumns(null, null,
+          TB_STATISTICS, "COL_STATS");
+      boolean found = res.next();
+      res.close();
+      if (found) {
+        return;
+      }
+
+      String sql = "ALTER TABLE " + TB_STATISTICS + " ADD COLUMN col_stats BLOB";
+      LOG.info(sql);
+      Statement stmt = conn.createStatement();
+      try {
+        stmt.executeUpdate(sql);
+      } finally {
+        stmt.close();
+      }
+    } finally {
+      wlock.unlock();
+    }
+  }
+
   private boolean isInitialized() throws SQLException {
     wlock.lock();
     try {
@@ -414,15 +445,7 @@ public class DBStore implements CatalogStore {
       }
       stmt.executeBatch();
       if (table.getMeta().getStat() != null) {
-        sql = "INSERT INTO " + TB_STATISTICS + " (" + C_TABLE_ID + ", num_rows, num_bytes) "
-            + "VALUES ('" + table.getId() + "', "
-            + table.getMeta().getStat().getNumRows() + ","
-            + table.getMeta().getStat().getNumBytes() + ")";
-        if (LOG.isDebugEnabled()) {
-          LOG.debug(sql);
-        }
-        stmt.addBatch(sql);
-        stmt.executeBatch();
+        addStat(table.getId(), table.getMeta().getStat());
       }
     } catch (SQLException se) {
       throw new IOException(se.getMessage(), se);
@@ -465,6 +488,39 @@ public class DBStore implements CatalogStore {
     return sql;
   }
   
+  /**
+   * The column statistics, including the sketches and histograms, are kept
+   * as a serialized TableStatProto.
+   */
+  private void addStat(final String tableId, final TableStat stat)
+      throws SQLException {
+    String sql = "INSERT INTO " + TB_STATISTICS + " (" + C_TABLE_ID
+        + ", num_rows, num_bytes, col_stats) VALUES (?,?,?,?)";
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(sql);
+    }
+
+    PreparedStatement stmt = conn.prepareStatement(sql);
+    try {
+      stmt.setString(1, tableId);
+      stmt.setLong(2, stat.getNumRows());
+      stmt.setLong(3, stat.getNumBytes());
+      if (stat.getColumnStats().size() > 0) {
+        TableStatProto colStats = TableStatProto.newBuilder()
+            .setNumRows(stat.getNumRows())
+            .setNumBytes(stat.getNumBytes())
+            .addAllColStat(stat.getProto().getColStatList())
+            .build();
+        stmt.setBytes(4, colStats.toByteArray());
+      } else {
+        stmt.setNull(4, Types.BLOB);
+      }
+      stmt.executeUpdate();
+    } finally {
+      stmt.close();
+    }
+  }
+
   @Override
   public final boolean existTable(final String name) throws IOException {
     StringBuilder sql = new StringBuilder();
@@ -662,7 +718,7 @@ public class DBStore implements CatalogStore {
       }
 
       try {
-        String sql = "SELECT num_rows, num_bytes from " + TB_STATISTICS
+        String sql = "SELECT num_rows, num_bytes, col_stats from " + TB_STATISTICS
             + " WHERE " + C_TABLE_ID + "='" + name + "'";
         if (LOG.isDebugEnabled()) {
           LOG.debug(sql);
@@ -674,6 +730,13 @@ public class DBStore implements CatalogStore {
           stat = new TableStat();
           stat.setNumRows(res.getLong("num_rows"));
           stat.setNumBytes(res.getLong("num_bytes"));
+          byte [] colStats = res.getBytes("col_stats");
+          if (colStats != null) {
+            for (ColumnStatProto colStat :
+                TableStatProto.parseFrom(colStats).getColStatList()) {
+              stat.addColumnStat(new ColumnStat(colStat));
+            }
+          }
         }
       } catch (SQLException se) {
         throw new IOException(se);
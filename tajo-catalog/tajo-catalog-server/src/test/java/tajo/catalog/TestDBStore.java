@@ -33,6 +33,9 @@ import tajo.conf.TajoConf;
 import tajo.util.CommonTestingUtil;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 
 import static org.junit.Assert.*;
 
@@ -111,6 +114,38 @@ public class TestDBStore {
     store.deleteTable(tableName);
   }
   
+  @Test
+  public final void testStatsTableWithoutColumnStats() throws Exception {
+    Path testDir = CommonTestingUtil.getTestDir(
+        "target/test-data/TestDBStore_oldStats");
+    String uri = "jdbc:derby:" + new File(testDir.toUri()).getAbsolutePath()
+        + "/db";
+    Configuration oldConf = new TajoConf();
+    oldConf.set(CatalogConstants.JDBC_URI, uri);
+    new DBStore(oldConf);
+
+    // a catalog created before the column statistics were kept
+    Connection conn = DriverManager.getConnection(uri);
+    Statement stmt = conn.createStatement();
+    stmt.executeUpdate("ALTER TABLE STATS DROP COLUMN col_stats");
+    stmt.close();
+    conn.close();
+
+    DBStore oldStore = new DBStore(oldConf);
+    Schema schema = new Schema();
+    schema.addColumn("oldstats.id", Type.INT4);
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+    TableStat stat = new TableStat();
+    stat.setNumRows(10);
+    stat.setNumBytes(100);
+    meta.setStat(stat);
+    oldStore.addTable(new TableDescImpl("oldstats", meta, new Path("/oldstats")));
+
+    TableDesc retrieved = oldStore.getTable("oldstats");
+    assertEquals(10, retrieved.getMeta().getStat().getNumRows().longValue());
+    assertEquals(100, retrieved.getMeta().getStat().getNumBytes().longValue());
+  }
+
   @Test
   public final void testGetAllTableNames() throws Exception {
     Schema schema = new Schema();
@@ -89,19 +89,62 @@ public class TajoConf extends YarnConfiguration {
     //////////////////////////////////
     PULLSERVER_PORT("tajo.pullserver.port", 0),
     SHUFFLE_SSL_ENABLED_KEY("tajo.pullserver.ssl.enabled", false),
+    // for the shuffle client of workers
+    SHUFFLE_FETCH_MAX_CONNECTIONS_PER_HOST("tajo.shuffle.fetch.max-connections-per-host", 2),
+    SHUFFLE_FETCH_PIPELINE_DEPTH("tajo.shuffle.fetch.pipeline-depth", 4),
+    // the maximum number of uris fetched with a single request
+    SHUFFLE_FETCH_BATCH_SIZE("tajo.shuffle.fetch.batch.max-uris", 64),
+    // whether a task starts to scan the fetched data before all fetches end
+    SHUFFLE_FETCH_STREAMING("tajo.shuffle.fetch.streaming.enabled", true),
+    // whether a task writes its hash partitions into a single indexed file
+    SHUFFLE_SORT_ENABLED("tajo.shuffle.sort.enabled", true),
+    SHUFFLE_SORT_BUFFER_SIZE("tajo.shuffle.sort.buffer.mb", 64),
+    // the format of hash-partitioned intermediate data, either RAW or CSV
+    SHUFFLE_STORE_TYPE("tajo.shuffle.store-type", "RAW"),
+    SHUFFLE_COMPRESSION_CODEC("tajo.shuffle.compression.codec", ""),
 
     //////////////////////////////////
     // Storage Configuration
     //////////////////////////////////
     RAWFILE_SYNC_INTERVAL("rawfile.sync.interval", null),
+    RAWFILE_MMAP_WINDOW_SIZE("tajo.storage.rawfile.mmap.window-size", 256 * 1024 * 1024),
     // for RCFile
     HIVEUSEEXPLICITRCFILEHEADER("tajo.exec.rcfile.use.explicit.header", true),
+    // for ColFile
+    COLFILE_ROW_GROUP_SIZE("tajo.storage.colfile.row-group.size", 1024 * 1024),
+    COLFILE_DICTIONARY_MAX_SIZE("tajo.storage.colfile.dictionary.max-size", 4096),
+    // for block compression
+    COMPRESSION_BLOCK_SIZE("tajo.storage.compression.block-size", 256 * 1024),
+    // for the read-ahead of scanners
+    READ_AHEAD_ENABLED("tajo.storage.read-ahead.enabled", true),
+    READ_AHEAD_BLOCK_SIZE("tajo.storage.read-ahead.block-size", 1024 * 1024),
+    READ_AHEAD_DEPTH("tajo.storage.read-ahead.depth", 4),
+    READ_AHEAD_THREADS("tajo.storage.read-ahead.threads", 16),
+    // for the parallel scan of multiple fragments; the rows of different
+    // fragments are interleaved, so it is only for order-insensitive queries.
+    SCAN_PARALLEL_FRAGMENTS("tajo.storage.scan.parallel-fragments", 1),
 
 
     //////////////////////////////////
     // Physical Executors
     //////////////////////////////////
-    EXT_SORT_BUFFER("tajo.extsort.buffer", 400000),
+    // only scans, selections and projections work on batches, and the other
+    // executors convert them back into tuples, so it is disabled by default.
+    EXEC_VECTORIZED("tajo.exec.vectorized.enabled", false),
+    EXEC_BATCH_SIZE("tajo.exec.batch.size", 1024),
+    EXEC_CODEGEN("tajo.exec.codegen.enabled", true),
+    EXT_SORT_BUFFER_SIZE("tajo.extsort.buffer.mb", 128),
+    EXT_SORT_FAN_IN("tajo.extsort.fan-in", 64),
+    // the sorted chunks are read and written through memory-mapped windows
+    EXT_SORT_MMAP("tajo.extsort.mmap.enabled", false),
+    SORT_NORMALIZED_KEY("tajo.sort.normalized-key.enabled", true),
+    SORT_TOPN_MAX_ROWS("tajo.sort.top-n.max-rows", 100000),
+    HASH_AGGREGATION_MEMORY("tajo.hash-aggregation.memory.mb", 256),
+    HASH_AGGREGATION_SPILL_PARTITIONS("tajo.hash-aggregation.spill.partitions", 32),
+    HASH_JOIN_MEMORY("tajo.hash-join.memory.mb", 256),
+    HASH_JOIN_PARTITIONS("tajo.hash-join.partitions", 32),
+    // an inner join of relations both larger than it is a hybrid hash join
+    HASH_JOIN_SIZE_THRESHOLD("tajo.hash-join.size-threshold.mb", 128),
     BROADCAST_JOIN_THRESHOLD("tajo.join.broadcast.threshold", (long)5 * 1048576),
 
     //////////////////////////////////////////
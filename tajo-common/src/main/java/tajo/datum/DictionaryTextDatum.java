@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.datum;
+
+/**
+ * A TEXT value which is an entry of a dictionary, e.g., of a
+ * dictionary-encoded column chunk.
+ *
+ * The entries of a dictionary are distinct, so two entries of the same
+ * dictionary are compared by their ids instead of their bytes. The hash code
+ * is computed only once for each entry, so grouping or joining on a
+ * dictionary-encoded column does not process the bytes for every row.
+ */
+public class DictionaryTextDatum extends TextDatum {
+  // the entries of the dictionary which this value belongs to
+  private final DictionaryTextDatum [] dictionary;
+  private final int id;
+  private int hash;
+
+  private DictionaryTextDatum(byte [] bytes, DictionaryTextDatum [] dictionary,
+                              int id) {
+    super(bytes);
+    this.dictionary = dictionary;
+    this.id = id;
+  }
+
+  /**
+   * Creates the entries of a dictionary.
+   *
+   * @param values distinct values, which are indexed by their ids
+   */
+  public static DictionaryTextDatum [] createDictionary(byte [][] values) {
+    DictionaryTextDatum [] dictionary = new DictionaryTextDatum[values.length];
+    for (int i = 0; i < values.length; i++) {
+      dictionary[i] = new DictionaryTextDatum(values[i], dictionary, i);
+    }
+    return dictionary;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  private boolean isInSameDictionary(Object obj) {
+    return dictionary != null && obj instanceof DictionaryTextDatum &&
+        ((DictionaryTextDatum) obj).dictionary == dictionary;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (isInSameDictionary(obj)) {
+      return ((DictionaryTextDatum) obj).id == id;
+    }
+    return super.equals(obj);
+  }
+
+  @Override
+  public BooleanDatum equalsTo(Datum datum) {
+    if (isInSameDictionary(datum)) {
+      return DatumFactory.createBool(((DictionaryTextDatum) datum).id == id);
+    }
+    return super.equalsTo(datum);
+  }
+
+  @Override
+  public int compareTo(Datum datum) {
+    if (isInSameDictionary(datum) && ((DictionaryTextDatum) datum).id == id) {
+      return 0;
+    }
+    return super.compareTo(datum);
+  }
+
+  @Override
+  public int hashCode() {
+    // it is computed lazily because a deserialized value has no hash code.
+    if (hash == 0) {
+      hash = super.hashCode();
+    }
+    return hash;
+  }
+}
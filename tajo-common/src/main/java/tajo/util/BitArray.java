@@ -76,7 +76,7 @@ public class BitArray {
     clear();
     int i = 0;
     while(byteBuffer.hasRemaining()) {
-      data[i] = byteBuffer.get();
+      data[i++] = byteBuffer.get();
     }
   }
 
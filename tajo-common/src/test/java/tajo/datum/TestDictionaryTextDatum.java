@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.datum;
+
+import org.junit.Test;
+import tajo.datum.json.GsonCreator;
+
+import static org.junit.Assert.*;
+
+public class TestDictionaryTextDatum {
+
+  private static DictionaryTextDatum [] createDictionary(String... values) {
+    byte [][] entries = new byte[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      entries[i] = values[i].getBytes();
+    }
+    return DictionaryTextDatum.createDictionary(entries);
+  }
+
+  @Test
+  public final void testEquals() {
+    DictionaryTextDatum [] dict1 = createDictionary("kr", "us", "jp");
+    DictionaryTextDatum [] dict2 = createDictionary("jp", "kr");
+
+    assertEquals(1, dict1[1].getId());
+    assertEquals(dict1[0], dict1[0]);
+    assertFalse(dict1[0].equals(dict1[1]));
+    assertTrue(dict1[2].equalsTo(dict1[2]).asBool());
+    assertFalse(dict1[2].equalsTo(dict1[0]).asBool());
+    assertEquals(0, dict1[1].compareTo(dict1[1]));
+    assertTrue(dict1[0].compareTo(dict1[1]) < 0);
+
+    // the values of different dictionaries are compared by their bytes.
+    assertEquals(dict1[0], dict2[1]);
+    assertEquals(dict1[2], dict2[0]);
+    assertTrue(dict1[0].equalsTo(dict2[1]).asBool());
+    assertEquals(0, dict1[2].compareTo(dict2[0]));
+
+    TextDatum text = DatumFactory.createText("us");
+    assertEquals(text, dict1[1]);
+    assertEquals(dict1[1], text);
+    assertEquals(text.hashCode(), dict1[1].hashCode());
+    assertTrue(dict1[1].equalsTo(text).asBool());
+  }
+
+  @Test
+  public final void testJson() {
+    DictionaryTextDatum [] dict = createDictionary("kr", "us");
+    Datum datum = DatumFactory.createText("us");
+    Datum fromJson = GsonCreator.getInstance().fromJson(
+        dict[1].toJSON(), Datum.class);
+    assertEquals(datum, fromJson);
+    assertEquals(datum.hashCode(), fromJson.hashCode());
+  }
+}
@@ -20,6 +20,8 @@ package tajo.util;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -36,4 +38,20 @@ public class TestBitArrayTest {
       assertTrue(bitArray.get(i));
     }
   }
+
+  @Test
+  public void testFromByteBuffer() {
+    int num = 20;
+    BitArray bitArray = new BitArray(num);
+    bitArray.set(3);
+    bitArray.set(9);
+    bitArray.set(17);
+
+    BitArray read = new BitArray(num);
+    read.set(0);
+    read.fromByteBuffer(ByteBuffer.wrap(bitArray.toArray()));
+    for (int i = 0; i < num; i++) {
+      assertTrue(bitArray.get(i) == read.get(i));
+    }
+  }
 }
@@ -27,6 +27,7 @@ import tajo.TajoProtos.TaskAttemptState;
 import tajo.catalog.statistics.TableStat;
 import tajo.conf.TajoConf;
 import tajo.storage.Fragment;
+import tajo.storage.FragmentQueue;
 
 import java.io.File;
 import java.util.*;
@@ -54,6 +55,9 @@ public class TaskAttemptContext {
   private boolean stopped = false;
   private boolean interQuery = false;
   private Path outputPath;
+  // the fetched tables which are scanned while being fetched
+  private final Map<String, FragmentQueue> fragmentQueues =
+      new HashMap<String, FragmentQueue>();
 
   public TaskAttemptContext(TajoConf conf, final QueryUnitAttemptId queryId,
                             final Fragment[] fragments,
@@ -144,6 +148,22 @@ public class TaskAttemptContext {
     return doneFetchPhaseSignal;
   }
   
+  public void setFragmentQueue(String tableId, FragmentQueue queue) {
+    if (queue == null) {
+      fragmentQueues.remove(tableId);
+    } else {
+      fragmentQueues.put(tableId, queue);
+    }
+  }
+
+  /**
+   * @return the queue of the fragments of a table which is scanned while
+   * being fetched, or null if the fragments of the table are all given
+   */
+  public FragmentQueue getFragmentQueue(String tableId) {
+    return fragmentQueues.get(tableId);
+  }
+
   public void addRepartition(int partKey, String path) {
     repartitions.put(partKey, path);
   }
@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.eval;
+
+import tajo.catalog.Schema;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.storage.MutableTuple;
+import tajo.storage.Tuple;
+
+/**
+ * The base class of the classes generated by {@link EvalCodeGenerator}.
+ *
+ * A generated class evaluates an {@link EvalNode} tree directly on the
+ * primitive values of a tuple. If any column read by the generated code is
+ * null, the whole tree is evaluated by the interpreter instead, so the
+ * results are always the same as those of {@link EvalNode#eval}.
+ */
+public abstract class CompiledEval {
+  private EvalNode eval;
+  private EvalContext evalCtx;
+  private Schema schema;
+  private boolean predicate;
+  // the ids of the columns read by the generated code
+  private int [] columnIds;
+
+  // the predicates which are not compiled, called by the generated code
+  private EvalNode [] fallbacks;
+  private EvalContext [] fallbackCtxs;
+
+  void init(EvalNode eval, Schema schema, boolean predicate,
+            int [] columnIds, EvalNode [] fallbacks) {
+    this.eval = eval;
+    this.evalCtx = eval.newContext();
+    this.schema = schema;
+    this.predicate = predicate;
+    this.columnIds = columnIds;
+    this.fallbacks = fallbacks;
+    this.fallbackCtxs = new EvalContext[fallbacks.length];
+    for (int i = 0; i < fallbacks.length; i++) {
+      fallbackCtxs[i] = fallbacks[i].newContext();
+    }
+  }
+
+  public EvalNode getEvalNode() {
+    return eval;
+  }
+
+  /**
+   * Evaluates a predicate.
+   */
+  public boolean isTrue(Tuple tuple) {
+    if (hasNull(tuple)) {
+      return interpret(tuple).asBool();
+    } else {
+      return evalBool(tuple);
+    }
+  }
+
+  /**
+   * Evaluates an expression.
+   */
+  public Datum eval(Tuple tuple) {
+    if (hasNull(tuple)) {
+      return interpret(tuple);
+    } else if (predicate) {
+      return DatumFactory.createBool(evalBool(tuple));
+    } else {
+      return evalDatum(tuple);
+    }
+  }
+
+  private boolean hasNull(Tuple tuple) {
+    for (int columnId : columnIds) {
+      if (!tuple.contains(columnId) || tuple.isNull(columnId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Datum interpret(Tuple tuple) {
+    eval.eval(evalCtx, schema, tuple);
+    return eval.terminate(evalCtx);
+  }
+
+  /**
+   * It is overridden by a generated class if the tree is a predicate.
+   */
+  protected boolean evalBool(Tuple tuple) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * It is overridden by a generated class if the tree is not a predicate.
+   */
+  protected Datum evalDatum(Tuple tuple) {
+    throw new UnsupportedOperationException();
+  }
+
+  // The generated code reads the values of a MutableTuple without creating
+  // any datum.
+
+  protected static int getInt4(Tuple tuple, int columnId) {
+    if (tuple instanceof MutableTuple) {
+      return ((MutableTuple) tuple).getInt4Value(columnId);
+    } else {
+      return tuple.get(columnId).asInt4();
+    }
+  }
+
+  protected static long getInt8(Tuple tuple, int columnId) {
+    if (tuple instanceof MutableTuple) {
+      return ((MutableTuple) tuple).getInt8Value(columnId);
+    } else {
+      return tuple.get(columnId).asInt8();
+    }
+  }
+
+  protected static float getFloat4(Tuple tuple, int columnId) {
+    if (tuple instanceof MutableTuple) {
+      return ((MutableTuple) tuple).getFloat4Value(columnId);
+    } else {
+      return tuple.get(columnId).asFloat4();
+    }
+  }
+
+  protected static double getFloat8(Tuple tuple, int columnId) {
+    if (tuple instanceof MutableTuple) {
+      return ((MutableTuple) tuple).getFloat8Value(columnId);
+    } else {
+      return tuple.get(columnId).asFloat8();
+    }
+  }
+
+  /**
+   * Evaluates a predicate which is not compiled.
+   */
+  protected final boolean evalFallback(int id, Tuple tuple) {
+    fallbacks[id].eval(fallbackCtxs[id], schema, tuple);
+    return fallbacks[id].terminate(fallbackCtxs[id]).asBool();
+  }
+}
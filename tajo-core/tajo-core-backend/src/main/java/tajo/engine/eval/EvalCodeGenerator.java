@@ -0,0 +1,464 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.eval;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * It compiles an {@link EvalNode} tree into a JVM class which evaluates the
+ * tree on primitive values without creating any intermediate datum.
+ *
+ * The following nodes are compiled:
+ * <ul>
+ *   <li>AND, OR and NOT,</li>
+ *   <li>comparisons between numeric values,</li>
+ *   <li>arithmetic on INT4, INT8 and FLOAT8 values, and</li>
+ *   <li>numeric column references and constants.</li>
+ * </ul>
+ * A predicate which cannot be compiled is evaluated by the interpreter from
+ * the generated code. The values are computed and compared in the same
+ * precision as {@link Datum} does.
+ */
+public class EvalCodeGenerator implements Opcodes {
+  private static final Log LOG = LogFactory.getLog(EvalCodeGenerator.class);
+  private static final AtomicInteger classSeq = new AtomicInteger(0);
+
+  private static final String BASE_CLASS = "tajo/engine/eval/CompiledEval";
+  private static final String TUPLE_CLASS = "tajo/storage/Tuple";
+  private static final String DATUM_CLASS = "tajo/datum/Datum";
+  private static final String DATUM_FACTORY_CLASS = "tajo/datum/DatumFactory";
+
+  private final Schema schema;
+  private final List<Integer> columnIds = new ArrayList<Integer>();
+  private final List<EvalNode> fallbacks = new ArrayList<EvalNode>();
+  private int compiledNum = 0;
+
+  private EvalCodeGenerator(Schema schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Compiles an expression or a predicate.
+   *
+   * @return the compiled expression, or null if the compilation does not
+   * help, e.g., the expression is just a column reference or no part of it
+   * can be compiled
+   */
+  public static CompiledEval compile(EvalNode eval, Schema schema) {
+    EvalCodeGenerator generator = new EvalCodeGenerator(schema);
+    String className = "tajo/engine/eval/GeneratedEval" +
+        classSeq.incrementAndGet();
+
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    // the class file version 49 does not require stack map frames.
+    cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null,
+        BASE_CLASS, null);
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, BASE_CLASS, "<init>", "()V");
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    boolean predicate = isPredicate(eval);
+    if (predicate) {
+      mv = cw.visitMethod(ACC_PROTECTED, "evalBool",
+          "(L" + TUPLE_CLASS + ";)Z", null, null);
+      mv.visitCode();
+      Label falseLabel = new Label();
+      generator.genJump(mv, eval, false, falseLabel);
+      mv.visitInsn(ICONST_1);
+      mv.visitInsn(IRETURN);
+      mv.visitLabel(falseLabel);
+      mv.visitInsn(ICONST_0);
+      mv.visitInsn(IRETURN);
+    } else {
+      Type type = generator.getValueType(eval);
+      if (type == null || eval.getType() == EvalNode.Type.FIELD ||
+          eval.getType() == EvalNode.Type.CONST) {
+        return null;
+      }
+      mv = cw.visitMethod(ACC_PROTECTED, "evalDatum",
+          "(L" + TUPLE_CLASS + ";)L" + DATUM_CLASS + ";", null, null);
+      mv.visitCode();
+      generator.genValue(mv, eval);
+      switch (type) {
+        case INT4:
+          mv.visitMethodInsn(INVOKESTATIC, DATUM_FACTORY_CLASS, "createInt4",
+              "(I)Ltajo/datum/Int4Datum;");
+          break;
+        case INT8:
+          mv.visitMethodInsn(INVOKESTATIC, DATUM_FACTORY_CLASS, "createInt8",
+              "(J)Ltajo/datum/Int8Datum;");
+          break;
+        default:
+          mv.visitMethodInsn(INVOKESTATIC, DATUM_FACTORY_CLASS, "createFloat8",
+              "(D)Ltajo/datum/Float8Datum;");
+      }
+      mv.visitInsn(ARETURN);
+    }
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    cw.visitEnd();
+
+    if (generator.compiledNum == 0) {
+      return null;
+    }
+
+    try {
+      Class<?> clazz = new GeneratedClassLoader(CompiledEval.class.getClassLoader())
+          .defineClass(className.replace('/', '.'), cw.toByteArray());
+      CompiledEval compiled = (CompiledEval) clazz.newInstance();
+      int [] ids = new int[generator.columnIds.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = generator.columnIds.get(i);
+      }
+      compiled.init(eval, schema, predicate, ids,
+          generator.fallbacks.toArray(new EvalNode[generator.fallbacks.size()]));
+      return compiled;
+    } catch (Throwable t) {
+      LOG.warn("Cannot compile " + eval + ", it will be interpreted", t);
+      return null;
+    }
+  }
+
+  private static boolean isPredicate(EvalNode eval) {
+    switch (eval.getType()) {
+      case AND:
+      case OR:
+      case NOT:
+      case EQUAL:
+      case NOT_EQUAL:
+      case LTH:
+      case LEQ:
+      case GTH:
+      case GEQ:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return the type of the value which {@link #genValue} pushes, or null if
+   * the expression cannot be compiled
+   */
+  private Type getValueType(EvalNode eval) {
+    switch (eval.getType()) {
+      case FIELD:
+        int columnId = EvalTreeUtil.findColumnId(schema,
+            ((FieldEval) eval).getColumnRef());
+        if (columnId < 0) {
+          return null;
+        }
+        return toNumericType(schema.getColumn(columnId).getDataType().getType());
+
+      case CONST:
+        return toNumericType(((ConstEval) eval).getValue().type());
+
+      case PLUS:
+      case MINUS:
+      case MULTIPLY:
+      case DIVIDE:
+      case MODULAR:
+        Type left = getValueType(eval.getLeftExpr());
+        Type right = getValueType(eval.getRightExpr());
+        if (!isArithmeticType(left) || !isArithmeticType(right)) {
+          return null;
+        }
+        if (left == Type.FLOAT8 || right == Type.FLOAT8) {
+          return Type.FLOAT8;
+        } else if (left == Type.INT8 || right == Type.INT8) {
+          return Type.INT8;
+        } else {
+          return Type.INT4;
+        }
+
+      default:
+        return null;
+    }
+  }
+
+  private static Type toNumericType(Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+      case FLOAT4:
+      case FLOAT8:
+        return type;
+      default:
+        return null;
+    }
+  }
+
+  private static boolean isArithmeticType(Type type) {
+    return type == Type.INT4 || type == Type.INT8 || type == Type.FLOAT8;
+  }
+
+  /**
+   * Pushes the value of an expression, which is an int, a long, a float or
+   * a double according to its type. An INT2 value is pushed as an int.
+   */
+  private void genValue(MethodVisitor mv, EvalNode eval) {
+    switch (eval.getType()) {
+      case FIELD:
+        int columnId = EvalTreeUtil.findColumnId(schema,
+            ((FieldEval) eval).getColumnRef());
+        if (!columnIds.contains(columnId)) {
+          columnIds.add(columnId);
+        }
+        mv.visitVarInsn(ALOAD, 1);
+        pushInt(mv, columnId);
+        String desc = "(L" + TUPLE_CLASS + ";I)";
+        switch (getValueType(eval)) {
+          case INT2:
+          case INT4:
+            mv.visitMethodInsn(INVOKESTATIC, BASE_CLASS, "getInt4", desc + "I");
+            break;
+          case INT8:
+            mv.visitMethodInsn(INVOKESTATIC, BASE_CLASS, "getInt8", desc + "J");
+            break;
+          case FLOAT4:
+            mv.visitMethodInsn(INVOKESTATIC, BASE_CLASS, "getFloat4", desc + "F");
+            break;
+          default:
+            mv.visitMethodInsn(INVOKESTATIC, BASE_CLASS, "getFloat8", desc + "D");
+        }
+        break;
+
+      case CONST:
+        Datum datum = ((ConstEval) eval).getValue();
+        switch (getValueType(eval)) {
+          case INT2:
+          case INT4:
+            pushInt(mv, datum.asInt4());
+            break;
+          case INT8:
+            mv.visitLdcInsn(datum.asInt8());
+            break;
+          case FLOAT4:
+            mv.visitLdcInsn(datum.asFloat4());
+            break;
+          default:
+            mv.visitLdcInsn(datum.asFloat8());
+        }
+        break;
+
+      default:
+        Type type = getValueType(eval);
+        genValue(mv, eval.getLeftExpr());
+        convert(mv, getValueType(eval.getLeftExpr()), type);
+        genValue(mv, eval.getRightExpr());
+        convert(mv, getValueType(eval.getRightExpr()), type);
+        mv.visitInsn(getArithmeticOpcode(eval.getType(), type));
+        break;
+    }
+    compiledNum++;
+  }
+
+  private static int getArithmeticOpcode(EvalNode.Type op, Type type) {
+    int base;
+    switch (op) {
+      case PLUS: base = IADD; break;
+      case MINUS: base = ISUB; break;
+      case MULTIPLY: base = IMUL; break;
+      case DIVIDE: base = IDIV; break;
+      default: base = IREM;
+    }
+    // the opcodes for int, long, float and double are consecutive.
+    switch (type) {
+      case INT4: return base;
+      case INT8: return base + 1;
+      case FLOAT4: return base + 2;
+      default: return base + 3;
+    }
+  }
+
+  private static void convert(MethodVisitor mv, Type from, Type to) {
+    if (from == to) {
+      return;
+    }
+    switch (from) {
+      case INT2:
+      case INT4:
+        mv.visitInsn(to == Type.INT8 ? I2L : (to == Type.FLOAT4 ? I2F : I2D));
+        break;
+      case INT8:
+        mv.visitInsn(to == Type.FLOAT4 ? L2F : L2D);
+        break;
+      case FLOAT4:
+        mv.visitInsn(F2D);
+        break;
+      default:
+        throw new IllegalStateException("Cannot convert " + from + " to " + to);
+    }
+  }
+
+  private static void pushInt(MethodVisitor mv, int value) {
+    if (value >= -1 && value <= 5) {
+      mv.visitInsn(ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(BIPUSH, value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      mv.visitIntInsn(SIPUSH, value);
+    } else {
+      mv.visitLdcInsn(value);
+    }
+  }
+
+  /**
+   * Jumps to a given label if the result of a predicate is
+   * <code>jumpIf</code>.
+   */
+  private void genJump(MethodVisitor mv, EvalNode eval, boolean jumpIf,
+                       Label target) {
+    Label skip;
+    switch (eval.getType()) {
+      case AND:
+        if (jumpIf) {
+          skip = new Label();
+          genJump(mv, eval.getLeftExpr(), false, skip);
+          genJump(mv, eval.getRightExpr(), true, target);
+          mv.visitLabel(skip);
+        } else {
+          genJump(mv, eval.getLeftExpr(), false, target);
+          genJump(mv, eval.getRightExpr(), false, target);
+        }
+        return;
+
+      case OR:
+        if (jumpIf) {
+          genJump(mv, eval.getLeftExpr(), true, target);
+          genJump(mv, eval.getRightExpr(), true, target);
+        } else {
+          skip = new Label();
+          genJump(mv, eval.getLeftExpr(), true, skip);
+          genJump(mv, eval.getRightExpr(), false, target);
+          mv.visitLabel(skip);
+        }
+        return;
+
+      case NOT:
+        genJump(mv, ((NotEval) eval).getSubExpr(), !jumpIf, target);
+        return;
+
+      case EQUAL:
+      case NOT_EQUAL:
+      case LTH:
+      case LEQ:
+      case GTH:
+      case GEQ:
+        Type left = getValueType(eval.getLeftExpr());
+        Type right = getValueType(eval.getRightExpr());
+        if (left != null && right != null) {
+          genCompare(mv, eval, left, right, jumpIf, target);
+          return;
+        }
+        break;
+    }
+
+    // evaluated by the interpreter
+    mv.visitVarInsn(ALOAD, 0);
+    pushInt(mv, fallbacks.size());
+    mv.visitVarInsn(ALOAD, 1);
+    mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLASS, "evalFallback",
+        "(IL" + TUPLE_CLASS + ";)Z");
+    mv.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+    fallbacks.add(eval);
+  }
+
+  /**
+   * The values are compared in long if both are integral, in float if one is
+   * integral and the other is FLOAT4, and in double otherwise.
+   */
+  private void genCompare(MethodVisitor mv, EvalNode eval, Type left,
+                          Type right, boolean jumpIf, Label target) {
+    Type type;
+    if (isIntegral(left) && isIntegral(right)) {
+      type = Type.INT8;
+    } else if ((isIntegral(left) && right == Type.FLOAT4) ||
+        (isIntegral(right) && left == Type.FLOAT4) ||
+        (left == Type.FLOAT4 && right == Type.FLOAT4)) {
+      type = Type.FLOAT4;
+    } else {
+      type = Type.FLOAT8;
+    }
+
+    genValue(mv, eval.getLeftExpr());
+    convert(mv, left, type);
+    genValue(mv, eval.getRightExpr());
+    convert(mv, right, type);
+
+    // Datum.compareTo() considers NaN equal to any value, but
+    // Datum.equalsTo() does not. So a comparison with NaN is true only for
+    // NOT_EQUAL, LEQ and GEQ. The NaN result of FCMPG and DCMPG is 1, and
+    // that of FCMPL and DCMPL is -1.
+    boolean nanIsGreater =
+        eval.getType() == EvalNode.Type.LTH || eval.getType() == EvalNode.Type.GEQ;
+    switch (type) {
+      case INT8:
+        mv.visitInsn(LCMP);
+        break;
+      case FLOAT4:
+        mv.visitInsn(nanIsGreater ? FCMPG : FCMPL);
+        break;
+      default:
+        mv.visitInsn(nanIsGreater ? DCMPG : DCMPL);
+    }
+
+    int opcode;
+    switch (eval.getType()) {
+      case EQUAL: opcode = jumpIf ? IFEQ : IFNE; break;
+      case NOT_EQUAL: opcode = jumpIf ? IFNE : IFEQ; break;
+      case LTH: opcode = jumpIf ? IFLT : IFGE; break;
+      case LEQ: opcode = jumpIf ? IFLE : IFGT; break;
+      case GTH: opcode = jumpIf ? IFGT : IFLE; break;
+      default: opcode = jumpIf ? IFGE : IFLT;
+    }
+    mv.visitJumpInsn(opcode, target);
+  }
+
+  private static boolean isIntegral(Type type) {
+    return type == Type.INT2 || type == Type.INT4 || type == Type.INT8;
+  }
+
+  private static class GeneratedClassLoader extends ClassLoader {
+    GeneratedClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class<?> defineClass(String name, byte [] bytes) {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
@@ -43,6 +43,25 @@ public class EvalTreeUtil {
     node.postOrder(new ChangeColumnRefVisitor(oldName, newName));
   }
   
+  /**
+   * Finds the column referred by a field in the same way as
+   * {@link FieldEval} does.
+   *
+   * @return the column id, or -1 if the column is not found
+   */
+  public static int findColumnId(Schema schema, Column column) {
+    if (schema.contains(column.getQualifiedName())) {
+      return schema.getColumnId(column.getQualifiedName());
+    } else if (schema.getColumnNum() != 0) {
+      String name = schema.getColumn(0).getTableName() + "." +
+          column.getColumnName();
+      if (schema.contains(name)) {
+        return schema.getColumnId(name);
+      }
+    }
+    return -1;
+  }
+
   public static Set<Column> findDistinctRefColumns(EvalNode node) {
     DistinctColumnRefFinder finder = new DistinctColumnRefFinder();
     node.postOrder(finder);
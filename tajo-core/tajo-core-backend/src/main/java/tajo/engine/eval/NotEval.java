@@ -47,6 +47,10 @@ public class NotEval extends EvalNode implements Cloneable {
     return newCtx;
   }
 
+  public EvalNode getSubExpr() {
+    return subExpr;
+  }
+
   @Override
   public DataType [] getValueType() {
     return RES_TYPE;
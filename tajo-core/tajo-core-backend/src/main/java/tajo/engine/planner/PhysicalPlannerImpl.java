@@ -29,6 +29,7 @@ import tajo.TaskAttemptContext;
 import tajo.catalog.Column;
 import tajo.catalog.SortSpec;
 import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
 import tajo.engine.planner.logical.*;
 import tajo.engine.planner.physical.*;
 import tajo.exception.InternalException;
@@ -120,10 +121,7 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
         return new UnionExec(ctx, outer, inner);
 
       case LIMIT:
-        LimitNode limitNode = (LimitNode) logicalNode;
-        outer = createPlanRecursive(ctx, limitNode.getSubNode());
-        return new LimitExec(ctx, limitNode.getInSchema(),
-            limitNode.getOutSchema(), outer, limitNode);
+        return createLimitPlan(ctx, (LimitNode) logicalNode);
 
       case CREATE_INDEX:
         IndexWriteNode createIndexNode = (IndexWriteNode) logicalNode;
@@ -151,6 +149,8 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
   private long estimateSizeRecursive(TaskAttemptContext ctx, String [] tableIds) {
     long size = 0;
     for (String tableId : tableIds) {
+      // a table being fetched has a fragment of the volume estimated by
+      // the master until it is fetched completely.
       Fragment[] fragments = ctx.getTables(tableId);
       for (Fragment frag : fragments) {
         size += frag.getLength();
@@ -173,28 +173,35 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
         long outerSize = estimateSizeRecursive(ctx, outerLineage);
         long innerSize = estimateSizeRecursive(ctx, innerLineage);
 
-        final long threshold = 1048576 * 128; // 64MB
+        final long threshold = (long) conf.getIntVar(
+            ConfVars.HASH_JOIN_SIZE_THRESHOLD) * 1048576;
 
         boolean hashJoin = false;
         if (outerSize < threshold || innerSize < threshold) {
           hashJoin = true;
         }
 
-        if (hashJoin) {
-          PhysicalExec selectedOuter;
-          PhysicalExec selectedInner;
+        PhysicalExec selectedOuter;
+        PhysicalExec selectedInner;
 
-          // HashJoinExec loads the inner relation to memory.
-          if (outerSize <= innerSize) {
-            selectedInner = outer;
-            selectedOuter = inner;
-          } else {
-            selectedInner = inner;
-            selectedOuter = outer;
-          }
+        // the smaller relation is used to build hash tables.
+        if (outerSize <= innerSize) {
+          selectedInner = outer;
+          selectedOuter = inner;
+        } else {
+          selectedInner = inner;
+          selectedOuter = outer;
+        }
 
+        if (hashJoin) {
           LOG.info("The planner chooses HashJoinExec");
           return new HashJoinExec(ctx, joinNode, selectedOuter, selectedInner);
+        } else {
+          // HybridHashJoinExec spills partitions of both relations to
+          // local disk if the inner relation exceeds the memory budget.
+          LOG.info("The planner chooses HybridHashJoinExec");
+          return new HybridHashJoinExec(ctx, joinNode, selectedOuter,
+              selectedInner);
         }
 
       default:
@@ -259,32 +266,43 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
       LOG.info("The planner chooses HashAggregationExec");
       return new HashAggregateExec(ctx, groupbyNode, subOp);
     } else {
-      String [] outerLineage = PlannerUtil.getLineage(groupbyNode.getSubNode());
-      long estimatedSize = estimateSizeRecursive(ctx, outerLineage);
-      final long threshold = 1048576 * 256;
-
-      // if the relation size is less than the reshold,
-      // the hash aggregation will be used.
-      if (estimatedSize <= threshold) {
-        LOG.info("The planner chooses HashAggregationExec");
-        return new HashAggregateExec(ctx, groupbyNode, subOp);
-      } else {
-        SortSpec[] specs = new SortSpec[grpColumns.length];
-        for (int i = 0; i < grpColumns.length; i++) {
-          specs[i] = new SortSpec(grpColumns[i], true, false);
-        }
-        SortNode sortNode = new SortNode(specs);
-        sortNode.setInSchema(subOp.getSchema());
-        sortNode.setOutSchema(subOp.getSchema());
-        // SortExec sortExec = new SortExec(sortNode, child);
-        ExternalSortExec sortExec = new ExternalSortExec(ctx, sm, sortNode,
-            subOp);
-        LOG.info("The planner chooses SortAggregationExec");
-        return new SortAggregateExec(ctx, groupbyNode, sortExec);
-      }
+      // the hash aggregation spills groups to local disk if they exceed
+      // the memory budget, so it is used regardless of the input size.
+      LOG.info("The planner chooses HybridHashAggregateExec");
+      return new HybridHashAggregateExec(ctx, groupbyNode, subOp);
     }
   }
 
+  /**
+   * If a limit is placed on a sort, possibly through a projection which
+   * never changes the number of tuples, the sort and the limit are replaced
+   * with a Top-N sort.
+   */
+  public PhysicalExec createLimitPlan(TaskAttemptContext ctx, LimitNode limitNode)
+      throws IOException {
+    LogicalNode child = limitNode.getSubNode();
+    ProjectionNode prjNode = null;
+    if (child.getType() == ExprType.PROJECTION) {
+      prjNode = (ProjectionNode) child;
+      child = prjNode.getSubNode();
+    }
+
+    long fetchFirstNum = limitNode.getFetchFirstNum();
+    if (child.getType() == ExprType.SORT &&
+        fetchFirstNum <= conf.getIntVar(ConfVars.SORT_TOPN_MAX_ROWS)) {
+      SortNode sortNode = (SortNode) child;
+      PhysicalExec subOp = createPlanRecursive(ctx, sortNode.getSubNode());
+      LOG.info("The planner chooses TopNSortExec (N=" + fetchFirstNum + ")");
+      PhysicalExec topN = new TopNSortExec(ctx, sortNode, subOp,
+          (int) fetchFirstNum);
+      return prjNode == null ? topN : new ProjectionExec(ctx, prjNode, topN);
+    }
+
+    PhysicalExec subOp = createPlanRecursive(ctx, limitNode.getSubNode());
+    return new LimitExec(ctx, limitNode.getInSchema(),
+        limitNode.getOutSchema(), subOp, limitNode);
+  }
+
   public PhysicalExec createSortPlan(TaskAttemptContext ctx, SortNode sortNode,
                                      PhysicalExec subOp) throws IOException {
     return new ExternalSortExec(ctx, sm, sortNode, subOp);
@@ -20,6 +20,9 @@ package tajo.engine.planner;
 
 import tajo.catalog.Column;
 import tajo.catalog.Schema;
+import tajo.datum.Datum;
+import tajo.engine.eval.CompiledEval;
+import tajo.engine.eval.EvalCodeGenerator;
 import tajo.engine.eval.EvalContext;
 import tajo.engine.eval.EvalNode;
 import tajo.engine.parser.QueryBlock.Target;
@@ -37,7 +40,20 @@ public class Projector {
   private EvalNode[] evals;
   private Tuple prevTuple;
 
+  // the compiled targets, or null for the interpreted ones
+  private CompiledEval [] compiled;
+  private Datum [] compiledResults;
+
   public Projector(Schema inSchema, Schema outSchema, Target [] targets) {
+    this(inSchema, outSchema, targets, false);
+  }
+
+  /**
+   * @param compile if true, the target expressions are compiled into
+   *                bytecode by {@link EvalCodeGenerator} where possible
+   */
+  public Projector(Schema inSchema, Schema outSchema, Target [] targets,
+                   boolean compile) {
     this.inSchema = inSchema;
     this.outSchema = outSchema;
 
@@ -61,6 +77,14 @@ public class Projector {
         evals[i] = targets[i].getEvalTree();
       }
 
+      if (compile) {
+        compiled = new CompiledEval[targetNum];
+        compiledResults = new Datum[targetNum];
+        for (int i = 0; i < targetNum; i++) {
+          compiled[i] = EvalCodeGenerator.compile(evals[i], inSchema);
+        }
+      }
+
       outer:
       for (int targetId = 0; targetId < outSchema.getColumnNum(); targetId ++) {
         for (int j = 0; j < evalOutMap.length; j++) {
@@ -87,7 +111,11 @@ public class Projector {
     this.prevTuple = in;
     if (targetNum > 0) {
       for (int i = 0; i < evals.length; i++) {
-        evals[i].eval(evalContexts[i], inSchema, in);
+        if (compiled != null && compiled[i] != null) {
+          compiledResults[i] = compiled[i].eval(in);
+        } else {
+          evals[i].eval(evalContexts[i], inSchema, in);
+        }
       }
     }
   }
@@ -98,11 +126,40 @@ public class Projector {
     }
     if (targetNum > 0) {
       for (int i = 0; i < evals.length; i++) {
-        out.put(evalOutMap[i], evals[i].terminate(evalContexts[i]));
+        if (compiled != null && compiled[i] != null) {
+          out.put(evalOutMap[i], compiledResults[i]);
+        } else {
+          out.put(evalOutMap[i], evals[i].terminate(evalContexts[i]));
+        }
       }
     }
   }
 
+  /**
+   * @return the ids of the input columns which are passed through
+   */
+  public int [] getInMap() {
+    return inMap;
+  }
+
+  /**
+   * @return the output column ids of the columns passed through
+   */
+  public int [] getOutMap() {
+    return outMap;
+  }
+
+  public EvalNode [] getEvals() {
+    return targetNum > 0 ? evals : new EvalNode[0];
+  }
+
+  /**
+   * @return the output column ids of the evaluated targets
+   */
+  public int [] getEvalOutMap() {
+    return targetNum > 0 ? evalOutMap : new int[0];
+  }
+
   public EvalContext [] renew() {
     EvalContext [] evalContexts = new EvalContext[targetNum];
     for (int i = 0; i < targetNum; i++) {
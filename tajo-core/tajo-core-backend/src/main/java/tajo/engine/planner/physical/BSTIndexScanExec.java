@@ -18,6 +18,7 @@
 
 package tajo.engine.planner.physical;
 
+import com.google.common.base.Preconditions;
 import org.apache.hadoop.fs.Path;
 import tajo.TaskAttemptContext;
 import tajo.catalog.Schema;
@@ -27,6 +28,7 @@ import tajo.engine.eval.EvalNode;
 import tajo.engine.planner.Projector;
 import tajo.engine.planner.logical.ScanNode;
 import tajo.storage.*;
+import tajo.storage.compress.BlockCompression;
 import tajo.storage.index.bst.BSTIndex;
 
 import java.io.IOException;
@@ -60,9 +62,12 @@ public class BSTIndexScanExec extends PhysicalExec {
     }
     this.datum = datum;
 
+    Preconditions.checkArgument(!BlockCompression.isCompressed(fragment.getMeta()),
+        "Cannot seek in the compressed fragment %s", fragment.getId());
     this.fileScanner = (SeekableScanner)StorageManager.getScanner(context.getConf(),
-        fragment.getMeta(), fragment, outSchema);
-    this.projector = new Projector(inSchema, outSchema, scanNode.getTargets());
+        fragment.getMeta(), fragment, inSchema);
+    this.projector = new Projector(inSchema, outSchema, scanNode.getTargets(),
+        isCodegenEnabled());
     this.evalContexts = projector.renew();
 
     this.reader = new BSTIndex(sm.getFileSystem().getConf()).
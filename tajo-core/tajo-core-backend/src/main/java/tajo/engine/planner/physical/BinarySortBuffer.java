@@ -0,0 +1,462 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
+import tajo.catalog.Schema;
+import tajo.catalog.SortSpec;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.ArrayDatum;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.datum.NullDatum;
+import tajo.datum.json.GsonCreator;
+import tajo.exception.UnsupportedException;
+import tajo.storage.Tuple;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A sort buffer which keeps tuples as serialized rows in byte pages and
+ * sorts an array of pointers to the rows, instead of keeping a Tuple and
+ * Datum objects for each row.
+ *
+ * Each row consists of an offset table, which has the offset of each field
+ * from the beginning of the row (-1 for null), and the serialized fields.
+ * Since any field can be accessed in constant time, the sort keys are
+ * compared directly on the serialized bytes for numeric and text types.
+ *
+ * If normalized keys are enabled, the first sort key of each row is also
+ * encoded into an 8-byte prefix, which is kept next to the row pointer and
+ * whose unsigned order is consistent with the sort order, including the
+ * direction and the position of nulls. Rows are compared by their prefixes
+ * first, and the serialized rows are only accessed on prefix ties.
+ */
+public class BinarySortBuffer implements IndexedSortable {
+  private static final int PAGE_SIZE = 1048576;
+
+  private final Type [] types;
+  private final int numColumns;
+  private final int headerSize;
+
+  // sort keys
+  private final int [] sortKeyIds;
+  private final boolean [] asc;
+  private final boolean [] nullFirsts;
+
+  // normalized key prefixes of the first sort key
+  private final boolean usePrefix;
+  // if true, equal prefixes mean that the first sort keys are equal.
+  private final boolean completePrefix;
+
+  private final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+  private int currentPage = -1;
+  private long [] pointers = new long[1024];
+  private long [] prefixes;
+  private int numRows = 0;
+  private long dataSize = 0;
+
+  // temporal states for serialization
+  private final byte [][] varBytes;
+
+  public BinarySortBuffer(Schema schema, SortSpec [] sortSpecs) {
+    this(schema, sortSpecs, false);
+  }
+
+  public BinarySortBuffer(Schema schema, SortSpec [] sortSpecs,
+                          boolean normalizedKey) {
+    this.numColumns = schema.getColumnNum();
+    this.types = new Type[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      types[i] = schema.getColumn(i).getDataType().getType();
+    }
+    this.headerSize = 4 * numColumns;
+    this.varBytes = new byte[numColumns][];
+
+    this.sortKeyIds = new int[sortSpecs.length];
+    this.asc = new boolean[sortSpecs.length];
+    this.nullFirsts = new boolean[sortSpecs.length];
+    for (int i = 0; i < sortSpecs.length; i++) {
+      sortKeyIds[i] = schema.getColumnId(sortSpecs[i].getSortKey().getQualifiedName());
+      asc[i] = sortSpecs[i].isAscending();
+      nullFirsts[i] = sortSpecs[i].isNullFirst();
+    }
+
+    Type firstKeyType = sortSpecs.length > 0 ? types[sortKeyIds[0]] : null;
+    this.usePrefix = normalizedKey && firstKeyType != null &&
+        (firstKeyType == Type.INT2 || firstKeyType == Type.INT4 ||
+        firstKeyType == Type.INT8 || firstKeyType == Type.FLOAT4 ||
+        firstKeyType == Type.FLOAT8 || firstKeyType == Type.TEXT);
+    // A prefix of INT8 can be the same as that of null.
+    this.completePrefix = usePrefix &&
+        firstKeyType != Type.INT8 && firstKeyType != Type.TEXT;
+    if (usePrefix) {
+      prefixes = new long[pointers.length];
+    }
+  }
+
+  public int size() {
+    return numRows;
+  }
+
+  /**
+   * @return the estimated bytes of the serialized rows and the pointers
+   */
+  public long getMemoryUsage() {
+    return dataSize + (usePrefix ? 16L : 8L) * pointers.length;
+  }
+
+  public void add(Tuple tuple) {
+    int rowSize = headerSize;
+    Datum datum;
+    for (int i = 0; i < numColumns; i++) {
+      datum = tuple.get(i);
+      if (datum == null || datum instanceof NullDatum) {
+        continue;
+      }
+      switch (types[i]) {
+        case BOOLEAN:
+        case BIT:
+          rowSize += 1;
+          break;
+        case CHAR:
+        case INT2:
+          rowSize += 2;
+          break;
+        case INT4:
+        case FLOAT4:
+        case INET4:
+          rowSize += 4;
+          break;
+        case INT8:
+        case FLOAT8:
+          rowSize += 8;
+          break;
+        case TEXT:
+        case BLOB:
+          varBytes[i] = datum.asByteArray();
+          rowSize += 4 + varBytes[i].length;
+          break;
+        case ARRAY:
+          varBytes[i] = ((ArrayDatum) datum).toJSON().getBytes();
+          rowSize += 4 + varBytes[i].length;
+          break;
+        default:
+          throw new UnsupportedException(types[i] + " is not supported in sort");
+      }
+    }
+
+    ByteBuffer page = reserve(rowSize);
+    int rowOffset = page.position();
+    int fieldOffset = headerSize;
+    page.position(rowOffset + headerSize);
+    for (int i = 0; i < numColumns; i++) {
+      datum = tuple.get(i);
+      if (datum == null || datum instanceof NullDatum) {
+        page.putInt(rowOffset + 4 * i, -1);
+        continue;
+      }
+      page.putInt(rowOffset + 4 * i, fieldOffset);
+      switch (types[i]) {
+        case BOOLEAN:
+        case BIT:
+          page.put(datum.asByte());
+          break;
+        case CHAR:
+          page.putChar(datum.asChar());
+          break;
+        case INT2:
+          page.putShort(datum.asInt2());
+          break;
+        case INT4:
+          page.putInt(datum.asInt4());
+          break;
+        case INET4:
+          page.put(datum.asByteArray());
+          break;
+        case FLOAT4:
+          page.putFloat(datum.asFloat4());
+          break;
+        case INT8:
+          page.putLong(datum.asInt8());
+          break;
+        case FLOAT8:
+          page.putDouble(datum.asFloat8());
+          break;
+        default: // TEXT, BLOB and ARRAY
+          page.putInt(varBytes[i].length);
+          page.put(varBytes[i]);
+          varBytes[i] = null;
+      }
+      fieldOffset = page.position() - rowOffset;
+    }
+
+    if (numRows == pointers.length) {
+      pointers = Arrays.copyOf(pointers, pointers.length * 2);
+      if (usePrefix) {
+        prefixes = Arrays.copyOf(prefixes, pointers.length);
+      }
+    }
+    if (usePrefix) {
+      prefixes[numRows] = normalize(tuple.get(sortKeyIds[0]));
+    }
+    pointers[numRows++] = ((long) currentPage << 32) | rowOffset;
+  }
+
+  /**
+   * Encodes a datum of the first sort key into an 8-byte prefix. The order
+   * of prefixes as unsigned longs never contradicts the sort order.
+   */
+  private long normalize(Datum datum) {
+    if (datum == null || datum instanceof NullDatum) {
+      return nullFirsts[0] ? 0 : -1L;
+    }
+
+    long key;
+    switch (types[sortKeyIds[0]]) {
+      case INT2:
+      case INT4:
+      case INT8:
+        key = datum.asInt8() ^ Long.MIN_VALUE;
+        break;
+      case FLOAT4:
+      case FLOAT8:
+        double val = datum.asFloat8();
+        // -0.0 and 0.0 are equal in comparison, and NaN is the largest.
+        long bits = Double.doubleToLongBits(val == 0.0d ? 0.0d : val);
+        key = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+        break;
+      default: // TEXT
+        byte [] bytes = datum.asByteArray();
+        key = 0;
+        for (int i = 0; i < 8; i++) {
+          key <<= 8;
+          if (i < bytes.length) {
+            key |= bytes[i] & 0xff;
+          }
+        }
+    }
+    return asc[0] ? key : ~key;
+  }
+
+  /**
+   * Returns a page which has at least a given number of remaining bytes.
+   */
+  private ByteBuffer reserve(int size) {
+    if (currentPage >= 0 && pages.get(currentPage).remaining() >= size) {
+      dataSize += size;
+      return pages.get(currentPage);
+    }
+
+    if (currentPage >= 0) {
+      // the remain bytes of the current page are wasted.
+      dataSize += pages.get(currentPage).remaining();
+    }
+    currentPage++;
+    if (currentPage < pages.size() && pages.get(currentPage).capacity() >= size) {
+      pages.get(currentPage).clear();
+    } else {
+      ByteBuffer page = ByteBuffer.allocate(Math.max(PAGE_SIZE, size));
+      if (currentPage < pages.size()) {
+        pages.set(currentPage, page);
+      } else {
+        pages.add(page);
+      }
+    }
+    dataSize += size;
+    return pages.get(currentPage);
+  }
+
+  public void sort() {
+    new QuickSort().sort(this, 0, numRows);
+  }
+
+  /**
+   * Deserializes the i'th row into a given tuple.
+   */
+  public Tuple get(int i, Tuple tuple) {
+    ByteBuffer page = pages.get((int) (pointers[i] >>> 32));
+    int rowOffset = (int) pointers[i];
+    for (int col = 0; col < numColumns; col++) {
+      tuple.put(col, getDatum(page, rowOffset, col));
+    }
+    return tuple;
+  }
+
+  private Datum getDatum(ByteBuffer page, int rowOffset, int col) {
+    int fieldOffset = page.getInt(rowOffset + 4 * col);
+    if (fieldOffset < 0) {
+      return DatumFactory.createNullDatum();
+    }
+
+    return readField(page, rowOffset + fieldOffset, col);
+  }
+
+  private Datum readField(ByteBuffer page, int pos, int col) {
+    switch (types[col]) {
+      case BOOLEAN:
+        return DatumFactory.createBool(page.get(pos));
+      case BIT:
+        return DatumFactory.createBit(page.get(pos));
+      case CHAR:
+        return DatumFactory.createChar(page.getChar(pos));
+      case INT2:
+        return DatumFactory.createInt2(page.getShort(pos));
+      case INT4:
+        return DatumFactory.createInt4(page.getInt(pos));
+      case INT8:
+        return DatumFactory.createInt8(page.getLong(pos));
+      case FLOAT4:
+        return DatumFactory.createFloat4(page.getFloat(pos));
+      case FLOAT8:
+        return DatumFactory.createFloat8(page.getDouble(pos));
+      case INET4:
+        return DatumFactory.createInet4(Arrays.copyOfRange(page.array(), pos, pos + 4));
+      default:
+        int length = page.getInt(pos);
+        byte [] bytes = Arrays.copyOfRange(page.array(), pos + 4, pos + 4 + length);
+        if (types[col] == Type.TEXT) {
+          return DatumFactory.createText(bytes);
+        } else if (types[col] == Type.BLOB) {
+          return DatumFactory.createBlob(bytes);
+        } else {
+          return (ArrayDatum) GsonCreator.getInstance().fromJson(
+              new String(bytes), Datum.class);
+        }
+    }
+  }
+
+  public void clear() {
+    numRows = 0;
+    currentPage = -1;
+    dataSize = 0;
+  }
+
+  @Override
+  public void swap(int i, int j) {
+    long tmp = pointers[i];
+    pointers[i] = pointers[j];
+    pointers[j] = tmp;
+    if (usePrefix) {
+      tmp = prefixes[i];
+      prefixes[i] = prefixes[j];
+      prefixes[j] = tmp;
+    }
+  }
+
+  /**
+   * It compares two rows in the same way as
+   * {@link tajo.storage.TupleComparator}.
+   */
+  @Override
+  public int compare(int i, int j) {
+    int firstKey = 0;
+    if (usePrefix) {
+      // unsigned comparison
+      long left = prefixes[i] ^ Long.MIN_VALUE;
+      long right = prefixes[j] ^ Long.MIN_VALUE;
+      if (left != right) {
+        return left < right ? -1 : 1;
+      }
+      if (completePrefix) {
+        firstKey = 1;
+      }
+    }
+
+    ByteBuffer leftPage = pages.get((int) (pointers[i] >>> 32));
+    ByteBuffer rightPage = pages.get((int) (pointers[j] >>> 32));
+    int leftRow = (int) pointers[i];
+    int rightRow = (int) pointers[j];
+
+    int col;
+    int leftOffset;
+    int rightOffset;
+    int compVal;
+    for (int k = firstKey; k < sortKeyIds.length; k++) {
+      col = sortKeyIds[k];
+      leftOffset = leftPage.getInt(leftRow + 4 * col);
+      rightOffset = rightPage.getInt(rightRow + 4 * col);
+
+      if (leftOffset < 0 || rightOffset < 0) {
+        if (leftOffset < 0 && rightOffset < 0) {
+          compVal = 0;
+        } else {
+          compVal = leftOffset < 0 ? 1 : -1;
+          if (nullFirsts[k]) {
+            compVal *= -1;
+          }
+        }
+      } else {
+        compVal = compareField(col, leftPage, leftRow + leftOffset,
+            rightPage, rightRow + rightOffset);
+        if (!asc[k]) {
+          compVal *= -1;
+        }
+      }
+
+      if (compVal != 0) {
+        return compVal;
+      }
+    }
+    return 0;
+  }
+
+  private int compareField(int col, ByteBuffer left, int leftPos,
+                           ByteBuffer right, int rightPos) {
+    switch (types[col]) {
+      case INT2:
+        return compareLong(left.getShort(leftPos), right.getShort(rightPos));
+      case INT4:
+        return compareLong(left.getInt(leftPos), right.getInt(rightPos));
+      case INT8:
+        return compareLong(left.getLong(leftPos), right.getLong(rightPos));
+      case FLOAT4:
+        return compareDouble(left.getFloat(leftPos), right.getFloat(rightPos));
+      case FLOAT8:
+        return compareDouble(left.getDouble(leftPos), right.getDouble(rightPos));
+      case TEXT:
+        return WritableComparator.compareBytes(
+            left.array(), leftPos + 4, left.getInt(leftPos),
+            right.array(), rightPos + 4, right.getInt(rightPos));
+      default:
+        return readField(left, leftPos, col).compareTo(readField(right, rightPos, col));
+    }
+  }
+
+  private static int compareLong(long left, long right) {
+    return left < right ? -1 : (left > right ? 1 : 0);
+  }
+
+  private static int compareDouble(double left, double right) {
+    if (left < right) {
+      return -1;
+    } else if (left > right) {
+      return 1;
+    }
+    // NaN is ordered after all the other values as in TupleComparator.
+    boolean leftNaN = Double.isNaN(left);
+    boolean rightNaN = Double.isNaN(right);
+    return leftNaN == rightNaN ? 0 : (leftNaN ? 1 : -1);
+  }
+}
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.datum.NullDatum;
+
+/**
+ * The values of a column for all rows of a {@link RowBatch}.
+ *
+ * A vector of an integer type (INT2, INT4 and INT8) keeps its values in a
+ * <code>long[]</code>, and a vector of a floating point type (FLOAT4 and
+ * FLOAT8) keeps them in a <code>double[]</code>. A vector of any other type
+ * keeps only datums.
+ *
+ * A vector is filled either with datums, e.g., by scanned tuples, or with
+ * primitive values, e.g., by a vectorized expression. The other
+ * representation is made on demand: primitive values are decoded from datums
+ * for all rows at once by {@link #decode(int)}, and a datum is created from a
+ * primitive value by {@link #getDatum(int)}.
+ */
+public class ColumnVector {
+  private final Type type;
+  private final Datum [] datums;
+  private final long [] longs;
+  private final double [] doubles;
+  private final boolean [] nulls;
+
+  private boolean datumsValid = true;
+  private boolean valuesValid = false;
+  // if true, the value at 0 is the value of all rows
+  private boolean repeating = false;
+
+  public ColumnVector(Type type, int capacity) {
+    this.type = type;
+    this.datums = new Datum[capacity];
+    this.nulls = new boolean[capacity];
+    if (isIntegral(type)) {
+      longs = new long[capacity];
+      doubles = null;
+    } else if (isFloatingPoint(type)) {
+      longs = null;
+      doubles = new double[capacity];
+    } else {
+      longs = null;
+      doubles = null;
+    }
+  }
+
+  public static boolean isIntegral(Type type) {
+    return type == Type.INT2 || type == Type.INT4 || type == Type.INT8;
+  }
+
+  public static boolean isFloatingPoint(Type type) {
+    return type == Type.FLOAT4 || type == Type.FLOAT8;
+  }
+
+  public static boolean isPrimitive(Type type) {
+    return isIntegral(type) || isFloatingPoint(type);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public boolean isRepeating() {
+    return repeating;
+  }
+
+  /**
+   * Makes this vector have the same value for all rows.
+   */
+  public void setRepeating(Datum datum) {
+    repeating = true;
+    datumsValid = true;
+    valuesValid = false;
+    datums[0] = datum;
+    decode(1);
+  }
+
+  /**
+   * Prepares this vector to be filled with datums.
+   */
+  public void resetDatums() {
+    repeating = false;
+    datumsValid = true;
+    valuesValid = false;
+  }
+
+  /**
+   * Prepares this vector to be filled with primitive values.
+   */
+  public void resetValues() {
+    repeating = false;
+    datumsValid = false;
+    valuesValid = true;
+  }
+
+  public void setDatum(int row, Datum datum) {
+    datums[row] = datum;
+  }
+
+  public void setLong(int row, long value) {
+    nulls[row] = false;
+    longs[row] = value;
+  }
+
+  public void setDouble(int row, double value) {
+    nulls[row] = false;
+    doubles[row] = value;
+  }
+
+  public void setNull(int row) {
+    nulls[row] = true;
+  }
+
+  /**
+   * Sets a value given as a datum to a vector filled with primitive values.
+   */
+  public void setValue(int row, Datum datum) {
+    if (datum == null || datum instanceof NullDatum) {
+      nulls[row] = true;
+    } else if (longs != null) {
+      setLong(row, datum.asInt8());
+    } else {
+      setDouble(row, datum.asFloat8());
+    }
+  }
+
+  /**
+   * Decodes the primitive values of the first <code>size</code> rows from
+   * datums if they are not decoded yet.
+   */
+  public void decode(int size) {
+    if (valuesValid || (longs == null && doubles == null)) {
+      return;
+    }
+
+    Datum datum;
+    for (int row = 0; row < size; row++) {
+      datum = datums[row];
+      if (datum == null || datum instanceof NullDatum) {
+        nulls[row] = true;
+      } else {
+        nulls[row] = false;
+        if (longs != null) {
+          longs[row] = datum.asInt8();
+        } else {
+          doubles[row] = datum.asFloat8();
+        }
+      }
+    }
+    valuesValid = true;
+  }
+
+  public boolean isNull(int row) {
+    return nulls[repeating ? 0 : row];
+  }
+
+  public long getLong(int row) {
+    return longs[repeating ? 0 : row];
+  }
+
+  public double getDouble(int row) {
+    int idx = repeating ? 0 : row;
+    return longs != null ? (double) longs[idx] : doubles[idx];
+  }
+
+  public float getFloat(int row) {
+    int idx = repeating ? 0 : row;
+    return longs != null ? (float) longs[idx] : (float) doubles[idx];
+  }
+
+  public Datum getDatum(int row) {
+    int idx = repeating ? 0 : row;
+    if (datumsValid) {
+      Datum datum = datums[idx];
+      return datum == null ? NullDatum.get() : datum;
+    }
+
+    if (nulls[idx]) {
+      return NullDatum.get();
+    }
+    switch (type) {
+      case INT2: return DatumFactory.createInt2((short) longs[idx]);
+      case INT4: return DatumFactory.createInt4((int) longs[idx]);
+      case INT8: return DatumFactory.createInt8(longs[idx]);
+      case FLOAT4: return DatumFactory.createFloat4((float) doubles[idx]);
+      default: return DatumFactory.createFloat8(doubles[idx]);
+    }
+  }
+}
@@ -32,17 +32,21 @@ import java.io.IOException;
 import java.util.*;
 
 public class ExternalSortExec extends SortExec {
+  private static final int MIN_MMAP_WINDOW_SIZE = 1048576;
+
   private SortNode plan;
 
-  private final List<Tuple> tupleSlots;
+  private final BinarySortBuffer sortBuffer;
   private boolean sorted = false;
-  private RawFile.RawFileScanner result;
+  private KWayMerger result;
+  private Path [] resultChunks;
   private RawFile.RawFileAppender appender;
   private FileSystem localFS;
 
   private final TableMeta meta;
   private final Path sortTmpDir;
-  private int SORT_BUFFER_SIZE;
+  private long SORT_BUFFER_SIZE;
+  private int FAN_IN;
 
   public ExternalSortExec(final TaskAttemptContext context,
       final StorageManager sm, final SortNode plan, final PhysicalExec child)
@@ -51,12 +55,25 @@ public class ExternalSortExec extends SortExec {
         plan.getSortKeys());
     this.plan = plan;
 
-    this.SORT_BUFFER_SIZE = context.getConf().getIntVar(ConfVars.EXT_SORT_BUFFER);
-    this.tupleSlots = new ArrayList<Tuple>(SORT_BUFFER_SIZE);
+    this.SORT_BUFFER_SIZE = (long) context.getConf().getIntVar(
+        ConfVars.EXT_SORT_BUFFER_SIZE) * 1048576;
+    this.FAN_IN = Math.max(2, context.getConf().getIntVar(ConfVars.EXT_SORT_FAN_IN));
+    this.sortBuffer = new BinarySortBuffer(inSchema, plan.getSortKeys(),
+        context.getConf().getBoolVar(ConfVars.SORT_NORMALIZED_KEY));
 
     this.sortTmpDir = new Path(context.getWorkDir(), UUID.randomUUID().toString());
     this.localFS = FileSystem.getLocal(context.getConf());
-    meta = CatalogUtil.newTableMeta(inSchema, StoreType.ROWFILE);
+    meta = CatalogUtil.newTableMeta(inSchema, StoreType.RAW);
+    // the sorted chunks are local files, which are written and read once.
+    if (context.getConf().getBoolVar(ConfVars.EXT_SORT_MMAP)) {
+      meta.putOption(RawFile.MMAP, "true");
+      // a merge maps a window of each of FAN_IN chunks and of its output,
+      // so the windows together are bounded by the sort buffer size.
+      long windowSize = Math.min(
+          context.getConf().getIntVar(ConfVars.RAWFILE_MMAP_WINDOW_SIZE),
+          Math.max(MIN_MMAP_WINDOW_SIZE, SORT_BUFFER_SIZE / (FAN_IN + 1)));
+      meta.putOption(RawFile.MMAP_WINDOW_SIZE, String.valueOf(windowSize));
+    }
   }
 
   public void init() throws IOException {
@@ -68,10 +85,8 @@ public class ExternalSortExec extends SortExec {
     return this.plan;
   }
 
-  private void sortAndStoreChunk(int chunkId, List<Tuple> tupleSlots)
-      throws IOException {
-    TableMeta meta = CatalogUtil.newTableMeta(inSchema, StoreType.RAW);
-    Collections.sort(tupleSlots, getComparator());
+  private void sortAndStoreChunk(int chunkId) throws IOException {
+    sortBuffer.sort();
     // TODO - RawFile requires the local file path.
     // So, I add the scheme 'file:/' to path. But, it should be improved.
     Path localPath = new Path(sortTmpDir + "/0_" + chunkId);
@@ -79,15 +94,18 @@ public class ExternalSortExec extends SortExec {
     appender = new RawFile.RawFileAppender(context.getConf(), meta, localPath);
     appender.init();
 
-    for (Tuple t : tupleSlots) {
-      appender.addTuple(t);
+    Tuple tuple = new VTuple(inSchema.getColumnNum());
+    for (int i = 0; i < sortBuffer.size(); i++) {
+      appender.addTuple(sortBuffer.get(i, tuple));
     }
     appender.close();
-    tupleSlots.clear();
+    sortBuffer.clear();
   }
 
   /**
-   * It divides all tuples into a number of chunks, then sort for each chunk.
+   * It divides all tuples into a number of chunks, each of which fits in
+   * the sort buffer size (<code>tajo.extsort.buffer.mb</code>),
+   * then sort for each chunk.
    * @return the number of stored chunks
    * @throws java.io.IOException
    */
@@ -96,15 +114,15 @@ public class ExternalSortExec extends SortExec {
 
     Tuple tuple;
     while ((tuple = child.next()) != null) { // partition sort start
-      tupleSlots.add(new VTuple(tuple));
-      if (tupleSlots.size() == SORT_BUFFER_SIZE) {
-        sortAndStoreChunk(chunkId, tupleSlots);
+      sortBuffer.add(tuple);
+      if (sortBuffer.getMemoryUsage() >= SORT_BUFFER_SIZE) {
+        sortAndStoreChunk(chunkId);
         chunkId++;
       }
     }
 
-    if (tupleSlots.size() > 0) {
-      sortAndStoreChunk(chunkId, tupleSlots);
+    if (sortBuffer.size() > 0) {
+      sortAndStoreChunk(chunkId);
       chunkId++;
     }
 
@@ -128,94 +146,155 @@ public class ExternalSortExec extends SortExec {
       }
 
       int level = 0;
-      int chunkId = 0;
-
-      // continue until the chunk remains only one
-      while (totalChunkNumForLevel > 1) {
-
-        while (chunkId < totalChunkNumForLevel) {
-
-          Path nextChunk = getChunkPath(level + 1, chunkId / 2);
-
-          // if number of chunkId is odd just copy it.
-          if (chunkId + 1 >= totalChunkNumForLevel) {
-
-            Path chunk = getChunkPath(level, chunkId);
-            localFS.moveFromLocalFile(chunk, nextChunk);
 
-          } else {
-
-            Path leftChunk = getChunkPath(level, chunkId);
-            Path rightChunk = getChunkPath(level, chunkId + 1);
+      // merge every FAN_IN chunks into one chunk of the next level
+      // until the remain chunks can be merged at once.
+      while (totalChunkNumForLevel > FAN_IN) {
+        int nextChunkId = 0;
+        for (int chunkId = 0; chunkId < totalChunkNumForLevel; chunkId += FAN_IN) {
+          Path nextChunk = getChunkPath(level + 1, nextChunkId++);
+          int num = Math.min(FAN_IN, totalChunkNumForLevel - chunkId);
+
+          // if there is only one chunk, just move it.
+          if (num == 1) {
+            localFS.rename(getChunkPath(level, chunkId), nextChunk);
+            continue;
+          }
 
-            appender = new RawFile.RawFileAppender(context.getConf(), meta, nextChunk);
-            appender.init();
-            merge(appender, leftChunk, rightChunk);
+          Path [] chunks = new Path[num];
+          for (int i = 0; i < num; i++) {
+            chunks[i] = getChunkPath(level, chunkId + i);
+          }
 
-            appender.flush();
-            appender.close();
+          appender = new RawFile.RawFileAppender(context.getConf(), meta, nextChunk);
+          appender.init();
+          KWayMerger merger = new KWayMerger(chunks);
+          Tuple tuple;
+          while ((tuple = merger.next()) != null) {
+            appender.addTuple(tuple);
           }
+          merger.close();
+          appender.close();
 
-          chunkId += 2;
+          for (Path chunk : chunks) {
+            localFS.delete(chunk, false);
+          }
         }
 
         level++;
-        // init chunkId for each level
-        chunkId = 0;
-        // calculate the total number of chunks for next level
-        totalChunkNumForLevel = totalChunkNumForLevel / 2
-            + totalChunkNumForLevel % 2;
+        totalChunkNumForLevel = nextChunkId;
       }
 
-      Path result = getChunkPath(level, 0);
-      this.result = new RawFile.RawFileScanner(context.getConf(), meta, result);
+      // the final merge is not written to disk.
+      resultChunks = new Path[totalChunkNumForLevel];
+      for (int i = 0; i < totalChunkNumForLevel; i++) {
+        resultChunks[i] = getChunkPath(level, i);
+      }
+      this.result = new KWayMerger(resultChunks);
       sorted = true;
     }
 
     return result.next();
   }
 
-  private void merge(RawFile.RawFileAppender appender, Path left, Path right)
-      throws IOException {
-    RawFile.RawFileScanner leftScan = new RawFile.RawFileScanner(context.getConf(), meta, left);
-
-    RawFile.RawFileScanner rightScan =
-        new RawFile.RawFileScanner(context.getConf(), meta, right);
-
-    Tuple leftTuple = leftScan.next();
-    Tuple rightTuple = rightScan.next();
-
-    Comparator<Tuple> comparator = getComparator();
-    while (leftTuple != null && rightTuple != null) {
-      if (comparator.compare(leftTuple, rightTuple) < 0) {
-        appender.addTuple(leftTuple);
-        leftTuple = leftScan.next();
-      } else {
-        appender.addTuple(rightTuple);
-        rightTuple = rightScan.next();
+  /**
+   * It merges a number of sorted chunks at once by using a loser tree,
+   * which finds the next smallest tuple with log2(k) comparisons.
+   */
+  private class KWayMerger {
+    private final RawFile.RawFileScanner [] scanners;
+    private final Tuple [] heads;
+    private final Comparator<Tuple> comparator = getComparator();
+    private final int k;
+    // tree[0] is the index of the winner, and the others are losers.
+    private final int [] tree;
+    private int lastWinner = -1;
+
+    public KWayMerger(Path [] chunks) throws IOException {
+      k = chunks.length;
+      scanners = new RawFile.RawFileScanner[k];
+      heads = new Tuple[k];
+      tree = new int[k];
+
+      for (int i = 0; i < k; i++) {
+        scanners[i] = new RawFile.RawFileScanner(context.getConf(), meta, chunks[i]);
+        // a head is consumed before the next tuple of its chunk is read.
+        scanners[i].setReuseTuple(true);
+        heads[i] = scanners[i].next();
       }
+
+      Arrays.fill(tree, -1);
+      for (int i = k - 1; i >= 0; i--) {
+        adjust(i);
+      }
+    }
+
+    /**
+     * Replays the matches from the leaf of a given source to the root.
+     */
+    private void adjust(int source) {
+      int winner = source;
+      int tmp;
+      for (int node = (source + k) >> 1; node > 0; node >>= 1) {
+        if (tree[node] == -1) {
+          // it only happens while building the tree
+          tree[node] = winner;
+          return;
+        }
+        if (loses(winner, tree[node])) {
+          tmp = winner;
+          winner = tree[node];
+          tree[node] = tmp;
+        }
+      }
+      tree[0] = winner;
     }
 
-    if (leftTuple == null) {
-      appender.addTuple(rightTuple);
-      while ((rightTuple = rightScan.next()) != null) {
-        appender.addTuple(rightTuple);
+    private boolean loses(int a, int b) {
+      if (heads[a] == null) {
+        return heads[b] != null || a > b;
+      } else if (heads[b] == null) {
+        return false;
       }
-    } else {
-      appender.addTuple(leftTuple);
-      while ((leftTuple = leftScan.next()) != null) {
-        appender.addTuple(leftTuple);
+      int cmp = comparator.compare(heads[a], heads[b]);
+      return cmp > 0 || (cmp == 0 && a > b);
+    }
+
+    public Tuple next() throws IOException {
+      // the scanner of the last winner is advanced lazily
+      // because the returned tuple is reused by the scanner.
+      if (lastWinner >= 0) {
+        heads[lastWinner] = scanners[lastWinner].next();
+        adjust(lastWinner);
       }
+      lastWinner = tree[0];
+      return heads[lastWinner];
     }
 
-    leftScan.close();
-    rightScan.close();
+    public void close() throws IOException {
+      for (RawFile.RawFileScanner scanner : scanners) {
+        scanner.close();
+      }
+    }
   }
 
   @Override
   public void rescan() throws IOException {
     if (result != null) {
-      result.reset();
+      result.close();
+      result = new KWayMerger(resultChunks);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    if (result != null) {
+      result.close();
+      result = null;
     }
+    // the intermediate chunks are removed while being merged, and the
+    // last ones are kept until here for rescan.
+    localFS.delete(sortTmpDir, true);
   }
 }
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import com.google.common.base.Preconditions;
+import tajo.catalog.Column;
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+import tajo.datum.NullDatum;
+import tajo.storage.Tuple;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table for grouping keys which consist of
+ * fixed-width columns only.
+ *
+ * Each key is encoded into a fixed number of long words (one per key column
+ * plus one null bitmap word), and all keys are stored in a single flat
+ * <code>long[]</code>. Collisions are resolved by linear probing. A lookup
+ * encodes the key columns of an input tuple into a reusable buffer, so no
+ * key object is allocated per input row, and it finds either the matching
+ * slot or the empty slot to be used in a single probe sequence.
+ *
+ * @param <V> the type of values mapped to keys
+ */
+public class FixedWidthKeyHashTable<V> {
+  /** the maximum number of key columns; it is limited by the null bitmap word */
+  public static final int MAX_KEY_NUM = 64;
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private final int [] keyIds;
+  private final Type [] keyTypes;
+  private final int width;
+  private final long [] keyBuffer;
+
+  private long [] keys;
+  private int [] hashes;
+  private boolean [] occupied;
+  private Object [] values;
+  private int mask;
+  private int size;
+  private int threshold;
+
+  /**
+   * @param inSchema the schema of input tuples
+   * @param keyIds the ids of key columns in the input schema
+   * @param initialCapacity the expected number of distinct keys
+   */
+  public FixedWidthKeyHashTable(Schema inSchema, int [] keyIds,
+                                int initialCapacity) {
+    Preconditions.checkArgument(keyIds.length <= MAX_KEY_NUM,
+        "Too many key columns: %s", keyIds.length);
+    this.keyIds = keyIds;
+    this.keyTypes = new Type[keyIds.length];
+    for (int i = 0; i < keyIds.length; i++) {
+      keyTypes[i] = inSchema.getColumn(keyIds[i]).getDataType().getType();
+      Preconditions.checkArgument(isFixedWidth(keyTypes[i]),
+          "%s is not a fixed-width type", keyTypes[i]);
+    }
+    this.width = keyIds.length + 1;
+    this.keyBuffer = new long[width];
+
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < initialCapacity) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  /**
+   * Returns true if all given columns can be used as keys of this hash table.
+   */
+  public static boolean isSupported(Column [] columns) {
+    if (columns.length > MAX_KEY_NUM) {
+      return false;
+    }
+    for (Column column : columns) {
+      if (!isFixedWidth(column.getDataType().getType())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static boolean isFixedWidth(Type type) {
+    switch (type) {
+      case BOOLEAN:
+      case BIT:
+      case CHAR:
+      case INT2:
+      case INT4:
+      case INT8:
+      case FLOAT4:
+      case FLOAT8:
+      case INET4:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Finds the slot for the key of a given tuple. If the key does not exist,
+   * a new slot is assigned to the key and its value is null until
+   * {@link #setValue(int, Object)} is called.
+   *
+   * @return the slot index of the key
+   */
+  public int findOrInsert(Tuple tuple) {
+    if (size >= threshold) {
+      rehash(keys.length / width * 2);
+    }
+
+    int hash = encode(tuple);
+    int slot = hash & mask;
+    while (occupied[slot]) {
+      if (hashes[slot] == hash && keyEquals(slot)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    occupied[slot] = true;
+    hashes[slot] = hash;
+    System.arraycopy(keyBuffer, 0, keys, slot * width, width);
+    size++;
+    return slot;
+  }
+
+  /**
+   * Finds the slot for the key of a given tuple without inserting it.
+   *
+   * @return the slot index of the key, or -1 if the key does not exist
+   */
+  public int find(Tuple tuple) {
+    int hash = encode(tuple);
+    int slot = hash & mask;
+    while (occupied[slot]) {
+      if (hashes[slot] == hash && keyEquals(slot)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V getValue(int slot) {
+    return (V) values[slot];
+  }
+
+  public void setValue(int slot, V value) {
+    values[slot] = value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of slots. Slot indexes range from 0 to capacity - 1.
+   */
+  public int capacity() {
+    return occupied.length;
+  }
+
+  public boolean isOccupied(int slot) {
+    return occupied[slot];
+  }
+
+  public void clear() {
+    Arrays.fill(occupied, false);
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity * width];
+    hashes = new int[capacity];
+    occupied = new boolean[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private void rehash(int newCapacity) {
+    long [] oldKeys = keys;
+    int [] oldHashes = hashes;
+    boolean [] oldOccupied = occupied;
+    Object [] oldValues = values;
+
+    allocate(newCapacity);
+    int slot;
+    for (int i = 0; i < oldOccupied.length; i++) {
+      if (oldOccupied[i]) {
+        slot = oldHashes[i] & mask;
+        while (occupied[slot]) {
+          slot = (slot + 1) & mask;
+        }
+        occupied[slot] = true;
+        hashes[slot] = oldHashes[i];
+        values[slot] = oldValues[i];
+        System.arraycopy(oldKeys, i * width, keys, slot * width, width);
+      }
+    }
+  }
+
+  private boolean keyEquals(int slot) {
+    int offset = slot * width;
+    for (int i = 0; i < width; i++) {
+      if (keys[offset + i] != keyBuffer[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Encodes the key columns of a tuple into the key buffer.
+   *
+   * @return the hash value of the encoded key
+   */
+  private int encode(Tuple tuple) {
+    long nullBits = 0;
+    long h = 0;
+    Datum datum;
+    for (int i = 0; i < keyIds.length; i++) {
+      datum = tuple.get(keyIds[i]);
+      if (datum == null || datum instanceof NullDatum) {
+        nullBits |= 1L << i;
+        keyBuffer[i] = 0;
+      } else {
+        keyBuffer[i] = encodeDatum(keyTypes[i], datum);
+      }
+      h = h * 31 + keyBuffer[i];
+    }
+    keyBuffer[keyIds.length] = nullBits;
+    h = h * 31 + nullBits;
+
+    // the finalizer of MurmurHash3
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  private static long encodeDatum(Type type, Datum datum) {
+    switch (type) {
+      case CHAR:
+        return datum.asChar();
+      case FLOAT4:
+        float f = datum.asFloat4();
+        // -0.0 and 0.0 belong to the same group
+        return f == 0.0f ? 0 : Float.floatToIntBits(f);
+      case FLOAT8:
+        double d = datum.asFloat8();
+        return d == 0.0d ? 0 : Double.doubleToLongBits(d);
+      default:
+        return datum.asInt8();
+    }
+  }
+}
@@ -53,7 +53,9 @@ public class HashAggregateExec extends AggregationExec {
   private void compute() throws IOException {
     Tuple tuple;
     Tuple keyTuple;
-    while((tuple = child.next()) != null && !context.isStopped()) {
+    RowBatchReader reader = new RowBatchReader(child, isVectorized());
+    Tuple inTuple = new VTuple(inSchema.getColumnNum());
+    while((tuple = reader.next(inTuple)) != null && !context.isStopped()) {
       keyTuple = new VTuple(keylist.length);
       // build one key tuple
       for(int i = 0; i < keylist.length; i++) {
@@ -56,6 +56,11 @@ public class HashJoinExec extends BinaryPhysicalExec {
   private boolean finished = false;
   boolean nextOuter = true;
 
+  // for reading the children in batches
+  private final boolean vectorized;
+  private final RowBatchReader outerReader;
+  private final Tuple outerInTuple;
+
   // projection
   private final Projector projector;
   private final EvalContext [] evalContexts;
@@ -84,13 +89,18 @@ public class HashJoinExec extends BinaryPhysicalExec {
     }
 
     // for projection
-    this.projector = new Projector(inSchema, outSchema, plan.getTargets());
+    this.projector = new Projector(inSchema, outSchema, plan.getTargets(),
+        isCodegenEnabled());
     this.evalContexts = projector.renew();
 
     // for join
     frameTuple = new FrameTuple();
     outTuple = new VTuple(outSchema.getColumnNum());
     outerKeyTuple = new VTuple(outerKeyList.length);
+
+    vectorized = isVectorized();
+    outerReader = new RowBatchReader(outer, vectorized);
+    outerInTuple = new VTuple(outer.getSchema().getColumnNum());
   }
 
   private void getKeyOuterTuple(final Tuple outerTuple, Tuple keyTuple) {
@@ -111,7 +121,7 @@ public class HashJoinExec extends BinaryPhysicalExec {
 
       if (nextOuter) {
         // getting new outer
-        outerTuple = outerChild.next();
+        outerTuple = outerReader.next(outerInTuple);
         if (outerTuple == null) {
           finished = true;
           return null;
@@ -154,7 +164,11 @@ public class HashJoinExec extends BinaryPhysicalExec {
     Tuple tuple;
     Tuple keyTuple;
 
-    while ((tuple = innerChild.next()) != null) {
+    RowBatchReader reader = new RowBatchReader(innerChild, vectorized);
+    // the inner tuples are kept in the hash table.
+    int innerColumnNum = innerChild.getSchema().getColumnNum();
+    while ((tuple = reader.next(
+        vectorized ? new VTuple(innerColumnNum) : null)) != null) {
       keyTuple = new VTuple(joinKeyPairs.size());
       List<Tuple> newValue;
       for (int i = 0; i < innerKeyList.length; i++) {
@@ -177,6 +191,7 @@ public class HashJoinExec extends BinaryPhysicalExec {
   @Override
   public void rescan() throws IOException {
     super.rescan();
+    outerReader.reset();
 
     tupleSlots.clear();
     first = true;
@@ -0,0 +1,378 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import tajo.TaskAttemptContext;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.Datum;
+import tajo.engine.eval.EvalContext;
+import tajo.engine.eval.EvalNode;
+import tajo.engine.eval.FuncEval;
+import tajo.engine.planner.logical.GroupbyNode;
+import tajo.storage.RawFile;
+import tajo.storage.StorageUtil;
+import tajo.storage.Tuple;
+import tajo.storage.VTuple;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This is the hash-based GroupBy Operator which never exceeds a given memory
+ * budget (<code>tajo.hash-aggregation.memory.mb</code>).
+ *
+ * Groups are aggregated in memory until the estimated size of the hash table
+ * reaches the budget. After that, an input tuple whose group is already in
+ * memory is still aggregated, and the other input tuples are written to one
+ * of the spill partitions by the hash value of their grouping keys. Since a
+ * group is either entirely in memory or entirely in one spill partition,
+ * the in-memory groups can be emitted as soon as the input is exhausted, and
+ * then each spill partition is aggregated in the same way with a different
+ * hash function.
+ *
+ * The size of a group is estimated from its grouping keys and the states of
+ * its aggregates. A variable-width state, e.g., of min over text, is estimated
+ * by its size at the first row of the group. A spill partition which reaches
+ * {@link #MAX_SPILL_LEVEL} is aggregated entirely in memory, because its
+ * groups cannot be split any more when their hash values collide.
+ */
+public class HybridHashAggregateExec extends AggregationExec {
+  private static final Log LOG = LogFactory.getLog(HybridHashAggregateExec.class);
+
+  /** spill partitions of this level are aggregated in memory regardless of the budget */
+  private static final int MAX_SPILL_LEVEL = 4;
+  /** the estimated bytes of a hash table entry except for keys and evaluation contexts */
+  private static final int ENTRY_OVERHEAD = 64;
+  /** the estimated bytes of an evaluation context */
+  private static final int EVAL_CONTEXT_SIZE = 32;
+  /** the estimated bytes of the fixed-width state of an aggregate function */
+  private static final int AGG_STATE_SIZE = 48;
+
+  private final long memoryBudget;
+  /** the estimated bytes of the evaluation contexts of a group */
+  private final long groupStateSize;
+  /** the ids of aggregates whose states are variable-width */
+  private final int [] varWidthStates;
+  private final int numPartitions;
+  private final TableMeta spillMeta;
+  private final Path spillDir;
+  private final FileSystem localFS;
+  private final LinkedList<SpillPartition> pendingPartitions =
+      new LinkedList<SpillPartition>();
+  private int spillFileId = 0;
+  private boolean spilled = false;
+  private boolean overBudget = false;
+
+  // only one of them is used according to the types of grouping columns
+  private FixedWidthKeyHashTable<EvalContext []> fixedWidthTable;
+  private Map<Tuple, EvalContext []> tupleSlots;
+
+  private final Tuple keyTuple;
+  private final Tuple tuple;
+  private long memoryUsage = 0;
+  private int level = 0;
+  private RawFile.RawFileAppender [] spillAppenders;
+  private boolean computed = false;
+  private int slot = 0;
+  private Iterator<EvalContext []> iterator = null;
+
+  public HybridHashAggregateExec(TaskAttemptContext ctx, GroupbyNode annotation,
+                                 PhysicalExec subOp) throws IOException {
+    super(ctx, annotation, subOp);
+    this.memoryBudget = (long) ctx.getConf().getIntVar(
+        ConfVars.HASH_AGGREGATION_MEMORY) * 1048576;
+    this.numPartitions = ctx.getConf().getIntVar(
+        ConfVars.HASH_AGGREGATION_SPILL_PARTITIONS);
+    this.spillMeta = CatalogUtil.newTableMeta(inSchema, StoreType.RAW);
+    this.spillDir = new Path(ctx.getWorkDir(), UUID.randomUUID().toString());
+    this.localFS = FileSystem.getLocal(ctx.getConf());
+
+    if (FixedWidthKeyHashTable.isSupported(annotation.getGroupingColumns())) {
+      fixedWidthTable = new FixedWidthKeyHashTable<EvalContext []>(inSchema,
+          keylist, 10000);
+    } else {
+      tupleSlots = new HashMap<Tuple, EvalContext []>(10000);
+    }
+    this.keyTuple = new VTuple(keylist.length);
+    this.tuple = new VTuple(outSchema.getColumnNum());
+
+    long stateSize = 0;
+    List<Integer> varWidth = new ArrayList<Integer>();
+    for (int i = 0; i < evals.length; i++) {
+      stateSize += EVAL_CONTEXT_SIZE;
+      if (evals[i].getType() == EvalNode.Type.AGG_FUNCTION) {
+        stateSize += AGG_STATE_SIZE +
+            (long) ((FuncEval) evals[i]).getArgs().length * EVAL_CONTEXT_SIZE;
+        if (!FixedWidthKeyHashTable.isFixedWidth(
+            evals[i].getValueType()[0].getType())) {
+          varWidth.add(i);
+        }
+      }
+    }
+    this.groupStateSize = stateSize;
+    this.varWidthStates = new int[varWidth.size()];
+    for (int i = 0; i < varWidthStates.length; i++) {
+      varWidthStates[i] = varWidth.get(i);
+    }
+  }
+
+  @Override
+  public void init() throws IOException {
+    super.init();
+    localFS.mkdirs(spillDir);
+  }
+
+  /**
+   * Aggregates all tuples from the child operator.
+   */
+  private void compute() throws IOException {
+    Tuple tuple;
+    while((tuple = child.next()) != null && !context.isStopped()) {
+      aggregate(tuple);
+    }
+    finishSpill();
+  }
+
+  /**
+   * Aggregates all tuples of a spill partition.
+   */
+  private void compute(SpillPartition partition) throws IOException {
+    RawFile.RawFileScanner scanner = new RawFile.RawFileScanner(
+        context.getConf(), spillMeta, partition.path);
+    scanner.setReuseTuple(true);
+    Tuple tuple;
+    while((tuple = scanner.next()) != null && !context.isStopped()) {
+      aggregate(tuple);
+    }
+    scanner.close();
+    localFS.delete(partition.path, false);
+    finishSpill();
+  }
+
+  private void aggregate(Tuple tuple) throws IOException {
+    boolean insertable = memoryUsage < memoryBudget || level >= MAX_SPILL_LEVEL;
+    if (memoryUsage >= memoryBudget && level >= MAX_SPILL_LEVEL && !overBudget) {
+      LOG.warn("Hash aggregation exceeds the memory budget (" + memoryBudget
+          + " bytes) at the last spill level " + level
+          + ", and it keeps all groups of the partition in memory");
+      overBudget = true;
+    }
+    EvalContext [] evalCtx;
+    int slotId = -1;
+
+    if (fixedWidthTable != null) {
+      if (insertable) {
+        slotId = fixedWidthTable.findOrInsert(tuple);
+      } else {
+        slotId = fixedWidthTable.find(tuple);
+      }
+      evalCtx = slotId >= 0 ? fixedWidthTable.getValue(slotId) : null;
+    } else {
+      for(int i = 0; i < keylist.length; i++) {
+        keyTuple.put(i, tuple.get(keylist[i]));
+      }
+      evalCtx = tupleSlots.get(keyTuple);
+    }
+
+    if (evalCtx != null) {
+      for(int i = 0; i < measureList.length; i++) {
+        evals[measureList[i]].eval(evalCtx[measureList[i]], inSchema, tuple);
+      }
+    } else if (insertable) { // if the key occurs firstly
+      evalCtx = new EvalContext[outSchema.getColumnNum()];
+      for(int i = 0; i < outSchema.getColumnNum(); i++) {
+        evalCtx[i] = evals[i].newContext();
+        evals[i].eval(evalCtx[i], inSchema, tuple);
+      }
+      if (fixedWidthTable != null) {
+        fixedWidthTable.setValue(slotId, evalCtx);
+      } else {
+        tupleSlots.put(new VTuple(keyTuple), evalCtx);
+      }
+      memoryUsage += estimateGroupSize(tuple, evalCtx);
+    } else {
+      spill(tuple);
+    }
+  }
+
+  private long estimateGroupSize(Tuple tuple, EvalContext [] evalCtx) {
+    long size = ENTRY_OVERHEAD + groupStateSize;
+    Datum datum;
+    for (int keyId : keylist) {
+      datum = tuple.get(keyId);
+      // a key datum and its reference
+      size += 8 + (datum == null ? 0 : 16 + datum.size());
+    }
+    for (int evalId : varWidthStates) {
+      datum = evals[evalId].terminate(evalCtx[evalId]);
+      size += datum == null ? 0 : 16 + datum.size();
+    }
+    return size;
+  }
+
+  private void spill(Tuple tuple) throws IOException {
+    if (spillAppenders == null) {
+      LOG.info("Hash aggregation exceeds the memory budget (" + memoryBudget
+          + " bytes) at level " + level + ", and it starts to spill");
+      spillAppenders = new RawFile.RawFileAppender[numPartitions];
+      spilled = true;
+    }
+
+    for(int i = 0; i < keylist.length; i++) {
+      keyTuple.put(i, tuple.get(keylist[i]));
+    }
+    int partId = (mix(keyTuple.hashCode(), level) & Integer.MAX_VALUE)
+        % numPartitions;
+    if (spillAppenders[partId] == null) {
+      Path path = StorageUtil.concatPath(spillDir, level + "_" + spillFileId++);
+      spillAppenders[partId] = new RawFile.RawFileAppender(context.getConf(),
+          spillMeta, path);
+      spillAppenders[partId].init();
+      pendingPartitions.add(new SpillPartition(path, level + 1));
+    }
+    spillAppenders[partId].addTuple(tuple);
+  }
+
+  private void finishSpill() throws IOException {
+    if (spillAppenders != null) {
+      for (RawFile.RawFileAppender appender : spillAppenders) {
+        if (appender != null) {
+          appender.close();
+        }
+      }
+      spillAppenders = null;
+    }
+  }
+
+  /**
+   * Gives a different hash function for each spill level so that the tuples
+   * of a spill partition are distributed again over the next partitions.
+   */
+  private static int mix(int hash, int level) {
+    int h = hash + level * 0x9E3779B9;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private EvalContext [] nextGroup() {
+    if (fixedWidthTable != null) {
+      while (slot < fixedWidthTable.capacity() && !fixedWidthTable.isOccupied(slot)) {
+        slot++;
+      }
+      return slot < fixedWidthTable.capacity() ? fixedWidthTable.getValue(slot++) : null;
+    } else {
+      if (iterator == null) {
+        iterator = tupleSlots.values().iterator();
+      }
+      return iterator.hasNext() ? iterator.next() : null;
+    }
+  }
+
+  private void clearGroups() {
+    if (fixedWidthTable != null) {
+      fixedWidthTable.clear();
+    } else {
+      tupleSlots.clear();
+    }
+    slot = 0;
+    iterator = null;
+    memoryUsage = 0;
+  }
+
+  @Override
+  public Tuple next() throws IOException {
+    if(!computed) {
+      compute();
+      computed = true;
+    }
+
+    EvalContext [] ctx;
+    while ((ctx = nextGroup()) == null) {
+      if (pendingPartitions.isEmpty() || context.isStopped()) {
+        return null;
+      }
+      SpillPartition partition = pendingPartitions.removeFirst();
+      clearGroups();
+      level = partition.level;
+      compute(partition);
+    }
+
+    for (int i = 0; i < ctx.length; i++) {
+      tuple.put(i, evals[i].terminate(ctx[i]));
+    }
+    return tuple;
+  }
+
+  /**
+   * @return true if the groups are kept in {@link FixedWidthKeyHashTable}
+   */
+  boolean usesFixedWidthTable() {
+    return fixedWidthTable != null;
+  }
+
+  @Override
+  public void rescan() throws IOException {
+    if (spilled) {
+      // the groups of spill partitions are not kept, so it aggregates again.
+      finishSpill();
+      for (SpillPartition partition : pendingPartitions) {
+        localFS.delete(partition.path, false);
+      }
+      pendingPartitions.clear();
+      clearGroups();
+      level = 0;
+      spilled = false;
+      computed = false;
+      child.rescan();
+    } else {
+      slot = 0;
+      iterator = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    finishSpill();
+    pendingPartitions.clear();
+    clearGroups();
+    localFS.delete(spillDir, true);
+  }
+
+  private static class SpillPartition {
+    private final Path path;
+    private final int level;
+
+    SpillPartition(Path path, int level) {
+      this.path = path;
+      this.level = level;
+    }
+  }
+}
@@ -0,0 +1,423 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import tajo.TaskAttemptContext;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.Column;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.Datum;
+import tajo.engine.eval.EvalContext;
+import tajo.engine.eval.EvalNode;
+import tajo.engine.planner.PlannerUtil;
+import tajo.engine.planner.Projector;
+import tajo.engine.planner.logical.JoinNode;
+import tajo.engine.utils.SchemaUtil;
+import tajo.storage.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This is the hybrid hash join operator. Like {@link HashJoinExec}, it builds
+ * hash tables from the inner relation and probes them with the outer
+ * relation, but it never exceeds a given memory budget
+ * (<code>tajo.hash-join.memory.mb</code>).
+ *
+ * Both relations are divided into partitions by the hash values of join keys.
+ * While the inner relation is being loaded, the largest in-memory partition is
+ * written to local disk whenever the hash tables exceed the memory budget.
+ * The outer tuples of in-memory partitions are joined immediately, and
+ * those of spilled partitions are written to local disk. Afterwards, each
+ * pair of spilled partitions is joined in the same way with a different hash
+ * function.
+ */
+public class HybridHashJoinExec extends BinaryPhysicalExec {
+  private static final Log LOG = LogFactory.getLog(HybridHashJoinExec.class);
+
+  /** partitions of this level are loaded into memory regardless of the budget */
+  private static final int MAX_SPILL_LEVEL = 4;
+  /** the estimated bytes of a tuple except for its datums */
+  private static final int TUPLE_OVERHEAD = 48;
+
+  // from logical plan
+  private JoinNode plan;
+  private EvalNode joinQual;
+  private EvalContext qualCtx;
+
+  private int [] outerKeyList;
+  private int [] innerKeyList;
+
+  private final long memoryBudget;
+  private final int numPartitions;
+  private final TableMeta outerMeta;
+  private final TableMeta innerMeta;
+  private final Path spillDir;
+  private final FileSystem localFS;
+  private int spillFileId = 0;
+
+  // states of the current pass
+  private boolean first = true;
+  private boolean finished = false;
+  private int level = 0;
+  private Partition [] partitions;
+  private long memoryUsage = 0;
+  private RawFile.RawFileScanner outerScanner;
+  private Path outerSpillPath;
+  private final LinkedList<Partition> pendingPartitions =
+      new LinkedList<Partition>();
+
+  // temporal tuples and states for probing
+  private FrameTuple frameTuple;
+  private Tuple outTuple = null;
+  private Tuple outerTuple;
+  private Tuple keyTuple;
+  private Iterator<Tuple> iterator = null;
+
+  // projection
+  private final Projector projector;
+  private final EvalContext [] evalContexts;
+
+  public HybridHashJoinExec(TaskAttemptContext context, JoinNode plan,
+                            PhysicalExec outer, PhysicalExec inner)
+      throws IOException {
+    super(context, SchemaUtil.merge(outer.getSchema(), inner.getSchema()),
+        plan.getOutSchema(), outer, inner);
+    this.plan = plan;
+    this.joinQual = plan.getJoinQual();
+    this.qualCtx = joinQual.newContext();
+
+    List<Column[]> joinKeyPairs = PlannerUtil.getJoinKeyPairs(joinQual,
+        outer.getSchema(), inner.getSchema());
+    outerKeyList = new int[joinKeyPairs.size()];
+    innerKeyList = new int[joinKeyPairs.size()];
+    for (int i = 0; i < joinKeyPairs.size(); i++) {
+      outerKeyList[i] = outer.getSchema().getColumnId(joinKeyPairs.get(i)[0].getQualifiedName());
+      innerKeyList[i] = inner.getSchema().getColumnId(joinKeyPairs.get(i)[1].getQualifiedName());
+    }
+
+    this.memoryBudget = (long) context.getConf().getIntVar(
+        ConfVars.HASH_JOIN_MEMORY) * 1048576;
+    this.numPartitions = context.getConf().getIntVar(
+        ConfVars.HASH_JOIN_PARTITIONS);
+    this.outerMeta = CatalogUtil.newTableMeta(outer.getSchema(), StoreType.RAW);
+    this.innerMeta = CatalogUtil.newTableMeta(inner.getSchema(), StoreType.RAW);
+    this.spillDir = new Path(context.getWorkDir(), UUID.randomUUID().toString());
+    this.localFS = FileSystem.getLocal(context.getConf());
+
+    // for projection
+    this.projector = new Projector(inSchema, outSchema, plan.getTargets(),
+        isCodegenEnabled());
+    this.evalContexts = projector.renew();
+
+    // for join
+    frameTuple = new FrameTuple();
+    outTuple = new VTuple(outSchema.getColumnNum());
+    keyTuple = new VTuple(outerKeyList.length);
+  }
+
+  @Override
+  public void init() throws IOException {
+    super.init();
+    localFS.mkdirs(spillDir);
+  }
+
+  public Tuple next() throws IOException {
+    if (first) {
+      newPartitions();
+      Tuple tuple;
+      while ((tuple = innerChild.next()) != null) {
+        addInnerTuple(tuple);
+      }
+      first = false;
+    }
+
+    if (finished) {
+      return null;
+    }
+
+    Tuple innerTuple;
+    while (!context.isStopped()) {
+      if (iterator != null && iterator.hasNext()) {
+        // getting next inner tuple
+        innerTuple = iterator.next();
+        frameTuple.set(outerTuple, innerTuple);
+        joinQual.eval(qualCtx, inSchema, frameTuple);
+        if (joinQual.terminate(qualCtx).asBool()) {
+          projector.eval(evalContexts, frameTuple);
+          projector.terminate(evalContexts, outTuple);
+          return outTuple;
+        }
+        continue;
+      }
+      iterator = null;
+
+      // getting new outer
+      outerTuple = outerScanner == null ? outerChild.next() : outerScanner.next();
+      if (outerTuple == null) {
+        if (!nextPass()) {
+          finished = true;
+          return null;
+        }
+        continue;
+      }
+
+      // getting corresponding inner
+      getKeyTuple(outerTuple, outerKeyList);
+      Partition partition = partitions[getPartitionId()];
+      if (partition.tupleSlots != null) {
+        List<Tuple> matched = partition.tupleSlots.get(keyTuple);
+        if (matched != null) {
+          iterator = matched.iterator();
+        }
+      } else {
+        partition.addOuterTuple(outerTuple);
+      }
+    }
+
+    return null;
+  }
+
+  private void getKeyTuple(Tuple tuple, int [] keyList) {
+    for (int i = 0; i < keyList.length; i++) {
+      keyTuple.put(i, tuple.get(keyList[i]));
+    }
+  }
+
+  /**
+   * Gives a different hash function for each level so that the tuples
+   * of a spilled partition are distributed again over the next partitions.
+   */
+  private int getPartitionId() {
+    int h = keyTuple.hashCode() + level * 0x9E3779B9;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return (h & Integer.MAX_VALUE) % numPartitions;
+  }
+
+  private void newPartitions() {
+    partitions = new Partition[numPartitions];
+    for (int i = 0; i < numPartitions; i++) {
+      partitions[i] = new Partition();
+    }
+    memoryUsage = 0;
+  }
+
+  private void addInnerTuple(Tuple tuple) throws IOException {
+    getKeyTuple(tuple, innerKeyList);
+    Partition partition = partitions[getPartitionId()];
+
+    if (partition.tupleSlots == null) {
+      partition.innerAppender.addTuple(tuple);
+      return;
+    }
+
+    Tuple copy = new VTuple(tuple.size());
+    copy.put(0, tuple);
+    List<Tuple> tuples = partition.tupleSlots.get(keyTuple);
+    if (tuples == null) {
+      tuples = new ArrayList<Tuple>();
+      partition.tupleSlots.put(new VTuple(keyTuple), tuples);
+    }
+    tuples.add(copy);
+
+    long size = estimateSize(copy);
+    partition.memoryUsage += size;
+    memoryUsage += size;
+
+    if (level < MAX_SPILL_LEVEL) {
+      while (memoryUsage > memoryBudget) {
+        Partition victim = null;
+        for (Partition candidate : partitions) {
+          if (candidate.tupleSlots != null && (victim == null ||
+              candidate.memoryUsage > victim.memoryUsage)) {
+            victim = candidate;
+          }
+        }
+        if (victim == null || victim.memoryUsage == 0) {
+          break;
+        }
+        victim.spill();
+      }
+    }
+  }
+
+  private static long estimateSize(Tuple tuple) {
+    long size = TUPLE_OVERHEAD;
+    Datum datum;
+    for (int i = 0; i < tuple.size(); i++) {
+      datum = tuple.get(i);
+      // a datum and its reference
+      size += 8 + (datum == null ? 0 : 16 + datum.size());
+    }
+    return size;
+  }
+
+  /**
+   * Finishes the current pass, and then it loads the next pair of spilled
+   * partitions.
+   *
+   * @return false if there is no remain partition
+   */
+  private boolean nextPass() throws IOException {
+    if (outerScanner != null) {
+      outerScanner.close();
+      outerScanner = null;
+      localFS.delete(outerSpillPath, false);
+    }
+    for (Partition partition : partitions) {
+      partition.close();
+      if (partition.innerPath != null) {
+        if (partition.outerPath != null) {
+          pendingPartitions.add(partition);
+        } else {
+          // no outer tuple will be joined with this partition
+          localFS.delete(partition.innerPath, false);
+        }
+      }
+    }
+
+    if (pendingPartitions.isEmpty() || context.isStopped()) {
+      return false;
+    }
+
+    Partition spilled = pendingPartitions.removeFirst();
+    level = spilled.level + 1;
+    newPartitions();
+    RawFile.RawFileScanner innerScanner = new RawFile.RawFileScanner(
+        context.getConf(), innerMeta, spilled.innerPath);
+    // the inner tuples are copied when they are kept in the hash table.
+    innerScanner.setReuseTuple(true);
+    Tuple tuple;
+    while ((tuple = innerScanner.next()) != null) {
+      addInnerTuple(tuple);
+    }
+    innerScanner.close();
+    localFS.delete(spilled.innerPath, false);
+
+    outerSpillPath = spilled.outerPath;
+    outerScanner = new RawFile.RawFileScanner(context.getConf(), outerMeta,
+        outerSpillPath);
+    outerScanner.setReuseTuple(true);
+    return true;
+  }
+
+  @Override
+  public void rescan() throws IOException {
+    super.rescan();
+    cleanUp();
+    first = true;
+    finished = false;
+    level = 0;
+    iterator = null;
+  }
+
+  private void cleanUp() throws IOException {
+    if (outerScanner != null) {
+      outerScanner.close();
+      outerScanner = null;
+    }
+    if (partitions != null) {
+      for (Partition partition : partitions) {
+        partition.close();
+      }
+      partitions = null;
+    }
+    pendingPartitions.clear();
+    localFS.delete(spillDir, true);
+    localFS.mkdirs(spillDir);
+  }
+
+  public void close() throws IOException {
+    super.close();
+    cleanUp();
+    localFS.delete(spillDir, true);
+  }
+
+  public JoinNode getPlan() {
+    return this.plan;
+  }
+
+  private class Partition {
+    private Map<Tuple, List<Tuple>> tupleSlots = new HashMap<Tuple, List<Tuple>>();
+    private long memoryUsage = 0;
+    private final int level = HybridHashJoinExec.this.level;
+
+    private Path innerPath;
+    private Path outerPath;
+    private RawFile.RawFileAppender innerAppender;
+    private RawFile.RawFileAppender outerAppender;
+
+    /**
+     * Writes all inner tuples of this partition to local disk and releases
+     * its hash table.
+     */
+    private void spill() throws IOException {
+      if (innerAppender == null) {
+        LOG.info("Hash join exceeds the memory budget (" + memoryBudget
+            + " bytes) at level " + level + ", and it spills a partition");
+      }
+      innerPath = StorageUtil.concatPath(spillDir, "inner_" + spillFileId++);
+      innerAppender = new RawFile.RawFileAppender(context.getConf(), innerMeta,
+          innerPath);
+      innerAppender.init();
+      for (List<Tuple> tuples : tupleSlots.values()) {
+        for (Tuple tuple : tuples) {
+          innerAppender.addTuple(tuple);
+        }
+      }
+      tupleSlots = null;
+      HybridHashJoinExec.this.memoryUsage -= memoryUsage;
+      memoryUsage = 0;
+    }
+
+    private void addOuterTuple(Tuple tuple) throws IOException {
+      if (outerAppender == null) {
+        outerPath = StorageUtil.concatPath(spillDir, "outer_" + spillFileId++);
+        outerAppender = new RawFile.RawFileAppender(context.getConf(),
+            outerMeta, outerPath);
+        outerAppender.init();
+      }
+      outerAppender.addTuple(tuple);
+    }
+
+    private void close() throws IOException {
+      if (innerAppender != null) {
+        innerAppender.close();
+        innerAppender = null;
+      }
+      if (outerAppender != null) {
+        outerAppender.close();
+        outerAppender = null;
+      }
+      if (tupleSlots != null) {
+        tupleSlots.clear();
+      }
+    }
+  }
+}
@@ -29,6 +29,7 @@ import tajo.catalog.Schema;
 import tajo.conf.TajoConf;
 import tajo.engine.planner.logical.IndexWriteNode;
 import tajo.storage.*;
+import tajo.storage.compress.BlockCompression;
 import tajo.storage.index.bst.BSTIndex;
 import tajo.storage.index.bst.BSTIndex.BSTIndexWriter;
 import tajo.util.IndexUtil;
@@ -45,6 +46,8 @@ public class IndexWriteExec extends UnaryPhysicalExec {
       final PhysicalExec child) throws IOException {
     super(context, plan.getInSchema(), plan.getOutSchema(), child);
     Preconditions.checkArgument(inSchema.equals(child.getSchema()));
+    Preconditions.checkArgument(!BlockCompression.isCompressed(fragment.getMeta()),
+        "Cannot index the compressed fragment %s", fragment.getId());
 
     indexKeys = new int[plan.getSortSpecs().length];
     Schema keySchema = new Schema();
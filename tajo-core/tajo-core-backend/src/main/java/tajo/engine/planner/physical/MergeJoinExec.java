@@ -88,7 +88,8 @@ public class MergeJoinExec extends BinaryPhysicalExec {
     this.innerIterator = innerTupleSlots.iterator();
     
     // for projection
-    this.projector = new Projector(inSchema, outSchema, plan.getTargets());
+    this.projector = new Projector(inSchema, outSchema, plan.getTargets(),
+        isCodegenEnabled());
     this.evalContexts = projector.renew();
 
     // for join
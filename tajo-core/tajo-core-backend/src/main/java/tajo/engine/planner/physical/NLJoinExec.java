@@ -58,7 +58,8 @@ public class NLJoinExec extends BinaryPhysicalExec {
     }
 
     // for projection
-    projector = new Projector(inSchema, outSchema, plan.getTargets());
+    projector = new Projector(inSchema, outSchema, plan.getTargets(),
+        isCodegenEnabled());
     evalContexts = projector.renew();
 
     // for join
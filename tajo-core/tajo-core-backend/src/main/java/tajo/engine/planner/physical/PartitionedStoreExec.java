@@ -21,33 +21,57 @@ package tajo.engine.planner.physical;
 import com.google.common.base.Preconditions;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.io.compress.CompressionCodec;
 import tajo.TaskAttemptContext;
 import tajo.catalog.CatalogUtil;
 import tajo.catalog.Column;
+import tajo.catalog.Options;
+import tajo.catalog.Schema;
+import tajo.catalog.SortSpec;
 import tajo.catalog.TableMeta;
-import tajo.catalog.proto.CatalogProtos.StoreType;
 import tajo.catalog.statistics.StatisticsUtil;
 import tajo.catalog.statistics.TableStat;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.DatumFactory;
 import tajo.engine.planner.logical.StoreTableNode;
-import tajo.storage.Appender;
-import tajo.storage.StorageManager;
-import tajo.storage.StorageUtil;
-import tajo.storage.Tuple;
+import tajo.storage.*;
+import tajo.storage.compress.BlockCompressedOutputStream;
+import tajo.storage.compress.BlockCompression;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * It writes the output of a task into hash partitions.
+ *
+ * If <code>tajo.shuffle.sort.enabled</code> is set, the tuples tagged with
+ * their partition ids are kept in a sort buffer, and they are sorted by the
+ * partition ids and spilled whenever the buffer is full. The spills are
+ * merged into a single data file, in which the partitions are stored in the
+ * order of their ids, and a {@link PartitionIndex} which has the offset of
+ * each partition. Otherwise, each partition is written into its own file.
+ *
+ * The format of the partitions is given by the storage type and the options
+ * of the store. Since the partitions of many tasks are concatenated into a
+ * file by a fetch, the format must not have a file header. If the partitions
+ * are compressed, each partition of the data file is written as its own
+ * compressed stream.
+ */
 public final class PartitionedStoreExec extends UnaryPhysicalExec {
   private static Log LOG = LogFactory.getLog(PartitionedStoreExec.class);
   private static final NumberFormat numFormat = NumberFormat.getInstance();
+  private static final String PARTITION_COLUMN = "__partition_id";
+  private static final int COPY_BUFFER_SIZE = 65536;
 
   static {
     numFormat.setGroupingUsed(false);
@@ -63,13 +87,32 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
   private final Partitioner partitioner;
   private final Path storeTablePath;
   private final Map<Integer, Appender> appenderMap = new HashMap<Integer, Appender>();
+
+  // for the sort-based writer
+  private final boolean sortShuffle;
+  private long SORT_BUFFER_SIZE;
+  private BinarySortBuffer sortBuffer;
+  private Tuple bufferTuple;
+  // the spills are not compressed, and the codec is applied when merged.
+  private TableMeta spillMeta;
+  private CompressionCodec codec;
+  private Path spillDir;
+  private final List<Path> spills = new ArrayList<Path>();
+  private final List<PartitionIndex> spillIndexes = new ArrayList<PartitionIndex>();
+  private long [] numRows;
+  private final List<TableStat> statSet = new ArrayList<TableStat>();
   
   public PartitionedStoreExec(TaskAttemptContext context, final StorageManager sm,
       final StoreTableNode plan, final PhysicalExec child) throws IOException {
     super(context, plan.getInSchema(), plan.getOutSchema(), child);
     Preconditions.checkArgument(plan.hasPartitionKey());
     this.plan = plan;
-    this.meta = CatalogUtil.newTableMeta(this.outSchema, StoreType.CSV);
+    if (plan.hasOptions()) {
+      this.meta = CatalogUtil.newTableMeta(this.outSchema, plan.getStorageType(),
+          plan.getOptions());
+    } else {
+      this.meta = CatalogUtil.newTableMeta(this.outSchema, plan.getStorageType());
+    }
     
     // about the partitions
     this.numPartitions = this.plan.getNumPartitions();
@@ -81,6 +124,30 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
     }
     this.partitioner = new HashPartitioner(partitionKeys, numPartitions);
     storeTablePath = new Path(context.getWorkDir(), "output");
+
+    this.sortShuffle = context.getConf().getBoolVar(ConfVars.SHUFFLE_SORT_ENABLED);
+    if (sortShuffle) {
+      this.SORT_BUFFER_SIZE = (long) context.getConf().getIntVar(
+          ConfVars.SHUFFLE_SORT_BUFFER_SIZE) * 1048576;
+      // the partition id is kept as the last column of each buffered tuple.
+      Schema bufferSchema = new Schema();
+      bufferSchema.addColumns(inSchema);
+      bufferSchema.addColumn(PARTITION_COLUMN, Type.INT4);
+      SortSpec [] sortSpecs = new SortSpec[] {
+          new SortSpec(bufferSchema.getColumn(PARTITION_COLUMN))};
+      this.sortBuffer = new BinarySortBuffer(bufferSchema, sortSpecs,
+          context.getConf().getBoolVar(ConfVars.SORT_NORMALIZED_KEY));
+      this.bufferTuple = new VTuple(bufferSchema.getColumnNum());
+      this.spillDir = new Path(context.getWorkDir(), UUID.randomUUID().toString());
+      this.numRows = new long[numPartitions];
+
+      this.codec = BlockCompression.getCodec(context.getConf(), meta);
+      Options spillOptions = plan.hasOptions() ?
+          new Options(plan.getOptions()) : new Options();
+      spillOptions.delete(BlockCompression.CODEC);
+      this.spillMeta = CatalogUtil.newTableMeta(this.outSchema,
+          plan.getStorageType(), spillOptions);
+    }
   }
 
   @Override
@@ -88,6 +155,9 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
     super.init();
     FileSystem fs = new RawLocalFileSystem();
     fs.mkdirs(storeTablePath);
+    if (sortShuffle) {
+      fs.mkdirs(spillDir);
+    }
   }
   
   private Appender getAppender(int partition) throws IOException {
@@ -118,6 +188,20 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
 
   @Override
   public Tuple next() throws IOException {
+    if (sortShuffle) {
+      writeSortedPartitions();
+    } else {
+      writePartitions();
+    }
+    
+    // Collect and aggregated statistics data
+    TableStat aggregated = StatisticsUtil.aggregateTableStat(statSet);
+    context.setResultStats(aggregated);
+    
+    return null;
+  }
+
+  private void writePartitions() throws IOException {
     Tuple tuple;
     Appender appender;
     int partition;
@@ -126,8 +210,7 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
       appender = getAppender(partition);
       appender.addTuple(tuple);
     }
-    
-    List<TableStat> statSet = new ArrayList<TableStat>();
+
     for (Map.Entry<Integer, Appender> entry : appenderMap.entrySet()) {
       int partNum = entry.getKey();
       Appender app = entry.getValue();
@@ -138,16 +221,155 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
         context.addRepartition(partNum, getDataFile(partNum).getName());
       }
     }
-    
-    // Collect and aggregated statistics data
-    TableStat aggregated = StatisticsUtil.aggregateTableStat(statSet);
-    context.setResultStats(aggregated);
-    
-    return null;
+  }
+
+  private void writeSortedPartitions() throws IOException {
+    int partitionColumnId = inSchema.getColumnNum();
+    Tuple tuple;
+    while ((tuple = child.next()) != null) {
+      for (int i = 0; i < partitionColumnId; i++) {
+        bufferTuple.put(i, tuple.get(i));
+      }
+      bufferTuple.put(partitionColumnId,
+          DatumFactory.createInt4(partitioner.getPartition(tuple)));
+      sortBuffer.add(bufferTuple);
+      if (sortBuffer.getMemoryUsage() >= SORT_BUFFER_SIZE) {
+        spill();
+      }
+    }
+    if (sortBuffer.size() > 0) {
+      spill();
+    }
+
+    if (spills.size() > 0) {
+      FileSystem fs = storeTablePath.getFileSystem(context.getConf());
+      Path dataFile = new Path(storeTablePath, PartitionIndex.DATA_FILE_NAME);
+      PartitionIndex index;
+      if (spills.size() == 1 && codec == null) {
+        fs.rename(spills.get(0), dataFile);
+        index = spillIndexes.get(0);
+      } else {
+        index = mergeSpills(fs, dataFile);
+      }
+      index.write(fs, new Path(storeTablePath, PartitionIndex.INDEX_FILE_NAME));
+      fs.delete(spillDir, true);
+    }
+
+    for (int partition = 0; partition < numPartitions; partition++) {
+      if (numRows[partition] > 0) {
+        context.addRepartition(partition, PartitionIndex.DATA_FILE_NAME);
+      }
+    }
+  }
+
+  /**
+   * It sorts the buffered tuples by their partition ids and writes them
+   * into a spill, whose partitions are located by a {@link PartitionIndex}.
+   */
+  private void spill() throws IOException {
+    sortBuffer.sort();
+    Path spillPath = new Path(spillDir, "spill_" + spills.size());
+    Appender appender = StorageManager.getAppender(context.getConf(), spillMeta,
+        spillPath);
+    appender.enableStats();
+    appender.init();
+
+    int partitionColumnId = inSchema.getColumnNum();
+    long [] offsets = new long[numPartitions + 1];
+    int current = 0;
+    int partition;
+    Tuple tuple = new VTuple(partitionColumnId + 1);
+    for (int i = 0; i < sortBuffer.size(); i++) {
+      sortBuffer.get(i, tuple);
+      partition = tuple.get(partitionColumnId).asInt4();
+      while (current < partition) {
+        offsets[++current] = appender.getOffset();
+      }
+      // the appender only writes the columns of the output schema.
+      appender.addTuple(tuple);
+      numRows[partition]++;
+    }
+    appender.flush();
+    appender.close();
+    statSet.add(appender.getStats());
+    sortBuffer.clear();
+
+    long length = spillPath.getFileSystem(context.getConf())
+        .getFileStatus(spillPath).getLen();
+    while (current < numPartitions) {
+      offsets[++current] = length;
+    }
+    spills.add(spillPath);
+    spillIndexes.add(new PartitionIndex(offsets));
+  }
+
+  /**
+   * It concatenates the byte ranges of each partition of all the spills.
+   * Since the partitions of a spill are in the order of their ids, each
+   * spill is read sequentially once.
+   *
+   * If the partitions are compressed, a block can split a record because a
+   * compressed partition is always read as a whole.
+   */
+  private PartitionIndex mergeSpills(FileSystem fs, Path dataFile)
+      throws IOException {
+    LOG.info("Merging " + spills.size() + " spills into " + dataFile);
+    long [] offsets = new long[numPartitions + 1];
+    FSDataInputStream [] ins = new FSDataInputStream[spills.size()];
+    FSDataOutputStream out = fs.create(dataFile);
+    byte [] buffer = new byte[COPY_BUFFER_SIZE];
+    try {
+      for (int i = 0; i < ins.length; i++) {
+        ins[i] = fs.open(spills.get(i));
+      }
+      BlockCompressedOutputStream blockOut;
+      for (int partition = 0; partition < numPartitions; partition++) {
+        offsets[partition] = out.getPos();
+        if (codec == null) {
+          for (int i = 0; i < ins.length; i++) {
+            copy(ins[i], out, spillIndexes.get(i).getLength(partition), buffer);
+          }
+        } else if (numRows[partition] > 0) {
+          blockOut = new BlockCompressedOutputStream(out, codec,
+              BlockCompression.getBlockSize(context.getConf()));
+          for (int i = 0; i < ins.length; i++) {
+            copy(ins[i], blockOut, spillIndexes.get(i).getLength(partition),
+                buffer);
+          }
+          blockOut.finish();
+        }
+      }
+      offsets[numPartitions] = out.getPos();
+    } finally {
+      out.close();
+      for (FSDataInputStream in : ins) {
+        if (in != null) {
+          in.close();
+        }
+      }
+    }
+    return new PartitionIndex(offsets);
+  }
+
+  private static void copy(FSDataInputStream in, OutputStream out,
+                           long length, byte [] buffer) throws IOException {
+    long remain = length;
+    int read;
+    while (remain > 0) {
+      read = in.read(buffer, 0, (int) Math.min(buffer.length, remain));
+      if (read < 0) {
+        throw new EOFException("Unexpected end of a spill");
+      }
+      out.write(buffer, 0, read);
+      if (out instanceof BlockCompressedOutputStream) {
+        ((BlockCompressedOutputStream) out).endRecord();
+      }
+      remain -= read;
+    }
   }
 
   @Override
   public void rescan() throws IOException {
     // nothing to do   
   }
-}
\ No newline at end of file
+}
@@ -21,6 +21,7 @@ package tajo.engine.planner.physical;
 import tajo.TaskAttemptContext;
 import tajo.catalog.Schema;
 import tajo.catalog.SchemaObject;
+import tajo.conf.TajoConf.ConfVars;
 import tajo.storage.Tuple;
 
 import java.io.IOException;
@@ -29,6 +30,10 @@ public abstract class PhysicalExec implements SchemaObject {
   protected final TaskAttemptContext context;
   protected final Schema inSchema;
   protected final Schema outSchema;
+  // a batch filled by the default implementation of nextBatch()
+  private RowBatch rowBatch = null;
+  // true if next() has returned null while filling the last batch
+  private boolean rowBatchEnd = false;
 
   public PhysicalExec(final TaskAttemptContext context, final Schema inSchema,
                       final Schema outSchema) {
@@ -45,6 +50,71 @@ public abstract class PhysicalExec implements SchemaObject {
 
   public abstract Tuple next() throws IOException;
 
+  /**
+   * Returns the next batch of tuples. The returned batch is valid until the
+   * next call of this method.
+   *
+   * By default, a batch is filled by calling {@link #next()}, so every
+   * executor can be consumed batch-at-a-time. Executors which process
+   * tuples in batches override this method.
+   *
+   * @return the next batch, or null if there is no more tuple
+   */
+  public RowBatch nextBatch() throws IOException {
+    if (rowBatch == null) {
+      rowBatch = new RowBatch(outSchema, getBatchSize());
+    }
+
+    rowBatch.reset();
+    if (rowBatchEnd) {
+      // next() is not called again after it returns null.
+      rowBatchEnd = false;
+      return null;
+    }
+
+    Tuple tuple;
+    while (!rowBatch.isFull()) {
+      if ((tuple = next()) == null) {
+        rowBatchEnd = true;
+        break;
+      }
+      rowBatch.addTuple(tuple);
+    }
+    if (rowBatch.size() > 0) {
+      return rowBatch;
+    } else {
+      rowBatchEnd = false;
+      return null;
+    }
+  }
+
+  /**
+   * Discards the state of the batches returned so far. It should be called
+   * when this executor is rescanned in the middle of batches.
+   */
+  public void discardBatches() {
+    rowBatchEnd = false;
+  }
+
+  protected int getBatchSize() {
+    return context.getConf().getIntVar(ConfVars.EXEC_BATCH_SIZE);
+  }
+
+  /**
+   * @return true if this executor should process tuples in batches
+   */
+  protected boolean isVectorized() {
+    return context.getConf().getBoolVar(ConfVars.EXEC_VECTORIZED);
+  }
+
+  /**
+   * @return true if this executor should compile its expressions into
+   * bytecode
+   */
+  protected boolean isCodegenEnabled() {
+    return context.getConf().getBoolVar(ConfVars.EXEC_CODEGEN);
+  }
+
   public abstract void rescan() throws IOException;
 
   public abstract void close() throws IOException;
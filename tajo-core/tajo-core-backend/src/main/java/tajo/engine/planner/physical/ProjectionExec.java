@@ -37,23 +37,41 @@ public class ProjectionExec extends UnaryPhysicalExec {
   private Tuple outTuple;
   private EvalContext[] evalContexts;
   private Projector projector;
-  
+
+  // for batch processing
+  private final boolean vectorized;
+  private VectorProjector vectorProjector;
+  private RowBatchReader batchReader;
+
   public ProjectionExec(TaskAttemptContext context, ProjectionNode plan,
       PhysicalExec child) {
     super(context, plan.getInSchema(), plan.getOutSchema(), child);
     this.plan = plan;
+    this.vectorized = isVectorized();
   }
 
   public void init() throws IOException {
     super.init();
 
     this.outTuple = new VTuple(outSchema.getColumnNum());
-    this.projector = new Projector(inSchema, outSchema, this.plan.getTargets());
+    // the row-at-a-time projector is not used in batches.
+    this.projector = new Projector(inSchema, outSchema, this.plan.getTargets(),
+        !vectorized && isCodegenEnabled());
     this.evalContexts = projector.renew();
+
+    if (vectorized) {
+      vectorProjector = new VectorProjector(inSchema, outSchema,
+          plan.getTargets(), getBatchSize());
+      batchReader = new RowBatchReader(this);
+    }
   }
 
   @Override
   public Tuple next() throws IOException {
+    if (vectorized) {
+      return batchReader.next(outTuple);
+    }
+
     Tuple tuple = child.next();
     if (tuple ==  null) {
       return null;
@@ -63,4 +81,25 @@ public class ProjectionExec extends UnaryPhysicalExec {
     projector.terminate(evalContexts, outTuple);
     return outTuple;
   }
+
+  @Override
+  public RowBatch nextBatch() throws IOException {
+    if (!vectorized) {
+      return super.nextBatch();
+    }
+
+    RowBatch batch = child.nextBatch();
+    if (batch == null) {
+      return null;
+    }
+    return vectorProjector.project(batch);
+  }
+
+  @Override
+  public void rescan() throws IOException {
+    super.rescan();
+    if (vectorized) {
+      batchReader.reset();
+    }
+  }
 }
@@ -0,0 +1,229 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import tajo.catalog.Schema;
+import tajo.datum.BooleanDatum;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.storage.MutableTuple;
+import tajo.storage.Tuple;
+
+/**
+ * A batch of rows in a columnar layout, which is passed between physical
+ * executors by {@link PhysicalExec#nextBatch()}.
+ *
+ * A batch has one {@link ColumnVector} per column. Filters do not move
+ * any value; instead, they narrow the selection vector, which holds the
+ * ids of the rows still alive in ascending order. Hence, a consumer visits
+ * the alive rows as follows:
+ *
+ * <pre>
+ * for (int i = 0; i < batch.getRowNum(); i++) {
+ *   int row = batch.getRowId(i);
+ *   ...
+ * }
+ * </pre>
+ */
+public class RowBatch {
+  private final Schema schema;
+  private final int capacity;
+  private final ColumnVector [] vectors;
+  // true if the primitive values of a column are copied from tuples
+  private final boolean [] copyValues;
+  private final long [] offsets;
+
+  private int size = 0;
+  private int [] selected;
+  private int selectedNum = 0;
+  private boolean selectionInUse = false;
+
+  public RowBatch(Schema schema, int capacity) {
+    this.schema = schema;
+    this.capacity = capacity;
+    this.vectors = new ColumnVector[schema.getColumnNum()];
+    for (int i = 0; i < vectors.length; i++) {
+      vectors[i] = new ColumnVector(
+          schema.getColumn(i).getDataType().getType(), capacity);
+    }
+    this.copyValues = new boolean[vectors.length];
+    this.offsets = new long[capacity];
+    this.selected = new int[capacity];
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public ColumnVector getVector(int columnId) {
+    return vectors[columnId];
+  }
+
+  /**
+   * Replaces a column vector, e.g., with a vector of another batch in order
+   * to pass the column through without copying it.
+   */
+  public void setVector(int columnId, ColumnVector vector) {
+    vectors[columnId] = vector;
+  }
+
+  /**
+   * @return the number of physical rows regardless of the selection
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  /**
+   * @return the number of rows alive
+   */
+  public int getRowNum() {
+    return selectionInUse ? selectedNum : size;
+  }
+
+  /**
+   * @return the physical row id of the i-th alive row
+   */
+  public int getRowId(int i) {
+    return selectionInUse ? selected[i] : i;
+  }
+
+  public int [] getSelected() {
+    return selected;
+  }
+
+  /**
+   * Sets the number of rows alive after a filter has written their ids
+   * into {@link #getSelected()}.
+   */
+  public void setSelectedNum(int selectedNum) {
+    this.selectedNum = selectedNum;
+    this.selectionInUse = true;
+  }
+
+  /**
+   * Makes this batch have the same rows and selection as another batch.
+   * The selection vector is shared.
+   */
+  public void setRows(RowBatch other) {
+    this.size = other.size;
+    this.selected = other.selected;
+    this.selectedNum = other.selectedNum;
+    this.selectionInUse = other.selectionInUse;
+    System.arraycopy(other.offsets, 0, offsets, 0, other.size);
+  }
+
+  public void reset() {
+    size = 0;
+    selectedNum = 0;
+    selectionInUse = false;
+    for (ColumnVector vector : vectors) {
+      vector.resetDatums();
+    }
+  }
+
+  /**
+   * Appends a tuple to this batch. The datums are not copied because they
+   * are immutable, except for {@link BooleanDatum}s which evals reuse.
+   *
+   * If the tuples are {@link MutableTuple}s, the primitive values are copied
+   * instead, so that no datum is created for them. Whether a column keeps
+   * primitive values is decided by the first row of the batch, and the values
+   * of the later rows are converted if they are given in another way.
+   */
+  public void addTuple(Tuple tuple) {
+    int num = Math.min(vectors.length, tuple.size());
+    if (size == 0) {
+      for (int i = 0; i < vectors.length; i++) {
+        copyValues[i] = i < num && isPrimitive(tuple, i);
+        if (copyValues[i]) {
+          vectors[i].resetValues();
+        }
+      }
+    }
+
+    for (int i = 0; i < num; i++) {
+      if (copyValues[i]) {
+        if (isPrimitive(tuple, i)) {
+          copyValue((MutableTuple) tuple, i);
+        } else {
+          vectors[i].setValue(size, tuple.get(i));
+        }
+      } else {
+        vectors[i].setDatum(size, copyIfMutable(tuple.get(i)));
+      }
+    }
+    for (int i = num; i < vectors.length; i++) {
+      if (copyValues[i]) {
+        vectors[i].setNull(size);
+      } else {
+        vectors[i].setDatum(size, null);
+      }
+    }
+    offsets[size] = tuple.getOffset();
+    size++;
+  }
+
+  /**
+   * @return true if a column of a tuple is kept as a primitive value of the
+   * same type as the vector
+   */
+  private boolean isPrimitive(Tuple tuple, int columnId) {
+    return tuple instanceof MutableTuple &&
+        ColumnVector.isPrimitive(vectors[columnId].getType()) &&
+        ((MutableTuple) tuple).getType(columnId) == vectors[columnId].getType();
+  }
+
+  private static Datum copyIfMutable(Datum datum) {
+    if (datum instanceof BooleanDatum) {
+      return DatumFactory.createBool(datum.asBool());
+    }
+    return datum;
+  }
+
+  private void copyValue(MutableTuple tuple, int columnId) {
+    ColumnVector vector = vectors[columnId];
+    if (tuple.isNull(columnId) || !tuple.contains(columnId)) {
+      vector.setNull(size);
+    } else if (ColumnVector.isIntegral(vector.getType())) {
+      vector.setLong(size, tuple.getInt8Value(columnId));
+    } else {
+      vector.setDouble(size, tuple.getFloat8Value(columnId));
+    }
+  }
+
+  /**
+   * Fills a tuple with the values of a physical row.
+   */
+  public Tuple getTuple(int row, Tuple tuple) {
+    for (int i = 0; i < vectors.length; i++) {
+      tuple.put(i, vectors[i].getDatum(row));
+    }
+    tuple.setOffset(offsets[row]);
+    return tuple;
+  }
+}
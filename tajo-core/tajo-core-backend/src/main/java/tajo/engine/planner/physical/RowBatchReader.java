@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import tajo.storage.Tuple;
+
+import java.io.IOException;
+
+/**
+ * It reads the batches of an executor row by row. It is used by executors
+ * which process tuples one by one, such as hash aggregations and hash joins,
+ * and by batch executors in order to implement {@link PhysicalExec#next()}.
+ *
+ * If it is not batched, it just reads tuples by {@link PhysicalExec#next()}.
+ */
+public class RowBatchReader {
+  private final PhysicalExec exec;
+  private final boolean batched;
+  private RowBatch batch = null;
+  private int cursor = 0;
+  private boolean finished = false;
+
+  public RowBatchReader(PhysicalExec exec) {
+    this(exec, true);
+  }
+
+  public RowBatchReader(PhysicalExec exec, boolean batched) {
+    this.exec = exec;
+    this.batched = batched;
+  }
+
+  /**
+   * Fills a given tuple with the next row. If it is not batched, the tuple
+   * returned by the executor is returned instead.
+   *
+   * @return the next tuple, or null if there is no more row
+   */
+  public Tuple next(Tuple tuple) throws IOException {
+    if (!batched) {
+      return exec.next();
+    }
+
+    while (batch == null || cursor == batch.getRowNum()) {
+      if (finished) {
+        return null;
+      }
+      batch = exec.nextBatch();
+      cursor = 0;
+      if (batch == null) {
+        finished = true;
+        return null;
+      }
+    }
+
+    return batch.getTuple(batch.getRowId(cursor++), tuple);
+  }
+
+  /**
+   * Discards the rows read ahead. It should be called when the executor is
+   * rescanned.
+   */
+  public void reset() {
+    batch = null;
+    cursor = 0;
+    finished = false;
+    exec.discardBatches();
+  }
+}
@@ -35,6 +35,12 @@ public class SelectionExec extends UnaryPhysicalExec  {
   // projection
   private int [] targetIds;
 
+  // for batch processing
+  private final boolean vectorized;
+  private VectorFilter qualFilter;
+  private RowBatch outBatch;
+  private RowBatchReader batchReader;
+
   public SelectionExec(TaskAttemptContext context,
                        SelectionNode plan,
                        PhysicalExec child) {
@@ -48,10 +54,30 @@ public class SelectionExec extends UnaryPhysicalExec  {
     }
 
     this.outputTuple = new VTuple(outSchema.getColumnNum());
+    this.vectorized = isVectorized();
+  }
+
+  @Override
+  public void init() throws IOException {
+    super.init();
+
+    if (vectorized) {
+      int batchSize = getBatchSize();
+      qualFilter = VectorFilter.compile(qual, inSchema, batchSize);
+      if (targetIds != null) {
+        outBatch = new RowBatch(outSchema, batchSize);
+      }
+      batchReader = new RowBatchReader(this);
+    }
   }
 
   @Override
   public Tuple next() throws IOException {
+    if (vectorized) {
+      return batchReader.next(targetIds != null ? outputTuple :
+          new VTuple(outSchema.getColumnNum()));
+    }
+
     Tuple tuple;
     while ((tuple = child.next()) != null) {
       qual.eval(qualCtx, inSchema, tuple);
@@ -67,4 +93,36 @@ public class SelectionExec extends UnaryPhysicalExec  {
 
     return null;
   }
+
+  @Override
+  public RowBatch nextBatch() throws IOException {
+    if (!vectorized) {
+      return super.nextBatch();
+    }
+
+    RowBatch batch;
+    while ((batch = child.nextBatch()) != null) {
+      qualFilter.filter(batch);
+      if (batch.getRowNum() > 0) {
+        if (targetIds == null) {
+          return batch;
+        }
+
+        outBatch.setRows(batch);
+        for (int i = 0; i < targetIds.length; i++) {
+          outBatch.setVector(i, batch.getVector(targetIds[i]));
+        }
+        return outBatch;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void rescan() throws IOException {
+    super.rescan();
+    if (vectorized) {
+      batchReader.reset();
+    }
+  }
 }
@@ -19,14 +19,21 @@
 package tajo.engine.planner.physical;
 
 import tajo.TaskAttemptContext;
-import tajo.engine.eval.EvalContext;
-import tajo.engine.eval.EvalNode;
+import tajo.catalog.Column;
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.Datum;
+import tajo.engine.eval.*;
+import tajo.engine.parser.QueryBlock.Target;
 import tajo.engine.planner.Projector;
 import tajo.engine.planner.logical.ScanNode;
 import tajo.storage.*;
 import tajo.util.TUtil;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SeqScanExec extends PhysicalExec {
   private final ScanNode plan;
@@ -34,12 +41,20 @@ public class SeqScanExec extends PhysicalExec {
 
   private EvalNode qual = null;
   private EvalContext qualCtx;
+  private CompiledEval compiledQual;
 
   private Fragment [] fragments;
 
   private Projector projector;
   private EvalContext [] evalContexts;
 
+  // for batch processing
+  private final boolean vectorized;
+  private RowBatch inBatch;
+  private VectorFilter qualFilter;
+  private VectorProjector vectorProjector;
+  private RowBatchReader batchReader;
+
   public SeqScanExec(TaskAttemptContext context, StorageManager sm,
                      ScanNode plan, Fragment[] fragments) throws IOException {
     super(context, plan.getInSchema(), plan.getOutSchema());
@@ -53,25 +68,174 @@ public class SeqScanExec extends PhysicalExec {
     } else {
       qualCtx = this.qual.newContext();
     }
+    this.vectorized = isVectorized();
   }
 
   public void init() throws IOException {
-    this.projector = new Projector(inSchema, outSchema, plan.getTargets());
+    // the row-at-a-time qual and projector are not used in batches.
+    boolean codegen = !vectorized && isCodegenEnabled();
+    this.projector = new Projector(inSchema, outSchema, plan.getTargets(),
+        codegen);
     this.evalContexts = projector.renew();
+    if (codegen && qual != null) {
+      compiledQual = EvalCodeGenerator.compile(qual, inSchema);
+    }
 
-    if (fragments.length > 1) {
-      this.scanner = new MergeScanner(context.getConf(), fragments[0].getMeta(),
-          TUtil.newList(fragments));
+    if (vectorized) {
+      int batchSize = getBatchSize();
+      inBatch = new RowBatch(inSchema, batchSize);
+      if (qual != null) {
+        qualFilter = VectorFilter.compile(qual, inSchema, batchSize);
+      }
+      vectorProjector = new VectorProjector(inSchema, outSchema,
+          plan.getTargets(), batchSize);
+      batchReader = new RowBatchReader(this);
+    }
+
+    Schema scanTarget = getScanTarget();
+    FragmentQueue queue = context.getFragmentQueue(plan.getTableId());
+    if (queue != null) {
+      // the fragments are scanned while the later ones are being fetched.
+      this.scanner = new StreamingScanner(context.getConf(),
+          fragments[0].getMeta(), queue);
+      scanner.setTarget(scanTarget.toArray());
+    } else if (fragments.length > 1) {
+      // the parallel scan interleaves the rows of the fragments, so it is
+      // only enabled where the order across fragments does not matter.
+      int parallelism = context.getConf().getIntVar(
+          ConfVars.SCAN_PARALLEL_FRAGMENTS);
+      if (parallelism > 1) {
+        this.scanner = new ParallelMergeScanner(context.getConf(),
+            fragments[0].getMeta(), TUtil.newList(fragments), parallelism);
+      } else {
+        this.scanner = new MergeScanner(context.getConf(),
+            fragments[0].getMeta(), TUtil.newList(fragments));
+      }
+      scanner.setTarget(scanTarget.toArray());
     } else {
       this.scanner = StorageManager.getScanner(context.getConf(), fragments[0].getMeta(),
-          fragments[0], plan.getOutSchema());
+          fragments[0], scanTarget);
     }
+    // the scanner only skips blocks, so the qual is still evaluated for every row.
+    if (qual != null && scanner.isSelectable()) {
+      scanner.setSearchCondition(getColumnPredicates(qual));
+    }
+    // every row is copied by the projector or into a batch.
+    scanner.setReuseTuple(true);
 
     scanner.init();
   }
 
+  /**
+   * @return the columns read by a projectable scanner, which are the output
+   * columns and the columns referred by the targets and the qual
+   */
+  private Schema getScanTarget() {
+    List<Column> columns = new ArrayList<Column>(outSchema.getColumns());
+    if (plan.getTargets() != null) {
+      for (Target target : plan.getTargets()) {
+        columns.addAll(EvalTreeUtil.findDistinctRefColumns(target.getEvalTree()));
+      }
+    }
+    if (qual != null) {
+      columns.addAll(EvalTreeUtil.findDistinctRefColumns(qual));
+    }
+
+    Schema target = new Schema();
+    for (Column column : columns) {
+      if (!target.contains(column.getQualifiedName())) {
+        target.addColumn(column);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Finds the comparisons between a column and a constant in the conjunctive
+   * normal form of a qual.
+   *
+   * @return the predicates which every row satisfying the qual satisfies
+   */
+  static ColumnPredicate [] getColumnPredicates(EvalNode qual) {
+    List<ColumnPredicate> predicates = new ArrayList<ColumnPredicate>();
+    ColumnPredicate.Op op;
+    EvalNode left;
+    EvalNode right;
+    for (EvalNode expr : EvalTreeUtil.getConjNormalForm(qual)) {
+      op = getPredicateOp(expr.getType());
+      if (op == null) {
+        continue;
+      }
+
+      left = expr.getLeftExpr();
+      right = expr.getRightExpr();
+      if (left.getType() == EvalNode.Type.FIELD &&
+          right.getType() == EvalNode.Type.CONST) {
+        addColumnPredicate(predicates, ((FieldEval) left).getColumnRef(), op,
+            ((ConstEval) right).getValue());
+      } else if (left.getType() == EvalNode.Type.CONST &&
+          right.getType() == EvalNode.Type.FIELD) {
+        addColumnPredicate(predicates, ((FieldEval) right).getColumnRef(),
+            reverse(op), ((ConstEval) left).getValue());
+      }
+    }
+    return predicates.toArray(new ColumnPredicate[predicates.size()]);
+  }
+
+  private static ColumnPredicate.Op getPredicateOp(EvalNode.Type type) {
+    switch (type) {
+      case EQUAL: return ColumnPredicate.Op.EQUAL;
+      case LTH: return ColumnPredicate.Op.LTH;
+      case LEQ: return ColumnPredicate.Op.LEQ;
+      case GTH: return ColumnPredicate.Op.GTH;
+      case GEQ: return ColumnPredicate.Op.GEQ;
+      default: return null;
+    }
+  }
+
+  /**
+   * @return the operator for the operands swapped, e.g., GTH for 1 &lt; x
+   */
+  private static ColumnPredicate.Op reverse(ColumnPredicate.Op op) {
+    switch (op) {
+      case LTH: return ColumnPredicate.Op.GTH;
+      case LEQ: return ColumnPredicate.Op.GEQ;
+      case GTH: return ColumnPredicate.Op.LTH;
+      case GEQ: return ColumnPredicate.Op.LEQ;
+      default: return op;
+    }
+  }
+
+  private static void addColumnPredicate(List<ColumnPredicate> predicates,
+                                         Column column, ColumnPredicate.Op op,
+                                         Datum value) {
+    TajoDataTypes.Type type = column.getDataType().getType();
+    // only the values comparable to each other by Datum.compareTo()
+    if ((isNumeric(type) && isNumeric(value.type())) ||
+        (type == TajoDataTypes.Type.TEXT && value.type() == TajoDataTypes.Type.TEXT)) {
+      predicates.add(new ColumnPredicate(column, op, value));
+    }
+  }
+
+  private static boolean isNumeric(TajoDataTypes.Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+      case FLOAT4:
+      case FLOAT8:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   @Override
   public Tuple next() throws IOException {
+    if (vectorized) {
+      return batchReader.next(new VTuple(outSchema.getColumnNum()));
+    }
+
     Tuple tuple;
     Tuple outTuple = new VTuple(outSchema.getColumnNum());
 
@@ -86,8 +250,7 @@ public class SeqScanExec extends PhysicalExec {
       }
     } else {
       while ((tuple = scanner.next()) != null) {
-        qual.eval(qualCtx, inSchema, tuple);
-        if (qual.terminate(qualCtx).asBool()) {
+        if (evalQual(tuple)) {
           projector.eval(evalContexts, tuple);
           projector.terminate(evalContexts, outTuple);
           return outTuple;
@@ -97,9 +260,46 @@ public class SeqScanExec extends PhysicalExec {
     }
   }
 
+  private boolean evalQual(Tuple tuple) {
+    if (compiledQual != null) {
+      return compiledQual.isTrue(tuple);
+    } else {
+      qual.eval(qualCtx, inSchema, tuple);
+      return qual.terminate(qualCtx).asBool();
+    }
+  }
+
+  @Override
+  public RowBatch nextBatch() throws IOException {
+    if (!vectorized) {
+      return super.nextBatch();
+    }
+
+    Tuple tuple;
+    while (true) {
+      inBatch.reset();
+      while (!inBatch.isFull() && (tuple = scanner.next()) != null) {
+        inBatch.addTuple(tuple);
+      }
+      if (inBatch.size() == 0) {
+        return null;
+      }
+
+      if (qualFilter != null) {
+        qualFilter.filter(inBatch);
+      }
+      if (inBatch.getRowNum() > 0) {
+        return vectorProjector.project(inBatch);
+      }
+    }
+  }
+
   @Override
   public void rescan() throws IOException {
     scanner.reset();
+    if (vectorized) {
+      batchReader.reset();
+    }
   }
 
   @Override
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import tajo.TaskAttemptContext;
+import tajo.engine.planner.logical.SortNode;
+import tajo.storage.Tuple;
+import tajo.storage.VTuple;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * This operator returns only the first N tuples in the sort order.
+ * It is used for <code>ORDER BY ... LIMIT N</code> instead of sorting all
+ * input tuples.
+ *
+ * It keeps the N smallest tuples seen so far in a bounded max-heap, so an
+ * input tuple is compared only with the largest of them in most cases, and
+ * it needs memory only for N tuples.
+ */
+public class TopNSortExec extends SortExec {
+  private final SortNode plan;
+  private final int limit;
+  private final PriorityQueue<Tuple> heap;
+  private Tuple [] sortedTuples;
+  private int cursor = 0;
+
+  public TopNSortExec(final TaskAttemptContext context, SortNode plan,
+                      PhysicalExec child, int limit) {
+    super(context, plan.getInSchema(), plan.getOutSchema(), child,
+        plan.getSortKeys());
+    this.plan = plan;
+    this.limit = limit;
+    // the root of the heap is the largest tuple.
+    this.heap = new PriorityQueue<Tuple>(Math.max(1, limit) + 1,
+        Collections.reverseOrder(getComparator()));
+  }
+
+  public SortNode getPlan() {
+    return this.plan;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  private void compute() throws IOException {
+    Tuple tuple;
+    Tuple copy;
+    while ((tuple = child.next()) != null && !context.isStopped()) {
+      if (heap.size() < limit) {
+        copy = new VTuple(inSchema.getColumnNum());
+      } else if (limit > 0 && getComparator().compare(tuple, heap.peek()) < 0) {
+        // the evicted tuple is reused for the new one.
+        copy = heap.poll();
+      } else {
+        continue;
+      }
+      copy.put(0, tuple);
+      heap.add(copy);
+    }
+
+    sortedTuples = heap.toArray(new Tuple[heap.size()]);
+    Arrays.sort(sortedTuples, getComparator());
+    heap.clear();
+  }
+
+  @Override
+  public Tuple next() throws IOException {
+    if (sortedTuples == null) {
+      compute();
+    }
+
+    if (cursor < sortedTuples.length) {
+      return sortedTuples[cursor++];
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public void rescan() throws IOException {
+    cursor = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    sortedTuples = null;
+  }
+}
@@ -0,0 +1,305 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+import tajo.engine.eval.ConstEval;
+import tajo.engine.eval.EvalContext;
+import tajo.engine.eval.EvalNode;
+import tajo.engine.eval.EvalTreeUtil;
+import tajo.engine.eval.FieldEval;
+import tajo.storage.Tuple;
+import tajo.storage.VTuple;
+
+/**
+ * An expression evaluated for all alive rows of a {@link RowBatch} at once.
+ *
+ * Column references, constants and arithmetic on INT4, INT8 and FLOAT8
+ * values are evaluated on primitive arrays. Any other expression, and any row
+ * whose operand is null, is evaluated by the original {@link EvalNode} on a
+ * tuple, so the results are always the same as those of the row-at-a-time
+ * evaluation.
+ */
+public abstract class VectorExpr {
+  protected final EvalNode eval;
+
+  protected VectorExpr(EvalNode eval) {
+    this.eval = eval;
+  }
+
+  public EvalNode getEvalNode() {
+    return eval;
+  }
+
+  public abstract Type getType();
+
+  /**
+   * Evaluates this expression for the alive rows of a batch.
+   *
+   * @return the vector of the results, which is valid until the next call
+   */
+  public abstract ColumnVector evaluate(RowBatch batch);
+
+  public static VectorExpr compile(EvalNode eval, Schema schema, int capacity) {
+    VectorExpr expr = compilePrimitive(eval, schema, capacity);
+    if (expr != null) {
+      return expr;
+    } else {
+      return new RowExpr(eval, schema, capacity);
+    }
+  }
+
+  /**
+   * @return a vectorized expression whose result is a primitive vector, or
+   * null if the expression cannot be vectorized
+   */
+  static VectorExpr compilePrimitive(EvalNode eval, Schema schema,
+                                     int capacity) {
+    switch (eval.getType()) {
+      case FIELD:
+        int columnId = EvalTreeUtil.findColumnId(schema,
+            ((FieldEval) eval).getColumnRef());
+        if (columnId >= 0 && ColumnVector.isPrimitive(
+            schema.getColumn(columnId).getDataType().getType())) {
+          return new FieldExpr(eval, columnId,
+              schema.getColumn(columnId).getDataType().getType());
+        }
+        return null;
+
+      case CONST:
+        Datum datum = ((ConstEval) eval).getValue();
+        if (ColumnVector.isPrimitive(datum.type())) {
+          return new ConstExpr(eval, datum);
+        }
+        return null;
+
+      case PLUS:
+      case MINUS:
+      case MULTIPLY:
+      case DIVIDE:
+      case MODULAR:
+        VectorExpr left = compilePrimitive(eval.getLeftExpr(), schema, capacity);
+        VectorExpr right = compilePrimitive(eval.getRightExpr(), schema, capacity);
+        if (left != null && right != null &&
+            ArithExpr.isSupported(left.getType()) &&
+            ArithExpr.isSupported(right.getType())) {
+          return new ArithExpr(eval, left, right, schema, capacity);
+        }
+        return null;
+
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * It evaluates an {@link EvalNode} on a row of a batch.
+   */
+  static class RowEvaluator {
+    private final EvalNode eval;
+    private final EvalContext evalCtx;
+    private final Schema schema;
+    private final Tuple tuple;
+
+    RowEvaluator(EvalNode eval, Schema schema) {
+      this.eval = eval;
+      this.evalCtx = eval.newContext();
+      this.schema = schema;
+      this.tuple = new VTuple(schema.getColumnNum());
+    }
+
+    Datum eval(RowBatch batch, int row) {
+      batch.getTuple(row, tuple);
+      eval.eval(evalCtx, schema, tuple);
+      return eval.terminate(evalCtx);
+    }
+  }
+
+  private static class FieldExpr extends VectorExpr {
+    private final int columnId;
+    private final Type type;
+
+    FieldExpr(EvalNode eval, int columnId, Type type) {
+      super(eval);
+      this.columnId = columnId;
+      this.type = type;
+    }
+
+    @Override
+    public Type getType() {
+      return type;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+      ColumnVector vector = batch.getVector(columnId);
+      vector.decode(batch.size());
+      return vector;
+    }
+  }
+
+  private static class ConstExpr extends VectorExpr {
+    private final ColumnVector vector;
+
+    ConstExpr(EvalNode eval, Datum datum) {
+      super(eval);
+      this.vector = new ColumnVector(datum.type(), 1);
+      this.vector.setRepeating(datum);
+    }
+
+    @Override
+    public Type getType() {
+      return vector.getType();
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+      return vector;
+    }
+  }
+
+  /**
+   * Arithmetic on INT4, INT8 and FLOAT8 values. As {@link Datum} does, it
+   * computes in int if both operands are INT4, in double if any operand is
+   * FLOAT8, and in long otherwise.
+   */
+  private static class ArithExpr extends VectorExpr {
+    private final EvalNode.Type op;
+    private final VectorExpr left;
+    private final VectorExpr right;
+    private final Type resultType;
+    private final ColumnVector result;
+    private final RowEvaluator rowEvaluator;
+
+    ArithExpr(EvalNode eval, VectorExpr left, VectorExpr right,
+              Schema schema, int capacity) {
+      super(eval);
+      this.op = eval.getType();
+      this.left = left;
+      this.right = right;
+      if (left.getType() == Type.FLOAT8 || right.getType() == Type.FLOAT8) {
+        resultType = Type.FLOAT8;
+      } else if (left.getType() == Type.INT8 || right.getType() == Type.INT8) {
+        resultType = Type.INT8;
+      } else {
+        resultType = Type.INT4;
+      }
+      this.result = new ColumnVector(resultType, capacity);
+      this.rowEvaluator = new RowEvaluator(eval, schema);
+    }
+
+    static boolean isSupported(Type type) {
+      return type == Type.INT4 || type == Type.INT8 || type == Type.FLOAT8;
+    }
+
+    @Override
+    public Type getType() {
+      return resultType;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+      ColumnVector l = left.evaluate(batch);
+      ColumnVector r = right.evaluate(batch);
+      result.resetValues();
+
+      int row;
+      for (int i = 0; i < batch.getRowNum(); i++) {
+        row = batch.getRowId(i);
+        if (l.isNull(row) || r.isNull(row)) {
+          result.setValue(row, rowEvaluator.eval(batch, row));
+        } else if (resultType == Type.INT4) {
+          result.setLong(row, calc((int) l.getLong(row), (int) r.getLong(row)));
+        } else if (resultType == Type.INT8) {
+          result.setLong(row, calc(l.getLong(row), r.getLong(row)));
+        } else {
+          result.setDouble(row, calc(l.getDouble(row), r.getDouble(row)));
+        }
+      }
+      return result;
+    }
+
+    private int calc(int a, int b) {
+      switch (op) {
+        case PLUS: return a + b;
+        case MINUS: return a - b;
+        case MULTIPLY: return a * b;
+        case DIVIDE: return a / b;
+        default: return a % b;
+      }
+    }
+
+    private long calc(long a, long b) {
+      switch (op) {
+        case PLUS: return a + b;
+        case MINUS: return a - b;
+        case MULTIPLY: return a * b;
+        case DIVIDE: return a / b;
+        default: return a % b;
+      }
+    }
+
+    private double calc(double a, double b) {
+      switch (op) {
+        case PLUS: return a + b;
+        case MINUS: return a - b;
+        case MULTIPLY: return a * b;
+        case DIVIDE: return a / b;
+        default: return a % b;
+      }
+    }
+  }
+
+  /**
+   * Any expression which cannot be vectorized. It is evaluated row by row.
+   */
+  private static class RowExpr extends VectorExpr {
+    private final ColumnVector result;
+    private final RowEvaluator rowEvaluator;
+
+    RowExpr(EvalNode eval, Schema schema, int capacity) {
+      super(eval);
+      this.result = new ColumnVector(getType(), capacity);
+      this.rowEvaluator = new RowEvaluator(eval, schema);
+    }
+
+    @Override
+    public Type getType() {
+      // some expressions, e.g., NOT_EQUAL, do not have their value types.
+      if (eval.getValueType() == null) {
+        return Type.ANY;
+      } else {
+        return eval.getValueType()[0].getType();
+      }
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+      result.resetDatums();
+      int row;
+      for (int i = 0; i < batch.getRowNum(); i++) {
+        row = batch.getRowId(i);
+        result.setDatum(row, rowEvaluator.eval(batch, row));
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.engine.eval.EvalNode;
+import tajo.engine.planner.physical.VectorExpr.RowEvaluator;
+
+/**
+ * A predicate evaluated for all alive rows of a {@link RowBatch} at once.
+ * It narrows the selection vector of the batch to the rows satisfying the
+ * predicate.
+ *
+ * AND, OR and comparisons between numeric {@link VectorExpr}s are
+ * vectorized. Any other predicate, and any comparison whose operand is null,
+ * is evaluated by the original {@link EvalNode} on a tuple.
+ */
+public abstract class VectorFilter {
+  public abstract void filter(RowBatch batch);
+
+  public static VectorFilter compile(EvalNode eval, Schema schema,
+                                     int capacity) {
+    switch (eval.getType()) {
+      case AND:
+        return new AndFilter(
+            compile(eval.getLeftExpr(), schema, capacity),
+            compile(eval.getRightExpr(), schema, capacity));
+
+      case OR:
+        return new OrFilter(
+            compile(eval.getLeftExpr(), schema, capacity),
+            compile(eval.getRightExpr(), schema, capacity), capacity);
+
+      case EQUAL:
+      case NOT_EQUAL:
+      case LTH:
+      case LEQ:
+      case GTH:
+      case GEQ:
+        VectorExpr left = VectorExpr.compilePrimitive(eval.getLeftExpr(),
+            schema, capacity);
+        VectorExpr right = VectorExpr.compilePrimitive(eval.getRightExpr(),
+            schema, capacity);
+        if (left != null && right != null) {
+          return new CompareFilter(eval, left, right, schema);
+        }
+        return new RowFilter(eval, schema);
+
+      default:
+        return new RowFilter(eval, schema);
+    }
+  }
+
+  private static class AndFilter extends VectorFilter {
+    private final VectorFilter left;
+    private final VectorFilter right;
+
+    AndFilter(VectorFilter left, VectorFilter right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public void filter(RowBatch batch) {
+      left.filter(batch);
+      if (batch.getRowNum() > 0) {
+        right.filter(batch);
+      }
+    }
+  }
+
+  /**
+   * As the row-at-a-time evaluation does, the right predicate is evaluated
+   * only on the rows not satisfying the left one.
+   */
+  private static class OrFilter extends VectorFilter {
+    private final VectorFilter left;
+    private final VectorFilter right;
+    private int [] alive;
+    private int [] leftSelected;
+
+    OrFilter(VectorFilter left, VectorFilter right, int capacity) {
+      this.left = left;
+      this.right = right;
+      this.alive = new int[capacity];
+      this.leftSelected = new int[capacity];
+    }
+
+    @Override
+    public void filter(RowBatch batch) {
+      if (alive.length < batch.getCapacity()) {
+        alive = new int[batch.getCapacity()];
+        leftSelected = new int[batch.getCapacity()];
+      }
+
+      int aliveNum = batch.getRowNum();
+      for (int i = 0; i < aliveNum; i++) {
+        alive[i] = batch.getRowId(i);
+      }
+
+      left.filter(batch);
+      int leftNum = batch.getRowNum();
+      int [] selected = batch.getSelected();
+      for (int i = 0; i < leftNum; i++) {
+        leftSelected[i] = batch.getRowId(i);
+      }
+
+      // the rows not satisfying the left predicate
+      int restNum = 0;
+      for (int i = 0, j = 0; i < aliveNum; i++) {
+        if (j < leftNum && leftSelected[j] == alive[i]) {
+          j++;
+        } else {
+          selected[restNum++] = alive[i];
+        }
+      }
+      batch.setSelectedNum(restNum);
+      if (restNum > 0) {
+        right.filter(batch);
+      }
+
+      // merges both results in the ascending order of row ids
+      int rightNum = batch.getRowNum();
+      System.arraycopy(selected, 0, alive, 0, rightNum);
+      int num = 0;
+      int i = 0, j = 0;
+      while (i < leftNum || j < rightNum) {
+        if (j == rightNum || (i < leftNum && leftSelected[i] < alive[j])) {
+          selected[num++] = leftSelected[i++];
+        } else {
+          selected[num++] = alive[j++];
+        }
+      }
+      batch.setSelectedNum(num);
+    }
+  }
+
+  /**
+   * A comparison between two numeric expressions. The values are compared
+   * in the same precision as {@link tajo.datum.Datum} does: in long if both
+   * are integral, in float if one is integral and the other is FLOAT4, and
+   * in double otherwise.
+   */
+  private static class CompareFilter extends VectorFilter {
+    private static final int LONG = 0;
+    private static final int FLOAT = 1;
+    private static final int DOUBLE = 2;
+    private static final int NAN = Integer.MIN_VALUE;
+
+    private final EvalNode.Type op;
+    private final VectorExpr left;
+    private final VectorExpr right;
+    private final int mode;
+    private final RowEvaluator rowEvaluator;
+
+    CompareFilter(EvalNode eval, VectorExpr left, VectorExpr right,
+                  Schema schema) {
+      this.op = eval.getType();
+      this.left = left;
+      this.right = right;
+      boolean leftIntegral = ColumnVector.isIntegral(left.getType());
+      boolean rightIntegral = ColumnVector.isIntegral(right.getType());
+      if (leftIntegral && rightIntegral) {
+        mode = LONG;
+      } else if ((leftIntegral && right.getType() == Type.FLOAT4) ||
+          (rightIntegral && left.getType() == Type.FLOAT4)) {
+        mode = FLOAT;
+      } else {
+        mode = DOUBLE;
+      }
+      this.rowEvaluator = new RowEvaluator(eval, schema);
+    }
+
+    @Override
+    public void filter(RowBatch batch) {
+      ColumnVector l = left.evaluate(batch);
+      ColumnVector r = right.evaluate(batch);
+      int [] selected = batch.getSelected();
+      int num = 0;
+      int row;
+      int cmp;
+      for (int i = 0; i < batch.getRowNum(); i++) {
+        row = batch.getRowId(i);
+        if (l.isNull(row) || r.isNull(row)) {
+          if (rowEvaluator.eval(batch, row).asBool()) {
+            selected[num++] = row;
+          }
+          continue;
+        }
+
+        if (mode == LONG) {
+          long a = l.getLong(row);
+          long b = r.getLong(row);
+          cmp = a < b ? -1 : (a == b ? 0 : 1);
+        } else if (mode == FLOAT) {
+          cmp = compare(l.getFloat(row), r.getFloat(row));
+        } else {
+          cmp = compare(l.getDouble(row), r.getDouble(row));
+        }
+        if (satisfies(cmp)) {
+          selected[num++] = row;
+        }
+      }
+      batch.setSelectedNum(num);
+    }
+
+    /**
+     * Unlike {@link Double#compare}, -0.0 is equal to 0.0.
+     *
+     * @return {@link #NAN} if any value is NaN
+     */
+    private static int compare(double a, double b) {
+      if (a < b) {
+        return -1;
+      } else if (a > b) {
+        return 1;
+      } else if (a == b) {
+        return 0;
+      } else {
+        return NAN;
+      }
+    }
+
+    private boolean satisfies(int cmp) {
+      if (cmp == NAN) {
+        // Datum.compareTo() considers NaN equal to any value, but
+        // Datum.equalsTo() does not.
+        return op != EvalNode.Type.EQUAL && op != EvalNode.Type.LTH &&
+            op != EvalNode.Type.GTH;
+      }
+      switch (op) {
+        case EQUAL: return cmp == 0;
+        case NOT_EQUAL: return cmp != 0;
+        case LTH: return cmp < 0;
+        case LEQ: return cmp <= 0;
+        case GTH: return cmp > 0;
+        default: return cmp >= 0;
+      }
+    }
+  }
+
+  /**
+   * Any predicate which cannot be vectorized. It is evaluated row by row.
+   */
+  private static class RowFilter extends VectorFilter {
+    private final RowEvaluator rowEvaluator;
+
+    RowFilter(EvalNode eval, Schema schema) {
+      this.rowEvaluator = new RowEvaluator(eval, schema);
+    }
+
+    @Override
+    public void filter(RowBatch batch) {
+      int [] selected = batch.getSelected();
+      int num = 0;
+      int row;
+      for (int i = 0; i < batch.getRowNum(); i++) {
+        row = batch.getRowId(i);
+        if (rowEvaluator.eval(batch, row).asBool()) {
+          selected[num++] = row;
+        }
+      }
+      batch.setSelectedNum(num);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import tajo.catalog.Schema;
+import tajo.engine.eval.EvalNode;
+import tajo.engine.eval.EvalTreeUtil;
+import tajo.engine.eval.FieldEval;
+import tajo.engine.parser.QueryBlock.Target;
+import tajo.engine.planner.Projector;
+
+/**
+ * The batch version of {@link Projector}. The columns passed through and the
+ * targets referring to a column are not copied; the output batch just shares
+ * the vectors of the input batch. The other targets are evaluated by
+ * {@link VectorExpr}s.
+ */
+public class VectorProjector {
+  private final int [] inMap;
+  private final int [] outMap;
+  private final int [] evalOutMap;
+  // the input column ids of the targets referring to a column, or -1
+  private final int [] evalInMap;
+  private final VectorExpr [] exprs;
+  private final RowBatch outBatch;
+
+  public VectorProjector(Schema inSchema, Schema outSchema, Target [] targets,
+                         int capacity) {
+    Projector projector = new Projector(inSchema, outSchema, targets);
+    this.inMap = projector.getInMap();
+    this.outMap = projector.getOutMap();
+    this.evalOutMap = projector.getEvalOutMap();
+
+    EvalNode [] evals = projector.getEvals();
+    this.evalInMap = new int[evals.length];
+    this.exprs = new VectorExpr[evals.length];
+    for (int i = 0; i < evals.length; i++) {
+      if (evals[i].getType() == EvalNode.Type.FIELD) {
+        evalInMap[i] = EvalTreeUtil.findColumnId(inSchema,
+            ((FieldEval) evals[i]).getColumnRef());
+      } else {
+        evalInMap[i] = -1;
+      }
+      if (evalInMap[i] < 0) {
+        exprs[i] = VectorExpr.compile(evals[i], inSchema, capacity);
+      }
+    }
+    this.outBatch = new RowBatch(outSchema, capacity);
+  }
+
+  /**
+   * @return the projected batch, which is valid until the next call
+   */
+  public RowBatch project(RowBatch in) {
+    outBatch.setRows(in);
+    for (int i = 0; i < inMap.length; i++) {
+      outBatch.setVector(outMap[i], in.getVector(inMap[i]));
+    }
+    for (int i = 0; i < exprs.length; i++) {
+      if (evalInMap[i] >= 0) {
+        outBatch.setVector(evalOutMap[i], in.getVector(evalInMap[i]));
+      } else {
+        outBatch.setVector(evalOutMap[i], exprs[i].evaluate(in));
+      }
+    }
+    return outBatch;
+  }
+}
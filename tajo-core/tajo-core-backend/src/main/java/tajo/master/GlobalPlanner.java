@@ -28,6 +28,7 @@ import tajo.catalog.*;
 import tajo.catalog.proto.CatalogProtos.StoreType;
 import tajo.conf.TajoConf;
 import tajo.engine.parser.QueryBlock.FromTable;
+import tajo.engine.parser.QueryBlock.LimitClause;
 import tajo.engine.planner.PlannerUtil;
 import tajo.engine.planner.global.MasterPlan;
 import tajo.engine.planner.logical.*;
@@ -261,6 +262,9 @@ public class GlobalPlanner {
         }
       } else if (node instanceof UnaryNode) {
         UnaryNode unary = (UnaryNode)node;
+        if (unary.getType() == ExprType.LIMIT) {
+          findFirstSortForLimit((LimitNode) unary);
+        }
         if (unary.getType() != ExprType.STORE &&
             unary.getSubNode().getType() != ExprType.STORE) {
           tableId = QueryIdFactory.newSubQueryId(queryId).toString();
@@ -270,6 +274,29 @@ public class GlobalPlanner {
     }
   }
 
+  /**
+   * Finds the first phase of a two-phase sort (sort - store - sort) below
+   * a given limit through stores and projections, which never change the
+   * number of tuples. The first phase is given a per-task Top-N
+   * in {@link #makeSortSubQuery}.
+   */
+  private void findFirstSortForLimit(LimitNode limit) {
+    LogicalNode child = limit.getSubNode();
+    while (child.getType() == ExprType.STORE ||
+        child.getType() == ExprType.PROJECTION) {
+      child = ((UnaryNode) child).getSubNode();
+    }
+    if (child.getType() == ExprType.SORT) {
+      LogicalNode store = ((SortNode) child).getSubNode();
+      if (store.getType() == ExprType.STORE) {
+        LogicalNode firstSort = ((StoreTableNode) store).getSubNode();
+        if (firstSort.getType() == ExprType.SORT) {
+          pushedLimits.put((SortNode) firstSort, limit);
+        }
+      }
+    }
+  }
+
   /**
    * Convert the logical plan to a two-phase plan by the post-order traverse.
    * 
@@ -284,6 +311,9 @@ public class GlobalPlanner {
   
   private Map<StoreTableNode, ExecutionBlock> convertMap =
       new HashMap<StoreTableNode, ExecutionBlock>();
+  // the first phases of sorts, each of which has a limit on its second phase
+  private Map<SortNode, LimitNode> pushedLimits =
+      new HashMap<SortNode, LimitNode>();
   
   /**
    * Logical plan을 후위 탐색하면서 SubQuery 생성
@@ -513,11 +543,18 @@ public class GlobalPlanner {
     ScanNode newScan;
     ExecutionBlock prev;
     unaryChild = (UnaryNode) unary.getSubNode();  // groupby
+    SortNode sort = (SortNode) unaryChild;
     ExprType curType = unaryChild.getType();
     if (unaryChild.getSubNode().getType() == ExprType.STORE) {
       // store - groupby - store
       unaryChild = (UnaryNode) unaryChild.getSubNode(); // store
       prevStore = (StoreTableNode) unaryChild;
+      LogicalNode prevPlan = prevStore.getSubNode();
+      if (prevPlan.getType() == ExprType.LIMIT &&
+          pushedLimits.containsKey(((LimitNode) prevPlan).getSubNode())) {
+        // the first phase with a per-task Top-N
+        prevPlan = ((LimitNode) prevPlan).getSubNode();
+      }
       newScan = GlobalPlannerUtils.newScanPlan(prevStore.getOutSchema(),
           prevStore.getTableName(), sm.getTablePath(prevStore.getTableName()));
       newScan.setLocal(true);
@@ -526,14 +563,14 @@ public class GlobalPlanner {
       if (prev != null) {
         prev.setParentBlock(unit);
         unit.addChildBlock(newScan, prev);
-        if (unaryChild.getSubNode().getType() == curType) {
+        if (prevPlan.getType() == curType) {
           // TODO - this is duplicated code
           prev.setPartitionType(PartitionType.RANGE);
         } else {
           prev.setPartitionType(PartitionType.LIST);
         }
       }
-      if (unaryChild.getSubNode().getType() == curType) {
+      if (prevPlan.getType() == curType) {
         // the second phase
         unit.setPartitionType(PartitionType.LIST);
       } else {
@@ -550,6 +587,17 @@ public class GlobalPlanner {
     } else {
       // error
     }
+
+    // Since only the first N tuples of the sort are used, each task of
+    // the first phase also emits only its first N tuples.
+    LimitNode limit = pushedLimits.get(sort);
+    if (limit != null) {
+      LimitNode topN = new LimitNode(new LimitClause(limit.getFetchFirstNum()));
+      topN.setInSchema(sort.getOutSchema());
+      topN.setOutSchema(sort.getOutSchema());
+      topN.setSubNode(sort);
+      unary.setSubNode(topN);
+    }
     return unit;
   }
   
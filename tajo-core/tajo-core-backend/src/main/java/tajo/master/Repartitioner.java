@@ -26,6 +26,7 @@ import tajo.SubQueryId;
 import tajo.catalog.*;
 import tajo.catalog.proto.CatalogProtos.StoreType;
 import tajo.catalog.statistics.TableStat;
+import tajo.conf.TajoConf;
 import tajo.conf.TajoConf.ConfVars;
 import tajo.engine.planner.PlannerUtil;
 import tajo.engine.planner.RangePartitionAlgorithm;
@@ -37,6 +38,7 @@ import tajo.master.ExecutionBlock.PartitionType;
 import tajo.master.QueryUnit.IntermediateEntry;
 import tajo.storage.Fragment;
 import tajo.storage.TupleRange;
+import tajo.storage.compress.BlockCompression;
 import tajo.util.TUtil;
 
 import java.io.IOException;
@@ -76,8 +78,8 @@ public class Repartitioner {
 
       if (scans[i].isLocal()) { // it only requires a dummy fragment.
         fragments[i] = new Fragment(scans[i].getTableId(), tablePath,
-            CatalogUtil.newTableMeta(scans[i].getInSchema(), StoreType.CSV),
-            0, 0, null);
+            getIntermediateMeta(subQuery.getChildQuery(scans[i]),
+                scans[i].getInSchema()), 0, 0, null);
       } else {
         fragments[i] = subQuery.getStorageManager().getSplits(scans[i].getTableId(),
             catalog.getTableDesc(scans[i].getTableId()).getMeta(),
@@ -149,6 +151,12 @@ public class Repartitioner {
       // distinct partition ids.
       int joinTaskNum = Math.min(maxTaskNum, hashEntries.size());
       LOG.info("The determined number of join tasks is " + joinTaskNum);
+      for (int j = 0; j < 2; j++) {
+        if (scans[j].isLocal()) {
+          fragments[j] = newFetchedFragment(fragments[j],
+              stats[j].getNumBytes() / Math.max(1, joinTaskNum));
+        }
+      }
       QueryUnit [] createdTasks = newEmptyJoinTask(subQuery, fragments, joinTaskNum);
 
       // Assign partitions to tasks in a round robin manner.
@@ -213,6 +221,16 @@ public class Repartitioner {
     }
   }
 
+  /**
+   * The fragment of a fetched table has no data, but its length is the
+   * volume which a task is estimated to fetch. A task uses it as the size
+   * of the table until the table is fetched completely.
+   */
+  private static Fragment newFetchedFragment(Fragment dummy, long volume) {
+    return new Fragment(dummy.getId(), dummy.getPath(), dummy.getMeta(), 0,
+        volume, null);
+  }
+
   /**
    * This method merges the partition request associated with the pullserver's address.
    * It reduces the number of TCP connections.
@@ -263,7 +281,8 @@ public class Repartitioner {
     tablePath = subQuery.getContext().getStorageManager().getTablePath(scan.getTableId());
 
     StoreTableNode store = (StoreTableNode) childSubQuery.getBlock().getPlan();
-    SortNode sort = (SortNode) store.getSubNode();
+    // the sort may have a per-task Top-N on it
+    SortNode sort = (SortNode) PlannerUtil.findTopNode(store, ExprType.SORT);
     SortSpec[] sortSpecs = sort.getSortKeys();
     Schema sortSchema = PlannerUtil.sortSpecsToSchema(sort.getSortKeys());
 
@@ -389,8 +408,7 @@ public class Repartitioner {
     }
 
     Fragment frag = new Fragment(scan.getTableId(), tablePath,
-        CatalogUtil.newTableMeta(scan.getInSchema(), StoreType.CSV),
-        0, 0, null);
+        getIntermediateMeta(childSubQuery, scan.getInSchema()), 0, 0, null);
 
     Map<Integer, List<IntermediateEntry>> hashed = hashByKey(partitions);
     Map<String, List<IntermediateEntry>> hashedByHost;
@@ -419,6 +437,8 @@ public class Repartitioner {
       determinedTaskNum = 1;
     }
 
+    frag = newFetchedFragment(frag,
+        stat.getNumBytes() / Math.max(1, determinedTaskNum));
     QueryUnit [] tasks = createEmptyNonLeafTasks(subQuery, determinedTaskNum, frag);
 
     int tid = 0;
@@ -560,8 +580,8 @@ public class Repartitioner {
         keys = groupby.getGroupingColumns();
       }
     } else if (execBlock.getPartitionType() == PartitionType.RANGE) {
-      if (store.getSubNode().getType() == ExprType.SORT) {
-        SortNode sort = (SortNode)store.getSubNode();
+      SortNode sort = (SortNode) PlannerUtil.findTopNode(store, ExprType.SORT);
+      if (sort != null) {
         keys = new Column[sort.getSortKeys().length];
         for (int i = 0; i < keys.length; i++) {
           keys[i] = sort.getSortKeys()[i].getSortKey();
@@ -574,9 +594,57 @@ public class Repartitioner {
       } else {
         store.setPartitions(execBlock.getPartitionType(), keys, n);
       }
+      if (execBlock.getPartitionType() == PartitionType.HASH) {
+        setIntermediateFormat(subQuery.getContext().getConf(), store);
+      }
     } else {
       store.setListPartition();
     }
     return subQuery;
   }
+
+  /**
+   * Sets the format of the hash-partitioned intermediate data written by a
+   * store, which is given by <code>tajo.shuffle.store-type</code> and
+   * <code>tajo.shuffle.compression.codec</code>. Since the partitions fetched
+   * from many tasks are concatenated into a file, only the formats without a
+   * file header are allowed. Range-partitioned data is never compressed
+   * because its rows are located by the offsets in its index.
+   */
+  private static void setIntermediateFormat(TajoConf conf, StoreTableNode store) {
+    String typeName = conf.getVar(ConfVars.SHUFFLE_STORE_TYPE).toUpperCase();
+    StoreType storeType;
+    if (typeName.equals(StoreType.CSV.name())) {
+      storeType = StoreType.CSV;
+    } else {
+      if (!typeName.equals(StoreType.RAW.name())) {
+        LOG.warn("Unsupported intermediate format " + typeName
+            + ", so RAW is used instead");
+      }
+      storeType = StoreType.RAW;
+    }
+    store.setStorageType(storeType);
+
+    String codec = conf.getVar(ConfVars.SHUFFLE_COMPRESSION_CODEC);
+    if (!codec.isEmpty()) {
+      Options options = store.hasOptions() ? store.getOptions() : new Options();
+      options.put(BlockCompression.CODEC, codec);
+      store.setOptions(options);
+    }
+  }
+
+  /**
+   * @return the meta of the intermediate data written by a child subquery,
+   * which follows the storage type and the options of its store
+   */
+  private static TableMeta getIntermediateMeta(SubQuery childSubQuery,
+                                               Schema schema) {
+    StoreTableNode store = childSubQuery.getBlock().getStoreTableNode();
+    if (store.hasOptions()) {
+      return CatalogUtil.newTableMeta(schema, store.getStorageType(),
+          store.getOptions());
+    } else {
+      return CatalogUtil.newTableMeta(schema, store.getStorageType());
+    }
+  }
 }
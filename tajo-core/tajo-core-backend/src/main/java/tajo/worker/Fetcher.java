@@ -18,189 +18,69 @@
 
 package tajo.worker;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.jboss.netty.bootstrap.ClientBootstrap;
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.channel.*;
-import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
-import org.jboss.netty.handler.codec.http.*;
+import com.google.common.collect.Lists;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.net.InetSocketAddress;
 import java.net.URI;
-import java.nio.channels.FileChannel;
-import java.util.concurrent.Executors;
-
-import static org.jboss.netty.channel.Channels.pipeline;
+import java.util.List;
 
 /**
- * Fetcher fetches data from a given uri via HTTP protocol and stores them into
- * a specific file. It aims at asynchronous and efficient data transmit.
+ * Fetcher fetches data from given uris via HTTP protocol and stores them into
+ * specific files. The data are fetched through a {@link ShuffleClient} shared
+ * by the tasks of a worker, so that the connections to a pull server are
+ * reused across fetches. The uris of a fetcher with more than one uri must
+ * be of the same server, and they are fetched with a single request.
  */
 public class Fetcher {
-  private final static Log LOG = LogFactory.getLog(Fetcher.class);
-
-  private final URI uri;
-  private final File file;
-
-  private final String host;
-  private int port;
+  private final List<URI> uris;
+  private final List<File> files;
+  private final ShuffleClient client;
 
+  /**
+   * Creates a fetcher which uses its own connection for each fetch.
+   */
   public Fetcher(URI uri, File file) {
-    this.uri = uri;
-    this.file = file;
-
-    String scheme = uri.getScheme() == null ? "http" : uri.getScheme();
-    this.host = uri.getHost() == null ? "localhost" : uri.getHost();
-    this.port = uri.getPort();
-    if (port == -1) {
-      if (scheme.equalsIgnoreCase("http")) {
-        this.port = 80;
-      } else if (scheme.equalsIgnoreCase("https")) {
-        this.port = 443;
-      }
-    }
+    this(uri, file, null);
   }
 
-  public File get() throws IOException {
-    ClientBootstrap bootstrap = new ClientBootstrap(
-        new NioClientSocketChannelFactory(Executors.newCachedThreadPool(),
-            Executors.newCachedThreadPool()));
-    bootstrap.setOption("connectTimeoutMillis", 5000L); // set 5 sec
-    bootstrap.setOption("receiveBufferSize", 1048576); // set 1M
-    ChannelPipelineFactory factory = new HttpClientPipelineFactory(file);
-    bootstrap.setPipelineFactory(factory);
-
-    ChannelFuture future = bootstrap.connect(new InetSocketAddress(host, port));
-
-    // Wait until the connection attempt succeeds or fails.
-    Channel channel = future.awaitUninterruptibly().getChannel();
-    if (!future.isSuccess()) {
-      bootstrap.releaseExternalResources();
-      throw new IOException(future.getCause());
-    }
-
-    String query = uri.getPath()
-        + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
-    // Prepare the HTTP request.
-    HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, query);
-    request.setHeader(HttpHeaders.Names.HOST, host);
-    LOG.info("Fetch: " + uri);
-    request.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
-    request.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.GZIP);
-
-    // Send the HTTP request.
-    channel.write(request);
-
-    // Wait for the server to close the connection.
-    channel.getCloseFuture().awaitUninterruptibly();
-
-    // Shut down executor threads to exit.
-    bootstrap.releaseExternalResources();
-
-    return file;
+  public Fetcher(URI uri, File file, ShuffleClient client) {
+    this(Lists.newArrayList(uri), Lists.newArrayList(file), client);
   }
 
-  public URI getURI() {
-    return this.uri;
+  public Fetcher(List<URI> uris, List<File> files, ShuffleClient client) {
+    this.uris = uris;
+    this.files = files;
+    this.client = client;
   }
 
-  public static class HttpClientHandler extends SimpleChannelUpstreamHandler {
-    private volatile boolean readingChunks;
-    private final File file;
-    private RandomAccessFile raf;
-    private FileChannel fc;
-    private long length = -1;
-
-    public HttpClientHandler(File file) throws FileNotFoundException {
-      this.file = file;
+  public List<File> get() throws IOException {
+    if (client != null) {
+      return get(client);
     }
 
-    @Override
-    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
-        throws Exception {
-      if (!readingChunks) {
-        HttpResponse response = (HttpResponse) e.getMessage();
-
-        StringBuilder sb = new StringBuilder();
-        if (LOG.isDebugEnabled()) {
-          sb.append("STATUS: ").append(response.getStatus())
-              .append(", VERSION: ").append(response.getProtocolVersion())
-              .append(", HEADER: ");
-        }
-        if (!response.getHeaderNames().isEmpty()) {
-          for (String name : response.getHeaderNames()) {
-            for (String value : response.getHeaders(name)) {
-              if (LOG.isDebugEnabled()) {
-                sb.append(name).append(" = ").append(value);
-              }
-              if (this.length == -1 && name.equals("Content-Length")) {
-                this.length = Long.valueOf(value);
-              }
-            }
-          }
-        }
-        if (LOG.isDebugEnabled()) {
-          LOG.debug(sb.toString());
-        }
-
-        if (response.getStatus() == HttpResponseStatus.NO_CONTENT) {
-          LOG.info("There are no data corresponding to the request");
-          return;
-        }
-
-        this.raf = new RandomAccessFile(file, "rw");
-        this.fc = raf.getChannel();
-
-        if (response.isChunked()) {
-          readingChunks = true;
-        } else {
-          ChannelBuffer content = response.getContent();
-          if (content.readable()) {
-            fc.write(content.toByteBuffer());
-          }
-        }
-      } else {
-        HttpChunk chunk = (HttpChunk) e.getMessage();
-        if (chunk.isLast()) {
-          readingChunks = false;
-          long fileLength = fc.position();
-          fc.close();
-          raf.close();
-          if (fileLength == length) {
-            LOG.info("Data fetch is done (total received bytes: " + fileLength
-                + ")");
-          } else {
-            LOG.info("Data fetch is done, but cannot get all data "
-                + "(received/total: " + fileLength + "/" + length + ")");
-          }
-        } else {
-          fc.write(chunk.getContent().toByteBuffer());
-        }
-      }
+    ShuffleClient ownClient = new ShuffleClient(1, 1);
+    try {
+      return get(ownClient);
+    } finally {
+      ownClient.close();
     }
   }
 
-  public static class HttpClientPipelineFactory implements
-      ChannelPipelineFactory {
-    private final File file;
-
-    public HttpClientPipelineFactory(File file) {
-      this.file = file;
+  private List<File> get(ShuffleClient client) throws IOException {
+    if (uris.size() == 1) {
+      client.fetch(uris.get(0), files.get(0));
+      return files;
+    } else {
+      return client.fetchBatch(uris, files);
     }
+  }
 
-    @Override
-    public ChannelPipeline getPipeline() throws Exception {
-      ChannelPipeline pipeline = pipeline();
+  public List<URI> getURIs() {
+    return this.uris;
+  }
 
-      pipeline.addLast("codec", new HttpClientCodec());
-      pipeline.addLast("inflater", new HttpContentDecompressor());
-      pipeline.addLast("handler", new HttpClientHandler(file));
-      return pipeline;
-    }
+  public List<File> getFiles() {
+    return this.files;
   }
 }
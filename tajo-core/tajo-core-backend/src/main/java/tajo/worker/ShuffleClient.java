@@ -0,0 +1,645 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.worker;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.*;
+import org.jboss.netty.util.CharsetUtil;
+import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static org.jboss.netty.channel.Channels.pipeline;
+
+/**
+ * ShuffleClient fetches intermediate data from pull servers via HTTP. It is
+ * shared by all tasks running in a worker, so all of the connections are
+ * served by the same I/O threads.
+ *
+ * The connections to each host are kept alive and reused by the following
+ * fetches. Up to a given number of connections are opened to a host, and
+ * each connection carries up to a given number of outstanding requests at a
+ * time (HTTP pipelining). The responses on a connection are received in the
+ * order of the requests.
+ */
+public class ShuffleClient {
+  private final static Log LOG = LogFactory.getLog(ShuffleClient.class);
+
+  private final ChannelFactory channelFactory;
+  private final ChannelGroup allChannels =
+      new DefaultChannelGroup(ShuffleClient.class.getSimpleName());
+  private final int maxConnectionsPerHost;
+  private final int pipelineDepth;
+
+  private final Map<InetSocketAddress, HostPool> pools = Maps.newHashMap();
+  private volatile boolean closed = false;
+
+  public ShuffleClient(TajoConf conf) {
+    this(conf.getIntVar(ConfVars.SHUFFLE_FETCH_MAX_CONNECTIONS_PER_HOST),
+        conf.getIntVar(ConfVars.SHUFFLE_FETCH_PIPELINE_DEPTH));
+  }
+
+  public ShuffleClient(int maxConnectionsPerHost, int pipelineDepth) {
+    this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+    this.pipelineDepth = Math.max(1, pipelineDepth);
+    this.channelFactory = new NioClientSocketChannelFactory(
+        Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("ShuffleClient boss #%d").setDaemon(true).build()),
+        Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("ShuffleClient worker #%d").setDaemon(true).build()));
+  }
+
+  /**
+   * Fetches the data of a given uri and stores them into a given file. It
+   * blocks until the whole response is received.
+   *
+   * @return the file
+   * @throws IOException if the connection fails or the server returns an
+   * error. The file may be partially written in this case.
+   */
+  public File fetch(URI uri, File file) throws IOException {
+    HttpRequest request = newRequest(HttpMethod.GET, getPathAndQuery(uri),
+        uri.getHost());
+    LOG.info("Fetch: " + uri);
+
+    PendingFetch fetch = new PendingFetch(uri.toString(),
+        Lists.newArrayList(file), false);
+    send(getAddress(uri), fetch, request);
+    return file;
+  }
+
+  /**
+   * Fetches the data of given uris from a server with a single request, and
+   * stores them into the corresponding files. The uris are sent in the body
+   * of a POST request, one uri per line, and the server returns a frame for
+   * each uri in their order. A frame is the 8-byte length of the data
+   * followed by the data.
+   *
+   * A file is not created if the server has no data for its uri.
+   *
+   * @param uris the uris of the same server
+   * @param files the files to store the data of each uri
+   * @return the files
+   */
+  public List<File> fetchBatch(List<URI> uris, List<File> files)
+      throws IOException {
+    if (uris.size() != files.size()) {
+      throw new IllegalArgumentException("The number of uris (" + uris.size()
+          + ") is different from that of files (" + files.size() + ")");
+    }
+    InetSocketAddress addr = getAddress(uris.get(0));
+    StringBuilder body = new StringBuilder();
+    for (URI uri : uris) {
+      if (!getAddress(uri).equals(addr)) {
+        throw new IllegalArgumentException("Batched uris must be of the same "
+            + "server: " + uris.get(0) + ", " + uri);
+      }
+      body.append(getPathAndQuery(uri)).append("\n");
+    }
+
+    HttpRequest request = newRequest(HttpMethod.POST, "/",
+        uris.get(0).getHost());
+    request.setHeader(HttpHeaders.Names.CONTENT_TYPE,
+        "text/plain; charset=UTF-8");
+    request.setContent(ChannelBuffers.copiedBuffer(body, CharsetUtil.UTF_8));
+    HttpHeaders.setContentLength(request, request.getContent().readableBytes());
+    LOG.info("Fetch: " + uris.size() + " uris from " + addr);
+
+    PendingFetch fetch = new PendingFetch(uris.size() + " uris from " + addr,
+        files, true);
+    send(addr, fetch, request);
+    return files;
+  }
+
+  private void send(InetSocketAddress addr, PendingFetch fetch,
+                    HttpRequest request) throws IOException {
+    if (closed) {
+      throw new IOException("ShuffleClient is already closed");
+    }
+    getPool(addr).send(fetch, request);
+    fetch.await();
+  }
+
+  private static InetSocketAddress getAddress(URI uri) {
+    String scheme = uri.getScheme() == null ? "http" : uri.getScheme();
+    String host = uri.getHost() == null ? "localhost" : uri.getHost();
+    int port = uri.getPort();
+    if (port == -1) {
+      if (scheme.equalsIgnoreCase("http")) {
+        port = 80;
+      } else if (scheme.equalsIgnoreCase("https")) {
+        port = 443;
+      }
+    }
+    return new InetSocketAddress(host, port);
+  }
+
+  private static String getPathAndQuery(URI uri) {
+    return uri.getPath()
+        + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+  }
+
+  private static HttpRequest newRequest(HttpMethod method, String uri,
+                                        String host) {
+    HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1,
+        method, uri);
+    request.setHeader(HttpHeaders.Names.HOST,
+        host == null ? "localhost" : host);
+    request.setHeader(HttpHeaders.Names.CONNECTION,
+        HttpHeaders.Values.KEEP_ALIVE);
+    request.setHeader(HttpHeaders.Names.ACCEPT_ENCODING,
+        HttpHeaders.Values.GZIP);
+    return request;
+  }
+
+  private synchronized HostPool getPool(InetSocketAddress addr) {
+    HostPool pool = pools.get(addr);
+    if (pool == null) {
+      pool = new HostPool(addr);
+      pools.put(addr, pool);
+    }
+    return pool;
+  }
+
+  /**
+   * Closes all connections and releases the I/O threads. The fetches in
+   * progress fail.
+   */
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    List<HostPool> toWakeUp;
+    synchronized (this) {
+      toWakeUp = Lists.newArrayList(pools.values());
+      pools.clear();
+    }
+    for (HostPool pool : toWakeUp) {
+      pool.wakeUp();
+    }
+    allChannels.close().awaitUninterruptibly();
+    channelFactory.releaseExternalResources();
+  }
+
+  /**
+   * It keeps the connections to a host.
+   */
+  private class HostPool {
+    private final InetSocketAddress addr;
+    private final ClientBootstrap bootstrap;
+    private final List<Channel> channels = Lists.newArrayList();
+    // the number of connections being established
+    private int connecting = 0;
+
+    HostPool(InetSocketAddress addr) {
+      this.addr = addr;
+      this.bootstrap = new ClientBootstrap(channelFactory);
+      bootstrap.setOption("connectTimeoutMillis", 5000L); // set 5 sec
+      bootstrap.setOption("receiveBufferSize", 1048576); // set 1M
+      bootstrap.setOption("tcpNoDelay", true);
+      bootstrap.setOption("keepAlive", true);
+      bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+        @Override
+        public ChannelPipeline getPipeline() throws Exception {
+          ChannelPipeline pipeline = pipeline();
+          pipeline.addLast("codec", new HttpClientCodec());
+          pipeline.addLast("inflater", new HttpContentDecompressor());
+          pipeline.addLast("handler", new ShuffleHandler(HostPool.this));
+          return pipeline;
+        }
+      });
+    }
+
+    /**
+     * Sends a request on an idle connection if any, or on a new connection
+     * if the number of connections does not reach the limit. Otherwise, the
+     * request is pipelined on the least loaded connection, or it waits until
+     * a connection becomes available.
+     *
+     * A connection is never established while holding the lock of this pool
+     * because the I/O threads also take it when a response is received.
+     */
+    void send(PendingFetch fetch, HttpRequest request) throws IOException {
+      while (true) {
+        synchronized (this) {
+          while (true) {
+            if (closed) {
+              throw new IOException("ShuffleClient is already closed");
+            }
+
+            Channel best = null;
+            int bestLoad = Integer.MAX_VALUE;
+            for (Iterator<Channel> it = channels.iterator(); it.hasNext();) {
+              Channel ch = it.next();
+              ShuffleHandler handler = getHandler(ch);
+              if (!ch.isConnected() || !handler.isReusable()) {
+                it.remove();
+                continue;
+              }
+              int load = handler.getOutstanding();
+              if (load < bestLoad) {
+                best = ch;
+                bestLoad = load;
+              }
+            }
+
+            if (best != null && bestLoad == 0) {
+              write(best, fetch, request);
+              return;
+            } else if (channels.size() + connecting < maxConnectionsPerHost) {
+              connecting++;
+              break;
+            } else if (best != null && bestLoad < pipelineDepth) {
+              write(best, fetch, request);
+              return;
+            }
+
+            try {
+              wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new InterruptedIOException("Interrupted while waiting " +
+                  "for a connection to " + addr);
+            }
+          }
+        }
+
+        Channel channel = null;
+        try {
+          channel = connect();
+        } finally {
+          synchronized (this) {
+            connecting--;
+            if (channel != null) {
+              channels.add(channel);
+            }
+            notifyAll();
+          }
+        }
+      }
+    }
+
+    private Channel connect() throws IOException {
+      ChannelFuture future = bootstrap.connect(addr);
+      // Wait until the connection attempt succeeds or fails.
+      Channel channel = future.awaitUninterruptibly().getChannel();
+      if (!future.isSuccess()) {
+        throw new IOException("Cannot connect to " + addr, future.getCause());
+      }
+      allChannels.add(channel);
+      if (closed) {
+        channel.close();
+        throw new IOException("ShuffleClient is already closed");
+      }
+      return channel;
+    }
+
+    private void write(Channel channel, final PendingFetch fetch,
+                       HttpRequest request) {
+      final ShuffleHandler handler = getHandler(channel);
+      handler.enqueue(fetch);
+      channel.write(request).addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+          if (!future.isSuccess()) {
+            future.getChannel().close();
+            handler.failAll(new IOException("Cannot send the request to "
+                + addr, future.getCause()));
+          }
+        }
+      });
+    }
+
+    synchronized void wakeUp() {
+      notifyAll();
+    }
+
+    synchronized void remove(Channel channel) {
+      channels.remove(channel);
+      notifyAll();
+    }
+  }
+
+  private static ShuffleHandler getHandler(Channel channel) {
+    return channel.getPipeline().get(ShuffleHandler.class);
+  }
+
+  /**
+   * It receives the responses on a connection and writes them into the
+   * files of the corresponding fetches.
+   */
+  private static class ShuffleHandler extends SimpleChannelUpstreamHandler {
+    private final HostPool pool;
+    // the fetches whose requests are sent, in the order of the requests
+    private final LinkedList<PendingFetch> pending =
+        new LinkedList<PendingFetch>();
+    private volatile boolean reusable = true;
+    private boolean readingChunks = false;
+
+    ShuffleHandler(HostPool pool) {
+      this.pool = pool;
+    }
+
+    boolean isReusable() {
+      return reusable;
+    }
+
+    synchronized int getOutstanding() {
+      return pending.size();
+    }
+
+    synchronized void enqueue(PendingFetch fetch) {
+      pending.add(fetch);
+    }
+
+    private synchronized PendingFetch current() {
+      return pending.peek();
+    }
+
+    private synchronized void removeCurrent() {
+      pending.poll();
+    }
+
+    void failAll(IOException cause) {
+      List<PendingFetch> toFail;
+      synchronized (this) {
+        reusable = false;
+        toFail = Lists.newArrayList(pending);
+        pending.clear();
+      }
+      for (PendingFetch fetch : toFail) {
+        fetch.finish(cause);
+      }
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
+        throws Exception {
+      PendingFetch fetch = current();
+      if (fetch == null) {
+        LOG.warn("Unexpected message from " + pool.addr);
+        e.getChannel().close();
+        return;
+      }
+
+      if (!readingChunks) {
+        HttpResponse response = (HttpResponse) e.getMessage();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("STATUS: " + response.getStatus() + ", VERSION: "
+              + response.getProtocolVersion() + ", fetch: " + fetch.desc);
+        }
+        if (!HttpHeaders.isKeepAlive(response)) {
+          reusable = false;
+        }
+
+        if (response.getStatus().equals(HttpResponseStatus.NO_CONTENT)) {
+          LOG.info("There are no data corresponding to the request");
+          done(e.getChannel(), fetch, null);
+          return;
+        } else if (!response.getStatus().equals(HttpResponseStatus.OK)) {
+          // the body is discarded because the file is not opened.
+          fetch.error = new IOException("Fetch failed: " + fetch.desc
+              + " (" + response.getStatus() + ")");
+        } else {
+          fetch.open(HttpHeaders.getContentLength(response, -1));
+        }
+
+        if (response.isChunked()) {
+          readingChunks = true;
+        } else {
+          fetch.write(response.getContent());
+          done(e.getChannel(), fetch, null);
+        }
+      } else {
+        HttpChunk chunk = (HttpChunk) e.getMessage();
+        if (chunk.isLast()) {
+          readingChunks = false;
+          done(e.getChannel(), fetch, null);
+        } else {
+          fetch.write(chunk.getContent());
+        }
+      }
+    }
+
+    private void done(Channel channel, PendingFetch fetch,
+                      IOException cause) {
+      removeCurrent();
+      fetch.finish(cause);
+      if (!reusable) {
+        channel.close();
+      }
+      pool.wakeUp();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
+        throws Exception {
+      LOG.warn("Shuffle connection to " + pool.addr + " failed: "
+          + e.getCause());
+      failAll(new IOException(e.getCause()));
+      e.getChannel().close();
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e)
+        throws Exception {
+      failAll(new IOException("Connection to " + pool.addr + " is closed"));
+      pool.remove(e.getChannel());
+    }
+  }
+
+  /**
+   * A fetch whose request is sent and whose response is not received yet.
+   * The response of a batched request is split into the files by the frame
+   * headers.
+   */
+  private static class PendingFetch {
+    private final String desc;
+    private final List<File> files;
+    private final boolean framed;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private boolean opened = false;
+    private RandomAccessFile raf;
+    private FileChannel fc;
+    private long length = -1;
+    private long received = 0;
+    private volatile IOException error;
+
+    // for a batched request
+    private final ChannelBuffer frameHeader = ChannelBuffers.buffer(8);
+    private int fileIdx = -1;
+    private long remaining = -1;
+
+    PendingFetch(String desc, List<File> files, boolean framed) {
+      this.desc = desc;
+      this.files = files;
+      this.framed = framed;
+    }
+
+    void open(long length) throws IOException {
+      this.length = length;
+      this.opened = true;
+      if (!framed) {
+        openFile(files.get(0));
+      }
+    }
+
+    private void openFile(File file) throws IOException {
+      this.raf = new RandomAccessFile(file, "rw");
+      // it may remain from a previous attempt.
+      raf.setLength(0);
+      this.fc = raf.getChannel();
+    }
+
+    private void closeFile() throws IOException {
+      fc.close();
+      raf.close();
+      fc = null;
+      raf = null;
+    }
+
+    void write(ChannelBuffer content) throws IOException {
+      if (!opened) {
+        return;
+      }
+      if (!framed) {
+        writeFile(content, content.readableBytes());
+        return;
+      }
+
+      while (content.readable()) {
+        if (remaining == -1) {
+          int n = Math.min(content.readableBytes(),
+              frameHeader.writableBytes());
+          content.readBytes(frameHeader, n);
+          received += n;
+          if (frameHeader.writable()) {
+            break;
+          }
+          remaining = frameHeader.readLong();
+          frameHeader.clear();
+          fileIdx++;
+          if (fileIdx >= files.size()) {
+            throw new IOException("Unexpected frame in the response of "
+                + desc);
+          }
+          if (remaining > 0) {
+            openFile(files.get(fileIdx));
+          } else {
+            // no data, so it is not written.
+            files.get(fileIdx).delete();
+            remaining = -1;
+          }
+        } else {
+          int n = (int) Math.min(remaining, content.readableBytes());
+          writeFile(content, n);
+          remaining -= n;
+          if (remaining == 0) {
+            closeFile();
+            remaining = -1;
+          }
+        }
+      }
+    }
+
+    private void writeFile(ChannelBuffer content, int n) throws IOException {
+      ByteBuffer buf = content.toByteBuffer(content.readerIndex(), n);
+      while (buf.hasRemaining()) {
+        fc.write(buf);
+      }
+      content.skipBytes(n);
+      received += n;
+    }
+
+    synchronized void finish(IOException cause) {
+      if (latch.getCount() == 0) {
+        return;
+      }
+      if (error == null) {
+        error = cause;
+      }
+
+      try {
+        if (fc != null) {
+          closeFile();
+        }
+      } catch (IOException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+
+      if (opened) {
+        if (framed && error == null && (fileIdx != files.size() - 1
+            || remaining != -1 || frameHeader.readable())) {
+          error = new IOException("The response of " + desc
+              + " is incomplete (received frames/total: " + (fileIdx + 1)
+              + "/" + files.size() + ")");
+        }
+        if (length == -1 || received == length) {
+          LOG.info("Data fetch is done (total received bytes: " + received
+              + ")");
+        } else {
+          LOG.info("Data fetch is done, but cannot get all data "
+              + "(received/total: " + received + "/" + length + ")");
+        }
+      }
+      latch.countDown();
+    }
+
+    void await() throws IOException {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while fetching " + desc);
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+}
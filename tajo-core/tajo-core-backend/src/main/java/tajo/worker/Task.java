@@ -19,6 +19,7 @@
 package tajo.worker;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -37,10 +38,12 @@ import tajo.TaskAttemptContext;
 import tajo.catalog.Schema;
 import tajo.catalog.TableMeta;
 import tajo.catalog.statistics.TableStat;
+import tajo.conf.TajoConf.ConfVars;
 import tajo.engine.MasterWorkerProtos.*;
 import tajo.engine.exception.UnfinishedTaskException;
 import tajo.engine.json.GsonCreator;
 import tajo.engine.planner.PlannerUtil;
+import tajo.engine.planner.logical.ExprType;
 import tajo.engine.planner.logical.LogicalNode;
 import tajo.engine.planner.logical.SortNode;
 import tajo.engine.planner.logical.StoreTableNode;
@@ -50,6 +53,7 @@ import tajo.ipc.protocolrecords.QueryUnitRequest;
 import tajo.master.ExecutionBlock.PartitionType;
 import tajo.rpc.NullCallback;
 import tajo.storage.Fragment;
+import tajo.storage.FragmentQueue;
 import tajo.storage.StorageUtil;
 import tajo.storage.TupleComparator;
 import tajo.worker.TaskRunner.WorkerContext;
@@ -60,9 +64,13 @@ import java.net.URI;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Task {
@@ -88,6 +96,12 @@ public class Task {
   private float progress = 0;
   private final Reporter reporter;
   private Path inputTableBaseDir;
+  // the fragment queues of the fetched tables in the streaming fetch mode
+  private final Map<String, FragmentQueue> fetchQueues =
+      new ConcurrentHashMap<String, FragmentQueue>();
+  private final Map<String, TableMeta> fetchMetas =
+      new ConcurrentHashMap<String, TableMeta>();
+  private final Set<String> streamedTables = new HashSet<String>();
 
   private static int completed = 0;
   private static int failed = 0;
@@ -154,7 +168,7 @@ public class Task {
       StoreTableNode store = (StoreTableNode) plan;
       this.partitionType = store.getPartitionType();
       if (partitionType == PartitionType.RANGE) {
-        SortNode sortNode = (SortNode) store.getSubNode();
+        SortNode sortNode = (SortNode) PlannerUtil.findTopNode(store, ExprType.SORT);
         this.finalSchema = PlannerUtil.sortSpecsToSchema(sortNode.getSortKeys());
         this.sortComp = new TupleComparator(finalSchema, sortNode.getSortKeys());
       }
@@ -280,6 +294,7 @@ public class Task {
 
   public void kill() {
     killed = true;
+    failFragmentQueues();
     context.stop();
     context.setState(TaskAttemptState.TA_KILLED);
     setProgressFlag();
@@ -287,10 +302,20 @@ public class Task {
 
   public void abort() {
     aborted = true;
+    failFragmentQueues();
     context.stop();
     context.setState(TaskAttemptState.TA_FAILED);
   }
 
+  /**
+   * Wakes up the scanners waiting for fetched data.
+   */
+  private void failFragmentQueues() {
+    for (FragmentQueue queue : fetchQueues.values()) {
+      queue.fail(new IOException(getId() + " is stopped"));
+    }
+  }
+
   public void cleanUp() {
     // remove itself from worker
     // 끝난건지 확인
@@ -344,6 +369,11 @@ public class Task {
   }
 
   private void waitForFetch() throws InterruptedException, IOException {
+    if (conf.getBoolVar(ConfVars.SHUFFLE_FETCH_STREAMING)) {
+      waitForStreamingFetch();
+      return;
+    }
+
     context.getFetchLatch().await();
     LOG.info(context.getTaskId() + " All fetches are done!");
     Collection<String> inputs = Lists.newArrayList(context.getInputTables());
@@ -355,6 +385,30 @@ public class Task {
     }
   }
 
+  /**
+   * Waits until the streamed tables have their first fragments and the other
+   * fetched tables are fetched completely. A streamed table without any
+   * fetched data is treated as if it is fetched completely.
+   */
+  private void waitForStreamingFetch() throws IOException {
+    Collection<String> inputs = Lists.newArrayList(context.getInputTables());
+    for (String inputTable : inputs) {
+      FragmentQueue queue = fetchQueues.get(inputTable);
+      if (queue == null) {
+        continue;
+      }
+      if (streamedTables.contains(inputTable) && queue.awaitFirst()) {
+        context.setFragmentQueue(inputTable, queue);
+        LOG.info(context.getTaskId() + " starts to scan " + inputTable
+            + " while being fetched");
+      } else {
+        context.changeFragment(inputTable, queue.awaitAll());
+        LOG.info(context.getTaskId() + " All fetches of " + inputTable
+            + " are done!");
+      }
+    }
+  }
+
   public void run() {
 
     String errorMessage = null;
@@ -485,6 +539,7 @@ public class Task {
       int retryNum = 0;
       int maxRetryNum = 5;
       int retryWaitTime = 1000;
+      boolean succeeded = false;
 
       try { // for releasing fetch latch
         while(retryNum < maxRetryNum) {
@@ -494,24 +549,48 @@ public class Task {
             } catch (InterruptedException e) {
               LOG.error(e);
             }
-            LOG.info("Retry on the fetch: " + fetcher.getURI() + " (" + retryNum + ")");
+            LOG.info("Retry on the fetch: " + fetcher.getURIs() + " (" + retryNum + ")");
           }
           try {
-            File fetched = fetcher.get();
+            List<File> fetched = fetcher.get();
             if (fetched != null) {
+              succeeded = true;
               break;
             }
           } catch (IOException e) {
-            LOG.error("Fetch failed: " + fetcher.getURI(), e);
+            LOG.error("Fetch failed: " + fetcher.getURIs(), e);
           }
           retryNum++;
         }
       } finally {
+        addFetchedFragments(ctx, fetcher.getFiles(), succeeded);
         ctx.getFetchLatch().countDown();
       }
 
       if (retryNum == maxRetryNum) {
-        LOG.error("ERROR: the maximum retry (" + retryNum + ") on the fetch exceeded (" + fetcher.getURI() + ")");
+        LOG.error("ERROR: the maximum retry (" + retryNum + ") on the fetch exceeded (" + fetcher.getURIs() + ")");
+      }
+    }
+  }
+
+  /**
+   * Adds the fetched files to the fragment queues of their tables if the
+   * tables are scanned while being fetched.
+   */
+  private void addFetchedFragments(TaskAttemptContext ctx, List<File> files,
+                                   boolean succeeded) {
+    for (File file : files) {
+      // the fetched files of a table are stored in the dir named the table.
+      String tableId = file.getParentFile().getName();
+      FragmentQueue queue = fetchQueues.get(tableId);
+      if (queue == null) {
+        continue;
+      }
+      if (succeeded && file.exists() && file.length() > 0) {
+        queue.add(new Fragment(tableId, new Path(file.toURI().toString()),
+            fetchMetas.get(tableId), 0l, file.length(), null));
+      } else {
+        queue.add(null);
       }
     }
   }
@@ -527,17 +606,44 @@ public class Task {
 
       int i = 0;
       File storeFile;
-      List<Fetcher> runnerList = Lists.newArrayList();
+      // the uris of the same server are fetched with batched requests.
+      Map<String, List<URI>> urisPerServer = Maps.newLinkedHashMap();
+      Map<String, List<File>> filesPerServer = Maps.newLinkedHashMap();
       for (Fetch f : fetches) {
         storeDir = new File(inputDir.toString(), f.getName());
         if (!storeDir.exists()) {
           storeDir.mkdirs();
         }
         storeFile = new File(storeDir, "in_" + i);
-        Fetcher fetcher = new Fetcher(URI.create(f.getUrls()), storeFile);
-        runnerList.add(fetcher);
+        URI uri = URI.create(f.getUrls());
+        String server = uri.getAuthority();
+        if (!urisPerServer.containsKey(server)) {
+          urisPerServer.put(server, new ArrayList<URI>());
+          filesPerServer.put(server, new ArrayList<File>());
+        }
+        urisPerServer.get(server).add(uri);
+        filesPerServer.get(server).add(storeFile);
         i++;
       }
+
+      if (conf.getBoolVar(ConfVars.SHUFFLE_FETCH_STREAMING)) {
+        addFragmentQueues(ctx, fetches);
+      }
+
+      int batchSize = Math.max(1,
+          conf.getIntVar(ConfVars.SHUFFLE_FETCH_BATCH_SIZE));
+      List<Fetcher> runnerList = Lists.newArrayList();
+      for (Entry<String, List<URI>> entry : urisPerServer.entrySet()) {
+        List<URI> uris = entry.getValue();
+        List<File> files = filesPerServer.get(entry.getKey());
+        for (int start = 0; start < uris.size(); start += batchSize) {
+          int end = Math.min(start + batchSize, uris.size());
+          runnerList.add(new Fetcher(
+              new ArrayList<URI>(uris.subList(start, end)),
+              new ArrayList<File>(files.subList(start, end)),
+              workerContext.getShuffleClient()));
+        }
+      }
       ctx.addFetchPhase(runnerList.size(), new File(inputDir.toString()));
       return runnerList;
     } else {
@@ -545,6 +651,41 @@ public class Task {
     }
   }
 
+  /**
+   * Creates the fragment queues of the fetched tables. If the plan has a
+   * join, only the table with the most fetches is scanned while being
+   * fetched, and its size is the volume estimated by the master. The other
+   * tables are fetched completely before the plan is created.
+   */
+  private void addFragmentQueues(TaskAttemptContext ctx, List<Fetch> fetches) {
+    Map<String, Integer> fetchNums = Maps.newHashMap();
+    for (Fetch f : fetches) {
+      // the fetched data of a table not in the plan are ignored.
+      if (!ctx.getInputTables().contains(f.getName())) {
+        continue;
+      }
+      Integer num = fetchNums.get(f.getName());
+      fetchNums.put(f.getName(), num == null ? 1 : num + 1);
+    }
+
+    String streamed = null;
+    if (PlannerUtil.findTopNode(plan, ExprType.JOIN) != null) {
+      for (Entry<String, Integer> entry : fetchNums.entrySet()) {
+        if (streamed == null || entry.getValue() > fetchNums.get(streamed)) {
+          streamed = entry.getKey();
+        }
+      }
+    }
+
+    for (Entry<String, Integer> entry : fetchNums.entrySet()) {
+      fetchMetas.put(entry.getKey(), ctx.getTable(entry.getKey()).getMeta());
+      fetchQueues.put(entry.getKey(), new FragmentQueue(entry.getValue()));
+      if (streamed == null || streamed.equals(entry.getKey())) {
+        streamedTables.add(entry.getKey());
+      }
+    }
+  }
+
   protected class Reporter implements Runnable {
     private Interface masterStub;
     private Thread pingThread;
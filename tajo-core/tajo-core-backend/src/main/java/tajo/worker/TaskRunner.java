@@ -87,6 +87,8 @@ public class TaskRunner extends AbstractService {
   // for Fetcher
   private final ExecutorService fetchLauncher =
       Executors.newFixedThreadPool(coreNum * 4);
+  // It is shared by all fetchers to reuse the connections to pull servers.
+  private ShuffleClient shuffleClient;
   // It keeps all of the query unit attempts while a TaskRunner is running.
   private final Map<QueryUnitAttemptId, Task> tasks =
       new ConcurrentHashMap<QueryUnitAttemptId, Task>();
@@ -143,6 +145,8 @@ public class TaskRunner extends AbstractService {
       // Here, we can setup row-based query engine or columnar query engine.
       this.queryEngine = new TajoQueryEngine(conf);
 
+      this.shuffleClient = new ShuffleClient(conf);
+
       Runtime.getRuntime().addShutdownHook(new Thread(new ShutdownHook()));
     } catch (Throwable t) {
       LOG.error(t);
@@ -170,6 +174,10 @@ public class TaskRunner extends AbstractService {
       // If this flag become true, taskLauncher will be terminated.
       this.stopped = true;
 
+      if (shuffleClient != null) {
+        shuffleClient.close();
+      }
+
       LOG.info("STOPPED: " + nodeId);
       synchronized (this) {
         notifyAll();
@@ -218,6 +226,10 @@ public class TaskRunner extends AbstractService {
       return fetchLauncher;
     }
 
+    public ShuffleClient getShuffleClient() {
+      return shuffleClient;
+    }
+
     public Path getBaseDir() {
       return baseDirPath;
     }
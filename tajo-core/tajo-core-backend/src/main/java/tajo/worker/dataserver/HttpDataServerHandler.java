@@ -20,9 +20,11 @@ package tajo.worker.dataserver;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.handler.codec.frame.TooLongFrameException;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
 import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponse;
@@ -35,11 +37,14 @@ import tajo.worker.dataserver.retriever.FileChunk;
 
 import java.io.*;
 import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.isKeepAlive;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.setContentLength;
 import static org.jboss.netty.handler.codec.http.HttpMethod.GET;
+import static org.jboss.netty.handler.codec.http.HttpMethod.POST;
 import static org.jboss.netty.handler.codec.http.HttpResponseStatus.*;
 import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -55,7 +60,10 @@ public class HttpDataServerHandler extends SimpleChannelUpstreamHandler {
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
       throws Exception {
     HttpRequest request = (HttpRequest) e.getMessage();
-    if (request.getMethod() != GET) {
+    if (request.getMethod() == POST) {
+      sendBatch(ctx, e, request);
+      return;
+    } else if (request.getMethod() != GET) {
       sendError(ctx, METHOD_NOT_ALLOWED);
       return;
     }
@@ -118,6 +126,84 @@ public class HttpDataServerHandler extends SimpleChannelUpstreamHandler {
     }
   }
 
+  /**
+   * Sends the data requested by a batched request. Each line of the request
+   * body is the uri of a GET request, and the response consists of a frame
+   * for each line in the order of the lines. A frame is the 8-byte length of
+   * the data followed by the data.
+   */
+  private void sendBatch(ChannelHandlerContext ctx, MessageEvent e,
+                         HttpRequest request) throws IOException {
+    String body = request.getContent().toString(CharsetUtil.UTF_8);
+    List<FileChunk []> frames = new ArrayList<FileChunk[]>();
+    long totalSize = 0;
+    try {
+      for (String line : body.split("\n")) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        FileChunk [] file = retriever.handle(ctx,
+            new DefaultHttpRequest(HTTP_1_1, GET, line));
+        if (file == null) {
+          file = new FileChunk[0];
+        }
+        frames.add(file);
+        totalSize += 8;
+        for (FileChunk chunk : file) {
+          totalSize += chunk.length();
+        }
+      }
+    } catch (FileNotFoundException fnf) {
+      LOG.error(fnf);
+      sendError(ctx, NOT_FOUND);
+      return;
+    } catch (IllegalArgumentException iae) {
+      LOG.error(iae);
+      sendError(ctx, BAD_REQUEST);
+      return;
+    } catch (FileAccessForbiddenException fafe) {
+      LOG.error(fafe);
+      sendError(ctx, FORBIDDEN);
+      return;
+    } catch (IOException ioe) {
+      LOG.error(ioe);
+      sendError(ctx, INTERNAL_SERVER_ERROR);
+      return;
+    }
+
+    Channel ch = e.getChannel();
+    HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+    setContentLength(response, totalSize);
+    ChannelFuture writeFuture = ch.write(response);
+
+    for (FileChunk [] file : frames) {
+      long frameLength = 0;
+      for (FileChunk chunk : file) {
+        frameLength += chunk.length();
+      }
+      ChannelBuffer header = ChannelBuffers.buffer(8);
+      header.writeLong(frameLength);
+      writeFuture = ch.write(header);
+
+      for (FileChunk chunk : file) {
+        if (chunk.length() == 0) {
+          continue;
+        }
+        writeFuture = sendFile(ctx, ch, chunk);
+        if (writeFuture == null) {
+          sendError(ctx, NOT_FOUND);
+          return;
+        }
+      }
+    }
+
+    if (!isKeepAlive(request)) {
+      // Close the connection when the whole content is written out.
+      writeFuture.addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
   private ChannelFuture sendFile(ChannelHandlerContext ctx, Channel ch, FileChunk file) throws IOException {
     RandomAccessFile raf;
     try {
@@ -20,6 +20,7 @@ package tajo.worker.dataserver;
 
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
 import org.jboss.netty.handler.stream.ChunkedWriteHandler;
@@ -45,7 +46,8 @@ public class HttpDataServerPipelineFactory implements ChannelPipelineFactory {
     // pipeline.addLast("ssl", new SslHandler(engine));
 
     pipeline.addLast("decoder", new HttpRequestDecoder());
-    //pipeline.addLast("aggregator", new HttpChunkAggregator(65536));
+    // the body of a batched request is aggregated.
+    pipeline.addLast("aggregator", new HttpChunkAggregator(1 << 20));
     pipeline.addLast("encoder", new HttpResponseEncoder());
     pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
     //pipeline.addLast("deflater", new HttpContentCompressor());
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.eval;
+
+import org.junit.Test;
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.storage.MutableTuple;
+import tajo.storage.Tuple;
+import tajo.storage.VTuple;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestEvalCodeGenerator {
+  private final Schema schema;
+
+  public TestEvalCodeGenerator() {
+    schema = new Schema();
+    schema.addColumn("t.id", Type.INT4);
+    schema.addColumn("t.age", Type.INT8);
+    schema.addColumn("t.score", Type.FLOAT8);
+    schema.addColumn("t.ratio", Type.FLOAT4);
+    schema.addColumn("t.name", Type.TEXT);
+    schema.addColumn("t.bonus", Type.FLOAT8);
+    schema.addColumn("t.level", Type.INT2);
+  }
+
+  private EvalNode field(String name) {
+    return new FieldEval(schema.getColumn(name));
+  }
+
+  private EvalNode cons(Datum datum) {
+    return new ConstEval(datum);
+  }
+
+  private Tuple randomTuple(Random rnd) {
+    Tuple tuple = new VTuple(7);
+    tuple.put(0, DatumFactory.createInt4(rnd.nextInt(20) - 10));
+    tuple.put(1, DatumFactory.createInt8(rnd.nextInt(100) + 1));
+    tuple.put(2, DatumFactory.createFloat8(rnd.nextInt(8) == 0 ? Double.NaN :
+        rnd.nextInt(40) / 4.0 - 5));
+    tuple.put(3, DatumFactory.createFloat4(rnd.nextInt(40) / 3.0f));
+    tuple.put(4, DatumFactory.createText("name_" + rnd.nextInt(5)));
+    // null values are compared, but never computed by arithmetic.
+    tuple.put(5, rnd.nextInt(4) == 0 ? DatumFactory.createNullDatum() :
+        DatumFactory.createFloat8(rnd.nextInt(40) / 4.0 - 5));
+    tuple.put(6, DatumFactory.createInt2((short) (rnd.nextInt(10) - 5)));
+    return tuple;
+  }
+
+  /**
+   * @return a tuple filled in the same way as a scanner does
+   */
+  private MutableTuple toMutableTuple(Tuple tuple) {
+    MutableTuple mutable = new MutableTuple(schema);
+    for (int i = 0; i < tuple.size(); i++) {
+      if (tuple.isNull(i)) {
+        mutable.putNull(i);
+      } else if (i == 0 || i == 1 || i == 6) {
+        mutable.putLong(i, tuple.get(i).asInt8());
+      } else if (i == 4) {
+        mutable.put(i, tuple.get(i));
+      } else {
+        mutable.putDouble(i, tuple.get(i).asFloat8());
+      }
+    }
+    return mutable;
+  }
+
+  @Test
+  public final void testPredicate() {
+    EvalNode [] quals = {
+        new BinaryEval(EvalNode.Type.LTH, field("t.id"), cons(DatumFactory.createInt4(3))),
+        new BinaryEval(EvalNode.Type.GEQ, field("t.age"), field("t.id")),
+        new BinaryEval(EvalNode.Type.NOT_EQUAL, field("t.bonus"), cons(DatumFactory.createInt4(0))),
+        new BinaryEval(EvalNode.Type.LEQ, field("t.ratio"), field("t.id")),
+        new BinaryEval(EvalNode.Type.GTH, field("t.level"), field("t.ratio")),
+        new BinaryEval(EvalNode.Type.EQUAL, field("t.level"), cons(DatumFactory.createInt2((short) 2))),
+        new BinaryEval(EvalNode.Type.LTH, field("t.score"), cons(DatumFactory.createFloat8(1.0))),
+        new BinaryEval(EvalNode.Type.LEQ, field("t.score"), cons(DatumFactory.createFloat8(1.0))),
+        new BinaryEval(EvalNode.Type.GTH, field("t.score"), field("t.id")),
+        new BinaryEval(EvalNode.Type.GEQ, field("t.score"), field("t.id")),
+        new BinaryEval(EvalNode.Type.EQUAL, field("t.score"), cons(DatumFactory.createFloat8(0.5))),
+        new BinaryEval(EvalNode.Type.NOT_EQUAL, field("t.score"), cons(DatumFactory.createFloat8(0.5))),
+        new BinaryEval(EvalNode.Type.AND,
+            new BinaryEval(EvalNode.Type.GTH, field("t.id"), cons(DatumFactory.createInt4(-5))),
+            new BinaryEval(EvalNode.Type.OR,
+                new BinaryEval(EvalNode.Type.EQUAL, field("t.name"), cons(DatumFactory.createText("name_1"))),
+                new BinaryEval(EvalNode.Type.EQUAL,
+                    new BinaryEval(EvalNode.Type.MODULAR, field("t.age"), cons(DatumFactory.createInt4(3))),
+                    cons(DatumFactory.createInt8(0))))),
+        new NotEval(new BinaryEval(EvalNode.Type.OR,
+            new BinaryEval(EvalNode.Type.LTH, field("t.id"), cons(DatumFactory.createInt4(0))),
+            new BinaryEval(EvalNode.Type.GTH,
+                new BinaryEval(EvalNode.Type.PLUS,
+                    new BinaryEval(EvalNode.Type.MULTIPLY, field("t.id"), field("t.score")),
+                    field("t.age")),
+                cons(DatumFactory.createInt4(20)))))
+    };
+
+    Random rnd = new Random(1);
+    for (EvalNode qual : quals) {
+      CompiledEval compiled = EvalCodeGenerator.compile(qual, schema);
+      assertNotNull(qual.toString(), compiled);
+      EvalContext ctx = qual.newContext();
+      for (int i = 0; i < 200; i++) {
+        Tuple tuple = randomTuple(rnd);
+        qual.eval(ctx, schema, tuple);
+        Datum expected = qual.terminate(ctx);
+        assertEquals(qual.toString(), expected.asBool(), compiled.isTrue(tuple));
+        assertEquals(qual.toString(), expected, compiled.eval(tuple));
+        assertEquals(qual.toString(), expected.asBool(),
+            compiled.isTrue(toMutableTuple(tuple)));
+      }
+    }
+  }
+
+  @Test
+  public final void testExpr() {
+    EvalNode [] exprs = {
+        new BinaryEval(EvalNode.Type.PLUS, field("t.id"), cons(DatumFactory.createInt4(7))),
+        new BinaryEval(EvalNode.Type.DIVIDE, field("t.id"), field("t.age")),
+        new BinaryEval(EvalNode.Type.MODULAR, field("t.age"), cons(DatumFactory.createInt4(3))),
+        new BinaryEval(EvalNode.Type.MINUS, field("t.score"), field("t.age")),
+        new BinaryEval(EvalNode.Type.MULTIPLY,
+            new BinaryEval(EvalNode.Type.PLUS, field("t.id"), field("t.age")),
+            field("t.score"))
+    };
+
+    Random rnd = new Random(2);
+    for (EvalNode eval : exprs) {
+      CompiledEval compiled = EvalCodeGenerator.compile(eval, schema);
+      assertNotNull(eval.toString(), compiled);
+      EvalContext ctx = eval.newContext();
+      for (int i = 0; i < 200; i++) {
+        Tuple tuple = randomTuple(rnd);
+        eval.eval(ctx, schema, tuple);
+        Datum expected = eval.terminate(ctx);
+        Datum actual = compiled.eval(tuple);
+        assertEquals(eval.toString(), expected.type(), actual.type());
+        if (expected.type() == Type.FLOAT8) {
+          // NaN is not equal to itself.
+          assertEquals(eval.toString(), expected.asFloat8(), actual.asFloat8(), 0);
+        } else {
+          assertEquals(eval.toString(), expected, actual);
+        }
+      }
+    }
+  }
+
+  @Test
+  public final void testNotCompiled() {
+    // nothing is compiled, so it is just interpreted.
+    assertNull(EvalCodeGenerator.compile(field("t.id"), schema));
+    assertNull(EvalCodeGenerator.compile(new BinaryEval(EvalNode.Type.EQUAL,
+        field("t.name"), cons(DatumFactory.createText("name_1"))), schema));
+    assertNull(EvalCodeGenerator.compile(new BinaryEval(EvalNode.Type.PLUS,
+        field("t.ratio"), field("t.id")), schema));
+  }
+}
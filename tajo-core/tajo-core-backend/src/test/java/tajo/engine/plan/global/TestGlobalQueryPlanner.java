@@ -242,6 +242,30 @@ public class TestGlobalQueryPlanner {
     assertEquals(store.getOutSchema(), scans[0].getInSchema());
   }
   
+  @Test
+  public void testSortWithLimit() throws IOException {
+    PlanningContext context = analyzer.parse(
+        "create table store1 as select age from table0 order by age limit 3");
+    LogicalNode plan = logicalPlanner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    MasterPlan globalPlan = planner.build(queryId, (LogicalRootNode) plan);
+
+    // find the first phase of the sort
+    ExecutionBlock block = globalPlan.getRoot();
+    while (block.hasChildBlock()) {
+      block = block.getChildBlocks().iterator().next();
+    }
+    assertFalse(block.hasChildBlock());
+    assertEquals(PartitionType.RANGE, block.getPartitionType());
+
+    // each task of the first phase emits only the first 3 tuples
+    LogicalNode node = block.getStoreTableNode().getSubNode();
+    assertEquals(ExprType.LIMIT, node.getType());
+    assertEquals(3, ((LimitNode) node).getFetchFirstNum());
+    assertEquals(ExprType.SORT, ((LimitNode) node).getSubNode().getType());
+  }
+
   @Test
   public void testJoin() throws IOException {
     PlanningContext context = analyzer.parse(
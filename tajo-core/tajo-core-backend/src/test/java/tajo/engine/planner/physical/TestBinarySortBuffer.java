@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import org.junit.Test;
+import tajo.catalog.Schema;
+import tajo.catalog.SortSpec;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.DatumFactory;
+import tajo.datum.NullDatum;
+import tajo.storage.Tuple;
+import tajo.storage.TupleComparator;
+import tajo.storage.VTuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestBinarySortBuffer {
+  private final Schema schema;
+
+  public TestBinarySortBuffer() {
+    schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("score", Type.FLOAT8);
+    schema.addColumn("age", Type.INT8);
+  }
+
+  @Test
+  public final void testSortWithNulls() {
+    verifySort(textFirstSortSpecs(), false);
+  }
+
+  @Test
+  public final void testSortWithNormalizedKey() {
+    verifySort(textFirstSortSpecs(), true);
+  }
+
+  @Test
+  public final void testSortWithNumericNormalizedKey() {
+    SortSpec [] sortSpecs = new SortSpec[2];
+    sortSpecs[0] = new SortSpec(schema.getColumn("score"), false, true);
+    sortSpecs[1] = new SortSpec(schema.getColumn("age"), false, false);
+    verifySort(sortSpecs, true);
+  }
+
+  @Test
+  public final void testSortWithNaN() {
+    SortSpec [] sortSpecs = new SortSpec[2];
+    sortSpecs[0] = new SortSpec(schema.getColumn("score"), true, false);
+    sortSpecs[1] = new SortSpec(schema.getColumn("age"), true, false);
+    TupleComparator comparator = new TupleComparator(schema, sortSpecs);
+
+    double [] scores = {Double.NaN, Double.POSITIVE_INFINITY, 1.5, Double.NaN,
+        Double.NEGATIVE_INFINITY, -0.0, 0.0};
+    for (boolean normalizedKey : new boolean[] {false, true}) {
+      BinarySortBuffer buffer = new BinarySortBuffer(schema, sortSpecs,
+          normalizedKey);
+      for (int i = 0; i < scores.length; i++) {
+        Tuple tuple = new VTuple(4);
+        tuple.put(0, DatumFactory.createInt4(i));
+        tuple.put(1, DatumFactory.createText("name_" + i));
+        tuple.put(2, DatumFactory.createFloat8(scores[i]));
+        tuple.put(3, DatumFactory.createInt8(scores.length - i));
+        buffer.add(tuple);
+      }
+      buffer.sort();
+
+      // NaN is placed after the infinity, and NaNs as well as -0.0 and 0.0
+      // are ordered by the next key.
+      int [] expectedIds = {4, 6, 5, 2, 1, 3, 0};
+      Tuple prev = null;
+      for (int i = 0; i < scores.length; i++) {
+        Tuple tuple = buffer.get(i, new VTuple(4));
+        assertEquals(expectedIds[i], tuple.get(0).asInt4());
+        if (prev != null) {
+          assertTrue(comparator.compare(prev, tuple) <= 0);
+        }
+        prev = tuple;
+      }
+    }
+  }
+
+  private SortSpec [] textFirstSortSpecs() {
+    SortSpec [] sortSpecs = new SortSpec[3];
+    sortSpecs[0] = new SortSpec(schema.getColumn("name"), true, false);
+    sortSpecs[1] = new SortSpec(schema.getColumn("score"), false, true);
+    sortSpecs[2] = new SortSpec(schema.getColumn("id"), true, false);
+    return sortSpecs;
+  }
+
+  private void verifySort(SortSpec [] sortSpecs, boolean normalizedKey) {
+    BinarySortBuffer buffer = new BinarySortBuffer(schema, sortSpecs,
+        normalizedKey);
+    List<Tuple> expected = new ArrayList<Tuple>();
+    Random rnd = new Random(1);
+    for (int round = 0; round < 2; round++) {
+      buffer.clear();
+      expected.clear();
+
+      for (int i = 0; i < 10000; i++) {
+        Tuple tuple = new VTuple(4);
+        tuple.put(0, DatumFactory.createInt4(rnd.nextInt()));
+        tuple.put(1, rnd.nextInt(10) == 0 ? DatumFactory.createNullDatum() :
+            DatumFactory.createText("name_" + rnd.nextInt(50)));
+        tuple.put(2, rnd.nextInt(10) == 0 ? DatumFactory.createNullDatum() :
+            DatumFactory.createFloat8(rnd.nextInt(10) - 5.5));
+        tuple.put(3, DatumFactory.createInt8(i));
+        buffer.add(tuple);
+        expected.add(tuple);
+      }
+      assertEquals(10000, buffer.size());
+      assertTrue(buffer.getMemoryUsage() > 0);
+
+      buffer.sort();
+      Collections.sort(expected, new TupleComparator(schema, sortSpecs));
+
+      Tuple tuple = new VTuple(4);
+      for (int i = 0; i < expected.size(); i++) {
+        buffer.get(i, tuple);
+        for (int col = 0; col < 4; col++) {
+          if (expected.get(i).get(col) instanceof NullDatum) {
+            assertTrue(tuple.get(col) instanceof NullDatum);
+          } else {
+            assertEquals(expected.get(i).get(col), tuple.get(col));
+          }
+        }
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@
 
 package tajo.engine.planner.physical;
 
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.junit.After;
 import org.junit.Before;
@@ -44,6 +45,7 @@ import java.io.IOException;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class TestExternalSortExec {
@@ -110,15 +112,30 @@ public class TestExternalSortExec {
 
   @Test
   public final void testNext() throws IOException {
-    Fragment[] frags = sm.splitNG(conf, "employee", employee.getMeta(), employee.getPath(),
+    runSort(conf, new Path(testDir, TestExternalSortExec.class.getName()));
+  }
+
+  @Test
+  public final void testMultiPassMerge() throws IOException {
+    // each row takes about 40 bytes in the sort buffer, so about 40 chunks
+    // of 1MB are merged in three passes
+    TajoConf mergeConf = new TajoConf(conf);
+    mergeConf.setIntVar(TajoConf.ConfVars.EXT_SORT_BUFFER_SIZE, 1);
+    mergeConf.setIntVar(TajoConf.ConfVars.EXT_SORT_FAN_IN, 4);
+    // the chunks are written and merged through memory-mapped windows.
+    mergeConf.setBoolVar(TajoConf.ConfVars.EXT_SORT_MMAP, true);
+    runSort(mergeConf, new Path(testDir, "testMultiPassMerge"));
+  }
+
+  private void runSort(TajoConf sortConf, Path workDir) throws IOException {
+    Fragment[] frags = sm.splitNG(sortConf, "employee", employee.getMeta(), employee.getPath(),
         Integer.MAX_VALUE);
-    Path workDir = new Path(testDir, TestExternalSortExec.class.getName());
-    TaskAttemptContext ctx = new TaskAttemptContext(conf,
+    TaskAttemptContext ctx = new TaskAttemptContext(sortConf,
         TUtil.newQueryUnitAttemptId(), new Fragment[] { frags[0] }, workDir);
     PlanningContext context = analyzer.parse(QUERIES[0]);
     LogicalNode plan = planner.createPlan(context);
 
-    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf,sm);
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(sortConf,sm);
     PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
     
     ProjectionExec proj = (ProjectionExec) exec;
@@ -133,28 +150,23 @@ public class TestExternalSortExec {
       proj.setChild(extSort);
     }
 
-    Tuple tuple;
-    Datum preVal = null;
-    Datum curVal;
-    int cnt = 0;
     exec.init();
-    long start = System.currentTimeMillis();
-    while ((tuple = exec.next()) != null) {
-      curVal = tuple.get(0);
-      if (preVal != null) {
-        assertTrue(preVal.lessThanEqual(curVal).asBool());
-      }
-      preVal = curVal;
-      cnt++;
-    }
-    long end = System.currentTimeMillis();
-    exec.close();
-    assertEquals(numTuple, cnt);
+    assertSorted(exec);
 
     // for rescan test
-    preVal = null;
     exec.rescan();
-    cnt = 0;
+    assertSorted(exec);
+    exec.close();
+    // the sorted chunks are removed when the sort is closed.
+    FileSystem localFS = FileSystem.getLocal(sortConf);
+    assertFalse(localFS.exists(workDir) && localFS.listStatus(workDir).length > 0);
+  }
+
+  private void assertSorted(PhysicalExec exec) throws IOException {
+    Tuple tuple;
+    Datum preVal = null;
+    Datum curVal;
+    int cnt = 0;
     while ((tuple = exec.next()) != null) {
       curVal = tuple.get(0);
       if (preVal != null) {
@@ -164,7 +176,5 @@ public class TestExternalSortExec {
       cnt++;
     }
     assertEquals(numTuple, cnt);
-
-    System.out.println("Sort Time: " + (end - start) + " msc");
   }
 }
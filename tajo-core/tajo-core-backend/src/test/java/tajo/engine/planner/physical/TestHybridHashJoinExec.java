@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tajo.TajoTestingCluster;
+import tajo.TaskAttemptContext;
+import tajo.catalog.*;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.engine.parser.QueryAnalyzer;
+import tajo.engine.planner.LogicalPlanner;
+import tajo.engine.planner.PhysicalPlanner;
+import tajo.engine.planner.PhysicalPlannerImpl;
+import tajo.engine.planner.PlanningContext;
+import tajo.engine.planner.logical.LogicalNode;
+import tajo.storage.*;
+import tajo.util.CommonTestingUtil;
+import tajo.util.TUtil;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestHybridHashJoinExec {
+  private TajoConf conf;
+  private final String TEST_PATH = "target/test-data/TestHybridHashJoinExec";
+  private TajoTestingCluster util;
+  private CatalogService catalog;
+  private QueryAnalyzer analyzer;
+  private LogicalPlanner planner;
+  private StorageManager sm;
+  private Path testDir;
+
+  private TableDesc employee;
+  private TableDesc people;
+
+  @Before
+  public void setUp() throws Exception {
+    util = new TajoTestingCluster();
+    util.initTestDir();
+    catalog = util.startCatalogCluster().getCatalog();
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    conf = util.getConfiguration();
+    sm = StorageManager.get(conf, testDir);
+
+    Schema employeeSchema = new Schema();
+    employeeSchema.addColumn("managerId", Type.INT4);
+    employeeSchema.addColumn("empId", Type.INT4);
+    employeeSchema.addColumn("memId", Type.INT4);
+    employeeSchema.addColumn("deptName", Type.TEXT);
+
+    TableMeta employeeMeta = CatalogUtil.newTableMeta(employeeSchema,
+        StoreType.CSV);
+    Path employeePath = new Path(testDir, "employee.csv");
+    Appender appender = StorageManager.getAppender(conf, employeeMeta, employeePath);
+    appender.init();
+    Tuple tuple = new VTuple(employeeMeta.getSchema().getColumnNum());
+    for (int i = 0; i < 10; i++) {
+      tuple.put(new Datum[] { DatumFactory.createInt4(i),
+          DatumFactory.createInt4(i), DatumFactory.createInt4(10 + i),
+          DatumFactory.createText("dept_" + i) });
+      appender.addTuple(tuple);
+    }
+
+    appender.flush();
+    appender.close();
+    employee = CatalogUtil.newTableDesc("employee", employeeMeta, employeePath);
+    catalog.addTable(employee);
+
+    Schema peopleSchema = new Schema();
+    peopleSchema.addColumn("empId", Type.INT4);
+    peopleSchema.addColumn("fk_memId", Type.INT4);
+    peopleSchema.addColumn("name", Type.TEXT);
+    peopleSchema.addColumn("age", Type.INT4);
+    TableMeta peopleMeta = CatalogUtil.newTableMeta(peopleSchema, StoreType.CSV);
+    Path peoplePath = new Path(testDir, "people.csv");
+    appender = StorageManager.getAppender(conf, peopleMeta, peoplePath);
+    appender.init();
+    tuple = new VTuple(peopleMeta.getSchema().getColumnNum());
+    for (int i = 1; i < 10; i += 2) {
+      tuple.put(new Datum[] { DatumFactory.createInt4(i),
+          DatumFactory.createInt4(10 + i),
+          DatumFactory.createText("name_" + i),
+          DatumFactory.createInt4(30 + i) });
+      appender.addTuple(tuple);
+    }
+
+    appender.flush();
+    appender.close();
+
+    people = CatalogUtil.newTableDesc("people", peopleMeta, peoplePath);
+    catalog.addTable(people);
+    analyzer = new QueryAnalyzer(catalog);
+    planner = new LogicalPlanner(catalog);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    util.shutdownCatalogCluster();
+  }
+
+  String[] QUERIES = {
+      "select managerId, e.empId, deptName, e.memId from employee as e inner join " +
+          "people as p on e.empId = p.empId and e.memId = p.fk_memId"
+  };
+
+  @Test
+  public final void testInnerJoinWithSpill() throws IOException {
+    Fragment[] empFrags = StorageManager.splitNG(conf, "employee", employee.getMeta(), employee.getPath(),
+        Integer.MAX_VALUE);
+    Fragment[] peopleFrags = StorageManager.splitNG(conf, "people", people.getMeta(), people.getPath(),
+        Integer.MAX_VALUE);
+
+    Fragment[] merged = TUtil.concat(empFrags, peopleFrags);
+
+    // both relations exceed the threshold, and there is no memory budget,
+    // so all partitions are spilled until the last level
+    TajoConf hybridConf = new TajoConf(conf);
+    hybridConf.setIntVar(TajoConf.ConfVars.HASH_JOIN_SIZE_THRESHOLD, 0);
+    hybridConf.setIntVar(TajoConf.ConfVars.HASH_JOIN_MEMORY, 0);
+    hybridConf.setIntVar(TajoConf.ConfVars.HASH_JOIN_PARTITIONS, 3);
+
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testInnerJoinWithSpill");
+    TaskAttemptContext ctx = new TaskAttemptContext(hybridConf,
+        TUtil.newQueryUnitAttemptId(), merged, workDir);
+    PlanningContext context = analyzer.parse(QUERIES[0]);
+    LogicalNode plan = planner.createPlan(context);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(hybridConf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+
+    ProjectionExec proj = (ProjectionExec) exec;
+    assertTrue(proj.getChild() instanceof HybridHashJoinExec);
+
+    Tuple tuple;
+    Set<Integer> found = new HashSet<Integer>();
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      int i = tuple.getInt(0).asInt4();
+      assertTrue(found.add(i));
+      assertTrue(i == tuple.getInt(1).asInt4());
+      assertTrue(("dept_" + i).equals(tuple.getString(2).asChars()));
+      assertTrue(10 + i == tuple.getInt(3).asInt4());
+    }
+    assertEquals(10 / 2, found.size());
+    for (int i = 1; i < 10; i += 2) {
+      assertTrue(found.contains(i));
+    }
+
+    exec.rescan();
+    int count = 0;
+    while (exec.next() != null) {
+      count++;
+    }
+    exec.close();
+    assertEquals(10 / 2, count);
+  }
+
+  @Test
+  public final void testPlanInnerJoin() throws IOException {
+    Fragment[] empFrags = StorageManager.splitNG(conf, "employee", employee.getMeta(), employee.getPath(),
+        Integer.MAX_VALUE);
+    Fragment[] peopleFrags = StorageManager.splitNG(conf, "people", people.getMeta(), people.getPath(),
+        Integer.MAX_VALUE);
+    Fragment[] merged = TUtil.concat(empFrags, peopleFrags);
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testPlanInnerJoin");
+    PlanningContext context = analyzer.parse(QUERIES[0]);
+    LogicalNode plan = planner.createPlan(context);
+
+    // the relations are smaller than the default threshold
+    TaskAttemptContext ctx = new TaskAttemptContext(conf,
+        TUtil.newQueryUnitAttemptId(), merged, workDir);
+    PhysicalExec exec = new PhysicalPlannerImpl(conf, sm).createPlan(ctx, plan);
+    assertTrue(((ProjectionExec) exec).getChild() instanceof HashJoinExec);
+
+    // both relations reach the threshold
+    TajoConf hybridConf = new TajoConf(conf);
+    hybridConf.setIntVar(TajoConf.ConfVars.HASH_JOIN_SIZE_THRESHOLD, 0);
+    ctx = new TaskAttemptContext(hybridConf, TUtil.newQueryUnitAttemptId(),
+        merged, workDir);
+    exec = new PhysicalPlannerImpl(hybridConf, sm).createPlan(ctx, plan);
+    assertTrue(((ProjectionExec) exec).getChild() instanceof HybridHashJoinExec);
+  }
+}
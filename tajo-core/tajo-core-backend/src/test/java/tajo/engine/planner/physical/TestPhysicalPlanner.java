@@ -22,10 +22,12 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.io.IOUtils;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -42,6 +44,7 @@ import tajo.datum.DatumFactory;
 import tajo.datum.NullDatum;
 import tajo.engine.parser.QueryAnalyzer;
 import tajo.engine.planner.*;
+import tajo.engine.planner.logical.ExprType;
 import tajo.engine.planner.logical.LogicalNode;
 import tajo.engine.planner.logical.LogicalRootNode;
 import tajo.engine.planner.logical.StoreTableNode;
@@ -49,6 +52,7 @@ import tajo.engine.planner.logical.UnionNode;
 import tajo.master.ExecutionBlock.PartitionType;
 import tajo.master.TajoMaster;
 import tajo.storage.*;
+import tajo.storage.compress.BlockCompression;
 import tajo.storage.index.bst.BSTIndex;
 import tajo.util.CommonTestingUtil;
 import tajo.util.TUtil;
@@ -174,7 +178,11 @@ public class TestPhysicalPlanner {
 //      "select (3 > 2) = (1 > 0) and 3 > 1", // 12
       "select (1 > 0) and 3 > 1", // 13
       "select deptName, class, sum(score), max(score), min(score) from score", // 14
-      "select deptname, class, sum(score), max(score), min(score) from score group by deptname" // 15
+      "select deptname, class, sum(score), max(score), min(score) from score group by deptname", // 15
+      "select score, sum(score), max(score) from score group by score", // 16
+      "select name, empId from employee order by empId desc limit 3", // 17
+      "select name, empId from employee order by empId limit 200", // 18
+      "select name from employee order by empId desc limit 5" // 19
   };
 
   @Test
@@ -206,6 +214,47 @@ public class TestPhysicalPlanner {
     assertEquals(100, i);
   }
 
+  @Test
+  public final void testScanPlanWithColFile() throws IOException {
+    TableMeta meta = CatalogUtil.newTableMeta(employee.getMeta().getSchema(),
+        StoreType.COLFILE);
+    Path path = new Path(testDir, "employee_col");
+    Appender appender = StorageManager.getAppender(conf, meta, path);
+    appender.init();
+    Tuple tuple = new VTuple(meta.getSchema().getColumnNum());
+    for (int i = 0; i < 100; i++) {
+      tuple.put(new Datum[] {DatumFactory.createText("name_" + i),
+          DatumFactory.createInt4(i), DatumFactory.createText("dept_" + i)});
+      appender.addTuple(tuple);
+    }
+    appender.close();
+    catalog.addTable(new TableDescImpl("employee_col", meta, path));
+
+    Fragment[] frags = StorageManager.splitNG(conf, "employee_col", meta, path,
+        Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir(
+        "target/test-data/testScanPlanWithColFile");
+    TaskAttemptContext ctx = new TaskAttemptContext(conf,
+        TUtil.newQueryUnitAttemptId(), new Fragment[] { frags[0] }, workDir);
+    // empId is not projected, but it is read for the qual.
+    PlanningContext context = analyzer.parse(
+        "select name from employee_col where empId >= 40 and 45 > empId");
+    LogicalNode plan = planner.createPlan(context);
+    LogicalOptimizer.optimize(context, plan);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+
+    int i = 40;
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      assertEquals(DatumFactory.createText("name_" + i), tuple.get(0));
+      i++;
+    }
+    exec.close();
+    assertEquals(45, i);
+  }
+
   @Test
   public final void testGroupByPlan() throws IOException {
     Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
@@ -263,6 +312,182 @@ public class TestPhysicalPlanner {
     assertEquals(5, i);
   }
 
+  @Test
+  public final void testFixedWidthHashGroupByPlan() throws IOException {
+    Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
+        Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir(
+        "target/test-data/testFixedWidthHashGroupByPlan");
+    TaskAttemptContext ctx = new TaskAttemptContext(conf, TUtil.newQueryUnitAttemptId(),
+        new Fragment[] { frags[0] }, workDir);
+    PlanningContext context = analyzer.parse(QUERIES[16]);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf,sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+    assertTrue(exec instanceof HybridHashAggregateExec);
+    assertTrue(((HybridHashAggregateExec) exec).usesFixedWidthTable());
+
+    int i = 0;
+    Tuple tuple;
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      assertEquals(10 * tuple.get(0).asInt4(), tuple.get(1).asInt4()); // sum
+      assertEquals(tuple.get(0).asInt4(), tuple.get(2).asInt4()); // max
+      i++;
+    }
+    assertEquals(3, i);
+
+    exec.rescan();
+    i = 0;
+    while ((tuple = exec.next()) != null) {
+      assertEquals(10 * tuple.get(0).asInt4(), tuple.get(1).asInt4()); // sum
+      i++;
+    }
+    exec.close();
+    assertEquals(3, i);
+  }
+
+  @Test
+  public final void testTopNSortPlan() throws IOException {
+    Fragment[] frags = StorageManager.splitNG(conf, "employee", employee.getMeta(),
+        employee.getPath(), Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testTopNSortPlan");
+    TaskAttemptContext ctx = new TaskAttemptContext(conf, TUtil.newQueryUnitAttemptId(),
+        new Fragment[] { frags[0] }, workDir);
+    PlanningContext context = analyzer.parse(QUERIES[17]);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+    PhysicalExec topN = exec instanceof ProjectionExec ?
+        ((ProjectionExec) exec).getChild() : exec;
+    assertTrue(topN instanceof TopNSortExec);
+
+    Tuple tuple;
+    exec.init();
+    for (int round = 0; round < 2; round++) {
+      int i = 0;
+      while ((tuple = exec.next()) != null) {
+        assertEquals(99 - i, tuple.get(1).asInt4());
+        i++;
+      }
+      assertEquals(3, i);
+      exec.rescan();
+    }
+    exec.close();
+  }
+
+  private List<Tuple> runLimitPlan(TajoConf limitConf, String query,
+                                   Class<?> sortClass) throws IOException {
+    Fragment[] frags = StorageManager.splitNG(conf, "employee", employee.getMeta(),
+        employee.getPath(), Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testTopNSortSemantics");
+    TaskAttemptContext ctx = new TaskAttemptContext(limitConf, TUtil.newQueryUnitAttemptId(),
+        new Fragment[] { frags[0] }, workDir);
+    PlanningContext context = analyzer.parse(query);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(limitConf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+    PhysicalExec sort = exec;
+    while (!(sort instanceof SortExec)) {
+      sort = ((UnaryPhysicalExec) sort).getChild();
+    }
+    assertTrue(sortClass.isInstance(sort));
+
+    List<Tuple> tuples = Lists.newArrayList();
+    Tuple tuple;
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      tuples.add(new VTuple(tuple));
+    }
+    exec.close();
+    return tuples;
+  }
+
+  @Test
+  public final void testTopNSortSemantics() throws IOException {
+    // the Top-N sort replaces a limit over a sort, even through a projection,
+    // and it gives the same tuples as the limit does.
+    TajoConf noTopNConf = new TajoConf(conf);
+    noTopNConf.setIntVar(TajoConf.ConfVars.SORT_TOPN_MAX_ROWS, 0);
+    int [] expectedNums = {3, 100, 5};
+    for (int i = 0; i < expectedNums.length; i++) {
+      String query = QUERIES[17 + i];
+      List<Tuple> expected = runLimitPlan(noTopNConf, query, ExternalSortExec.class);
+      List<Tuple> actual = runLimitPlan(conf, query, TopNSortExec.class);
+      assertEquals(query, expectedNums[i], expected.size());
+      assertEquals(query, expected, actual);
+    }
+  }
+
+  @Test
+  public final void testHybridHashGroupByPlan() throws IOException {
+    Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
+        Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir(
+        "target/test-data/testHybridHashGroupByPlan");
+    // no memory budget, so all groups are spilled until the last spill level
+    TajoConf hybridConf = new TajoConf(conf);
+    hybridConf.setIntVar(TajoConf.ConfVars.HASH_AGGREGATION_MEMORY, 0);
+    hybridConf.setIntVar(TajoConf.ConfVars.HASH_AGGREGATION_SPILL_PARTITIONS, 3);
+    TaskAttemptContext ctx = new TaskAttemptContext(hybridConf, TUtil.newQueryUnitAttemptId(),
+        new Fragment[] { frags[0] }, workDir);
+
+    // text grouping keys
+    PlanningContext context = analyzer.parse(QUERIES[7]);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(hybridConf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+    assertTrue(exec instanceof HybridHashAggregateExec);
+    assertFalse(((HybridHashAggregateExec) exec).usesFixedWidthTable());
+
+    int i = 0;
+    Tuple tuple;
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      assertEquals(6, tuple.get(2).asInt4()); // sum
+      assertEquals(3, tuple.get(3).asInt4()); // max
+      assertEquals(1, tuple.get(4).asInt4()); // min
+      i++;
+    }
+    assertEquals(10, i);
+
+    exec.rescan();
+    i = 0;
+    while ((tuple = exec.next()) != null) {
+      assertEquals(6, tuple.get(2).asInt4()); // sum
+      i++;
+    }
+    exec.close();
+    assertEquals(10, i);
+
+    // fixed-width grouping keys
+    context = analyzer.parse(QUERIES[16]);
+    plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    exec = phyPlanner.createPlan(ctx, plan);
+    assertTrue(exec instanceof HybridHashAggregateExec);
+    assertTrue(((HybridHashAggregateExec) exec).usesFixedWidthTable());
+
+    i = 0;
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      assertEquals(10 * tuple.get(0).asInt4(), tuple.get(1).asInt4()); // sum
+      assertEquals(tuple.get(0).asInt4(), tuple.get(2).asInt4()); // max
+      i++;
+    }
+    exec.close();
+    assertEquals(3, i);
+  }
+
   @Test
   public final void testSortGroupByPlan() throws IOException {
     Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
@@ -411,10 +636,44 @@ public class TestPhysicalPlanner {
 
   @Test
   public final void testPartitionedStorePlan() throws IOException {
+    testPartitionedStorePlan("testPartitionedStorePlan", conf, StoreType.CSV,
+        new Options());
+  }
+
+  @Test
+  public final void testPartitionedStorePlanWithSpills() throws IOException {
+    // no sort buffer, so every tuple is spilled and all spills are merged
+    TajoConf spillConf = new TajoConf(conf);
+    spillConf.setIntVar(TajoConf.ConfVars.SHUFFLE_SORT_BUFFER_SIZE, 0);
+    testPartitionedStorePlan("testPartitionedStorePlanWithSpills", spillConf,
+        StoreType.CSV, new Options());
+  }
+
+  @Test
+  public final void testPartitionedStorePlanWithoutSort() throws IOException {
+    TajoConf fileConf = new TajoConf(conf);
+    fileConf.setBoolVar(TajoConf.ConfVars.SHUFFLE_SORT_ENABLED, false);
+    testPartitionedStorePlan("testPartitionedStorePlanWithoutSort", fileConf,
+        StoreType.CSV, new Options());
+  }
+
+  @Test
+  public final void testPartitionedStorePlanWithCompression()
+      throws IOException {
+    TajoConf spillConf = new TajoConf(conf);
+    spillConf.setIntVar(TajoConf.ConfVars.SHUFFLE_SORT_BUFFER_SIZE, 0);
+    Options options = new Options();
+    options.put(BlockCompression.CODEC, "deflate");
+    testPartitionedStorePlan("testPartitionedStorePlanWithCompression",
+        spillConf, StoreType.RAW, options);
+  }
+
+  private void testPartitionedStorePlan(String testName, TajoConf conf,
+      StoreType storeType, Options options) throws IOException {
     Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
         Integer.MAX_VALUE);
     QueryUnitAttemptId id = TUtil.newQueryUnitAttemptId();
-    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testPartitionedStorePlan");
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/" + testName);
     TaskAttemptContext ctx = new TaskAttemptContext(conf, id, new Fragment[] { frags[0] },
         workDir);
     PlanningContext context = analyzer.parse(QUERIES[7]);
@@ -425,13 +684,13 @@ public class TestPhysicalPlanner {
     Column key2 = new Column("score.class", Type.TEXT);
     StoreTableNode storeNode = new StoreTableNode("partition");
     storeNode.setPartitions(PartitionType.HASH, new Column[]{key1, key2}, numPartitions);
+    storeNode.setStorageType(storeType);
+    storeNode.setOptions(options);
     PlannerUtil.insertNode(plan, storeNode);
     plan = LogicalOptimizer.optimize(context, plan);
 
     TableMeta outputMeta = CatalogUtil.newTableMeta(plan.getOutSchema(),
-        StoreType.CSV);
-
-    FileSystem fs = sm.getFileSystem();
+        storeType, options);
 
     PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf,sm);
     PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
@@ -440,19 +699,13 @@ public class TestPhysicalPlanner {
     exec.close();
 
     Path path = new Path(workDir, "output");
-    FileStatus [] list = fs.listStatus(path);
-    assertEquals(numPartitions, list.length);
-
-    Fragment [] fragments = new Fragment[list.length];
-    int i = 0;
-    for (FileStatus status : list) {
-      fragments[i++] = new Fragment("partition", status.getPath(), outputMeta, 0, status.getLen(), null);
-    }
+    Fragment [] fragments = getPartitionFragments(conf, path, outputMeta);
+    assertEquals(numPartitions, fragments.length);
     Scanner scanner = new MergeScanner(conf, outputMeta,TUtil.newList(fragments));
     scanner.init();
 
     Tuple tuple;
-    i = 0;
+    int i = 0;
     while ((tuple = scanner.next()) != null) {
       assertEquals(6, tuple.get(2).asInt4()); // sum
       assertEquals(3, tuple.get(3).asInt4()); // max
@@ -466,6 +719,42 @@ public class TestPhysicalPlanner {
     assertEquals(10, ctx.getResultStats().getNumRows().longValue());
   }
 
+  /**
+   * It returns a fragment for each partition, which is a file copied from a
+   * byte range of the single data file as a fetch does, or a whole file
+   * according to the shuffle writer.
+   */
+  private static Fragment [] getPartitionFragments(TajoConf conf,
+      Path outputDir, TableMeta meta) throws IOException {
+    FileSystem fs = outputDir.getFileSystem(conf);
+    if (!conf.getBoolVar(TajoConf.ConfVars.SHUFFLE_SORT_ENABLED)) {
+      FileStatus [] list = fs.listStatus(outputDir);
+      Fragment [] fragments = new Fragment[list.length];
+      int i = 0;
+      for (FileStatus status : list) {
+        fragments[i++] = new Fragment("partition", status.getPath(), meta, 0,
+            status.getLen(), null);
+      }
+      return fragments;
+    }
+
+    PartitionIndex index = PartitionIndex.read(fs,
+        new Path(outputDir, PartitionIndex.INDEX_FILE_NAME));
+    Path dataFile = new Path(outputDir, PartitionIndex.DATA_FILE_NAME);
+    Path fetchDir = new Path(outputDir.getParent(), "fetch");
+    fs.mkdirs(fetchDir);
+    Fragment [] fragments = new Fragment[index.getNumPartitions()];
+    for (int i = 0; i < fragments.length; i++) {
+      Path file = new Path(fetchDir, "" + i);
+      FSDataInputStream in = fs.open(dataFile);
+      in.seek(index.getOffset(i));
+      IOUtils.copyBytes(in, fs.create(file), index.getLength(i), true);
+      fragments[i] = new Fragment("partition", file, meta, 0,
+          index.getLength(i), null);
+    }
+    return fragments;
+  }
+
   @Test
   public final void testPartitionedStorePlanWithEmptyGroupingSet()
       throws IOException {
@@ -496,20 +785,12 @@ public class TestPhysicalPlanner {
     exec.close();
 
     Path path = new Path(workDir, "output");
-    FileSystem fs = sm.getFileSystem();
-
-    FileStatus [] list = fs.listStatus(path);
-    assertEquals(numPartitions, list.length);
-
-    Fragment [] fragments = new Fragment[list.length];
-    int i = 0;
-    for (FileStatus status : list) {
-      fragments[i++] = new Fragment("partition", status.getPath(), outputMeta, 0, status.getLen(), null);
-    }
+    Fragment [] fragments = getPartitionFragments(conf, path, outputMeta);
+    assertEquals(numPartitions, fragments.length);
     Scanner scanner = new MergeScanner(conf, outputMeta,TUtil.newList(fragments));
     scanner.init();
     Tuple tuple;
-    i = 0;
+    int i = 0;
     while ((tuple = scanner.next()) != null) {
       assertEquals(60, tuple.get(2).asInt4()); // sum
       assertEquals(3, tuple.get(3).asInt4()); // max
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.engine.planner.physical;
+
+import org.junit.Test;
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.BooleanDatum;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.engine.eval.*;
+import tajo.storage.MutableTuple;
+import tajo.storage.Tuple;
+import tajo.storage.VTuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestVectorFilter {
+  private static final int BATCH_SIZE = 100;
+  private final Schema schema;
+
+  public TestVectorFilter() {
+    schema = new Schema();
+    schema.addColumn("t.id", Type.INT4);
+    schema.addColumn("t.age", Type.INT8);
+    schema.addColumn("t.score", Type.FLOAT8);
+    schema.addColumn("t.ratio", Type.FLOAT4);
+    schema.addColumn("t.name", Type.TEXT);
+    schema.addColumn("t.bonus", Type.FLOAT8);
+  }
+
+  private EvalNode field(String name) {
+    return new FieldEval(schema.getColumn(name));
+  }
+
+  private EvalNode cons(Datum datum) {
+    return new ConstEval(datum);
+  }
+
+  private List<Tuple> fillBatch(RowBatch batch, Random rnd) {
+    List<Tuple> tuples = new ArrayList<Tuple>();
+    batch.reset();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      Tuple tuple = new VTuple(6);
+      tuple.put(0, DatumFactory.createInt4(rnd.nextInt(20) - 10));
+      tuple.put(1, DatumFactory.createInt8(rnd.nextInt(100)));
+      tuple.put(2, DatumFactory.createFloat8(rnd.nextInt(40) / 4.0 - 5));
+      tuple.put(3, DatumFactory.createFloat4(rnd.nextInt(40) / 3.0f));
+      tuple.put(4, DatumFactory.createText("name_" + rnd.nextInt(5)));
+      // null values are compared, but never computed by arithmetic.
+      tuple.put(5, rnd.nextInt(4) == 0 ? DatumFactory.createNullDatum() :
+          DatumFactory.createFloat8(rnd.nextInt(40) / 4.0 - 5));
+      batch.addTuple(tuple);
+      tuples.add(tuple);
+    }
+    return tuples;
+  }
+
+  @Test
+  public final void testFilter() {
+    EvalNode [] quals = {
+        new BinaryEval(EvalNode.Type.LTH, field("t.id"), cons(DatumFactory.createInt4(3))),
+        new BinaryEval(EvalNode.Type.GEQ, field("t.age"), field("t.id")),
+        new BinaryEval(EvalNode.Type.NOT_EQUAL, field("t.bonus"), cons(DatumFactory.createInt4(0))),
+        new BinaryEval(EvalNode.Type.LEQ, field("t.ratio"), field("t.id")),
+        new BinaryEval(EvalNode.Type.EQUAL, field("t.name"), cons(DatumFactory.createText("name_1"))),
+        new BinaryEval(EvalNode.Type.AND,
+            new BinaryEval(EvalNode.Type.GTH, field("t.id"), cons(DatumFactory.createInt4(-5))),
+            new BinaryEval(EvalNode.Type.OR,
+                new BinaryEval(EvalNode.Type.LTH, field("t.bonus"), cons(DatumFactory.createFloat8(1.5))),
+                new BinaryEval(EvalNode.Type.EQUAL,
+                    new BinaryEval(EvalNode.Type.MODULAR, field("t.age"), cons(DatumFactory.createInt4(3))),
+                    cons(DatumFactory.createInt8(0))))),
+        new BinaryEval(EvalNode.Type.GTH,
+            new BinaryEval(EvalNode.Type.PLUS,
+                new BinaryEval(EvalNode.Type.MULTIPLY, field("t.id"), field("t.score")),
+                field("t.age")),
+            cons(DatumFactory.createInt4(20)))
+    };
+
+    Random rnd = new Random(1);
+    RowBatch batch = new RowBatch(schema, BATCH_SIZE);
+    for (EvalNode qual : quals) {
+      VectorFilter filter = VectorFilter.compile(qual, schema, BATCH_SIZE);
+      EvalContext ctx = qual.newContext();
+      for (int round = 0; round < 3; round++) {
+        List<Tuple> tuples = fillBatch(batch, rnd);
+        // the filter works on the rows left by a previous filter.
+        List<Integer> expected = new ArrayList<Integer>();
+        int [] selected = batch.getSelected();
+        int num = 0;
+        for (int row = 0; row < tuples.size(); row += 1 + round) {
+          selected[num++] = row;
+          qual.eval(ctx, schema, tuples.get(row));
+          if (qual.terminate(ctx).asBool()) {
+            expected.add(row);
+          }
+        }
+        batch.setSelectedNum(num);
+
+        filter.filter(batch);
+        assertEquals(qual.toString(), expected.size(), batch.getRowNum());
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(qual.toString(), (int) expected.get(i), batch.getRowId(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public final void testExpr() {
+    EvalNode [] exprs = {
+        new BinaryEval(EvalNode.Type.PLUS, field("t.id"), cons(DatumFactory.createInt4(7))),
+        new BinaryEval(EvalNode.Type.DIVIDE, field("t.age"), cons(DatumFactory.createInt4(3))),
+        new BinaryEval(EvalNode.Type.MINUS, field("t.score"), field("t.age")),
+        new BinaryEval(EvalNode.Type.MULTIPLY, field("t.ratio"), field("t.id")),
+        field("t.name")
+    };
+
+    Random rnd = new Random(2);
+    RowBatch batch = new RowBatch(schema, BATCH_SIZE);
+    for (EvalNode eval : exprs) {
+      VectorExpr expr = VectorExpr.compile(eval, schema, BATCH_SIZE);
+      EvalContext ctx = eval.newContext();
+      List<Tuple> tuples = fillBatch(batch, rnd);
+      ColumnVector result = expr.evaluate(batch);
+      for (int row = 0; row < tuples.size(); row++) {
+        eval.eval(ctx, schema, tuples.get(row));
+        Datum expected = eval.terminate(ctx);
+        Datum actual = result.getDatum(row);
+        assertEquals(eval.toString(), expected.type(), actual.type());
+        assertEquals(eval.toString(), expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public final void testAddTuple() {
+    Schema flagSchema = new Schema();
+    flagSchema.addColumn("t.id", Type.INT4);
+    flagSchema.addColumn("t.flag", Type.BOOLEAN);
+    RowBatch batch = new RowBatch(flagSchema, BATCH_SIZE);
+
+    // the first row makes the ids be kept as primitive values.
+    MutableTuple first = new MutableTuple(flagSchema);
+    first.putLong(0, 0);
+    first.put(1, DatumFactory.createBool(true));
+    batch.addTuple(first);
+    // the later rows are given as datums, and the boolean datum is reused.
+    BooleanDatum flag = DatumFactory.createBool(false);
+    for (int i = 1; i < BATCH_SIZE; i++) {
+      Tuple tuple = new VTuple(2);
+      tuple.put(0, DatumFactory.createInt4(i));
+      flag.setValue(i % 2 == 0);
+      tuple.put(1, flag);
+      batch.addTuple(tuple);
+    }
+
+    Tuple tuple = new VTuple(2);
+    for (int row = 0; row < BATCH_SIZE; row++) {
+      batch.getTuple(row, tuple);
+      assertEquals(row, tuple.get(0).asInt4());
+      assertEquals(row % 2 == 0, tuple.get(1).asBool());
+    }
+  }
+}
@@ -43,7 +43,7 @@ import tajo.util.FileUtil;
 import java.io.IOException;
 import java.util.Set;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class TestRowFile {
   private TajoTestingCluster util;
@@ -129,6 +129,23 @@ public class TestRowFile {
     assertEquals(tupleNum, tupleCnt);
     System.out.println("scan time: " + (end - start));
 
+    // only the projected column is read
+    Schema target = new Schema();
+    target.addColumn("description", Type.TEXT);
+    tupleCnt = 0;
+    scanner = new RowFile.RowFileScanner(conf, meta, fragment);
+    assertTrue(scanner.isProjectable());
+    scanner.setTarget(target.toArray());
+    scanner.init();
+    while ((tuple=scanner.next()) != null) {
+      assertNull(tuple.get(0));
+      assertNull(tuple.get(1));
+      assertEquals(stringDatum, tuple.get(2));
+      tupleCnt++;
+    }
+    scanner.close();
+    assertEquals(tupleNum, tupleCnt);
+
     tupleCnt = 0;
     long fileStart = 0;
     long fileLen = file.getLen()/13;
@@ -35,9 +35,17 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 
 public class TestFetcher {
   private String TEST_DATA = "target/test-data/TestFetcher";
@@ -79,4 +87,95 @@ public class TestFetcher {
     FileStatus outStatus = fs.getFileStatus(new Path(OUTPUT_DIR, "data"));
     assertEquals(inStatus.getLen(), outStatus.getLen());
   }
+
+  @Test
+  public void testGetWithShuffleClient() throws Exception {
+    final int fileNum = 20;
+    Random rnd = new Random();
+    for (int i = 0; i < fileNum; i++) {
+      FileWriter writer = new FileWriter(INPUT_DIR + "data_" + i);
+      for (int j = 0; j < 100 * (i + 1); j++) {
+        writer.write("" + rnd.nextInt());
+      }
+      writer.flush();
+      writer.close();
+    }
+
+    DataRetriever ret = new DirectoryRetriever(INPUT_DIR);
+    HttpDataServer server = new HttpDataServer(
+        NetUtils.createSocketAddr("127.0.0.1:0"), ret);
+    server.start();
+    InetSocketAddress addr = server.getBindAddress();
+
+    // all fetches share two connections with pipelined requests.
+    ShuffleClient client = new ShuffleClient(2, 4);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<List<File>>> results = new ArrayList<Future<List<File>>>();
+    for (int i = 0; i < fileNum; i++) {
+      URI uri = URI.create("http://127.0.0.1:" + addr.getPort() + "/data_" + i);
+      final Fetcher fetcher = new Fetcher(uri,
+          new File(OUTPUT_DIR + "data_" + i), client);
+      results.add(executor.submit(new Callable<List<File>>() {
+        @Override
+        public List<File> call() throws Exception {
+          return fetcher.get();
+        }
+      }));
+    }
+    for (Future<List<File>> result : results) {
+      assertNotNull(result.get());
+    }
+    executor.shutdown();
+    client.close();
+    server.stop();
+
+    FileSystem fs = FileSystem.getLocal(new TajoConf());
+    for (int i = 0; i < fileNum; i++) {
+      FileStatus inStatus = fs.getFileStatus(new Path(INPUT_DIR, "data_" + i));
+      FileStatus outStatus = fs.getFileStatus(new Path(OUTPUT_DIR, "data_" + i));
+      assertEquals(inStatus.getLen(), outStatus.getLen());
+    }
+  }
+
+  @Test
+  public void testBatchedGet() throws Exception {
+    final int fileNum = 10;
+    Random rnd = new Random();
+    List<URI> uris = new ArrayList<URI>();
+    List<File> files = new ArrayList<File>();
+
+    DataRetriever ret = new DirectoryRetriever(INPUT_DIR);
+    HttpDataServer server = new HttpDataServer(
+        NetUtils.createSocketAddr("127.0.0.1:0"), ret);
+    server.start();
+    InetSocketAddress addr = server.getBindAddress();
+
+    for (int i = 0; i < fileNum; i++) {
+      FileWriter writer = new FileWriter(INPUT_DIR + "batch_" + i);
+      // the first file is empty.
+      for (int j = 0; j < 1000 * i; j++) {
+        writer.write("" + rnd.nextInt());
+      }
+      writer.flush();
+      writer.close();
+      uris.add(URI.create("http://127.0.0.1:" + addr.getPort() + "/batch_" + i));
+      files.add(new File(OUTPUT_DIR + "batch_" + i));
+    }
+
+    ShuffleClient client = new ShuffleClient(1, 1);
+    Fetcher fetcher = new Fetcher(uris, files, client);
+    assertEquals(files, fetcher.get());
+    // the files are overwritten by a retry.
+    assertEquals(files, fetcher.get());
+    client.close();
+    server.stop();
+
+    FileSystem fs = FileSystem.getLocal(new TajoConf());
+    assertFalse(files.get(0).exists());
+    for (int i = 1; i < fileNum; i++) {
+      FileStatus inStatus = fs.getFileStatus(new Path(INPUT_DIR, "batch_" + i));
+      FileStatus outStatus = fs.getFileStatus(new Path(OUTPUT_DIR, "batch_" + i));
+      assertEquals(inStatus.getLen(), outStatus.getLen());
+    }
+  }
 }
@@ -44,6 +44,7 @@ import org.apache.hadoop.yarn.server.nodemanager.containermanager.AuxServices;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.ContainerLocalizer;
 import org.apache.hadoop.yarn.service.AbstractService;
 import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.group.ChannelGroup;
@@ -58,6 +59,7 @@ import tajo.catalog.Schema;
 import tajo.conf.TajoConf;
 import tajo.conf.TajoConf.ConfVars;
 import tajo.pullserver.retriever.FileChunk;
+import tajo.storage.PartitionIndex;
 import tajo.storage.RowStoreUtil;
 import tajo.storage.Tuple;
 import tajo.storage.TupleComparator;
@@ -84,6 +86,7 @@ import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.isKeepAlive;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.setContentLength;
 import static org.jboss.netty.handler.codec.http.HttpMethod.GET;
+import static org.jboss.netty.handler.codec.http.HttpMethod.POST;
 import static org.jboss.netty.handler.codec.http.HttpResponseStatus.*;
 import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -305,7 +308,7 @@ public class PullServerAuxService extends AbstractService
         pipeline.addLast("ssl", new SslHandler(sslFactory.createSSLEngine()));
       }
       pipeline.addLast("decoder", new HttpRequestDecoder());
-      pipeline.addLast("aggregator", new HttpChunkAggregator(1 << 16));
+      pipeline.addLast("aggregator", new HttpChunkAggregator(1 << 20));
       pipeline.addLast("encoder", new HttpResponseEncoder());
       pipeline.addLast("chunking", new ChunkedWriteHandler());
       pipeline.addLast("shuffle", PullServer);
@@ -351,14 +354,131 @@ public class PullServerAuxService extends AbstractService
         throws Exception {
 
       HttpRequest request = (HttpRequest) e.getMessage();
-      if (request.getMethod() != GET) {
+      if (request.getMethod() == POST) {
+        sendBatch(ctx, e, request);
+        return;
+      } else if (request.getMethod() != GET) {
         sendError(ctx, METHOD_NOT_ALLOWED);
         return;
       }
 
+      final List<FileChunk> chunks;
+      try {
+        chunks = getChunks(request.getUri());
+      } catch (IllegalArgumentException iae) {
+        sendError(ctx, iae.getMessage(), BAD_REQUEST);
+        return;
+      }
+
+      // Write the content.
+      Channel ch = e.getChannel();
+      if (chunks.size() == 0) {
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, NO_CONTENT);
+        ch.write(response);
+        if (!isKeepAlive(request)) {
+          ch.close();
+        }
+      }  else {
+        FileChunk[] file = chunks.toArray(new FileChunk[chunks.size()]);
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        long totalSize = 0;
+        for (FileChunk chunk : file) {
+          totalSize += chunk.length();
+        }
+        setContentLength(response, totalSize);
+
+        // Write the initial line and the header.
+        ch.write(response);
+
+        ChannelFuture writeFuture = null;
+
+        for (FileChunk chunk : file) {
+          writeFuture = sendFile(ctx, ch, chunk);
+          if (writeFuture == null) {
+            sendError(ctx, NOT_FOUND);
+            return;
+          }
+        }
+
+        // Decide whether to close the connection or not.
+        if (!isKeepAlive(request)) {
+          // Close the connection when the whole content is written out.
+          writeFuture.addListener(ChannelFutureListener.CLOSE);
+        }
+      }
+    }
+
+    /**
+     * Sends the outputs requested by a batched request. Each line of the
+     * request body is the uri of a GET request, and the response consists
+     * of a frame for each line in the order of the lines. A frame is the
+     * 8-byte length of the data followed by the data.
+     */
+    private void sendBatch(ChannelHandlerContext ctx, MessageEvent e,
+                           HttpRequest request) throws IOException {
+      String body = request.getContent().toString(CharsetUtil.UTF_8);
+      List<List<FileChunk>> frames = Lists.newArrayList();
+      long totalSize = 0;
+      for (String line : body.split("\n")) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        List<FileChunk> chunks;
+        try {
+          chunks = getChunks(line);
+        } catch (IllegalArgumentException iae) {
+          sendError(ctx, iae.getMessage(), BAD_REQUEST);
+          return;
+        }
+        frames.add(chunks);
+        totalSize += 8;
+        for (FileChunk chunk : chunks) {
+          totalSize += chunk.length();
+        }
+      }
+
+      Channel ch = e.getChannel();
+      HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+      setContentLength(response, totalSize);
+      ChannelFuture writeFuture = ch.write(response);
+
+      for (List<FileChunk> chunks : frames) {
+        long frameLength = 0;
+        for (FileChunk chunk : chunks) {
+          frameLength += chunk.length();
+        }
+        ChannelBuffer header = ChannelBuffers.buffer(8);
+        header.writeLong(frameLength);
+        writeFuture = ch.write(header);
+
+        for (FileChunk chunk : chunks) {
+          if (chunk.length() == 0) {
+            continue;
+          }
+          writeFuture = sendFile(ctx, ch, chunk);
+          if (writeFuture == null) {
+            sendError(ctx, NOT_FOUND);
+            return;
+          }
+        }
+      }
+
+      if (!isKeepAlive(request)) {
+        // Close the connection when the whole content is written out.
+        writeFuture.addListener(ChannelFutureListener.CLOSE);
+      }
+    }
+
+    /**
+     * Finds the file chunks requested by a given uri.
+     *
+     * @throws IllegalArgumentException if the uri is not a valid request
+     */
+    private List<FileChunk> getChunks(String uri) throws IOException {
       // Parsing the URL into key-values
       final Map<String, List<String>> params =
-          new QueryStringDecoder(request.getUri()).getParameters();
+          new QueryStringDecoder(uri).getParameters();
       final List<String> types = params.get("type");
       final List<String> taskIdList = params.get("ta");
       final List<String> subQueryIds = params.get("sid");
@@ -366,15 +486,13 @@ public class PullServerAuxService extends AbstractService
 
       if (types == null || taskIdList == null || subQueryIds == null
           || partitionIds == null) {
-        sendError(ctx, "Required type, taskIds, subquery Id, and partition id",
-            BAD_REQUEST);
-        return;
+        throw new IllegalArgumentException(
+            "Required type, taskIds, subquery Id, and partition id");
       }
 
       if (types.size() != 1 || subQueryIds.size() != 1) {
-        sendError(ctx, "Required type, taskIds, subquery Id, and partition id",
-            BAD_REQUEST);
-        return;
+        throw new IllegalArgumentException(
+            "Required type, taskIds, subquery Id, and partition id");
       }
 
       final List<FileChunk> chunks = Lists.newArrayList();
@@ -402,9 +520,9 @@ public class PullServerAuxService extends AbstractService
         try {
           chunk = getFileCunks(path, startKey, endKey, last);
         } catch (Throwable t) {
-          LOG.error("ERROR Request: " + request.getUri(), t);
-          sendError(ctx, "Cannot get file chunks to be sent", BAD_REQUEST);
-          return;
+          LOG.error("ERROR Request: " + uri, t);
+          throw new IllegalArgumentException(
+              "Cannot get file chunks to be sent");
         }
         if (chunk != null) {
           chunks.add(chunk);
@@ -413,54 +531,45 @@ public class PullServerAuxService extends AbstractService
         // if a subquery requires a hash repartition
       } else if (repartitionType.equals("h")) {
         for (String ta : taskIds) {
-          Path path = localFS.makeQualified(
-              lDirAlloc.getLocalPathToRead(queryBaseDir + "/" + sid + "/" +
-                  ta + "/output/" + partitionId, conf));
-          File file = new File(path.toUri());
-          FileChunk chunk = new FileChunk(file, 0, file.length());
-          chunks.add(chunk);
+          chunks.add(getPartitionChunk(
+              queryBaseDir + "/" + sid + "/" + ta + "/output/", partitionId));
         }
       } else {
         LOG.error("Unknown repartition type: " + repartitionType);
-        return;
+        throw new IllegalArgumentException(
+            "Unknown repartition type: " + repartitionType);
       }
+      return chunks;
+    }
 
-      // Write the content.
-      Channel ch = e.getChannel();
-      if (chunks.size() == 0) {
-        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, NO_CONTENT);
-        ch.write(response);
-        if (!isKeepAlive(request)) {
-          ch.close();
-        }
-      }  else {
-        FileChunk[] file = chunks.toArray(new FileChunk[chunks.size()]);
-        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
-        long totalSize = 0;
-        for (FileChunk chunk : file) {
-          totalSize += chunk.length();
-        }
-        setContentLength(response, totalSize);
-
-        // Write the initial line and the header.
-        ch.write(response);
-
-        ChannelFuture writeFuture = null;
-
-        for (FileChunk chunk : file) {
-          writeFuture = sendFile(ctx, ch, chunk);
-          if (writeFuture == null) {
-            sendError(ctx, NOT_FOUND);
-            return;
-          }
-        }
-
-        // Decide whether to close the connection or not.
-        if (!isKeepAlive(request)) {
-          // Close the connection when the whole content is written out.
-          writeFuture.addListener(ChannelFutureListener.CLOSE);
+    /**
+     * If a task wrote its partitions into a single data file, the partition
+     * is sent as a byte range located by the partition index. Otherwise, the
+     * partition is stored in its own file.
+     */
+    private FileChunk getPartitionChunk(String outputDir, String partitionId)
+        throws IOException {
+      String indexFile = outputDir + PartitionIndex.INDEX_FILE_NAME;
+      if (lDirAlloc.ifExists(indexFile, conf)) {
+        Path indexPath = localFS.makeQualified(
+            lDirAlloc.getLocalPathToRead(indexFile, conf));
+        PartitionIndex index = PartitionIndex.read(FileSystem.getLocal(conf),
+            indexPath);
+        int partition = Integer.parseInt(partitionId);
+        if (partition < 0 || partition >= index.getNumPartitions()) {
+          throw new IllegalArgumentException(
+              "Invalid partition id: " + partitionId);
         }
+        File file = new File(new Path(indexPath.getParent(),
+            PartitionIndex.DATA_FILE_NAME).toUri());
+        return new FileChunk(file, index.getOffset(partition),
+            index.getLength(partition));
       }
+
+      Path path = localFS.makeQualified(
+          lDirAlloc.getLocalPathToRead(outputDir + partitionId, conf));
+      File file = new File(path.toUri());
+      return new FileChunk(file, 0, file.length());
     }
 
     private ChannelFuture sendFile(ChannelHandlerContext ctx,
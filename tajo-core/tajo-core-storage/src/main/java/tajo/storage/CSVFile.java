@@ -26,17 +26,24 @@ import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
 import tajo.catalog.Column;
 import tajo.catalog.Schema;
 import tajo.catalog.TableMeta;
 import tajo.catalog.statistics.TableStat;
+import tajo.common.TajoDataTypes.Type;
 import tajo.datum.*;
+import tajo.storage.compress.BlockCompressedInputStream;
+import tajo.storage.compress.BlockCompressedOutputStream;
+import tajo.storage.compress.BlockCompression;
 import tajo.storage.exception.AlreadyExistsStorageException;
 import tajo.storage.json.GsonCreator;
 
+import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.util.Arrays;
 
 public class CSVFile {
   public static final String DELIMITER = "csvfile.delimiter";
@@ -48,6 +55,8 @@ public class CSVFile {
     private final Schema schema;
     private final FileSystem fs;
     private FSDataOutputStream fos;
+    private DataOutputStream out;
+    private BlockCompressedOutputStream blockOut;
     private String delimiter;
 
     private TableStatistics stats = null;
@@ -73,6 +82,14 @@ public class CSVFile {
       }
 
       fos = fs.create(path);
+      CompressionCodec codec = BlockCompression.getCodec(conf, meta);
+      if (codec != null) {
+        blockOut = new BlockCompressedOutputStream(fos, codec,
+            BlockCompression.getBlockSize(conf));
+        out = new DataOutputStream(blockOut);
+      } else {
+        out = fos;
+      }
 
       if (enabledStats) {
         this.stats = new TableStatistics(this.schema);
@@ -157,7 +174,10 @@ public class CSVFile {
         sb.deleteCharAt(sb.length() - 1);
       }
       sb.append('\n');
-      fos.writeBytes(sb.toString());
+      out.writeBytes(sb.toString());
+      if (blockOut != null) {
+        blockOut.endRecord();
+      }
 
       // Statistical section
       if (enabledStats) {
@@ -167,21 +187,26 @@ public class CSVFile {
 
     @Override
     public long getOffset() throws IOException {
+      if (blockOut != null) {
+        throw new UnsupportedOperationException(
+            "Cannot get an offset in a compressed file");
+      }
       return fos.getPos();
     }
 
     @Override
     public void flush() throws IOException {
-      fos.flush();
+      out.flush();
     }
 
     @Override
     public void close() throws IOException {
+      out.flush();
       // Statistical section
       if (enabledStats) {
         stats.setNumBytes(fos.getPos());
       }
-      fos.close();
+      out.close();
     }
 
     @Override
@@ -194,222 +219,417 @@ public class CSVFile {
     }
   }
 
+  /**
+   * A scanner finding the line and field boundaries directly in a byte
+   * buffer. It parses only the projected columns, and it fills a
+   * {@link MutableTuple} with the numbers parsed from the bytes and the
+   * references to the bytes of TEXT values.
+   */
   public static class CSVScanner extends FileScanner implements SeekableScanner {
     public CSVScanner(Configuration conf, final TableMeta meta,
         final Fragment fragment) throws IOException {
       super(conf, meta, fragment);
+
+      this.delimiter = fragment.getMeta().getOption(DELIMITER,
+          DELIMITER_DEFAULT).getBytes();
+      this.types = new Type[schema.getColumnNum()];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = schema.getColumn(i).getDataType().getType();
+      }
+      this.tuple = new MutableTuple(schema);
+      setProjection(schema.toArray());
+      this.codec = BlockCompression.getCodec(conf, meta);
+
       init(fragment);
     }
 
     private static final byte LF = '\n';
-    private final static long DEFAULT_BUFFER_SIZE = 65536;
-    private long bufSize;
-    private String delimiter;
-    private FileSystem fs;
+    private final static int DEFAULT_BUFFER_SIZE = 65536;
+
+    // the powers of ten exactly represented by double and float
+    private static final double [] DOUBLE_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float [] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private final byte [] delimiter;
+    private final Type [] types;
+    private final MutableTuple tuple;
+    private boolean [] projected;
+    private int lastProjected;
+
     private FSDataInputStream fis;
-    private long startOffset, length, startPos;
-    private byte[] buf = null;
-    private String[] tuples = null;
-    private long[] tupleOffsets = null;
-    private int currentIdx = 0, validIdx = 0;
-    private byte[] tail = null;
-    private long pageStart = -1;
-    private long prevTailLen = -1;
-    private HashMap<Long, Integer> curTupleOffsetMap = null;
+    private final CompressionCodec codec;
+    // the stream of the lines, which is fis if the file is not compressed
+    private InputStream in;
+    private long startOffset, endOffset;
+    private byte [] buf = new byte[DEFAULT_BUFFER_SIZE];
+    // the file offset of buf[0]
+    private long bufOffset;
+    // the start of the next line in buf
+    private int pos;
+    // the end of the bytes read into buf
+    private int limit;
+    private boolean eof;
+
+    // the values parsed by parseLong() and parseDouble()
+    private long parsedLong;
+    private double parsedDouble;
 
     private void init(final Fragment fragment) throws IOException {
-
-      // Buffer size, Delimiter
-      this.bufSize = DEFAULT_BUFFER_SIZE;
-      this.delimiter = fragment.getMeta().getOption(DELIMITER,
-          DELIMITER_DEFAULT);
-      if (this.delimiter.equals("|")) {
-        this.delimiter = "\\|";
+      if (in != null) {
+        in.close();
       }
 
       // Fragment information
-      this.fs = fragment.getPath().getFileSystem(this.conf);
-      this.fis = this.fs.open(fragment.getPath());
+      FileSystem fs = fragment.getPath().getFileSystem(this.conf);
       this.startOffset = fragment.getStartOffset();
-      this.length = fragment.getLength();
-      tuples = new String[0];
+      this.endOffset = startOffset + fragment.getLength();
+      this.fis = ReadAheadInputStream.open(conf, fs, fragment.getPath(),
+          startOffset, endOffset);
+
+      pos = 0;
+      limit = 0;
+      eof = false;
+      if (codec != null) {
+        // all lines of the blocks in this fragment are read, and the offsets
+        // of the lines are those in the decompressed bytes.
+        in = new BlockCompressedInputStream(fis, codec, 0, startOffset,
+            endOffset);
+        bufOffset = 0;
+        endOffset = Long.MAX_VALUE;
+        return;
+      }
 
+      in = fis;
+      bufOffset = startOffset;
+      // a fragment starts at the line following the first LF at or after
+      // (startOffset - 1), and the lines before belong to the previous one.
       if (startOffset != 0) {
-        fis.seek(startOffset - 1);
-        while (fis.readByte() != LF) {
+        bufOffset = startOffset - 1;
+        fis.seek(bufOffset);
+        int lineEnd = findLineEnd();
+        if (lineEnd >= 0) {
+          pos = Math.min(lineEnd + 1, limit);
         }
+      } else {
+        fis.seek(0);
       }
-      startPos = fis.getPos();
-      if (fragmentable() < 1) {
-        fis.close();
-        return;
-      }
-      page();
     }
 
-    private long fragmentable() throws IOException {
-      return startOffset + length - fis.getPos();
+    /**
+     * The projection is decided here because a seekable scanner can be used
+     * without calling {@link #init()}.
+     */
+    @Override
+    public void setTarget(Column[] targets) {
+      super.setTarget(targets);
+      setProjection(targets);
     }
 
-    private void page() throws IOException {
-      // Index initialization
-      currentIdx = 0;
+    private void setProjection(Column [] targets) {
+      projected = new boolean[schema.getColumnNum()];
+      lastProjected = -1;
+      int id;
+      for (Column target : targets) {
+        id = schema.getColumnIdByName(target.getColumnName());
+        if (id >= 0) {
+          projected[id] = true;
+          lastProjected = Math.max(lastProjected, id);
+        }
+      }
+    }
 
-      // Buffer size set
-      if (fragmentable() < DEFAULT_BUFFER_SIZE) {
-        bufSize = fragmentable();
+    /**
+     * Reads more bytes after moving the bytes from <code>pos</code> to the
+     * front of the buffer. The buffer grows if it is full of a line.
+     *
+     * @return false if no more byte is read
+     */
+    private boolean fill() throws IOException {
+      if (eof) {
+        return false;
       }
 
+      if (pos > 0) {
+        System.arraycopy(buf, pos, buf, 0, limit - pos);
+        bufOffset += pos;
+        limit -= pos;
+        pos = 0;
+      }
+      if (limit == buf.length) {
+        buf = Arrays.copyOf(buf, buf.length * 2);
+      }
 
-      if (this.tail == null || this.tail.length == 0) {
-        this.pageStart = fis.getPos();
-        this.prevTailLen = 0;
-      } else {
-        this.pageStart = fis.getPos() - this.tail.length;
-        this.prevTailLen = this.tail.length;
+      int read = in.read(buf, limit, buf.length - limit);
+      if (read < 0) {
+        eof = true;
+        return false;
       }
+      limit += read;
+      return true;
+    }
 
-      // Read
-      int rbyte;
-      if (fis.getPos() == startPos) {
-        buf = new byte[(int) bufSize];
-        rbyte = fis.read(buf);
-        tail = new byte[0];
-        tuples = new String(buf,0,rbyte).split("\n");
-      } else {
-        buf = new byte[(int) bufSize];
-        rbyte = fis.read(buf);
-        tuples = (new String(tail) + new String(buf,0,rbyte)).split("\n");
-      }
-
-      // Check tail
-      if ((char) buf[rbyte - 1] != LF) {
-        if (fragmentable() < 1) {
-          int cnt = 0;
-          byte[] temp = new byte[(int)DEFAULT_BUFFER_SIZE];
-          // Read bytes
-          while ((temp[cnt] = fis.readByte()) != LF) {
-            cnt++;
-          }
+    /**
+     * Finds the end of the line starting at <code>pos</code>. A line
+     * starting in this fragment is read to its end even if the end is in
+     * the next fragment.
+     *
+     * @return the index of the LF ending the line, or <code>limit</code>
+     * if the last line of the file has no LF. -1 if this fragment has no
+     * more line.
+     */
+    private int findLineEnd() throws IOException {
+      if (pos >= limit && !fill()) {
+        return -1;
+      }
+      if (bufOffset + pos >= endOffset) {
+        return -1;
+      }
 
-          // Replace tuple
-          tuples[tuples.length - 1] = new String(tuples[tuples.length - 1]
-              + new String(temp,0,cnt));
-          validIdx = tuples.length;
-        } else {
-          tail = tuples[tuples.length - 1].getBytes();
-          validIdx = tuples.length - 1;
+      int i = pos;
+      int scanned;
+      while (true) {
+        for (; i < limit; i++) {
+          if (buf[i] == LF) {
+            return i;
+          }
         }
-      } else {
-        tail = new byte[0];
-        validIdx = tuples.length;
+        scanned = i - pos;
+        if (!fill()) {
+          return limit;
+        }
+        i = pos + scanned;
       }
-      makeTupleOffset();
     }
 
-    private void makeTupleOffset() {
-      long curTupleOffset = 0;
-      this.tupleOffsets = null;
-      this.tupleOffsets = new long[this.validIdx];
-      
-      this.curTupleOffsetMap = null;
-      this.curTupleOffsetMap = new HashMap<Long, Integer>();
-      
-      for (int i = 0; i < this.validIdx; i++) {
-        this.tupleOffsets[i] = curTupleOffset + this.pageStart;
-        this.curTupleOffsetMap.put(tupleOffsets[i], i);
-        curTupleOffset += (this.tuples[i]  + "\n").getBytes().length;
-      }
-      
+    private int findFieldEnd(int start, int lineEnd) {
+      byte first = delimiter[0];
+      for (int i = start; i < lineEnd; i++) {
+        if (buf[i] == first && matchDelimiter(i, lineEnd)) {
+          return i;
+        }
+      }
+      return lineEnd;
     }
 
-    @Override
-    public void init() throws IOException {
-      super.init();
+    private boolean matchDelimiter(int start, int lineEnd) {
+      if (start + delimiter.length > lineEnd) {
+        return false;
+      }
+      for (int i = 1; i < delimiter.length; i++) {
+        if (buf[start + i] != delimiter[i]) {
+          return false;
+        }
+      }
+      return true;
     }
 
     @Override
     public Tuple next() throws IOException {
       try {
-        if (currentIdx == validIdx) {
-          if (fragmentable() < 1) {
-            fis.close();
-            return null;
-          } else {
-            page();
-          }
+        int lineEnd = findLineEnd();
+        if (lineEnd < 0) {
+          return null;
         }
-        long offset = this.tupleOffsets[currentIdx];
-        String[] cells = tuples[currentIdx++].split(delimiter);
-        VTuple tuple = new VTuple(schema.getColumnNum());
-        Column field;
-        tuple.setOffset(offset);
-        for (int i = 0; i < schema.getColumnNum(); i++) {
-          field = schema.getColumn(i);
-          if (cells.length <= i) {
-            tuple.put(i, DatumFactory.createNullDatum());
-          } else {
-            String cell = cells[i].trim();
-
-            if (cell.equals("")) {
-              tuple.put(i, DatumFactory.createNullDatum());
-            } else {
-              switch (field.getDataType().getType()) {
-              case BOOLEAN:
-                tuple.put(i, DatumFactory.createBool(cell));
-                break;
-              case BIT:
-                tuple.put(i,
-                    DatumFactory.createBit(Base64.decodeBase64(cell)[0]));
-                break;
-              case CHAR:
-                tuple.put(i, DatumFactory.createChar(cell.charAt(0)));
-                break;
-              case BLOB:
-                tuple.put(i,
-                    DatumFactory.createBlob(Base64.decodeBase64(cell)));
-                break;
-              case INT2:
-                tuple.put(i, DatumFactory.createInt2(cell));
-                break;
-              case INT4:
-                tuple.put(i, DatumFactory.createInt4(cell));
-                break;
-              case INT8:
-                tuple.put(i, DatumFactory.createInt8(cell));
-                break;
-              case FLOAT4:
-                tuple.put(i, DatumFactory.createFloat4(cell));
-                break;
-              case FLOAT8:
-                tuple.put(i, DatumFactory.createFloat8(cell));
-                break;
-//              case STRING:
-//                tuple.put(i, DatumFactory.createText(cell));
-//                break;
-              case TEXT:
-                tuple.put(i, DatumFactory.createText(cell));
-                break;
-              case INET4:
-                tuple.put(i, DatumFactory.createInet4(cell));
-                break;
-              case ARRAY:
-                Datum data = GsonCreator.getInstance().fromJson(cell,
-                    Datum.class);
-                tuple.put(i, data);
-                break;
-              }
-            }
+
+        tuple.setOffset(bufOffset + pos);
+        int fieldStart = pos;
+        int fieldEnd;
+        // the fields after the last projected one are not even split.
+        for (int i = 0; i <= lastProjected; i++) {
+          if (fieldStart > lineEnd) {
+            // the trailing fields may be omitted.
+            tuple.putNull(i);
+            continue;
           }
+          fieldEnd = findFieldEnd(fieldStart, lineEnd);
+          if (projected[i]) {
+            parseField(i, fieldStart, fieldEnd);
+          }
+          fieldStart = fieldEnd + delimiter.length;
         }
-        return tuple;
+        pos = Math.min(lineEnd + 1, limit);
+
+        return reuseTuple ? tuple : new VTuple(tuple);
       } catch (Throwable t) {
-        LOG.error("Tuple list length: " + tuples.length, t);
-        LOG.error("Tuple list current index: " + currentIdx, t);
+        LOG.error("Line offset: " + (bufOffset + pos), t);
       }
       return null;
     }
 
+    private void parseField(int fieldId, int start, int end) {
+      // trims the white spaces and the control characters
+      while (start < end && (buf[start] & 0xff) <= ' ') {
+        start++;
+      }
+      while (end > start && (buf[end - 1] & 0xff) <= ' ') {
+        end--;
+      }
+      if (start == end) {
+        tuple.putNull(fieldId);
+        return;
+      }
+
+      switch (types[fieldId]) {
+        case INT2:
+          if (parseLong(start, end) &&
+              parsedLong >= Short.MIN_VALUE && parsedLong <= Short.MAX_VALUE) {
+            tuple.putLong(fieldId, parsedLong);
+          } else {
+            tuple.put(fieldId, DatumFactory.createInt2(toString(start, end)));
+          }
+          break;
+        case INT4:
+          if (parseLong(start, end) &&
+              parsedLong >= Integer.MIN_VALUE && parsedLong <= Integer.MAX_VALUE) {
+            tuple.putLong(fieldId, parsedLong);
+          } else {
+            tuple.put(fieldId, DatumFactory.createInt4(toString(start, end)));
+          }
+          break;
+        case INT8:
+          if (parseLong(start, end)) {
+            tuple.putLong(fieldId, parsedLong);
+          } else {
+            tuple.put(fieldId, DatumFactory.createInt8(toString(start, end)));
+          }
+          break;
+        case FLOAT4:
+          if (parseDouble(start, end, true)) {
+            tuple.putDouble(fieldId, parsedDouble);
+          } else {
+            tuple.put(fieldId, DatumFactory.createFloat4(toString(start, end)));
+          }
+          break;
+        case FLOAT8:
+          if (parseDouble(start, end, false)) {
+            tuple.putDouble(fieldId, parsedDouble);
+          } else {
+            tuple.put(fieldId, DatumFactory.createFloat8(toString(start, end)));
+          }
+          break;
+        case TEXT:
+          tuple.putBytes(fieldId, buf, start, end - start);
+          break;
+        default:
+          tuple.put(fieldId, createDatum(types[fieldId], toString(start, end)));
+      }
+    }
+
+    private String toString(int start, int end) {
+      return new String(buf, start, end - start);
+    }
+
+    private static Datum createDatum(Type type, String cell) {
+      switch (type) {
+        case BOOLEAN:
+          return DatumFactory.createBool(cell);
+        case BIT:
+          return DatumFactory.createBit(Base64.decodeBase64(cell)[0]);
+        case CHAR:
+          return DatumFactory.createChar(cell.charAt(0));
+        case BLOB:
+          return DatumFactory.createBlob(Base64.decodeBase64(cell));
+        case INET4:
+          return DatumFactory.createInet4(cell);
+        case ARRAY:
+          return GsonCreator.getInstance().fromJson(cell, Datum.class);
+        default:
+          throw new UnsupportedOperationException("Cannot read such field: "
+              + type);
+      }
+    }
+
+    /**
+     * Parses an integer of at most 18 digits, which cannot overflow.
+     *
+     * @return false if the bytes are not such an integer
+     */
+    private boolean parseLong(int start, int end) {
+      boolean negative = buf[start] == '-';
+      if (negative || buf[start] == '+') {
+        start++;
+      }
+      if (start == end || end - start > 18) {
+        return false;
+      }
+
+      long value = 0;
+      byte b;
+      for (int i = start; i < end; i++) {
+        b = buf[i];
+        if (b < '0' || b > '9') {
+          return false;
+        }
+        value = value * 10 + (b - '0');
+      }
+      parsedLong = negative ? -value : value;
+      return true;
+    }
+
+    /**
+     * Parses a decimal number without an exponent, e.g., -12.345. Only the
+     * numbers computed exactly by dividing their digits by a power of ten,
+     * which is correctly rounded, are parsed, so the result is the same as
+     * that of {@link Double#parseDouble(String)} or
+     * {@link Float#parseFloat(String)}.
+     *
+     * @return false if the bytes are not such a number
+     */
+    private boolean parseDouble(int start, int end, boolean isFloat) {
+      boolean negative = buf[start] == '-';
+      if (negative || buf[start] == '+') {
+        start++;
+      }
+
+      long mantissa = 0;
+      int digits = 0;
+      int scale = -1;
+      byte b;
+      for (int i = start; i < end; i++) {
+        b = buf[i];
+        if (b >= '0' && b <= '9') {
+          // 15 digits are exactly represented by a double.
+          if (++digits > 15) {
+            return false;
+          }
+          mantissa = mantissa * 10 + (b - '0');
+          if (scale >= 0) {
+            scale++;
+          }
+        } else if (b == '.' && scale < 0) {
+          scale = 0;
+        } else {
+          return false;
+        }
+      }
+      if (digits == 0) {
+        return false;
+      }
+      if (scale < 0) {
+        scale = 0;
+      }
+
+      if (isFloat) {
+        if (mantissa > (1 << 24) || scale >= FLOAT_POWERS_OF_TEN.length) {
+          return false;
+        }
+        float value = (float) mantissa / FLOAT_POWERS_OF_TEN[scale];
+        parsedDouble = negative ? -value : value;
+      } else {
+        if (scale >= DOUBLE_POWERS_OF_TEN.length) {
+          return false;
+        }
+        double value = (double) mantissa / DOUBLE_POWERS_OF_TEN[scale];
+        parsedDouble = negative ? -value : value;
+      }
+      return true;
+    }
+
     @Override
     public void reset() throws IOException {
       init(fragment);
@@ -417,16 +637,12 @@ public class CSVFile {
 
     @Override
     public void close() throws IOException {
-      fis.close();
+      in.close();
     }
 
     @Override
     public boolean isProjectable() {
-      return false;
-    }
-
-    @Override
-    public void setTarget(Column[] targets) {
+      return true;
     }
 
     @Override
@@ -434,43 +650,33 @@ public class CSVFile {
       return false;
     }
 
-    @Override
-    public void setSearchCondition(Object expr) {
-    }
-
     @Override
     public void seek(long offset) throws IOException {
-      if (this.curTupleOffsetMap.containsKey(offset)) {
-        this.currentIdx = this.curTupleOffsetMap.get(offset);
-      } else if (offset >= this.pageStart + this.bufSize 
-          + this.prevTailLen - this.tail.length || offset <= this.pageStart) {
-        fis.seek(offset);
-        tail = new byte[0];
-        buf = new byte[(int) DEFAULT_BUFFER_SIZE];
-        bufSize = DEFAULT_BUFFER_SIZE;
-        this.currentIdx = 0;
-        this.validIdx = 0;
-        // pageBuffer();
+      if (codec != null) {
+        throw new UnsupportedOperationException(
+            "Cannot seek in a compressed file");
+      }
+      if (offset >= bufOffset && offset <= bufOffset + limit) {
+        pos = (int) (offset - bufOffset);
       } else {
-        throw new IOException("invalid offset " +
-           " < pageStart : " +  this.pageStart + " , " + 
-           "  pagelength : " + this.bufSize + " , " + 
-           "  tail lenght : " + this.tail.length + 
-           "  input offset : " + offset + " >");
+        fis.seek(offset);
+        bufOffset = offset;
+        pos = 0;
+        limit = 0;
+        eof = false;
       }
-
     }
 
     @Override
     public long getNextOffset() throws IOException {
-      if (this.currentIdx == this.validIdx) {
-        if (fragmentable() < 1) {
-          return -1;
-        } else {
-          page();
-        }
+      if (codec != null) {
+        throw new UnsupportedOperationException(
+            "Cannot seek in a compressed file");
+      }
+      if (findLineEnd() < 0) {
+        return -1;
       }
-      return this.tupleOffsets[currentIdx];
+      return bufOffset + pos;
     }
   }
 }
@@ -0,0 +1,970 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import tajo.catalog.Column;
+import tajo.catalog.TableMeta;
+import tajo.catalog.statistics.TableStat;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.ArrayDatum;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.datum.DictionaryTextDatum;
+import tajo.datum.json.GsonCreator;
+import tajo.storage.exception.AlreadyExistsStorageException;
+
+import java.io.DataOutput;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * A columnar file format.
+ *
+ * Rows are written in row groups, and the values of each column of a row
+ * group are kept together in a column chunk. A column chunk consists of a
+ * null bitmap, which is omitted if the chunk has no null value, and the
+ * values of the non-null rows.
+ *
+ * A TEXT column chunk having a few distinct values is dictionary-encoded
+ * if it is smaller than the plain values. Then the values are the distinct
+ * values followed by the id of each value, which is a byte if there are at
+ * most 256 distinct values, or a short otherwise.
+ *
+ * The values of an INT2, INT4, INT8, FLOAT4 or FLOAT8 column chunk are
+ * written by one of the {@link NumericEncoding}s if it is smaller than the
+ * plain values, and the scanner decodes such a chunk into a
+ * <code>long[]</code> at once.
+ *
+ * <pre>
+ * file      := MAGIC rowGroup* footer footerOffset(long) MAGIC
+ * rowGroup  := chunk(column 0) ... chunk(column n-1)
+ * chunk     := [nullBitmap] (value* | dictionary id* | encodedValues)
+ * dictionary := numEntries(int) (length(int) bytes)*
+ * footer    := numColumns(int) numRowGroups(int) rowGroupInfo*
+ * rowGroupInfo := offset(long) numRows(int) columnInfo(column 0..n-1)
+ * columnInfo   := length(int) numNulls(int) flags(byte) [min max]
+ * </pre>
+ *
+ * The footer keeps the minimum and maximum values of INT2, INT4, INT8,
+ * FLOAT4, FLOAT8 and TEXT columns for each row group. The scanner reads
+ * only the chunks of the projected columns, and it skips the row groups
+ * which cannot satisfy the {@link ColumnPredicate}s given as a search
+ * condition. The row groups whose dictionary has no value equal to the
+ * value of an EQUAL predicate are skipped as well.
+ *
+ * The scanner returns the values of a dictionary-encoded chunk as
+ * {@link DictionaryTextDatum}s, which are compared and hashed by their ids
+ * in the executors.
+ */
+public class ColFile {
+  public static final Log LOG = LogFactory.getLog(ColFile.class);
+
+  private static final int MAGIC = 0x54434631; // TCF1
+  private static final int TAIL_SIZE = 8 + 4;
+
+  private static final byte HAS_MIN_MAX = 0x01;
+  private static final byte HAS_NAN = 0x02;
+  private static final byte DICTIONARY = 0x04;
+  // the bits of the flags keeping the NumericEncoding of a chunk
+  private static final int ENCODING_SHIFT = 3;
+  private static final byte ENCODING_MASK = 0x03 << ENCODING_SHIFT;
+
+  // the maximum number of entries identified by a short
+  private static final int MAX_DICTIONARY_SIZE = 65536;
+
+  /**
+   * @return true if the row groups keep the minimum and maximum values of
+   * a column of the given type.
+   */
+  static boolean hasMinMax(Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+      case FLOAT4:
+      case FLOAT8:
+      case TEXT:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return the number of bytes of a plain value of a numeric type, or -1
+   * if the values of the type are not encoded by {@link NumericEncoding}
+   */
+  static int getNumericWidth(Type type) {
+    switch (type) {
+      case INT2:
+        return 2;
+      case INT4:
+      case FLOAT4:
+        return 4;
+      case INT8:
+      case FLOAT8:
+        return 8;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * @return a numeric value as a long, which is the raw bits of a floating
+   * point value
+   */
+  private static long toLong(Type type, Datum datum) {
+    switch (type) {
+      case FLOAT4:
+        return Float.floatToRawIntBits(datum.asFloat4());
+      case FLOAT8:
+        return Double.doubleToRawLongBits(datum.asFloat8());
+      default:
+        return datum.asInt8();
+    }
+  }
+
+  private static byte getEncoding(byte flags) {
+    return (byte) ((flags & ENCODING_MASK) >> ENCODING_SHIFT);
+  }
+
+  private static class RowGroup {
+    long offset;
+    int numRows;
+    final int [] lengths;
+    final int [] numNulls;
+    final byte [] flags;
+    final Datum [] mins;
+    final Datum [] maxs;
+
+    RowGroup(int numColumns) {
+      lengths = new int[numColumns];
+      numNulls = new int[numColumns];
+      flags = new byte[numColumns];
+      mins = new Datum[numColumns];
+      maxs = new Datum[numColumns];
+    }
+
+    long getColumnOffset(int columnId) {
+      long columnOffset = offset;
+      for (int i = 0; i < columnId; i++) {
+        columnOffset += lengths[i];
+      }
+      return columnOffset;
+    }
+
+    void write(DataOutput out, Type [] types) throws IOException {
+      out.writeLong(offset);
+      out.writeInt(numRows);
+      for (int i = 0; i < types.length; i++) {
+        out.writeInt(lengths[i]);
+        out.writeInt(numNulls[i]);
+        out.writeByte(flags[i]);
+        if ((flags[i] & HAS_MIN_MAX) != 0) {
+          writeValue(out, types[i], mins[i]);
+          writeValue(out, types[i], maxs[i]);
+        }
+      }
+    }
+
+    static RowGroup read(ByteBuffer buffer, Type [] types) {
+      RowGroup group = new RowGroup(types.length);
+      group.offset = buffer.getLong();
+      group.numRows = buffer.getInt();
+      for (int i = 0; i < types.length; i++) {
+        group.lengths[i] = buffer.getInt();
+        group.numNulls[i] = buffer.getInt();
+        group.flags[i] = buffer.get();
+        if ((group.flags[i] & HAS_MIN_MAX) != 0) {
+          group.mins[i] = readValue(buffer, types[i]);
+          group.maxs[i] = readValue(buffer, types[i]);
+        }
+      }
+      return group;
+    }
+  }
+
+  private static void writeValue(DataOutput out, Type type, Datum datum)
+      throws IOException {
+    switch (type) {
+      case BOOLEAN:
+      case BIT:
+        out.writeByte(datum.asByte());
+        break;
+      case CHAR:
+        out.writeChar(datum.asChar());
+        break;
+      case INT2:
+        out.writeShort(datum.asInt2());
+        break;
+      case INT4:
+        out.writeInt(datum.asInt4());
+        break;
+      case INT8:
+        out.writeLong(datum.asInt8());
+        break;
+      case FLOAT4:
+        out.writeFloat(datum.asFloat4());
+        break;
+      case FLOAT8:
+        out.writeDouble(datum.asFloat8());
+        break;
+      case TEXT:
+      case BLOB: {
+        byte [] bytes = datum.asByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        break;
+      }
+      case INET4:
+        out.write(datum.asByteArray());
+        break;
+      case ARRAY: {
+        byte [] bytes = ((ArrayDatum) datum).toJSON().getBytes();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        break;
+      }
+      default:
+        throw new IOException("Unsupported type: " + type);
+    }
+  }
+
+  private static Datum readValue(ByteBuffer buffer, Type type) {
+    switch (type) {
+      case INT2:
+        return DatumFactory.createInt2(buffer.getShort());
+      case INT4:
+        return DatumFactory.createInt4(buffer.getInt());
+      case INT8:
+        return DatumFactory.createInt8(buffer.getLong());
+      case FLOAT4:
+        return DatumFactory.createFloat4(buffer.getFloat());
+      case FLOAT8:
+        return DatumFactory.createFloat8(buffer.getDouble());
+      case TEXT: {
+        byte [] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return DatumFactory.createText(bytes);
+      }
+      default:
+        throw new UnsupportedOperationException(type +
+            " has no minimum and maximum values");
+    }
+  }
+
+  public static class ColFileAppender extends FileAppender {
+    private FileSystem fs;
+    private FSDataOutputStream out;
+    private int rowGroupSize;
+
+    private Type [] types;
+    private DataOutputBuffer [] values;
+    private byte [][] nullBits;
+    private int maxDictionarySize;
+    // the dictionaries of TEXT columns, which are null if there are too
+    // many distinct values in the current row group
+    private Map<Datum, Integer> [] dictionaries;
+    private List<byte []> [] dictionaryEntries;
+    private int [][] ids;
+    // the non-null values of numeric columns in the current row group
+    private long [][] numericValues;
+    private RowGroup rowGroup;
+    private final List<RowGroup> rowGroups = new ArrayList<RowGroup>();
+
+    // statistics
+    private TableStatistics stats;
+
+    public ColFileAppender(Configuration conf, final TableMeta meta,
+                           final Path path) throws IOException {
+      super(conf, meta, path);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void init() throws IOException {
+      rowGroupSize = conf.getInt(ConfVars.COLFILE_ROW_GROUP_SIZE.varname,
+          ConfVars.COLFILE_ROW_GROUP_SIZE.defaultIntVal);
+      maxDictionarySize = Math.min(MAX_DICTIONARY_SIZE,
+          conf.getInt(ConfVars.COLFILE_DICTIONARY_MAX_SIZE.varname,
+              ConfVars.COLFILE_DICTIONARY_MAX_SIZE.defaultIntVal));
+
+      fs = path.getFileSystem(conf);
+
+      if (!fs.exists(path.getParent())) {
+        throw new FileNotFoundException(path.toString());
+      }
+
+      if (fs.exists(path)) {
+        throw new AlreadyExistsStorageException(path);
+      }
+
+      int numColumns = schema.getColumnNum();
+      types = new Type[numColumns];
+      values = new DataOutputBuffer[numColumns];
+      nullBits = new byte[numColumns][];
+      dictionaries = new Map[numColumns];
+      dictionaryEntries = new List[numColumns];
+      ids = new int[numColumns][];
+      numericValues = new long[numColumns][];
+      for (int i = 0; i < numColumns; i++) {
+        types[i] = schema.getColumn(i).getDataType().getType();
+        values[i] = new DataOutputBuffer();
+        nullBits[i] = new byte[16];
+        if (types[i] == Type.TEXT && maxDictionarySize > 0) {
+          dictionaries[i] = new HashMap<Datum, Integer>();
+          dictionaryEntries[i] = new ArrayList<byte []>();
+          ids[i] = new int[16];
+        }
+        if (getNumericWidth(types[i]) > 0) {
+          numericValues[i] = new long[16];
+        }
+      }
+      rowGroup = new RowGroup(numColumns);
+
+      out = fs.create(path);
+      out.writeInt(MAGIC);
+
+      if (enabledStats) {
+        this.stats = new TableStatistics(this.schema);
+      }
+
+      super.init();
+    }
+
+    @Override
+    public void addTuple(Tuple t) throws IOException {
+      int row = rowGroup.numRows;
+      int bufferedBytes = 0;
+      Datum datum;
+
+      for (int i = 0; i < types.length; i++) {
+        if (enabledStats) {
+          stats.analyzeField(i, t.get(i));
+        }
+
+        if (t.isNull(i)) {
+          if ((row >> 3) >= nullBits[i].length) {
+            nullBits[i] = Arrays.copyOf(nullBits[i], nullBits[i].length * 2);
+          }
+          nullBits[i][row >> 3] |= (1 << (row & 7));
+          rowGroup.numNulls[i]++;
+        } else {
+          datum = t.get(i);
+          writeValue(values[i], types[i], datum);
+          if (hasMinMax(types[i])) {
+            updateMinMax(i, datum);
+          }
+          if (dictionaries[i] != null) {
+            addToDictionary(i, row - rowGroup.numNulls[i], datum);
+          }
+          if (numericValues[i] != null) {
+            addNumericValue(i, row - rowGroup.numNulls[i], datum);
+          }
+        }
+        bufferedBytes += values[i].getLength();
+      }
+      rowGroup.numRows++;
+
+      if (enabledStats) {
+        stats.incrementRow();
+      }
+
+      if (bufferedBytes >= rowGroupSize) {
+        writeRowGroup();
+      }
+    }
+
+    private void updateMinMax(int columnId, Datum datum) {
+      if ((types[columnId] == Type.FLOAT4 || types[columnId] == Type.FLOAT8)
+          && Double.isNaN(datum.asFloat8())) {
+        rowGroup.flags[columnId] |= HAS_NAN;
+        return;
+      }
+
+      if ((rowGroup.flags[columnId] & HAS_MIN_MAX) == 0) {
+        rowGroup.flags[columnId] |= HAS_MIN_MAX;
+        rowGroup.mins[columnId] = datum;
+        rowGroup.maxs[columnId] = datum;
+      } else if (rowGroup.mins[columnId].compareTo(datum) > 0) {
+        rowGroup.mins[columnId] = datum;
+      } else if (rowGroup.maxs[columnId].compareTo(datum) < 0) {
+        rowGroup.maxs[columnId] = datum;
+      }
+    }
+
+    /**
+     * Adds the index-th non-null value of a column in the current row group
+     * to its dictionary.
+     */
+    private void addToDictionary(int columnId, int index, Datum datum) {
+      Map<Datum, Integer> dictionary = dictionaries[columnId];
+      Integer id = dictionary.get(datum);
+      if (id == null) {
+        if (dictionary.size() == maxDictionarySize) {
+          // the chunk is not dictionary-encoded.
+          dictionaries[columnId] = null;
+          return;
+        }
+        id = dictionary.size();
+        dictionary.put(datum, id);
+        dictionaryEntries[columnId].add(datum.asByteArray());
+      }
+
+      if (index >= ids[columnId].length) {
+        ids[columnId] = Arrays.copyOf(ids[columnId], ids[columnId].length * 2);
+      }
+      ids[columnId][index] = id;
+    }
+
+    private void addNumericValue(int columnId, int index, Datum datum) {
+      if (index >= numericValues[columnId].length) {
+        numericValues[columnId] = Arrays.copyOf(numericValues[columnId],
+            numericValues[columnId].length * 2);
+      }
+      numericValues[columnId][index] = toLong(types[columnId], datum);
+    }
+
+    /**
+     * @return the length of a dictionary-encoded chunk of a column, or -1 if
+     * the column has no dictionary
+     */
+    private int getDictionaryEncodedLength(int columnId) {
+      if (dictionaries[columnId] == null) {
+        return -1;
+      }
+      List<byte []> entries = dictionaryEntries[columnId];
+      int length = 4;
+      for (byte [] entry : entries) {
+        length += 4 + entry.length;
+      }
+      int idWidth = entries.size() <= 256 ? 1 : 2;
+      return length +
+          (rowGroup.numRows - rowGroup.numNulls[columnId]) * idWidth;
+    }
+
+    private void writeDictionaryEncoded(int columnId) throws IOException {
+      List<byte []> entries = dictionaryEntries[columnId];
+      out.writeInt(entries.size());
+      for (byte [] entry : entries) {
+        out.writeInt(entry.length);
+        out.write(entry);
+      }
+      int numValues = rowGroup.numRows - rowGroup.numNulls[columnId];
+      int [] columnIds = ids[columnId];
+      if (entries.size() <= 256) {
+        for (int i = 0; i < numValues; i++) {
+          out.writeByte(columnIds[i]);
+        }
+      } else {
+        for (int i = 0; i < numValues; i++) {
+          out.writeShort(columnIds[i]);
+        }
+      }
+    }
+
+    private void resetDictionary(int columnId) {
+      if (dictionaryEntries[columnId] != null) {
+        if (dictionaries[columnId] == null) {
+          dictionaries[columnId] = new HashMap<Datum, Integer>();
+        } else {
+          dictionaries[columnId].clear();
+        }
+        dictionaryEntries[columnId].clear();
+      }
+    }
+
+    private void writeRowGroup() throws IOException {
+      if (rowGroup.numRows == 0) {
+        return;
+      }
+
+      rowGroup.offset = out.getPos();
+      int bitmapLen = (rowGroup.numRows + 7) / 8;
+      int encodedLen;
+      int numValues;
+      byte encoding;
+      for (int i = 0; i < types.length; i++) {
+        numValues = rowGroup.numRows - rowGroup.numNulls[i];
+        encodedLen = getDictionaryEncodedLength(i);
+        encoding = NumericEncoding.PLAIN;
+        if (encodedLen >= 0 && encodedLen < values[i].getLength()) {
+          rowGroup.flags[i] |= DICTIONARY;
+          rowGroup.lengths[i] = encodedLen;
+        } else if (numericValues[i] != null) {
+          encoding = NumericEncoding.getEncoding(numericValues[i], numValues,
+              getNumericWidth(types[i]));
+          rowGroup.flags[i] |= encoding << ENCODING_SHIFT;
+          rowGroup.lengths[i] = encoding == NumericEncoding.PLAIN ?
+              values[i].getLength() :
+              NumericEncoding.getEncodedLength(numericValues[i], numValues,
+                  getNumericWidth(types[i]));
+        } else {
+          rowGroup.lengths[i] = values[i].getLength();
+        }
+
+        if (rowGroup.numNulls[i] > 0) {
+          out.write(nullBits[i], 0, bitmapLen);
+          Arrays.fill(nullBits[i], 0, bitmapLen, (byte) 0);
+          rowGroup.lengths[i] += bitmapLen;
+        }
+        if ((rowGroup.flags[i] & DICTIONARY) != 0) {
+          writeDictionaryEncoded(i);
+        } else if (encoding != NumericEncoding.PLAIN) {
+          NumericEncoding.encode(encoding, numericValues[i], numValues, out);
+        } else {
+          out.write(values[i].getData(), 0, values[i].getLength());
+        }
+        values[i].reset();
+        resetDictionary(i);
+      }
+
+      rowGroups.add(rowGroup);
+      rowGroup = new RowGroup(types.length);
+    }
+
+    @Override
+    public long getOffset() throws IOException {
+      return out.getPos();
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (out != null) {
+        writeRowGroup();
+
+        long footerOffset = out.getPos();
+        out.writeInt(types.length);
+        out.writeInt(rowGroups.size());
+        for (RowGroup group : rowGroups) {
+          group.write(out, types);
+        }
+        out.writeLong(footerOffset);
+        out.writeInt(MAGIC);
+
+        if (enabledStats) {
+          stats.setNumBytes(out.getPos());
+        }
+        out.flush();
+        out.close();
+        out = null;
+      }
+    }
+
+    @Override
+    public TableStat getStats() {
+      if (enabledStats) {
+        return stats.getTableStat();
+      } else {
+        return null;
+      }
+    }
+  }
+
+  public static class ColFileScanner extends FileScanner {
+    private FSDataInputStream in;
+    private Type [] types;
+
+    // the ids of the columns to be read
+    private int [] projectedIds;
+    private ColumnPredicate [] predicates;
+    private int [] predicateIds;
+
+    // the row groups of this fragment, which may satisfy the predicates
+    private final List<RowGroup> rowGroups = new ArrayList<RowGroup>();
+    private int nextRowGroup;
+    private RowGroup current;
+    private int currentRow;
+
+    private byte [][] chunks;
+    private ByteBuffer [] buffers;
+    // the dictionaries of the dictionary-encoded chunks of the current row
+    // group, or null for the other chunks
+    private DictionaryTextDatum [][] dictionaries;
+    // the decoded values of the encoded numeric chunks of the current row
+    // group, or null for the other chunks
+    private long [][] decoded;
+    private int [] decodedIdx;
+    private MutableTuple tuple;
+
+    public ColFileScanner(Configuration conf, final TableMeta meta,
+                          final Fragment fragment) throws IOException {
+      super(conf, meta, fragment);
+    }
+
+    @Override
+    public void init() throws IOException {
+      types = new Type[schema.getColumnNum()];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = schema.getColumn(i).getDataType().getType();
+      }
+
+      if (targets == null) {
+        targets = schema.toArray();
+      }
+      List<Integer> ids = new ArrayList<Integer>();
+      for (Column target : targets) {
+        int id = schema.getColumnIdByName(target.getColumnName());
+        if (id >= 0 && !ids.contains(id)) {
+          ids.add(id);
+        }
+      }
+      projectedIds = new int[ids.size()];
+      for (int i = 0; i < projectedIds.length; i++) {
+        projectedIds[i] = ids.get(i);
+      }
+      chunks = new byte[projectedIds.length][];
+      buffers = new ByteBuffer[projectedIds.length];
+      dictionaries = new DictionaryTextDatum[projectedIds.length][];
+      decoded = new long[projectedIds.length][];
+      decodedIdx = new int[projectedIds.length];
+
+      tuple = new MutableTuple(schema);
+
+      FileSystem fs = fragment.getPath().getFileSystem(conf);
+      long fileLen = fs.getFileStatus(fragment.getPath()).getLen();
+      in = fs.open(fragment.getPath());
+      readFooter(fileLen);
+
+      super.init();
+    }
+
+    private void readFooter(long fileLen) throws IOException {
+      in.seek(fileLen - TAIL_SIZE);
+      long footerOffset = in.readLong();
+      if (in.readInt() != MAGIC) {
+        throw new IOException(fragment.getPath() + " is not a ColFile");
+      }
+
+      byte [] footer = new byte[(int) (fileLen - TAIL_SIZE - footerOffset)];
+      in.readFully(footerOffset, footer);
+      ByteBuffer buffer = ByteBuffer.wrap(footer);
+      if (buffer.getInt() != types.length) {
+        throw new IOException(fragment.getPath() +
+            " does not match the schema: " + schema);
+      }
+
+      long start = fragment.getStartOffset();
+      long end = start + fragment.getLength();
+      int numRowGroups = buffer.getInt();
+      int numSkipped = 0;
+      RowGroup group;
+      for (int i = 0; i < numRowGroups; i++) {
+        group = RowGroup.read(buffer, types);
+        // a row group belongs to the fragment which contains its offset.
+        if (group.offset >= start && group.offset < end) {
+          if (mayMatch(group)) {
+            rowGroups.add(group);
+          } else {
+            numSkipped++;
+          }
+        }
+      }
+
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(fragment.getPath() + " (" + start + ", " + end + "): skips " +
+            numSkipped + " of " + (rowGroups.size() + numSkipped) +
+            " row groups");
+      }
+    }
+
+    private boolean mayMatch(RowGroup group) {
+      if (predicates == null) {
+        return true;
+      }
+
+      int id;
+      boolean unordered;
+      for (int i = 0; i < predicates.length; i++) {
+        id = predicateIds[i];
+        unordered = group.numNulls[id] > 0 || (group.flags[id] & HAS_NAN) != 0;
+        if (!predicates[i].mayMatch(group.mins[id], group.maxs[id], unordered)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Reads the chunks of the projected columns of a row group.
+     *
+     * @return false if the row group is skipped because no value of a
+     * dictionary satisfies an EQUAL predicate
+     */
+    private boolean readRowGroup(RowGroup group) throws IOException {
+      int id;
+      int len;
+      for (int i = 0; i < projectedIds.length; i++) {
+        id = projectedIds[i];
+        len = group.lengths[id];
+        if (chunks[i] == null || chunks[i].length < len) {
+          chunks[i] = new byte[Math.max(len, 1024)];
+          buffers[i] = ByteBuffer.wrap(chunks[i]);
+        }
+        in.readFully(group.getColumnOffset(id), chunks[i], 0, len);
+        buffers[i].clear();
+        buffers[i].limit(len);
+        // the values follow the null bitmap
+        if (group.numNulls[id] > 0) {
+          buffers[i].position((group.numRows + 7) / 8);
+        }
+
+        if ((group.flags[id] & DICTIONARY) != 0) {
+          dictionaries[i] = readDictionary(buffers[i]);
+          if (!mayMatch(id, dictionaries[i])) {
+            return false;
+          }
+        } else {
+          dictionaries[i] = null;
+        }
+
+        decodeNumericChunk(i, group);
+      }
+      current = group;
+      currentRow = 0;
+      return true;
+    }
+
+    private void decodeNumericChunk(int projectedIdx, RowGroup group)
+        throws IOException {
+      int id = projectedIds[projectedIdx];
+      byte encoding = getEncoding(group.flags[id]);
+      if (encoding == NumericEncoding.PLAIN) {
+        decodedIdx[projectedIdx] = -1;
+        return;
+      }
+
+      int numValues = group.numRows - group.numNulls[id];
+      if (decoded[projectedIdx] == null ||
+          decoded[projectedIdx].length < numValues) {
+        decoded[projectedIdx] = new long[Math.max(numValues, 1024)];
+      }
+      NumericEncoding.decode(encoding, buffers[projectedIdx], numValues,
+          decoded[projectedIdx]);
+      decodedIdx[projectedIdx] = 0;
+    }
+
+    private static DictionaryTextDatum [] readDictionary(ByteBuffer buffer) {
+      byte [][] entries = new byte[buffer.getInt()][];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = new byte[buffer.getInt()];
+        buffer.get(entries[i]);
+      }
+      return DictionaryTextDatum.createDictionary(entries);
+    }
+
+    /**
+     * @return false if no entry of the dictionary of a column is equal to
+     * the value of an EQUAL predicate on the column
+     */
+    private boolean mayMatch(int columnId, DictionaryTextDatum [] dictionary) {
+      if (predicates == null) {
+        return true;
+      }
+
+      Datum value;
+      boolean found;
+      for (int i = 0; i < predicates.length; i++) {
+        if (predicateIds[i] != columnId ||
+            predicates[i].getOp() != ColumnPredicate.Op.EQUAL) {
+          continue;
+        }
+        value = predicates[i].getValue();
+        found = false;
+        for (DictionaryTextDatum entry : dictionary) {
+          if (entry.equals(value)) {
+            found = true;
+            break;
+          }
+        }
+        if (!found) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Tuple next() throws IOException {
+      while (current == null || currentRow >= current.numRows) {
+        if (nextRowGroup >= rowGroups.size()) {
+          return null;
+        }
+        if (!readRowGroup(rowGroups.get(nextRowGroup++))) {
+          current = null;
+        }
+      }
+
+      int id;
+      for (int i = 0; i < projectedIds.length; i++) {
+        id = projectedIds[i];
+        if (current.numNulls[id] > 0 &&
+            (chunks[i][currentRow >> 3] & (1 << (currentRow & 7))) != 0) {
+          tuple.putNull(id);
+        } else if (dictionaries[i] != null) {
+          tuple.put(id, dictionaries[i][dictionaries[i].length <= 256 ?
+              buffers[i].get() & 0xff : buffers[i].getShort() & 0xffff]);
+        } else if (decodedIdx[i] >= 0) {
+          putDecodedValue(id, decoded[i][decodedIdx[i]++]);
+        } else {
+          readValue(id, buffers[i]);
+        }
+      }
+      currentRow++;
+
+      return reuseTuple ? tuple : new VTuple(tuple);
+    }
+
+    private void putDecodedValue(int fieldId, long value) {
+      switch (types[fieldId]) {
+        case FLOAT4:
+          tuple.putDouble(fieldId, Float.intBitsToFloat((int) value));
+          break;
+        case FLOAT8:
+          tuple.putDouble(fieldId, Double.longBitsToDouble(value));
+          break;
+        default:
+          tuple.putLong(fieldId, value);
+      }
+    }
+
+    private void readValue(int fieldId, ByteBuffer buffer) {
+      switch (types[fieldId]) {
+        case BOOLEAN:
+          tuple.put(fieldId, DatumFactory.createBool(buffer.get()));
+          break;
+        case BIT:
+          tuple.put(fieldId, DatumFactory.createBit(buffer.get()));
+          break;
+        case CHAR:
+          tuple.put(fieldId, DatumFactory.createChar(buffer.getChar()));
+          break;
+        case INT2:
+          tuple.putLong(fieldId, buffer.getShort());
+          break;
+        case INT4:
+          tuple.putLong(fieldId, buffer.getInt());
+          break;
+        case INT8:
+          tuple.putLong(fieldId, buffer.getLong());
+          break;
+        case FLOAT4:
+          tuple.putDouble(fieldId, buffer.getFloat());
+          break;
+        case FLOAT8:
+          tuple.putDouble(fieldId, buffer.getDouble());
+          break;
+        case TEXT:
+        case BLOB: {
+          int len = buffer.getInt();
+          tuple.putBytes(fieldId, buffer.array(), buffer.position(), len);
+          buffer.position(buffer.position() + len);
+          break;
+        }
+        case INET4: {
+          byte [] ipv4Bytes = new byte[4];
+          buffer.get(ipv4Bytes);
+          tuple.put(fieldId, DatumFactory.createInet4(ipv4Bytes));
+          break;
+        }
+        case ARRAY: {
+          byte [] arrayBytes = new byte[buffer.getInt()];
+          buffer.get(arrayBytes);
+          tuple.put(fieldId, GsonCreator.getInstance().fromJson(
+              new String(arrayBytes), Datum.class));
+          break;
+        }
+        default:
+          throw new UnsupportedOperationException("Unsupported type: " +
+              types[fieldId]);
+      }
+    }
+
+    @Override
+    public void reset() throws IOException {
+      nextRowGroup = 0;
+      current = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+    }
+
+    @Override
+    public boolean isProjectable() {
+      return true;
+    }
+
+    @Override
+    public boolean isSelectable() {
+      return true;
+    }
+
+    /**
+     * @param expr an array of {@link ColumnPredicate}s, which means their
+     *             conjunction. Only the predicates on the columns having
+     *             the minimum and maximum values are used.
+     */
+    @Override
+    public void setSearchCondition(Object expr) {
+      super.setSearchCondition(expr);
+      if (!(expr instanceof ColumnPredicate [])) {
+        return;
+      }
+
+      List<ColumnPredicate> usable = new ArrayList<ColumnPredicate>();
+      List<Integer> ids = new ArrayList<Integer>();
+      for (ColumnPredicate predicate : (ColumnPredicate []) expr) {
+        int id = schema.getColumnIdByName(
+            predicate.getColumn().getColumnName());
+        if (id >= 0 &&
+            hasMinMax(schema.getColumn(id).getDataType().getType())) {
+          usable.add(predicate);
+          ids.add(id);
+        }
+      }
+
+      if (usable.size() > 0) {
+        predicates = usable.toArray(new ColumnPredicate[usable.size()]);
+        predicateIds = new int[ids.size()];
+        for (int i = 0; i < predicateIds.length; i++) {
+          predicateIds[i] = ids.get(i);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import tajo.catalog.Column;
+import tajo.datum.Datum;
+
+/**
+ * A comparison between a column and a constant value, i.e.,
+ * <code>column op value</code>. A scanner supporting selection accepts an
+ * array of them, which means their conjunction, as a search condition in
+ * order to skip the blocks which cannot contain any matched row.
+ *
+ * A scanner still returns the rows not satisfying the predicates, so the
+ * caller should evaluate its own condition against every row.
+ */
+public class ColumnPredicate {
+  public static enum Op {
+    EQUAL,
+    LTH,
+    LEQ,
+    GTH,
+    GEQ
+  }
+
+  private final Column column;
+  private final Op op;
+  private final Datum value;
+
+  public ColumnPredicate(Column column, Op op, Datum value) {
+    this.column = column;
+    this.op = op;
+    this.value = value;
+  }
+
+  public Column getColumn() {
+    return column;
+  }
+
+  public Op getOp() {
+    return op;
+  }
+
+  public Datum getValue() {
+    return value;
+  }
+
+  /**
+   * Checks if a block may contain a value satisfying this predicate.
+   *
+   * A null or NaN value is compared as equal to any value by
+   * {@link Datum#compareTo(Datum)}, so it satisfies LEQ and GEQ, but never
+   * EQUAL, LTH and GTH.
+   *
+   * @param min the minimum value of the block, or null if the block has no
+   *            ordered value
+   * @param max the maximum value of the block, or null if the block has no
+   *            ordered value
+   * @param unordered true if the block contains a null or NaN value
+   * @return false only if no value of the block satisfies this predicate
+   */
+  public boolean mayMatch(Datum min, Datum max, boolean unordered) {
+    if (unordered && (op == Op.LEQ || op == Op.GEQ)) {
+      return true;
+    }
+    if (min == null || max == null) {
+      return false;
+    }
+
+    switch (op) {
+      case EQUAL:
+        return min.compareTo(value) <= 0 && max.compareTo(value) >= 0;
+      case LTH:
+        return min.compareTo(value) < 0;
+      case LEQ:
+        return min.compareTo(value) <= 0;
+      case GTH:
+        return max.compareTo(value) > 0;
+      case GEQ:
+        return max.compareTo(value) >= 0;
+      default:
+        return true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return column.getQualifiedName() + " " + op + " " + value;
+  }
+}
@@ -33,6 +33,7 @@ public abstract class FileScanner implements Scanner {
   protected final Fragment fragment;
 
   protected Column [] targets;
+  protected boolean reuseTuple = false;
   
   public FileScanner(Configuration conf, final TableMeta meta, final Fragment fragment) {
     this.conf = conf;
@@ -58,6 +59,11 @@ public abstract class FileScanner implements Scanner {
     this.targets = targets;
   }
 
+  @Override
+  public void setReuseTuple(boolean reuse) {
+    this.reuseTuple = reuse;
+  }
+
   public void setSearchCondition(Object expr) {
     if (inited) {
       throw new IllegalStateException("Should be called before init()");
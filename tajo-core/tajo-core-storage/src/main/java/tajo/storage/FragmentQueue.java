@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A queue of the fragments of a table which become available one by one,
+ * e.g., while the intermediate data of the table are being fetched from
+ * other nodes. The number of the expected arrivals is given in advance, and
+ * an arrival may have no fragment if it has no data.
+ *
+ * The fragments are kept after they are taken, so they can be read again
+ * from the first one.
+ */
+public class FragmentQueue {
+  private final int expected;
+  private final List<Fragment> fragments = new ArrayList<Fragment>();
+  private int arrived = 0;
+  private IOException error;
+
+  public FragmentQueue(int expected) {
+    this.expected = expected;
+  }
+
+  /**
+   * Adds an arrival.
+   *
+   * @param fragment the arrived fragment, or null if it has no data
+   */
+  public synchronized void add(Fragment fragment) {
+    if (fragment != null) {
+      fragments.add(fragment);
+    }
+    arrived++;
+    notifyAll();
+  }
+
+  /**
+   * Makes the waiting readers fail.
+   */
+  public synchronized void fail(IOException cause) {
+    this.error = cause;
+    notifyAll();
+  }
+
+  public synchronized boolean isFinished() {
+    return arrived >= expected;
+  }
+
+  /**
+   * Returns the idx-th fragment in the order of the arrival. It blocks until
+   * the fragment arrives or all arrivals are done.
+   *
+   * @return the fragment, or null if there is no more fragment
+   */
+  public synchronized Fragment get(int idx) throws IOException {
+    while (idx >= fragments.size() && !isFinished()) {
+      await();
+    }
+    return idx < fragments.size() ? fragments.get(idx) : null;
+  }
+
+  /**
+   * Blocks until the first fragment arrives or all arrivals are done.
+   *
+   * @return true if there is at least one fragment
+   */
+  public synchronized boolean awaitFirst() throws IOException {
+    return get(0) != null;
+  }
+
+  /**
+   * Blocks until all arrivals are done.
+   *
+   * @return all fragments
+   */
+  public synchronized Fragment [] awaitAll() throws IOException {
+    while (!isFinished()) {
+      await();
+    }
+    return fragments.toArray(new Fragment[fragments.size()]);
+  }
+
+  private void await() throws IOException {
+    if (error != null) {
+      throw error;
+    }
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for "
+          + "fragments");
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+}
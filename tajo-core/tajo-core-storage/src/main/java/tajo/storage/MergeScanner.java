@@ -37,6 +37,9 @@ public class MergeScanner implements Scanner {
   private Fragment currentFragment;
   private Scanner currentScanner;
   private Tuple tuple;
+  private boolean reuseTuple = false;
+  private Column [] targets;
+  private Object searchCondition;
 
   public MergeScanner(Configuration conf, TableMeta meta, Collection<Fragment> fragments) {
     this.conf = conf;
@@ -51,56 +54,87 @@ public class MergeScanner implements Scanner {
 
   @Override
   public Tuple next() throws IOException {
-    if (currentScanner != null)
-      tuple = currentScanner.next();
+    // a fragment may have no tuple, e.g., if all its blocks are skipped.
+    while (true) {
+      if (currentScanner != null) {
+        tuple = currentScanner.next();
+        if (tuple != null) {
+          return tuple;
+        }
+      }
 
-    if (tuple != null) {
-      return tuple;
-    } else if (iterator.hasNext()) {
+      if (!iterator.hasNext()) {
+        return null;
+      }
       if (currentScanner != null) {
         currentScanner.close();
       }
       currentFragment = iterator.next();
-      currentScanner = StorageManager.getScanner(conf, meta, currentFragment);
+      currentScanner = getScanner(currentFragment);
       currentScanner.init();
-      return currentScanner.next();
-    } else {
-      return null;
     }
   }
 
   @Override
   public void reset() throws IOException {
+    if (currentScanner != null) {
+      currentScanner.close();
+      currentScanner = null;
+    }
     iterator = fragments.iterator();
-    if (iterator.hasNext()) {
-      currentFragment = iterator.next();
-      currentScanner = StorageManager.getScanner(conf, meta, currentFragment);
+  }
+
+  private Scanner getScanner(Fragment fragment) throws IOException {
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment);
+    scanner.setReuseTuple(reuseTuple);
+    if (targets != null && scanner.isProjectable()) {
+      scanner.setTarget(targets);
+    }
+    if (searchCondition != null && scanner.isSelectable()) {
+      scanner.setSearchCondition(searchCondition);
     }
+    return scanner;
   }
 
   @Override
   public void close() throws IOException {
-    currentScanner.close();
+    if (currentScanner != null) {
+      currentScanner.close();
+    }
     iterator = null;
     fragments.clear();
   }
 
   @Override
   public boolean isProjectable() {
-    return false;
+    return true;
   }
 
+  /**
+   * The targets are given to each underlying scanner if it is projectable.
+   */
   @Override
   public void setTarget(Column[] targets) {
+    this.targets = targets;
   }
 
   @Override
   public boolean isSelectable() {
-    return false;
+    return true;
   }
 
+  /**
+   * The search condition is given to each underlying scanner if it is
+   * selectable.
+   */
   @Override
   public void setSearchCondition(Object expr) {
+    this.searchCondition = expr;
+  }
+
+  @Override
+  public void setReuseTuple(boolean reuse) {
+    this.reuseTuple = reuse;
   }
 
   @Override
@@ -0,0 +1,383 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.*;
+import tajo.datum.exception.InvalidCastException;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A tuple which a scanner fills in place for every row.
+ *
+ * Integral values are kept in a <code>long[]</code>, floating point values in
+ * a <code>double[]</code>, and TEXT and BLOB values as references to byte
+ * slices. A datum is created only when {@link #get(int)} is called, so a
+ * consumer reading the values by {@link #getInt8Value(int)},
+ * {@link #getFloat8Value(int)} and so on does not create any object per row.
+ *
+ * The values are valid only until the tuple is filled again. In order to
+ * keep a row, a consumer should copy its datums, e.g., into a {@link VTuple}.
+ */
+public class MutableTuple implements Tuple {
+  private static final byte EMPTY = 0;
+  private static final byte NULL = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte BYTES = 4;
+  private static final byte DATUM = 5;
+
+  private final Type [] types;
+  private final byte [] states;
+  private final long [] longs;
+  private final double [] doubles;
+  private final byte [][] bytes;
+  private final int [] starts;
+  private final int [] lengths;
+  // the byte arrays owned by this tuple, which are reused for every row
+  private final byte [][] buffers;
+  private final Datum [] datums;
+  private long offset;
+
+  public MutableTuple(Schema schema) {
+    int size = schema.getColumnNum();
+    this.types = new Type[size];
+    for (int i = 0; i < size; i++) {
+      types[i] = schema.getColumn(i).getDataType().getType();
+    }
+    this.states = new byte[size];
+    this.longs = new long[size];
+    this.doubles = new double[size];
+    this.bytes = new byte[size][];
+    this.starts = new int[size];
+    this.lengths = new int[size];
+    this.buffers = new byte[size][];
+    this.datums = new Datum[size];
+  }
+
+  public Type getType(int fieldId) {
+    return types[fieldId];
+  }
+
+  @Override
+  public int size() {
+    return states.length;
+  }
+
+  @Override
+  public boolean contains(int fieldId) {
+    return states[fieldId] != EMPTY;
+  }
+
+  @Override
+  public boolean isNull(int fieldId) {
+    return states[fieldId] == NULL ||
+        (states[fieldId] == DATUM && datums[fieldId] instanceof NullDatum);
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(states, EMPTY);
+    Arrays.fill(datums, null);
+    Arrays.fill(bytes, null);
+  }
+
+  //////////////////////////////////////////////////////
+  // Setter
+  //////////////////////////////////////////////////////
+  public void putNull(int fieldId) {
+    states[fieldId] = NULL;
+  }
+
+  /**
+   * Puts the value of an INT2, INT4 or INT8 column.
+   */
+  public void putLong(int fieldId, long value) {
+    states[fieldId] = LONG;
+    longs[fieldId] = value;
+  }
+
+  /**
+   * Puts the value of a FLOAT4 or FLOAT8 column.
+   */
+  public void putDouble(int fieldId, double value) {
+    states[fieldId] = DOUBLE;
+    doubles[fieldId] = value;
+  }
+
+  /**
+   * Puts the value of a TEXT or BLOB column as a reference to a byte slice.
+   * The slice must not be changed until this tuple is filled again.
+   */
+  public void putBytes(int fieldId, byte [] buf, int start, int length) {
+    states[fieldId] = BYTES;
+    bytes[fieldId] = buf;
+    starts[fieldId] = start;
+    lengths[fieldId] = length;
+  }
+
+  /**
+   * Puts the value of a TEXT or BLOB column read from a buffer. The bytes
+   * are copied into an array owned by this tuple.
+   */
+  public void putBytes(int fieldId, ByteBuffer buffer, int length) {
+    byte [] buf = buffers[fieldId];
+    if (buf == null || buf.length < length) {
+      buf = new byte[Math.max(length, 16)];
+      buffers[fieldId] = buf;
+    }
+    buffer.get(buf, 0, length);
+    putBytes(fieldId, buf, 0, length);
+  }
+
+  @Override
+  public void put(int fieldId, Datum value) {
+    states[fieldId] = value == null ? EMPTY : DATUM;
+    datums[fieldId] = value;
+  }
+
+  @Override
+  public void put(int fieldId, Datum[] values) {
+    for (int i = fieldId, j = 0; j < values.length; i++, j++) {
+      put(i, values[j]);
+    }
+  }
+
+  @Override
+  public void put(int fieldId, Tuple tuple) {
+    for (int i = fieldId, j = 0; j < tuple.size(); i++, j++) {
+      put(i, tuple.get(j));
+    }
+  }
+
+  @Override
+  public void put(Datum[] values) {
+    for (int i = 0; i < size(); i++) {
+      put(i, values[i]);
+    }
+  }
+
+  //////////////////////////////////////////////////////
+  // Getter
+  //////////////////////////////////////////////////////
+  public int getInt4Value(int fieldId) {
+    switch (states[fieldId]) {
+      case LONG: return (int) longs[fieldId];
+      case DOUBLE: return (int) doubles[fieldId];
+      default: return get(fieldId).asInt4();
+    }
+  }
+
+  public long getInt8Value(int fieldId) {
+    switch (states[fieldId]) {
+      case LONG: return longs[fieldId];
+      case DOUBLE: return (long) doubles[fieldId];
+      default: return get(fieldId).asInt8();
+    }
+  }
+
+  public float getFloat4Value(int fieldId) {
+    switch (states[fieldId]) {
+      case LONG: return (float) longs[fieldId];
+      case DOUBLE: return (float) doubles[fieldId];
+      default: return get(fieldId).asFloat4();
+    }
+  }
+
+  public double getFloat8Value(int fieldId) {
+    switch (states[fieldId]) {
+      case LONG: return (double) longs[fieldId];
+      case DOUBLE: return doubles[fieldId];
+      default: return get(fieldId).asFloat8();
+    }
+  }
+
+  /**
+   * The datum created from a primitive value is kept until this tuple is
+   * filled again.
+   */
+  @Override
+  public Datum get(int fieldId) {
+    switch (states[fieldId]) {
+      case EMPTY:
+        return null;
+      case NULL:
+        return NullDatum.get();
+      case DATUM:
+        return datums[fieldId];
+    }
+
+    Datum datum = createDatum(fieldId);
+    put(fieldId, datum);
+    return datum;
+  }
+
+  private Datum createDatum(int fieldId) {
+    switch (types[fieldId]) {
+      case INT2: return DatumFactory.createInt2((short) longs[fieldId]);
+      case INT4: return DatumFactory.createInt4((int) longs[fieldId]);
+      case INT8: return DatumFactory.createInt8(longs[fieldId]);
+      case FLOAT4: return DatumFactory.createFloat4((float) doubles[fieldId]);
+      case FLOAT8: return DatumFactory.createFloat8(doubles[fieldId]);
+      case TEXT: return DatumFactory.createText(copyBytes(fieldId));
+      case BLOB: return DatumFactory.createBlob(copyBytes(fieldId));
+      default:
+        throw new InvalidCastException(types[fieldId] +
+            " cannot be kept as a primitive value");
+    }
+  }
+
+  private byte [] copyBytes(int fieldId) {
+    byte [] copy = new byte[lengths[fieldId]];
+    System.arraycopy(bytes[fieldId], starts[fieldId], copy, 0,
+        lengths[fieldId]);
+    return copy;
+  }
+
+  @Override
+  public void setOffset(long offset) {
+    this.offset = offset;
+  }
+
+  @Override
+  public long getOffset() {
+    return this.offset;
+  }
+
+  @Override
+  public BooleanDatum getBoolean(int fieldId) {
+    return (BooleanDatum) get(fieldId);
+  }
+
+  @Override
+  public BitDatum getByte(int fieldId) {
+    return (BitDatum) get(fieldId);
+  }
+
+  @Override
+  public CharDatum getChar(int fieldId) {
+    return (CharDatum) get(fieldId);
+  }
+
+  @Override
+  public BlobDatum getBytes(int fieldId) {
+    return (BlobDatum) get(fieldId);
+  }
+
+  @Override
+  public Int2Datum getShort(int fieldId) {
+    return (Int2Datum) get(fieldId);
+  }
+
+  @Override
+  public Int4Datum getInt(int fieldId) {
+    return (Int4Datum) get(fieldId);
+  }
+
+  @Override
+  public Int8Datum getLong(int fieldId) {
+    return (Int8Datum) get(fieldId);
+  }
+
+  @Override
+  public Float4Datum getFloat(int fieldId) {
+    return (Float4Datum) get(fieldId);
+  }
+
+  @Override
+  public Float8Datum getDouble(int fieldId) {
+    return (Float8Datum) get(fieldId);
+  }
+
+  @Override
+  public Inet4Datum getIPv4(int fieldId) {
+    return (Inet4Datum) get(fieldId);
+  }
+
+  @Override
+  public byte[] getIPv4Bytes(int fieldId) {
+    return get(fieldId).asByteArray();
+  }
+
+  @Override
+  public InetAddress getIPv6(int fieldId) {
+    throw new InvalidCastException("IPv6 is unsupported yet");
+  }
+
+  @Override
+  public byte[] getIPv6Bytes(int fieldId) {
+    throw new InvalidCastException("IPv6 is unsupported yet");
+  }
+
+  @Override
+  public TextDatum getString(int fieldId) {
+    return (TextDatum) get(fieldId);
+  }
+
+  @Override
+  public TextDatum getText(int fieldId) {
+    return (TextDatum) get(fieldId);
+  }
+
+  @Override
+  public String toString() {
+    return new VTuple(this).toString();
+  }
+
+  /**
+   * It is the same as that of {@link VTuple} having the same values.
+   */
+  @Override
+  public int hashCode() {
+    int hashCode = 37;
+    Datum datum;
+    for (int i = 0; i < size(); i++) {
+      datum = get(i);
+      if (datum != null) {
+        hashCode ^= (datum.hashCode() * 41);
+      } else {
+        hashCode = hashCode ^ (i + 17);
+      }
+    }
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof Tuple) {
+      Tuple other = (Tuple) obj;
+      if (other.size() != size()) {
+        return false;
+      }
+      Datum datum;
+      for (int i = 0; i < size(); i++) {
+        datum = get(i);
+        if (datum == null ? other.get(i) != null : !datum.equals(other.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+}
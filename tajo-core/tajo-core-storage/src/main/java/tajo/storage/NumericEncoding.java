@@ -0,0 +1,299 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encodings of the values of a numeric column chunk, which are given
+ * as longs. A floating point value is given as its raw bits.
+ *
+ * <ul>
+ *   <li>RLE: the runs of equal values, each of which is the value and the
+ *   length of the run.</li>
+ *   <li>FOR (frame of reference): the minimum value followed by the
+ *   differences of the values from the minimum, which are bit-packed with
+ *   the least number of bits.</li>
+ *   <li>DELTA: the first value and the minimum difference between adjacent
+ *   values, followed by the bit-packed differences of the differences from
+ *   the minimum. A sorted column, e.g., of ids or timestamps, takes a few
+ *   bits per value.</li>
+ * </ul>
+ */
+final class NumericEncoding {
+  static final byte PLAIN = 0;
+  static final byte RLE = 1;
+  static final byte FOR = 2;
+  static final byte DELTA = 3;
+
+  private NumericEncoding() {
+  }
+
+  private static int getBitWidth(long range) {
+    return 64 - Long.numberOfLeadingZeros(range);
+  }
+
+  private static int getPackedLength(int num, int bitWidth) {
+    return (int) (((long) num * bitWidth + 7) / 8);
+  }
+
+  /**
+   * Chooses the encoding which makes the values the smallest.
+   *
+   * @param valueWidth the number of bytes of a plain value
+   * @return the encoding and its length in the higher 32 bits
+   */
+  private static long choose(long [] values, int num, int valueWidth) {
+    long min = values[0];
+    long max = values[0];
+    long minDelta = 0;
+    long maxDelta = 0;
+    long delta;
+    int numRuns = 1;
+    for (int i = 1; i < num; i++) {
+      if (values[i] < min) {
+        min = values[i];
+      } else if (values[i] > max) {
+        max = values[i];
+      }
+      delta = values[i] - values[i - 1];
+      if (i == 1) {
+        minDelta = delta;
+        maxDelta = delta;
+      } else if (delta < minDelta) {
+        minDelta = delta;
+      } else if (delta > maxDelta) {
+        maxDelta = delta;
+      }
+      if (delta != 0) {
+        numRuns++;
+      }
+    }
+
+    byte encoding = PLAIN;
+    int length = num * valueWidth;
+    int rleLength = 4 + numRuns * (8 + 4);
+    if (rleLength < length) {
+      encoding = RLE;
+      length = rleLength;
+    }
+    int forLength = 8 + 1 + getPackedLength(num, getBitWidth(max - min));
+    if (forLength < length) {
+      encoding = FOR;
+      length = forLength;
+    }
+    int deltaLength = 8 + 8 + 1 +
+        getPackedLength(num - 1, getBitWidth(maxDelta - minDelta));
+    if (deltaLength < length) {
+      encoding = DELTA;
+      length = deltaLength;
+    }
+    return ((long) length << 32) | encoding;
+  }
+
+  /**
+   * @return the encoding making the values the smallest
+   */
+  static byte getEncoding(long [] values, int num, int valueWidth) {
+    if (num == 0) {
+      return PLAIN;
+    }
+    return (byte) choose(values, num, valueWidth);
+  }
+
+  /**
+   * @return the length of the values encoded by the encoding returned by
+   * {@link #getEncoding(long[], int, int)}
+   */
+  static int getEncodedLength(long [] values, int num, int valueWidth) {
+    if (num == 0) {
+      return 0;
+    }
+    return (int) (choose(values, num, valueWidth) >>> 32);
+  }
+
+  static void encode(byte encoding, long [] values, int num, DataOutput out)
+      throws IOException {
+    switch (encoding) {
+      case RLE:
+        encodeRle(values, num, out);
+        break;
+      case FOR:
+        encodeFor(values, num, out);
+        break;
+      case DELTA:
+        encodeDelta(values, num, out);
+        break;
+      default:
+        throw new IOException("Unknown encoding: " + encoding);
+    }
+  }
+
+  private static void encodeRle(long [] values, int num, DataOutput out)
+      throws IOException {
+    int numRuns = 1;
+    for (int i = 1; i < num; i++) {
+      if (values[i] != values[i - 1]) {
+        numRuns++;
+      }
+    }
+    out.writeInt(numRuns);
+
+    int start = 0;
+    for (int i = 1; i <= num; i++) {
+      if (i == num || values[i] != values[start]) {
+        out.writeLong(values[start]);
+        out.writeInt(i - start);
+        start = i;
+      }
+    }
+  }
+
+  private static void encodeFor(long [] values, int num, DataOutput out)
+      throws IOException {
+    long min = values[0];
+    long max = values[0];
+    for (int i = 1; i < num; i++) {
+      min = Math.min(min, values[i]);
+      max = Math.max(max, values[i]);
+    }
+    int bitWidth = getBitWidth(max - min);
+    out.writeLong(min);
+    out.writeByte(bitWidth);
+
+    byte [] packed = new byte[getPackedLength(num, bitWidth)];
+    for (int i = 0; i < num; i++) {
+      pack(packed, (long) i * bitWidth, bitWidth, values[i] - min);
+    }
+    out.write(packed);
+  }
+
+  private static void encodeDelta(long [] values, int num, DataOutput out)
+      throws IOException {
+    long minDelta = values[1] - values[0];
+    long maxDelta = minDelta;
+    long delta;
+    for (int i = 2; i < num; i++) {
+      delta = values[i] - values[i - 1];
+      minDelta = Math.min(minDelta, delta);
+      maxDelta = Math.max(maxDelta, delta);
+    }
+    int bitWidth = getBitWidth(maxDelta - minDelta);
+    out.writeLong(values[0]);
+    out.writeLong(minDelta);
+    out.writeByte(bitWidth);
+
+    byte [] packed = new byte[getPackedLength(num - 1, bitWidth)];
+    for (int i = 1; i < num; i++) {
+      pack(packed, (long) (i - 1) * bitWidth, bitWidth,
+          values[i] - values[i - 1] - minDelta);
+    }
+    out.write(packed);
+  }
+
+  /**
+   * Decodes the values of a chunk.
+   *
+   * @param values the array to be filled with the values
+   */
+  static void decode(byte encoding, ByteBuffer buffer, int num,
+                     long [] values) throws IOException {
+    switch (encoding) {
+      case RLE: {
+        int numRuns = buffer.getInt();
+        long value;
+        int runLength;
+        int idx = 0;
+        for (int i = 0; i < numRuns; i++) {
+          value = buffer.getLong();
+          runLength = buffer.getInt();
+          for (int j = 0; j < runLength; j++) {
+            values[idx++] = value;
+          }
+        }
+        break;
+      }
+      case FOR: {
+        long min = buffer.getLong();
+        int bitWidth = buffer.get();
+        int start = buffer.position();
+        for (int i = 0; i < num; i++) {
+          values[i] = min + unpack(buffer.array(), start, (long) i * bitWidth,
+              bitWidth);
+        }
+        buffer.position(start + getPackedLength(num, bitWidth));
+        break;
+      }
+      case DELTA: {
+        values[0] = buffer.getLong();
+        long minDelta = buffer.getLong();
+        int bitWidth = buffer.get();
+        int start = buffer.position();
+        for (int i = 1; i < num; i++) {
+          values[i] = values[i - 1] + minDelta + unpack(buffer.array(), start,
+              (long) (i - 1) * bitWidth, bitWidth);
+        }
+        buffer.position(start + getPackedLength(num - 1, bitWidth));
+        break;
+      }
+      default:
+        throw new IOException("Unknown encoding: " + encoding);
+    }
+  }
+
+  /**
+   * Writes the lower bits of a value from a bit position, the lower bits
+   * first.
+   */
+  private static void pack(byte [] buf, long bitPos, int bitWidth,
+                           long value) {
+    int idx;
+    int shift;
+    int n;
+    while (bitWidth > 0) {
+      idx = (int) (bitPos >>> 3);
+      shift = (int) (bitPos & 7);
+      n = Math.min(8 - shift, bitWidth);
+      buf[idx] |= (byte) ((value & ((1 << n) - 1)) << shift);
+      value >>>= n;
+      bitPos += n;
+      bitWidth -= n;
+    }
+  }
+
+  private static long unpack(byte [] buf, int offset, long bitPos,
+                             int bitWidth) {
+    long value = 0;
+    int read = 0;
+    int idx;
+    int shift;
+    int n;
+    while (read < bitWidth) {
+      idx = offset + (int) (bitPos >>> 3);
+      shift = (int) (bitPos & 7);
+      n = Math.min(8 - shift, bitWidth - read);
+      value |= (long) (((buf[idx] & 0xff) >>> shift) & ((1 << n) - 1)) << read;
+      bitPos += n;
+      read += n;
+    }
+    return value;
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import tajo.catalog.Column;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A scanner which opens and reads a number of fragments at the same time on
+ * its own threads, so that the latency of opening a fragment and reading its
+ * first block is overlapped with the scan of the other fragments.
+ *
+ * The tuples are passed to the caller in batches through a bounded queue.
+ * The tuples of a fragment are returned in their order, but the tuples of
+ * different fragments are interleaved, so this scanner is used only if the
+ * order across fragments does not matter.
+ */
+public class ParallelMergeScanner implements Scanner {
+  private static final int BATCH_SIZE = 1024;
+  // a worker puts it after reading all the fragments given to it
+  private static final List<Tuple> END_OF_WORKER =
+      Collections.unmodifiableList(new ArrayList<Tuple>());
+
+  private final Configuration conf;
+  private final TableMeta meta;
+  private final List<Fragment> fragments;
+  private final int parallelism;
+  private Column [] targets;
+  private Object searchCondition;
+
+  private ExecutorService executor;
+  private Queue<Fragment> pending;
+  private BlockingQueue<List<Tuple>> queue;
+  private volatile IOException error;
+  private int finishedWorkers;
+
+  private List<Tuple> batch;
+  private int batchIdx;
+
+  public ParallelMergeScanner(Configuration conf, TableMeta meta,
+                              Collection<Fragment> fragments,
+                              int parallelism) {
+    this.conf = conf;
+    this.meta = meta;
+    this.fragments = new ArrayList<Fragment>(fragments);
+    this.parallelism = Math.max(1, Math.min(parallelism, fragments.size()));
+  }
+
+  @Override
+  public void init() throws IOException {
+    start();
+  }
+
+  private void start() {
+    pending = new ConcurrentLinkedQueue<Fragment>(fragments);
+    queue = new ArrayBlockingQueue<List<Tuple>>(parallelism * 2);
+    error = null;
+    finishedWorkers = 0;
+    batch = null;
+    batchIdx = 0;
+
+    ThreadFactory factory = new ThreadFactoryBuilder()
+        .setNameFormat("Parallel scan #%d")
+        .setDaemon(true)
+        .build();
+    executor = Executors.newFixedThreadPool(parallelism, factory);
+    for (int i = 0; i < parallelism; i++) {
+      executor.submit(new Worker());
+    }
+  }
+
+  /**
+   * Stops the workers and waits for them to close their scanners.
+   */
+  private void stop() throws IOException {
+    if (executor == null) {
+      return;
+    }
+    pending.clear();
+    executor.shutdownNow();
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+        // a worker blocked in put() is interrupted, so it finishes soon.
+        queue.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while stopping the scan");
+    } finally {
+      queue.clear();
+      executor = null;
+    }
+  }
+
+  private class Worker implements Runnable {
+    @Override
+    public void run() {
+      try {
+        Fragment fragment;
+        while ((fragment = pending.poll()) != null) {
+          scan(fragment);
+        }
+      } catch (InterruptedException e) {
+        // the scanner is reset or closed.
+        return;
+      } catch (IOException e) {
+        error = e;
+        pending.clear();
+      } catch (Throwable t) {
+        error = new IOException(t);
+        pending.clear();
+      }
+
+      try {
+        queue.put(END_OF_WORKER);
+      } catch (InterruptedException e) {
+        // the scanner is reset or closed.
+      }
+    }
+
+    private void scan(Fragment fragment)
+        throws IOException, InterruptedException {
+      Scanner scanner = getScanner(fragment);
+      try {
+        scanner.init();
+        List<Tuple> tuples = new ArrayList<Tuple>(BATCH_SIZE);
+        Tuple tuple;
+        while ((tuple = scanner.next()) != null) {
+          tuples.add(new VTuple(tuple));
+          if (tuples.size() == BATCH_SIZE) {
+            queue.put(tuples);
+            tuples = new ArrayList<Tuple>(BATCH_SIZE);
+          }
+        }
+        if (tuples.size() > 0) {
+          queue.put(tuples);
+        }
+      } finally {
+        scanner.close();
+      }
+    }
+  }
+
+  private Scanner getScanner(Fragment fragment) throws IOException {
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment);
+    // every row is copied when it is added to a batch.
+    scanner.setReuseTuple(true);
+    if (targets != null && scanner.isProjectable()) {
+      scanner.setTarget(targets);
+    }
+    if (searchCondition != null && scanner.isSelectable()) {
+      scanner.setSearchCondition(searchCondition);
+    }
+    return scanner;
+  }
+
+  @Override
+  public Tuple next() throws IOException {
+    while (batch == null || batchIdx == batch.size()) {
+      if (finishedWorkers == parallelism) {
+        if (error != null) {
+          throw error;
+        }
+        return null;
+      }
+
+      try {
+        batch = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while scanning");
+      }
+      batchIdx = 0;
+      if (batch == END_OF_WORKER) {
+        finishedWorkers++;
+        if (error != null) {
+          stop();
+          finishedWorkers = parallelism;
+          throw error;
+        }
+      }
+    }
+    return batch.get(batchIdx++);
+  }
+
+  @Override
+  public void reset() throws IOException {
+    stop();
+    start();
+  }
+
+  @Override
+  public void close() throws IOException {
+    stop();
+    batch = null;
+    fragments.clear();
+  }
+
+  @Override
+  public boolean isProjectable() {
+    return true;
+  }
+
+  /**
+   * The targets are given to each underlying scanner if it is projectable.
+   */
+  @Override
+  public void setTarget(Column[] targets) {
+    this.targets = targets;
+  }
+
+  @Override
+  public boolean isSelectable() {
+    return true;
+  }
+
+  /**
+   * The search condition is given to each underlying scanner if it is
+   * selectable.
+   */
+  @Override
+  public void setSearchCondition(Object expr) {
+    this.searchCondition = expr;
+  }
+
+  /**
+   * It is ignored because every tuple is handed over from another thread.
+   */
+  @Override
+  public void setReuseTuple(boolean reuse) {
+  }
+
+  @Override
+  public Schema getSchema() {
+    return meta.getSchema();
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+
+/**
+ * The offsets of the partitions of a hash-partitioned output, all of which
+ * are stored in a single data file ordered by their partition ids.
+ *
+ * The rows of the partition <code>i</code> are at
+ * <code>[offset(i), offset(i + 1))</code> of the data file, so that a
+ * partition is read as a byte range without a scan of the other partitions.
+ * The index file consists of the number of partitions and
+ * <code>numPartitions + 1</code> offsets.
+ */
+public class PartitionIndex {
+  public static final String DATA_FILE_NAME = "shuffle";
+  public static final String INDEX_FILE_NAME = "shuffle.index";
+
+  private final long [] offsets;
+
+  public PartitionIndex(long [] offsets) {
+    Preconditions.checkArgument(offsets.length > 0);
+    this.offsets = offsets;
+  }
+
+  public int getNumPartitions() {
+    return offsets.length - 1;
+  }
+
+  public long getOffset(int partition) {
+    return offsets[partition];
+  }
+
+  public long getLength(int partition) {
+    return offsets[partition + 1] - offsets[partition];
+  }
+
+  public void write(FileSystem fs, Path path) throws IOException {
+    FSDataOutputStream out = fs.create(path);
+    try {
+      out.writeInt(getNumPartitions());
+      for (long offset : offsets) {
+        out.writeLong(offset);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  public static PartitionIndex read(FileSystem fs, Path path)
+      throws IOException {
+    FSDataInputStream in = fs.open(path);
+    try {
+      long [] offsets = new long[in.readInt() + 1];
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = in.readLong();
+      }
+      return new PartitionIndex(offsets);
+    } finally {
+      in.close();
+    }
+  }
+}
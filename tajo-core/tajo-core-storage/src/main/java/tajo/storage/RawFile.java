@@ -19,36 +19,104 @@
 package tajo.storage;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import tajo.catalog.Column;
 import tajo.catalog.TableMeta;
 import tajo.catalog.statistics.TableStat;
 import tajo.common.TajoDataTypes.DataType;
+import tajo.conf.TajoConf.ConfVars;
 import tajo.datum.ArrayDatum;
 import tajo.datum.Datum;
 import tajo.datum.DatumFactory;
 import tajo.datum.json.GsonCreator;
+import tajo.storage.compress.BlockCompressedInputStream;
+import tajo.storage.compress.BlockCompressedOutputStream;
+import tajo.storage.compress.BlockCompression;
 import tajo.util.BitArray;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
 
 public class RawFile {
+  /**
+   * If this table option is 'true', a local uncompressed file is read and
+   * written through memory-mapped windows instead of a copying buffer.
+   */
+  public static final String MMAP = "rawfile.mmap";
+  /**
+   * The bytes of a memory-mapped window of a file. If it is not given,
+   * <code>tajo.storage.rawfile.mmap.window-size</code> is used.
+   */
+  public static final String MMAP_WINDOW_SIZE = "rawfile.mmap.window-size";
+
+  private static boolean isMmapEnabled(TableMeta meta, CompressionCodec codec) {
+    return codec == null && Boolean.valueOf(meta.getOption(MMAP, "false"));
+  }
+
+  private static int getMmapWindowSize(Configuration conf, TableMeta meta) {
+    String windowSize = meta.getOption(MMAP_WINDOW_SIZE, null);
+    if (windowSize != null) {
+      return Integer.parseInt(windowSize);
+    }
+    return conf.getInt(ConfVars.RAWFILE_MMAP_WINDOW_SIZE.varname,
+        ConfVars.RAWFILE_MMAP_WINDOW_SIZE.defaultIntVal);
+  }
+
+  /**
+   * Releases a memory-mapped window at once instead of waiting for it to be
+   * garbage-collected. The buffer must not be accessed after that.
+   */
+  private static void unmap(ByteBuffer buffer) {
+    if (buffer == null || !(buffer instanceof MappedByteBuffer)) {
+      return;
+    }
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        Method cleanMethod = cleaner.getClass().getMethod("clean");
+        cleanMethod.setAccessible(true);
+        cleanMethod.invoke(cleaner);
+      }
+    } catch (Exception e) {
+      // the window is unmapped when it is garbage-collected.
+    }
+  }
+
   public static class RawFileScanner extends FileScanner implements SeekableScanner {
     private FileChannel channel;
+    private CompressionCodec codec;
+    // the decompressed records if the file is compressed
+    private ReadableByteChannel blockChannel;
+    // if mmap is enabled, the buffer is a window of the file from windowStart.
+    private boolean mmap;
+    private int windowSize;
+    private long windowStart;
+    private long fileLength;
     private DataType[] columnTypes;
     private Path path;
 
     private ByteBuffer buffer;
-    private Tuple tuple;
+    private MutableTuple tuple;
 
     private int headerSize = 0;
     private BitArray nullFlags;
     private static final int RECORD_SIZE = 4;
     private int numBitsOfNullFlags;
+    private boolean [] projected;
+    private int lastProjected;
 
     public RawFileScanner(Configuration conf, TableMeta meta, Path path) throws IOException {
       super(conf, meta, null);
@@ -64,22 +132,37 @@ public class RawFile {
     public void init() throws IOException {
       //Preconditions.checkArgument(FileUtil.isLocalPath(path));
       // TODO - to make it unified one.
-      URI uri = path.toUri();
-      RandomAccessFile raf = new RandomAccessFile(new File(uri), "r");
-      channel = raf.getChannel();
-
-      buffer = ByteBuffer.allocateDirect(65535);
+      codec = BlockCompression.getCodec(conf, meta);
+      if (codec != null) {
+        blockChannel = openBlockChannel();
+      } else {
+        URI uri = path.toUri();
+        RandomAccessFile raf = new RandomAccessFile(new File(uri), "r");
+        channel = raf.getChannel();
+      }
+      mmap = isMmapEnabled(meta, codec);
 
       columnTypes = new DataType[schema.getColumnNum()];
       for (int i = 0; i < schema.getColumnNum(); i++) {
         columnTypes[i] = schema.getColumn(i).getDataType();
       }
 
-      tuple = new VTuple(columnTypes.length);
+      tuple = new MutableTuple(schema);
+      if (targets == null) {
+        targets = schema.toArray();
+      }
+      prepareProjection(targets);
 
       // initial read
-      channel.read(buffer);
-      buffer.flip();
+      if (mmap) {
+        windowSize = getMmapWindowSize(conf, meta);
+        fileLength = channel.size();
+        map(0);
+      } else {
+        buffer = ByteBuffer.allocateDirect(65535);
+        readBuffer();
+        buffer.flip();
+      }
 
       numBitsOfNullFlags = (int) Math.ceil((double)schema.getColumnNum());
       nullFlags = new BitArray(numBitsOfNullFlags);
@@ -88,19 +171,103 @@ public class RawFile {
       super.init();
     }
 
+    /**
+     * This scanner is initialized in its constructor, so the projection can
+     * be changed at any time. It takes effect from the next tuple.
+     */
+    @Override
+    public void setTarget(Column [] targets) {
+      this.targets = targets;
+      prepareProjection(targets);
+      // the values of the columns no longer projected are removed.
+      tuple.clear();
+    }
+
+    private void prepareProjection(Column [] targets) {
+      projected = new boolean[schema.getColumnNum()];
+      lastProjected = -1;
+      int tid;
+      for (Column target : targets) {
+        tid = schema.getColumnIdByName(target.getColumnName());
+        if (tid >= 0) {
+          projected[tid] = true;
+          lastProjected = Math.max(lastProjected, tid);
+        }
+      }
+    }
+
+    private ReadableByteChannel openBlockChannel() throws IOException {
+      FileSystem fs = FileSystem.getLocal(conf).getRaw();
+      long length = fs.getFileStatus(path).getLen();
+      return Channels.newChannel(new BlockCompressedInputStream(fs.open(path),
+          codec, 0, 0, length));
+    }
+
+    private int readBuffer() throws IOException {
+      if (blockChannel != null) {
+        return blockChannel.read(buffer);
+      } else {
+        return channel.read(buffer);
+      }
+    }
+
+    /**
+     * Maps the window of the file from a given offset after unmapping the
+     * previous window.
+     */
+    private void map(long offset) throws IOException {
+      unmap(buffer);
+      buffer = null;
+      windowStart = offset;
+      buffer = channel.map(MapMode.READ_ONLY, offset,
+          Math.min(windowSize, fileLength - offset));
+    }
+
     @Override
     public long getNextOffset() throws IOException {
-      return channel.position();
+      if (codec != null) {
+        throw new UnsupportedOperationException(
+            "Cannot seek in a compressed file");
+      }
+      if (mmap) {
+        return windowStart + buffer.position();
+      } else {
+        return channel.position() - buffer.remaining();
+      }
     }
 
     @Override
     public void seek(long offset) throws IOException {
-      channel.position(offset);
+      if (codec != null) {
+        throw new UnsupportedOperationException(
+            "Cannot seek in a compressed file");
+      }
+      if (mmap) {
+        if (offset >= windowStart && offset <= windowStart + buffer.limit()) {
+          buffer.position((int) (offset - windowStart));
+        } else {
+          map(offset);
+        }
+      } else {
+        channel.position(offset);
+        buffer.clear();
+        readBuffer();
+        buffer.flip();
+      }
     }
 
     private boolean fillBuffer() throws IOException {
+      if (mmap) {
+        // the current window already reaches the end of file.
+        if (windowStart + buffer.limit() >= fileLength) {
+          return false;
+        }
+        map(windowStart + buffer.position());
+        return true;
+      }
+
       buffer.compact();
-      if (channel.read(buffer) == -1) {
+      if (readBuffer() == -1) {
         return false;
       } else {
         buffer.flip();
@@ -136,10 +303,19 @@ public class RawFile {
         }
       }
 
-      for (int i = 0; i < columnTypes.length; i++) {
+      int contentOffset = buffer.position();
+      // the fields after the last projected one are skipped at once.
+      for (int i = 0; i <= lastProjected; i++) {
+        if (!projected[i]) {
+          if (!nullFlags.get(i)) {
+            skipField(columnTypes[i]);
+          }
+          continue;
+        }
+
         // check if the i'th column is null
         if (nullFlags.get(i)) {
-          tuple.put(i, DatumFactory.createNullDatum());
+          tuple.putNull(i);
           continue;
         }
 
@@ -157,23 +333,23 @@ public class RawFile {
             break;
 
           case INT2 :
-            tuple.put(i, DatumFactory.createInt2(buffer.getShort()));
+            tuple.putLong(i, buffer.getShort());
             break;
 
           case INT4 :
-            tuple.put(i, DatumFactory.createInt4(buffer.getInt()));
+            tuple.putLong(i, buffer.getInt());
             break;
 
           case INT8 :
-            tuple.put(i, DatumFactory.createInt8(buffer.getLong()));
+            tuple.putLong(i, buffer.getLong());
             break;
 
           case FLOAT4 :
-            tuple.put(i, DatumFactory.createFloat4(buffer.getFloat()));
+            tuple.putDouble(i, buffer.getFloat());
             break;
 
           case FLOAT8 :
-            tuple.put(i, DatumFactory.createFloat8(buffer.getDouble()));
+            tuple.putDouble(i, buffer.getDouble());
             break;
 
 //          case TEXT :
@@ -185,18 +361,8 @@ public class RawFile {
 //            break;
 
           case TEXT :
-            // TODO - shoud use CharsetEncoder / CharsetDecoder
-            int strSize2 = buffer.getInt();
-            byte [] strBytes2 = new byte[strSize2];
-            buffer.get(strBytes2);
-            tuple.put(i, DatumFactory.createText(new String(strBytes2)));
-            break;
-
           case BLOB :
-            int byteSize = buffer.getInt();
-            byte [] rawBytes = new byte[byteSize];
-            buffer.get(rawBytes);
-            tuple.put(i, DatumFactory.createBlob(rawBytes));
+            tuple.putBytes(i, buffer, buffer.getInt());
             break;
 
           case INET4 :
@@ -218,28 +384,76 @@ public class RawFile {
             default:
         }
       }
+      buffer.position(contentOffset + recordSize - headerSize);
 
-      return tuple;
+      return reuseTuple ? tuple : new VTuple(tuple);
+    }
+
+    private void skipField(DataType type) {
+      switch (type.getType()) {
+        case BOOLEAN :
+        case BIT :
+          buffer.position(buffer.position() + 1);
+          break;
+        case CHAR :
+        case INT2 :
+          buffer.position(buffer.position() + 2);
+          break;
+        case INT4 :
+        case FLOAT4 :
+        case INET4 :
+          buffer.position(buffer.position() + 4);
+          break;
+        case INT8 :
+        case FLOAT8 :
+          buffer.position(buffer.position() + 8);
+          break;
+        case TEXT :
+        case BLOB :
+        case ARRAY :
+          int len = buffer.getInt();
+          buffer.position(buffer.position() + len);
+          break;
+        default:
+      }
     }
 
     @Override
     public void reset() throws IOException {
+      if (mmap) {
+        map(0);
+        return;
+      }
+
       // clear the buffer
       buffer.clear();
       // reload initial buffer
-      channel.position(0);
-      channel.read(buffer);
+      if (blockChannel != null) {
+        blockChannel.close();
+        blockChannel = openBlockChannel();
+      } else {
+        channel.position(0);
+      }
+      readBuffer();
       buffer.flip();
     }
 
     @Override
     public void close() throws IOException {
-      channel.close();
+      if (mmap) {
+        unmap(buffer);
+        buffer = null;
+      }
+      if (blockChannel != null) {
+        blockChannel.close();
+      } else {
+        channel.close();
+      }
     }
 
     @Override
     public boolean isProjectable() {
-      return false;
+      return true;
     }
 
     @Override
@@ -251,7 +465,12 @@ public class RawFile {
   public static class RawFileAppender extends FileAppender {
     private FileChannel channel;
     private RandomAccessFile randomAccessFile;
+    private BlockCompressedOutputStream blockOut;
     private DataType[] columnTypes;
+    // if mmap is enabled, the buffer is a window of the file from windowStart.
+    private boolean mmap;
+    private int windowSize;
+    private long windowStart;
 
     private ByteBuffer buffer;
     private BitArray nullFlags;
@@ -271,13 +490,25 @@ public class RawFile {
       File file = new File(path.toUri());
       randomAccessFile = new RandomAccessFile(file, "rw");
       channel = randomAccessFile.getChannel();
+      CompressionCodec codec = BlockCompression.getCodec(conf, meta);
+      if (codec != null) {
+        blockOut = new BlockCompressedOutputStream(
+            Channels.newOutputStream(channel), codec,
+            BlockCompression.getBlockSize(conf));
+      }
+      mmap = isMmapEnabled(meta, codec);
 
       columnTypes = new DataType[schema.getColumnNum()];
       for (int i = 0; i < schema.getColumnNum(); i++) {
         columnTypes[i] = schema.getColumn(i).getDataType();
       }
 
-      buffer = ByteBuffer.allocateDirect(65535);
+      if (mmap) {
+        windowSize = getMmapWindowSize(conf, meta);
+        map(0);
+      } else {
+        buffer = ByteBuffer.allocateDirect(65535);
+      }
 
       // comput the number of bytes, representing the null flags
       numBitsOfNullFlags = (int) Math.ceil((double)schema.getColumnNum());
@@ -291,29 +522,75 @@ public class RawFile {
       super.init();
     }
 
+    /**
+     * Maps the window of the file from a given offset after unmapping the
+     * previous window. The file is extended to the end of the window, and
+     * it is truncated when it is closed.
+     */
+    private void map(long offset) throws IOException {
+      unmap(buffer);
+      buffer = null;
+      windowStart = offset;
+      buffer = channel.map(MapMode.READ_WRITE, offset, windowSize);
+    }
+
     @Override
     public long getOffset() throws IOException {
-      return channel.position();
+      if (blockOut != null) {
+        throw new UnsupportedOperationException(
+            "Cannot get an offset in a compressed file");
+      }
+      if (mmap) {
+        return windowStart + buffer.position();
+      } else {
+        // the buffered records are written at the current channel position.
+        return channel.position() + buffer.position();
+      }
     }
 
     private void flushBuffer() throws IOException {
+      if (mmap) {
+        // the written bytes are already in the file.
+        map(windowStart + buffer.position());
+        return;
+      }
+
       buffer.limit(buffer.position());
       buffer.flip();
-      channel.write(buffer);
+      writeRecords();
       buffer.clear();
     }
 
+    /**
+     * Writes the remaining bytes of the buffer, which are whole records.
+     */
+    private void writeRecords() throws IOException {
+      if (blockOut != null) {
+        blockOut.write(buffer);
+        blockOut.endRecord();
+      } else {
+        channel.write(buffer);
+      }
+    }
+
     private boolean flushBufferAndReplace(int recordOffset, int sizeToBeWritten)
         throws IOException {
 
       // if the buffer reaches the limit,
       // write the bytes from 0 to the previous record.
       if (buffer.remaining() < sizeToBeWritten) {
+        if (mmap) {
+          // the next window starts from the current record.
+          int pos = buffer.position();
+          map(windowStart + recordOffset);
+          buffer.position(pos - recordOffset);
+          return true;
+        }
 
         int limit = buffer.position();
         buffer.limit(recordOffset);
         buffer.flip();
-        channel.write(buffer);
+        writeRecords();
         buffer.position(recordOffset);
         buffer.limit(limit);
         buffer.compact();
@@ -444,13 +721,35 @@ public class RawFile {
 
     @Override
     public void flush() throws IOException {
+      if (mmap) {
+        ((MappedByteBuffer) buffer).force();
+        return;
+      }
+
       flushBuffer();
+      if (blockOut != null) {
+        blockOut.flush();
+      }
       channel.force(true);
     }
 
     @Override
     public void close() throws IOException {
+      if (mmap) {
+        // removes the unwritten area of the last window, which must be
+        // unmapped before the file is truncated.
+        long length = windowStart + buffer.position();
+        unmap(buffer);
+        buffer = null;
+        channel.truncate(length);
+        randomAccessFile.close();
+        return;
+      }
+
       flush();
+      if (blockOut != null) {
+        blockOut.close();
+      }
       randomAccessFile.close();
     }
 
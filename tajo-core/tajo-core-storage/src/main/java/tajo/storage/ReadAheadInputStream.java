@@ -0,0 +1,341 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.*;
+import tajo.conf.TajoConf.ConfVars;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+
+/**
+ * An input stream which reads the blocks of a byte range of a file ahead on
+ * a shared I/O thread pool, so that a scanner decodes a block while the next
+ * blocks are read from the disk.
+ *
+ * The blocks of the range are read into a ring of at most (depth + 1)
+ * buffers: one being consumed, and the others being filled in the
+ * background. A seek out of the prefetched blocks restarts the ring at the
+ * new position. The bytes out of the range, such as a file header or the
+ * rest of the last record, are read synchronously.
+ */
+public class ReadAheadInputStream extends FSInputStream
+    implements ByteBufferReadable {
+  private static final int SYNC_READ_SIZE = 64 * 1024;
+  private static ExecutorService ioThreadPool;
+
+  private final FSDataInputStream in;
+  private final long start;
+  private final long end;
+  private final int blockSize;
+  private final int depth;
+  private final ExecutorService executor;
+
+  private final Deque<Block> prefetched = new ArrayDeque<Block>();
+  private final Deque<Block> free = new ArrayDeque<Block>();
+  private Block current;
+  private long pos;
+  private long nextPrefetch;
+
+  /**
+   * Opens a file whose bytes from start to end are read ahead, or opens it
+   * as is if the read-ahead is disabled.
+   */
+  public static FSDataInputStream open(Configuration conf, FileSystem fs,
+                                       Path path, long start, long end)
+      throws IOException {
+    FSDataInputStream in = fs.open(path);
+    if (!conf.getBoolean(ConfVars.READ_AHEAD_ENABLED.varname,
+        ConfVars.READ_AHEAD_ENABLED.defaultBoolVal)) {
+      return in;
+    }
+
+    long length = fs.getFileStatus(path).getLen();
+    return new FSDataInputStream(new ReadAheadInputStream(in, start,
+        Math.min(end, length),
+        conf.getInt(ConfVars.READ_AHEAD_BLOCK_SIZE.varname,
+            ConfVars.READ_AHEAD_BLOCK_SIZE.defaultIntVal),
+        conf.getInt(ConfVars.READ_AHEAD_DEPTH.varname,
+            ConfVars.READ_AHEAD_DEPTH.defaultIntVal),
+        getIOThreadPool(conf)));
+  }
+
+  private static synchronized ExecutorService getIOThreadPool(
+      Configuration conf) {
+    if (ioThreadPool == null) {
+      ThreadFactory factory = new ThreadFactoryBuilder()
+          .setNameFormat("Read-ahead I/O #%d")
+          .setDaemon(true)
+          .build();
+      ioThreadPool = Executors.newFixedThreadPool(
+          conf.getInt(ConfVars.READ_AHEAD_THREADS.varname,
+              ConfVars.READ_AHEAD_THREADS.defaultIntVal), factory);
+    }
+    return ioThreadPool;
+  }
+
+  public ReadAheadInputStream(FSDataInputStream in, long start, long end,
+                              int blockSize, int depth,
+                              ExecutorService executor) {
+    this.in = in;
+    this.start = start;
+    this.end = end;
+    this.blockSize = blockSize;
+    this.depth = Math.max(1, depth);
+    this.executor = executor;
+  }
+
+  /**
+   * A buffer holding the bytes of a file from an offset.
+   */
+  private class Block implements Runnable {
+    private final byte [] data = new byte[blockSize];
+    private long offset;
+    // -1 if the offset is the end of file
+    private int length;
+    private IOException error;
+    private Future<?> future;
+
+    private void reset(long offset) {
+      this.offset = offset;
+      this.length = 0;
+      this.error = null;
+      this.future = null;
+    }
+
+    private boolean contains(long position) {
+      return position >= offset && position < offset + length;
+    }
+
+    private void read(int len) {
+      try {
+        int read;
+        length = 0;
+        while (length < len) {
+          read = in.read(offset + length, data, length, len - length);
+          if (read < 0) {
+            break;
+          }
+          length += read;
+        }
+        if (length == 0) {
+          length = -1;
+        }
+      } catch (IOException e) {
+        error = e;
+      }
+    }
+
+    @Override
+    public void run() {
+      read(data.length);
+    }
+  }
+
+  private Block newBlock(long offset) {
+    Block block = free.isEmpty() ? new Block() : free.poll();
+    block.reset(offset);
+    return block;
+  }
+
+  private void release(Block block) {
+    if (block != null) {
+      free.add(block);
+    }
+  }
+
+  /**
+   * Submits the reads of the next blocks in the range up to the depth.
+   */
+  private void prefetch() {
+    Block block;
+    while (prefetched.size() < depth && nextPrefetch < end) {
+      block = newBlock(nextPrefetch);
+      block.future = executor.submit(block);
+      prefetched.add(block);
+      nextPrefetch += blockSize;
+    }
+  }
+
+  private Block await(Block block) throws IOException {
+    try {
+      block.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading ahead");
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    if (block.error != null) {
+      throw block.error;
+    }
+    return block;
+  }
+
+  /**
+   * Cancels the prefetched blocks. The running reads are waited for because
+   * their buffers are reused.
+   */
+  private void cancel() throws IOException {
+    Block block;
+    while ((block = prefetched.poll()) != null) {
+      if (!block.future.cancel(false)) {
+        try {
+          block.future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading ahead");
+        } catch (ExecutionException e) {
+          // it is ignored because the block is discarded.
+        }
+      }
+      release(block);
+    }
+  }
+
+  /**
+   * Makes the current block contain the position.
+   *
+   * @return false if the position is the end of file
+   */
+  private boolean locate() throws IOException {
+    if (current != null && current.contains(pos)) {
+      return true;
+    }
+
+    // the prefetched blocks before the position are passed over.
+    while (!prefetched.isEmpty() && prefetched.peek().offset <= pos) {
+      Block block = await(prefetched.poll());
+      release(current);
+      current = block;
+      prefetch();
+      if (current.contains(pos)) {
+        return true;
+      }
+    }
+
+    // the position is not prefetched because of a seek or out of the range.
+    cancel();
+    release(current);
+    if (pos >= start && pos < end) {
+      nextPrefetch = pos;
+      prefetch();
+      current = await(prefetched.poll());
+      prefetch();
+    } else {
+      current = newBlock(pos);
+      current.read(Math.min(SYNC_READ_SIZE, blockSize));
+      if (current.error != null) {
+        throw current.error;
+      }
+    }
+    return current.contains(pos);
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!locate()) {
+      return -1;
+    }
+    return current.data[(int) (pos++ - current.offset)] & 0xff;
+  }
+
+  @Override
+  public int read(byte [] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!locate()) {
+      return -1;
+    }
+    int n = Math.min(len, (int) (current.offset + current.length - pos));
+    System.arraycopy(current.data, (int) (pos - current.offset), b, off, n);
+    pos += n;
+    return n;
+  }
+
+  @Override
+  public int read(ByteBuffer buf) throws IOException {
+    if (!buf.hasRemaining()) {
+      return 0;
+    }
+    if (!locate()) {
+      return -1;
+    }
+    int n = Math.min(buf.remaining(),
+        (int) (current.offset + current.length - pos));
+    buf.put(current.data, (int) (pos - current.offset), n);
+    pos += n;
+    return n;
+  }
+
+  @Override
+  public int read(long position, byte [] b, int off, int len)
+      throws IOException {
+    return in.read(position, b, off, len);
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (current != null && current.contains(pos)) {
+      return (int) (current.offset + current.length - pos);
+    }
+    return 0;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    if (n <= 0) {
+      return 0;
+    }
+    pos += n;
+    return n;
+  }
+
+  @Override
+  public void seek(long position) throws IOException {
+    // a negative position is ignored like the checksum file system does.
+    if (position >= 0) {
+      pos = position;
+    }
+  }
+
+  @Override
+  public long getPos() throws IOException {
+    return pos;
+  }
+
+  @Override
+  public boolean seekToNewSource(long targetPos) throws IOException {
+    return false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    cancel();
+    in.close();
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
 import tajo.catalog.Column;
 import tajo.catalog.TableMeta;
 import tajo.catalog.statistics.TableStat;
@@ -33,12 +34,18 @@ import tajo.datum.ArrayDatum;
 import tajo.datum.Datum;
 import tajo.datum.DatumFactory;
 import tajo.datum.json.GsonCreator;
+import tajo.storage.compress.BlockCompressedInputStream;
+import tajo.storage.compress.BlockCompressedOutputStream;
+import tajo.storage.compress.BlockCompression;
 import tajo.storage.exception.AlreadyExistsStorageException;
 import tajo.util.BitArray;
 
+import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -55,7 +62,10 @@ public class RowFile {
   public static class RowFileScanner extends FileScanner {
     private FileSystem fs;
     private FSDataInputStream in;
-    private Tuple tuple;
+    private final CompressionCodec codec;
+    // the decompressed rows if the file is compressed
+    private ReadableByteChannel blockChannel;
+    private MutableTuple tuple;
 
     private byte[] sync = new byte[SYNC_HASH_SIZE];
     private byte[] checkSync = new byte[SYNC_HASH_SIZE];
@@ -64,8 +74,11 @@ public class RowFile {
     private ByteBuffer buffer;
     private final int tupleHeaderSize;
     private BitArray nullFlags;
+    private byte [] nullFlagBytes;
     private int numBitsOfNullFlags;
     private long bufferStartPos;
+    private boolean [] projected;
+    private int lastProjected;
 
     public RowFileScanner(Configuration conf, final TableMeta meta,
                           final Fragment fragment) throws IOException {
@@ -77,6 +90,8 @@ public class RowFile {
       numBitsOfNullFlags = (int) Math.ceil(((double)schema.getColumnNum()));
       nullFlags = new BitArray(numBitsOfNullFlags);
       tupleHeaderSize = nullFlags.size() + (2 * Short.SIZE/8);
+      tuple = new MutableTuple(schema);
+      codec = BlockCompression.getCodec(conf, meta);
       this.start = fragment.getStartOffset();
       this.end = this.start + fragment.getLength();
     }
@@ -84,12 +99,28 @@ public class RowFile {
     public void init() throws IOException {
       // set default page size.
       fs = fragment.getPath().getFileSystem(conf);
-      in = fs.open(fragment.getPath());
+      in = ReadAheadInputStream.open(conf, fs, fragment.getPath(), start, end);
       buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE * schema.getColumnNum());
       buffer.flip();
 
+      if (targets == null) {
+        targets = schema.toArray();
+      }
+      prepareProjection(targets);
+
       readHeader();
 
+      if (codec != null) {
+        // the rows of the blocks in this fragment are all read, and the rows
+        // are not separated by the syncs of this file.
+        blockChannel = Channels.newChannel(new BlockCompressedInputStream(in,
+            codec, in.getPos(), start, end));
+        bufferStartPos = 0;
+        fillBuffer();
+        super.init();
+        return;
+      }
+
       // find the correct position from the start
       if (this.start > in.getPos()) {
         long realStart = start > SYNC_SIZE ? (start-SYNC_SIZE) : 0;
@@ -120,6 +151,19 @@ public class RowFile {
       super.init();
     }
 
+    private void prepareProjection(Column [] targets) {
+      projected = new boolean[schema.getColumnNum()];
+      lastProjected = -1;
+      int tid;
+      for (Column target : targets) {
+        tid = schema.getColumnIdByName(target.getColumnName());
+        if (tid >= 0) {
+          projected[tid] = true;
+          lastProjected = Math.max(lastProjected, tid);
+        }
+      }
+    }
+
     private void readHeader() throws IOException {
       SYNC_INTERVAL = in.readInt();
       in.read(this.sync, 0, SYNC_HASH_SIZE);
@@ -141,14 +185,14 @@ public class RowFile {
       bufferStartPos += buffer.position();
       buffer.compact();
       int remain = buffer.remaining();
-      int read = in.read(buffer);
+      int read = readBuffer();
       if (read == -1) {
         buffer.flip();
         return read;
       } else {
         int totalRead = read;
         if (remain > totalRead) {
-          read = in.read(buffer);
+          read = readBuffer();
           totalRead += read > 0 ? read : 0;
         }
         buffer.flip();
@@ -156,20 +200,31 @@ public class RowFile {
       }
     }
 
+    private int readBuffer() throws IOException {
+      if (blockChannel != null) {
+        return blockChannel.read(buffer);
+      } else {
+        return in.read(buffer);
+      }
+    }
+
     @Override
     public Tuple next() throws IOException {
-      while (buffer.remaining() < SYNC_SIZE) {
-        if (fillBuffer() < 0) {
-          return null;
+      // a compressed file has no sync between rows.
+      if (codec == null) {
+        while (buffer.remaining() < SYNC_SIZE) {
+          if (fillBuffer() < 0) {
+            return null;
+          }
         }
-      }
 
-      buffer.mark();
-      if (!checkSync()) {
-        buffer.reset();
-      } else {
-        if (bufferStartPos + buffer.position() > end) {
-          return null;
+        buffer.mark();
+        if (!checkSync()) {
+          buffer.reset();
+        } else {
+          if (bufferStartPos + buffer.position() > end) {
+            return null;
+          }
         }
       }
 
@@ -180,12 +235,14 @@ public class RowFile {
       }
 
       int i;
-      tuple = new VTuple(schema.getColumnNum());
+      tuple.clear();
 
       int nullFlagSize = buffer.getShort();
-      byte[] nullFlagBytes = new byte[nullFlagSize];
+      if (nullFlagBytes == null || nullFlagBytes.length != nullFlagSize) {
+        nullFlagBytes = new byte[nullFlagSize];
+        nullFlags = new BitArray(nullFlagBytes);
+      }
       buffer.get(nullFlagBytes, 0, nullFlagSize);
-      nullFlags = new BitArray(nullFlagBytes);
       int tupleSize = buffer.getShort();
 
       while (buffer.remaining() < (tupleSize)) {
@@ -194,81 +251,61 @@ public class RowFile {
         }
       }
 
-      Datum datum;
+      int tupleStart = buffer.position();
       Column col;
-      for (i = 0; i < schema.getColumnNum(); i++) {
+      // the fields after the last projected one are skipped at once.
+      for (i = 0; i <= lastProjected; i++) {
+        if (!projected[i]) {
+          if (!nullFlags.get(i)) {
+            skipField(schema.getColumn(i));
+          }
+          continue;
+        }
+
         if (!nullFlags.get(i)) {
           col = schema.getColumn(i);
           switch (col.getDataType().getType()) {
             case BOOLEAN :
-              datum = DatumFactory.createBool(buffer.get());
-              tuple.put(i, datum);
+              tuple.put(i, DatumFactory.createBool(buffer.get()));
               break;
 
             case BIT:
-              datum = DatumFactory.createBit(buffer.get());
-              tuple.put(i, datum );
+              tuple.put(i, DatumFactory.createBit(buffer.get()));
               break;
 
             case CHAR :
-              datum = DatumFactory.createChar(buffer.getChar());
-              tuple.put(i, datum);
+              tuple.put(i, DatumFactory.createChar(buffer.getChar()));
               break;
 
             case INT2 :
-              datum = DatumFactory.createInt2(buffer.getShort());
-              tuple.put(i, datum );
+              tuple.putLong(i, buffer.getShort());
               break;
 
             case INT4 :
-              datum = DatumFactory.createInt4(buffer.getInt());
-              tuple.put(i, datum );
+              tuple.putLong(i, buffer.getInt());
               break;
 
             case INT8 :
-              datum = DatumFactory.createInt8(buffer.getLong());
-              tuple.put(i, datum );
+              tuple.putLong(i, buffer.getLong());
               break;
 
             case FLOAT4 :
-              datum = DatumFactory.createFloat4(buffer.getFloat());
-              tuple.put(i, datum);
+              tuple.putDouble(i, buffer.getFloat());
               break;
 
             case FLOAT8 :
-              datum = DatumFactory.createFloat8(buffer.getDouble());
-              tuple.put(i, datum);
+              tuple.putDouble(i, buffer.getDouble());
               break;
 
-//            case TEXT :
-//              short len = buffer.getShort();
-//              byte[] buf = new byte[len];
-//              buffer.get(buf, 0, len);
-//              datum = DatumFactory.createText(buf);
-//              tuple.put(i, datum);
-//              break;
-
             case TEXT:
-              short bytelen = buffer.getShort();
-              byte[] strbytes = new byte[bytelen];
-              buffer.get(strbytes, 0, bytelen);
-              datum = DatumFactory.createText(strbytes);
-              tuple.put(i, datum);
-              break;
-
             case BLOB:
-              short bytesLen = buffer.getShort();
-              byte [] bytesBuf = new byte[bytesLen];
-              buffer.get(bytesBuf);
-              datum = DatumFactory.createBlob(bytesBuf);
-              tuple.put(i, datum);
+              tuple.putBytes(i, buffer, buffer.getShort());
               break;
 
             case INET4 :
               byte[] ipv4 = new byte[4];
               buffer.get(ipv4, 0, 4);
-              datum = DatumFactory.createInet4(ipv4);
-              tuple.put(i, datum);
+              tuple.put(i, DatumFactory.createInet4(ipv4));
               break;
 
             case ARRAY:
@@ -284,10 +321,46 @@ public class RowFile {
               break;
           }
         } else {
-          tuple.put(i, DatumFactory.createNullDatum());
+          tuple.putNull(i);
         }
       }
-      return tuple;
+      buffer.position(tupleStart + tupleSize);
+
+      if (reuseTuple) {
+        return tuple;
+      } else {
+        return new VTuple(tuple);
+      }
+    }
+
+    private void skipField(Column col) {
+      switch (col.getDataType().getType()) {
+        case BOOLEAN:
+        case BIT:
+          buffer.position(buffer.position() + 1);
+          break;
+        case CHAR:
+        case INT2:
+          buffer.position(buffer.position() + 2);
+          break;
+        case INT4:
+        case FLOAT4:
+        case INET4:
+          buffer.position(buffer.position() + 4);
+          break;
+        case INT8:
+        case FLOAT8:
+          buffer.position(buffer.position() + 8);
+          break;
+        case TEXT:
+        case BLOB:
+        case ARRAY:
+          short len = buffer.getShort();
+          buffer.position(buffer.position() + len);
+          break;
+        default:
+          break;
+      }
     }
 
     @Override
@@ -297,14 +370,16 @@ public class RowFile {
 
     @Override
     public void close() throws IOException {
-      if (in != null) {
+      if (blockChannel != null) {
+        blockChannel.close();
+      } else if (in != null) {
         in.close();
       }
     }
 
     @Override
     public boolean isProjectable() {
-      return false;
+      return true;
     }
 
     @Override
@@ -315,6 +390,9 @@ public class RowFile {
 
   public static class RowFileAppender extends FileAppender {
     private FSDataOutputStream out;
+    // the stream of the rows, which is out if the file is not compressed
+    private DataOutputStream rowOut;
+    private BlockCompressedOutputStream blockOut;
     private long lastSyncPos;
     private FileSystem fs;
     private byte[] sync;
@@ -360,6 +438,16 @@ public class RowFile {
 
       writeHeader();
 
+      CompressionCodec codec = BlockCompression.getCodec(conf, meta);
+      if (codec != null) {
+        // the blocks have their own syncs instead of those of this file.
+        blockOut = new BlockCompressedOutputStream(out, codec,
+            BlockCompression.getBlockSize(conf));
+        rowOut = new DataOutputStream(blockOut);
+      } else {
+        rowOut = out;
+      }
+
       buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
 
       numBitsOfNullFlags = (int) Math.ceil(((double)schema.getColumnNum()));
@@ -379,7 +467,9 @@ public class RowFile {
 
     @Override
     public void addTuple(Tuple t) throws IOException {
-      checkAndWriteSync();
+      if (blockOut == null) {
+        checkAndWriteSync();
+      }
       Column col;
 
       buffer.clear();
@@ -475,13 +565,16 @@ public class RowFile {
       }
 
       byte[] bytes = nullFlags.toArray();
-      out.writeShort(bytes.length);
-      out.write(bytes);
+      rowOut.writeShort(bytes.length);
+      rowOut.write(bytes);
 
       bytes = buffer.array();
       int dataLen = buffer.position();
-      out.writeShort(dataLen);
-      out.write(bytes, 0, dataLen);
+      rowOut.writeShort(dataLen);
+      rowOut.write(bytes, 0, dataLen);
+      if (blockOut != null) {
+        blockOut.endRecord();
+      }
 
       // Statistical section
       if (enabledStats) {
@@ -496,18 +589,23 @@ public class RowFile {
 
     @Override
     public void flush() throws IOException {
-      out.flush();
+      rowOut.flush();
     }
 
     @Override
     public void close() throws IOException {
       if (out != null) {
+        if (blockOut != null) {
+          blockOut.flush();
+        }
         if (enabledStats) {
           stats.setNumBytes(out.getPos());
         }
-        sync();
-        out.flush();
-        out.close();
+        if (blockOut == null) {
+          sync();
+        }
+        rowOut.flush();
+        rowOut.close();
       }
     }
 
@@ -84,4 +84,13 @@ public interface Scanner extends SchemaObject, Closeable {
    * TODO - to be changed Object type
    */
   void setSearchCondition(Object expr);
+
+  /**
+   * Makes the scanner fill and return the same tuple for every row if it
+   * supports it. Then, the tuple returned by {@link #next()} is valid only
+   * until the next call, and a caller should copy it in order to keep it.
+   *
+   * @param reuse true if the tuple can be reused
+   */
+  void setReuseTuple(boolean reuse);
 }
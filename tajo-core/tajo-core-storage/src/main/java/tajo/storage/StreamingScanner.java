@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.apache.hadoop.conf.Configuration;
+import tajo.catalog.Column;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+
+import java.io.IOException;
+
+/**
+ * A scanner which reads the fragments of a {@link FragmentQueue} in the
+ * order of their arrival. It blocks until the next fragment arrives, so the
+ * operators over it start working on the first fragments while the later
+ * ones are still being fetched.
+ */
+public class StreamingScanner implements Scanner {
+  private final Configuration conf;
+  private final TableMeta meta;
+  private final FragmentQueue queue;
+  private int nextIdx = 0;
+  private Scanner currentScanner;
+  private Tuple tuple;
+  private boolean reuseTuple = false;
+  private Column [] targets;
+  private Object searchCondition;
+
+  public StreamingScanner(Configuration conf, TableMeta meta,
+                          FragmentQueue queue) {
+    this.conf = conf;
+    this.meta = meta;
+    this.queue = queue;
+  }
+
+  @Override
+  public void init() throws IOException {
+  }
+
+  @Override
+  public Tuple next() throws IOException {
+    // a fragment may have no tuple, e.g., if all its blocks are skipped.
+    while (true) {
+      if (currentScanner != null) {
+        tuple = currentScanner.next();
+        if (tuple != null) {
+          return tuple;
+        }
+        currentScanner.close();
+        currentScanner = null;
+      }
+
+      Fragment fragment = queue.get(nextIdx);
+      if (fragment == null) {
+        return null;
+      }
+      nextIdx++;
+      currentScanner = getScanner(fragment);
+      currentScanner.init();
+    }
+  }
+
+  @Override
+  public void reset() throws IOException {
+    if (currentScanner != null) {
+      currentScanner.close();
+      currentScanner = null;
+    }
+    nextIdx = 0;
+  }
+
+  private Scanner getScanner(Fragment fragment) throws IOException {
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment);
+    scanner.setReuseTuple(reuseTuple);
+    if (targets != null && scanner.isProjectable()) {
+      scanner.setTarget(targets);
+    }
+    if (searchCondition != null && scanner.isSelectable()) {
+      scanner.setSearchCondition(searchCondition);
+    }
+    return scanner;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (currentScanner != null) {
+      currentScanner.close();
+      currentScanner = null;
+    }
+  }
+
+  @Override
+  public boolean isProjectable() {
+    return true;
+  }
+
+  /**
+   * The targets are given to each underlying scanner if it is projectable.
+   */
+  @Override
+  public void setTarget(Column[] targets) {
+    this.targets = targets;
+  }
+
+  @Override
+  public boolean isSelectable() {
+    return true;
+  }
+
+  /**
+   * The search condition is given to each underlying scanner if it is
+   * selectable.
+   */
+  @Override
+  public void setSearchCondition(Object expr) {
+    this.searchCondition = expr;
+  }
+
+  @Override
+  public void setReuseTuple(boolean reuse) {
+    this.reuseTuple = reuse;
+  }
+
+  @Override
+  public Schema getSchema() {
+    return meta.getSchema();
+  }
+}
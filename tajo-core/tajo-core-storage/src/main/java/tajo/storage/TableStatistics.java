@@ -20,6 +20,8 @@ package tajo.storage;
 
 import tajo.catalog.Schema;
 import tajo.catalog.statistics.ColumnStat;
+import tajo.catalog.statistics.Histogram;
+import tajo.catalog.statistics.HyperLogLog;
 import tajo.catalog.statistics.TableStat;
 import tajo.common.TajoDataTypes;
 import tajo.common.TajoDataTypes.DataType;
@@ -27,8 +29,17 @@ import tajo.common.TajoDataTypes.Type;
 import tajo.datum.Datum;
 import tajo.datum.NullDatum;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 /**
  * This class is not thread-safe.
+ *
+ * Besides the minimum and maximum values, it keeps a {@link HyperLogLog}
+ * sketch of the distinct values of each column, and a reservoir sample of
+ * the values of each numeric or TEXT column, from which an equi-depth
+ * {@link Histogram} is built.
  */
 public class TableStatistics {
   private Schema schema;
@@ -41,6 +52,28 @@ public class TableStatistics {
 
   private boolean [] comparable;
 
+  private static final int SAMPLE_SIZE = 1024;
+  private HyperLogLog [] sketches;
+  // the reservoir samples, which are null for the columns without histograms
+  private List<Datum> [] samples;
+  private long [] numValues;
+  private final Random random = new Random(0);
+
+  private static boolean hasHistogram(Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+      case FLOAT4:
+      case FLOAT8:
+      case TEXT:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
   public TableStatistics(Schema schema) {
     this.schema = schema;
     minValues = new VTuple(schema.getColumnNum());
@@ -52,6 +85,9 @@ public class TableStatistics {
 
     numNulls = new long[schema.getColumnNum()];
     comparable = new boolean[schema.getColumnNum()];
+    sketches = new HyperLogLog[schema.getColumnNum()];
+    samples = new List[schema.getColumnNum()];
+    numValues = new long[schema.getColumnNum()];
 
     DataType type;
     for (int i = 0; i < schema.getColumnNum(); i++) {
@@ -60,6 +96,10 @@ public class TableStatistics {
         comparable[i] = false;
       } else {
         comparable[i] = true;
+        sketches[i] = new HyperLogLog();
+      }
+      if (hasHistogram(type.getType())) {
+        samples[i] = new ArrayList<Datum>();
       }
     }
   }
@@ -100,6 +140,19 @@ public class TableStatistics {
             minValues.get(idx).compareTo(datum) > 0) {
           minValues.put(idx, datum);
         }
+        sketches[idx].offer(datum.asByteArray());
+      }
+    }
+
+    numValues[idx]++;
+    if (samples[idx] != null) {
+      if (samples[idx].size() < SAMPLE_SIZE) {
+        samples[idx].add(datum);
+      } else {
+        long r = (long) (random.nextDouble() * numValues[idx]);
+        if (r < SAMPLE_SIZE) {
+          samples[idx].set((int) r, datum);
+        }
       }
     }
   }
@@ -113,6 +166,15 @@ public class TableStatistics {
       columnStat.setNumNulls(numNulls[i]);
       columnStat.setMinValue(minValues.get(i));
       columnStat.setMaxValue(maxValues.get(i));
+      if (sketches[i] != null) {
+        columnStat.setNdvSketch(sketches[i]);
+        columnStat.setNumDistVals(sketches[i].estimate());
+      }
+      if (samples[i] != null && samples[i].size() > 0) {
+        columnStat.setHistogram(Histogram.build(
+            new ArrayList<Datum>(samples[i]), numValues[i],
+            Histogram.DEFAULT_NUM_BUCKETS));
+      }
       stat.addColumnStat(columnStat);
     }
 
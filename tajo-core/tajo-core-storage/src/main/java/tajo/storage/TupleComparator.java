@@ -100,8 +100,14 @@ public class TupleComparator implements Comparator<Tuple>, ProtoObject<TupleComp
       } else {
         if (asc[i]) {
           compVal = left.compareTo(right);
+          if (compVal == 0) {
+            compVal = compareNaN(left, right);
+          }
         } else {
           compVal = right.compareTo(left);
+          if (compVal == 0) {
+            compVal = compareNaN(right, left);
+          }
         }
       }
 
@@ -112,6 +118,26 @@ public class TupleComparator implements Comparator<Tuple>, ProtoObject<TupleComp
     return 0;
   }
 
+  /**
+   * Float datums regard NaN as equal to any value. NaN is ordered after all
+   * the other values instead, so that the order is total.
+   */
+  private static int compareNaN(Datum left, Datum right) {
+    boolean leftNaN = isNaN(left);
+    boolean rightNaN = isNaN(right);
+    return leftNaN == rightNaN ? 0 : (leftNaN ? 1 : -1);
+  }
+
+  private static boolean isNaN(Datum datum) {
+    switch (datum.type()) {
+      case FLOAT4:
+      case FLOAT8:
+        return Double.isNaN(datum.asFloat8());
+      default:
+        return false;
+    }
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof TupleComparator) {
@@ -35,8 +35,14 @@ public class VTuple implements Tuple {
 
   public VTuple(Tuple tuple) {
     this.values = new Datum[tuple.size()];
-    System.arraycopy(((VTuple)tuple).values, 0, values, 0, tuple.size());
-    this.offset = ((VTuple)tuple).offset;
+    if (tuple instanceof VTuple) {
+      System.arraycopy(((VTuple)tuple).values, 0, values, 0, tuple.size());
+    } else {
+      for (int i = 0; i < values.length; i++) {
+        values[i] = tuple.get(i);
+      }
+    }
+    this.offset = tuple.getOffset();
   }
 
   public VTuple(Datum [] datum) {
@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage.compress;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.Decompressor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An input stream decompressing the blocks written by
+ * {@link BlockCompressedOutputStream}. It reads only the blocks whose sync
+ * markers are placed in a given range of a file.
+ *
+ * If a file is read from its beginning, it can be a concatenation of
+ * streams, each of which begins with its own header.
+ *
+ * @see BlockCompression
+ */
+public class BlockCompressedInputStream extends InputStream {
+  private static final int SEARCH_BUFFER_SIZE = 64 * 1024;
+
+  private final FSDataInputStream in;
+  private final CompressionCodec codec;
+  private Decompressor decompressor;
+  private final byte [] sync = new byte[BlockCompression.SYNC_SIZE];
+  private final byte [] checkSync = new byte[BlockCompression.SYNC_SIZE];
+  private final long end;
+  // the offset of the next block, or -1 if no block remains
+  private long blockPos;
+
+  private byte [] compressed = new byte[0];
+  private byte [] buf = new byte[0];
+  private int pos;
+  private int limit;
+
+  /**
+   * @param in the file
+   * @param codec the codec compressing the blocks
+   * @param headerOffset the offset where the blocks of the file begin with
+   *                     their header
+   * @param start the start offset of the range
+   * @param end the end offset of the range
+   */
+  public BlockCompressedInputStream(FSDataInputStream in, CompressionCodec codec,
+                                    long headerOffset, long start, long end)
+      throws IOException {
+    this.in = in;
+    this.codec = codec;
+    this.decompressor = CodecPool.getDecompressor(codec);
+    this.end = end;
+
+    in.seek(headerOffset);
+    if (in.readInt() != BlockCompression.MAGIC) {
+      throw new IOException("Not a block compressed file");
+    }
+    in.readFully(sync);
+
+    if (start <= in.getPos()) {
+      blockPos = in.getPos();
+    } else {
+      blockPos = findSync(start);
+      if (blockPos >= 0) {
+        in.seek(blockPos);
+      }
+    }
+  }
+
+  /**
+   * @return the offset of the first sync marker from the given offset, or -1
+   * if no sync marker is found before the end of the range
+   */
+  private long findSync(long from) throws IOException {
+    in.seek(from);
+    byte [] window = new byte[SEARCH_BUFFER_SIZE];
+    long windowOffset = from;
+    int len = 0;
+    int read;
+    while (windowOffset < end) {
+      read = in.read(window, len, window.length - len);
+      if (read < 0) {
+        return -1;
+      }
+      len += read;
+
+      for (int i = 0; i + sync.length <= len; i++) {
+        if (matchSync(window, i)) {
+          return windowOffset + i;
+        }
+      }
+
+      // keeps the bytes which can be the beginning of a sync marker
+      int keep = Math.min(len, sync.length - 1);
+      System.arraycopy(window, len - keep, window, 0, keep);
+      windowOffset += len - keep;
+      len = keep;
+    }
+    return -1;
+  }
+
+  private boolean matchSync(byte [] bytes, int start) {
+    for (int i = 0; i < sync.length; i++) {
+      if (bytes[start + i] != sync[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean nextBlock() throws IOException {
+    if (blockPos < 0 || blockPos >= end) {
+      return false;
+    }
+
+    int first = in.read();
+    if (first < 0) {
+      blockPos = -1;
+      return false;
+    }
+    checkSync[0] = (byte) first;
+    in.readFully(checkSync, 1, checkSync.length - 1);
+    if (!Arrays.equals(sync, checkSync)) {
+      if (ByteBuffer.wrap(checkSync).getInt() != BlockCompression.MAGIC) {
+        throw new IOException("Invalid sync marker at " + blockPos);
+      }
+      // the header of another stream concatenated to the previous one
+      int read = checkSync.length - 4;
+      System.arraycopy(checkSync, 4, sync, 0, read);
+      in.readFully(sync, read, sync.length - read);
+      blockPos += 4 + sync.length;
+      return nextBlock();
+    }
+
+    int rawLength = in.readInt();
+    int compressedLength = in.readInt();
+    if (compressed.length < compressedLength) {
+      compressed = new byte[compressedLength];
+    }
+    in.readFully(compressed, 0, compressedLength);
+    if (buf.length < rawLength) {
+      buf = new byte[rawLength];
+    }
+
+    decompressor.reset();
+    CompressionInputStream cin = codec.createInputStream(
+        new ByteArrayInputStream(compressed, 0, compressedLength), decompressor);
+    IOUtils.readFully(cin, buf, 0, rawLength);
+
+    blockPos += sync.length + 8 + compressedLength;
+    pos = 0;
+    limit = rawLength;
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (pos >= limit) {
+      if (!nextBlock()) {
+        return -1;
+      }
+    }
+    return buf[pos++] & 0xff;
+  }
+
+  @Override
+  public int read(byte [] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (pos >= limit) {
+      if (!nextBlock()) {
+        return -1;
+      }
+    }
+    int n = Math.min(len, limit - pos);
+    System.arraycopy(buf, pos, b, off, n);
+    pos += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return limit - pos;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (decompressor != null) {
+      CodecPool.returnDecompressor(decompressor);
+      decompressor = null;
+    }
+    in.close();
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage.compress;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * An output stream compressing the written bytes block by block. The bytes
+ * are kept until {@link #endRecord()} is called after a block size of bytes
+ * is written, so a block never splits a record.
+ *
+ * @see BlockCompression
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+  private final DataOutputStream out;
+  private final CompressionCodec codec;
+  private Compressor compressor;
+  private final int blockSize;
+  private final byte [] sync = new byte[BlockCompression.SYNC_SIZE];
+
+  private byte [] buf;
+  private int count;
+  private final DataOutputBuffer compressed = new DataOutputBuffer();
+
+  public BlockCompressedOutputStream(OutputStream out, CompressionCodec codec,
+                                     int blockSize) throws IOException {
+    this.out = new DataOutputStream(out);
+    this.codec = codec;
+    this.compressor = CodecPool.getCompressor(codec);
+    this.blockSize = blockSize;
+    this.buf = new byte[blockSize + 1024];
+
+    UUID uuid = UUID.randomUUID();
+    ByteBuffer.wrap(sync).putLong(uuid.getMostSignificantBits())
+        .putLong(uuid.getLeastSignificantBits());
+    this.out.writeInt(BlockCompression.MAGIC);
+    this.out.write(sync);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureCapacity(1);
+    buf[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte [] b, int off, int len) throws IOException {
+    ensureCapacity(len);
+    System.arraycopy(b, off, buf, count, len);
+    count += len;
+  }
+
+  /**
+   * Writes the bytes remaining in a buffer.
+   */
+  public void write(ByteBuffer buffer) throws IOException {
+    int len = buffer.remaining();
+    ensureCapacity(len);
+    buffer.get(buf, count, len);
+    count += len;
+  }
+
+  private void ensureCapacity(int len) {
+    if (count + len > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + len));
+    }
+  }
+
+  /**
+   * Notifies the end of a record. The written bytes are compressed into a
+   * block if they reach the block size.
+   */
+  public void endRecord() throws IOException {
+    if (count >= blockSize) {
+      writeBlock();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    if (count == 0) {
+      return;
+    }
+
+    compressor.reset();
+    compressed.reset();
+    CompressionOutputStream cout = codec.createOutputStream(compressed,
+        compressor);
+    cout.write(buf, 0, count);
+    cout.finish();
+
+    out.write(sync);
+    out.writeInt(count);
+    out.writeInt(compressed.getLength());
+    out.write(compressed.getData(), 0, compressed.getLength());
+    count = 0;
+  }
+
+  /**
+   * Writes the remaining bytes as a block, so it should be called at the end
+   * of a record.
+   */
+  @Override
+  public void flush() throws IOException {
+    writeBlock();
+    out.flush();
+  }
+
+  /**
+   * Writes the remaining bytes as a block without closing the underlying
+   * stream, so that another stream can be written after this one.
+   */
+  public void finish() throws IOException {
+    if (compressor != null) {
+      writeBlock();
+      CodecPool.returnCompressor(compressor);
+      compressor = null;
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (compressor != null) {
+      writeBlock();
+      CodecPool.returnCompressor(compressor);
+      compressor = null;
+    }
+    out.close();
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage.compress;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import tajo.catalog.TableMeta;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.storage.exception.UnknownCodecException;
+
+/**
+ * The block compression of row-oriented files. A file, or the part of a file
+ * following its own header, is written by {@link BlockCompressedOutputStream}
+ * as follows:
+ *
+ * <pre>
+ * MAGIC (int), SYNC (16 bytes)
+ * block 1: SYNC, raw length (int), compressed length (int), compressed bytes
+ * block 2: ...
+ * </pre>
+ *
+ * A block always consists of whole records, and a block belongs to the
+ * fragment containing the offset of its sync marker. So, a file can be split
+ * at any offset, and {@link BlockCompressedInputStream} reads the blocks of a
+ * fragment after finding the first sync marker from its start. Compressed
+ * files can also be concatenated into a file, which is read as a whole.
+ *
+ * The codec is given by the table option <code>compression.codec</code>,
+ * which is either a codec class name or an alias like <code>snappy</code>,
+ * <code>deflate</code> and <code>gzip</code>.
+ */
+public class BlockCompression {
+  public static final String CODEC = "compression.codec";
+
+  static final int MAGIC = 0x54424331; // TBC1
+  static final int SYNC_SIZE = 16;
+
+  /**
+   * @return the codec of the table, or null if the table is not compressed
+   */
+  public static CompressionCodec getCodec(Configuration conf, TableMeta meta)
+      throws UnknownCodecException {
+    String name = meta.getOption(CODEC, null);
+    if (name == null) {
+      return null;
+    }
+
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodecByName(name);
+    if (codec == null) {
+      throw new UnknownCodecException(name);
+    }
+    return codec;
+  }
+
+  /**
+   * @return true if the table is compressed. The rows of a compressed table
+   * cannot be located by their offsets, so it can be neither indexed nor
+   * seeked.
+   */
+  public static boolean isCompressed(TableMeta meta) {
+    return meta.getOption(CODEC, null) != null;
+  }
+
+  public static int getBlockSize(Configuration conf) {
+    return conf.getInt(ConfVars.COMPRESSION_BLOCK_SIZE.varname,
+        ConfVars.COMPRESSION_BLOCK_SIZE.defaultIntVal);
+  }
+}
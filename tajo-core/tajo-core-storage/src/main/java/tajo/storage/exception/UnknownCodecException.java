@@ -18,7 +18,9 @@
 
 package tajo.storage.exception;
 
-public class UnknownCodecException extends Exception {
+import java.io.IOException;
+
+public class UnknownCodecException extends IOException {
 
   private static final long serialVersionUID = 4287230843540404529L;
 
@@ -19,6 +19,7 @@
 package tajo.storage.rcfile;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
@@ -186,7 +187,15 @@ public class RCFileWrapper {
 
       prepareProjection(targets);
 
-      reader = new RCFile.Reader(fs, fragment.getPath(), conf);
+      reader = new RCFile.Reader(fs, fragment.getPath(), conf) {
+        @Override
+        protected FSDataInputStream openFile(FileSystem fs, Path file,
+                                             int bufferSize, long length)
+            throws IOException {
+          return ReadAheadInputStream.open(conf, fs, file,
+              fragment.getStartOffset(), end);
+        }
+      };
       if (fragment.getStartOffset() > reader.getPosition()) {
         reader.sync(fragment.getStartOffset()); // sync to start
       }
@@ -0,0 +1,248 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf;
+import tajo.datum.DatumFactory;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestCSVFile {
+  private static String TEST_PATH = "target/test-data/TestCSVFile";
+
+  private TajoConf conf;
+  private FileSystem fs;
+  private Path testDir;
+  private Schema schema;
+  private TableMeta meta;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new TajoConf();
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    fs = testDir.getFileSystem(conf);
+
+    schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("age", Type.INT8);
+    schema.addColumn("score", Type.FLOAT8);
+    schema.addColumn("ratio", Type.FLOAT4);
+    schema.addColumn("name", Type.TEXT);
+    meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+  }
+
+  private Path writeFile(String name, String content) throws IOException {
+    Path path = new Path(testDir, name);
+    FSDataOutputStream out = fs.create(path);
+    out.write(content.getBytes());
+    out.close();
+    return path;
+  }
+
+  private Scanner getScanner(Path path, long start, long length,
+                             Schema target) throws IOException {
+    Fragment fragment = new Fragment("table", path, meta, start, length, null);
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment, target);
+    scanner.init();
+    return scanner;
+  }
+
+  @Test
+  public void testParseFields() throws IOException {
+    Path path = writeFile("fields.csv",
+        "1|-20|3.25|0.5|abc\n" +
+        " 2 | +30 | -1e3 | 1.5E-2 |  d e  \n" +
+        "||||\n" +
+        "4|9223372036854775807|.5|1.|x|extra\n" +
+        "5|-9223372036854775808|0.1234567890123456789\n" +
+        "6");
+    Scanner scanner = getScanner(path, 0, fs.getFileStatus(path).getLen(),
+        schema);
+    assertTrue(scanner.isProjectable());
+
+    Tuple tuple = scanner.next();
+    assertEquals(DatumFactory.createInt4(1), tuple.get(0));
+    assertEquals(DatumFactory.createInt8(-20), tuple.get(1));
+    assertEquals(DatumFactory.createFloat8(3.25), tuple.get(2));
+    assertEquals(DatumFactory.createFloat4(0.5f), tuple.get(3));
+    assertEquals(DatumFactory.createText("abc"), tuple.get(4));
+    assertEquals(0, tuple.getOffset());
+
+    // the cells are trimmed, and the exponents are parsed
+    tuple = scanner.next();
+    assertEquals(DatumFactory.createInt4(2), tuple.get(0));
+    assertEquals(DatumFactory.createInt8(30), tuple.get(1));
+    assertEquals(DatumFactory.createFloat8(-1e3), tuple.get(2));
+    assertEquals(DatumFactory.createFloat4(1.5E-2f), tuple.get(3));
+    assertEquals(DatumFactory.createText("d e"), tuple.get(4));
+
+    tuple = scanner.next();
+    for (int i = 0; i < schema.getColumnNum(); i++) {
+      assertTrue(tuple.isNull(i));
+    }
+
+    tuple = scanner.next();
+    assertEquals(DatumFactory.createInt8(Long.MAX_VALUE), tuple.get(1));
+    assertEquals(DatumFactory.createFloat8(0.5), tuple.get(2));
+    assertEquals(DatumFactory.createFloat4(1.0f), tuple.get(3));
+    assertEquals(DatumFactory.createText("x"), tuple.get(4));
+
+    // the omitted fields are nulls
+    tuple = scanner.next();
+    assertEquals(DatumFactory.createInt8(Long.MIN_VALUE), tuple.get(1));
+    assertEquals(DatumFactory.createFloat8(
+        Double.parseDouble("0.1234567890123456789")), tuple.get(2));
+    assertTrue(tuple.isNull(3));
+    assertTrue(tuple.isNull(4));
+
+    // the last line without LF
+    tuple = scanner.next();
+    assertEquals(DatumFactory.createInt4(6), tuple.get(0));
+    assertTrue(tuple.isNull(1));
+
+    assertNull(scanner.next());
+    scanner.close();
+  }
+
+  @Test
+  public void testDelimiterAndProjection() throws IOException {
+    Path path = writeFile("delimiter.csv",
+        "1::a:b::0.5\n" +
+        "2::::1.5\n");
+
+    Schema target = new Schema();
+    target.addColumn("name", Type.TEXT);
+    target.addColumn("id", Type.INT4);
+
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("score", Type.FLOAT8);
+    meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+    meta.putOption(CSVFile.DELIMITER, "::");
+
+    Scanner scanner = getScanner(path, 0, fs.getFileStatus(path).getLen(),
+        target);
+    Tuple tuple = scanner.next();
+    assertEquals(DatumFactory.createInt4(1), tuple.get(0));
+    assertEquals(DatumFactory.createText("a:b"), tuple.get(1));
+    assertNull(tuple.get(2));
+
+    tuple = scanner.next();
+    assertEquals(DatumFactory.createInt4(2), tuple.get(0));
+    assertTrue(tuple.isNull(1));
+    assertNull(tuple.get(2));
+
+    assertNull(scanner.next());
+    scanner.close();
+  }
+
+  @Test
+  public void testSplitAtAnyOffset() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int lineNum = 50;
+    for (int i = 0; i < lineNum; i++) {
+      sb.append(i).append("|").append(i * 10).append("|").append(i / 4.0)
+          .append("|").append(i).append("|name_").append(i).append("\n");
+    }
+    Path path = writeFile("split.csv", sb.toString());
+    long fileLen = fs.getFileStatus(path).getLen();
+
+    Tuple tuple;
+    for (long split = 0; split <= fileLen; split++) {
+      List<Integer> ids = new ArrayList<Integer>();
+      Scanner scanner = getScanner(path, 0, split, schema);
+      while ((tuple = scanner.next()) != null) {
+        ids.add(tuple.getInt(0).asInt4());
+      }
+      scanner.close();
+
+      scanner = getScanner(path, split, fileLen - split, schema);
+      while ((tuple = scanner.next()) != null) {
+        ids.add(tuple.getInt(0).asInt4());
+        assertEquals(DatumFactory.createText("name_" + tuple.getInt(0).asInt4()),
+            tuple.get(4));
+      }
+      scanner.close();
+
+      assertEquals("split at " + split, lineNum, ids.size());
+      for (int i = 0; i < lineNum; i++) {
+        assertEquals(i, ids.get(i).intValue());
+      }
+    }
+  }
+
+  @Test
+  public void testLongLine() throws IOException {
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < 200000; i++) {
+      name.append((char) ('a' + i % 26));
+    }
+    Path path = writeFile("long.csv", "1||||" + name + "\n2||||b\n");
+    Scanner scanner = getScanner(path, 0, fs.getFileStatus(path).getLen(),
+        schema);
+    assertEquals(DatumFactory.createText(name.toString()), scanner.next().get(4));
+    assertEquals(DatumFactory.createText("b"), scanner.next().get(4));
+    assertNull(scanner.next());
+    scanner.close();
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    List<Long> offsets = new ArrayList<Long>();
+    for (int i = 0; i < 10000; i++) {
+      offsets.add((long) sb.length());
+      sb.append(i).append("|").append(i).append("\n");
+    }
+    Path path = writeFile("seek.csv", sb.toString());
+    Fragment fragment = new Fragment("table", path, meta, 0,
+        fs.getFileStatus(path).getLen(), null);
+    SeekableScanner scanner = (SeekableScanner) StorageManager.getScanner(conf,
+        meta, fragment);
+
+    assertEquals(0, scanner.getNextOffset());
+    for (int i : new int[] {9000, 10, 11, 9999, 0, 5000}) {
+      scanner.seek(offsets.get(i));
+      assertEquals(offsets.get(i).longValue(), scanner.getNextOffset());
+      Tuple tuple = scanner.next();
+      assertEquals(i, tuple.getInt(0).asInt4());
+      assertEquals(offsets.get(i).longValue(), tuple.getOffset());
+    }
+    scanner.seek(offsets.get(9999));
+    scanner.next();
+    assertEquals(-1, scanner.getNextOffset());
+    scanner.close();
+  }
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.Column;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.DatumFactory;
+import tajo.datum.DictionaryTextDatum;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestColFile {
+  private static String TEST_PATH = "target/test-data/TestColFile";
+  private static final int TUPLE_NUM = 100000;
+
+  private TajoConf conf;
+  private Schema schema;
+  private TableMeta meta;
+  private Path tablePath;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new TajoConf();
+    // small row groups of about 140 rows
+    conf.setInt(ConfVars.COLFILE_ROW_GROUP_SIZE.varname, 4096);
+    Path testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+
+    schema = new Schema();
+    schema.addColumn("ts", Type.INT8);
+    schema.addColumn("score", Type.FLOAT8);
+    schema.addColumn("name", Type.TEXT);
+    meta = CatalogUtil.newTableMeta(schema, StoreType.COLFILE);
+
+    tablePath = new Path(testDir, "table.data");
+    Appender appender = StorageManager.getAppender(conf, meta, tablePath);
+    appender.init();
+    VTuple tuple;
+    for (int i = 0; i < TUPLE_NUM; i++) {
+      tuple = new VTuple(3);
+      tuple.put(0, DatumFactory.createInt8(i));
+      // only the rows from 50000 to 50099 have NaN.
+      tuple.put(1, DatumFactory.createFloat8(
+          i / 100 == 500 ? Double.NaN : i % 1000));
+      tuple.put(2, i % 7 == 0 ? DatumFactory.createNullDatum() :
+          DatumFactory.createText("name_" + i));
+      appender.addTuple(tuple);
+    }
+    appender.close();
+  }
+
+  private Scanner getScanner(ColumnPredicate... predicates) throws IOException {
+    FileSystem fs = tablePath.getFileSystem(conf);
+    FileStatus status = fs.getFileStatus(tablePath);
+    Fragment fragment = new Fragment("table", tablePath, meta, 0,
+        status.getLen(), null);
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment);
+    assertTrue(scanner.isSelectable());
+    scanner.setSearchCondition(predicates);
+    scanner.init();
+    return scanner;
+  }
+
+  @Test
+  public void testReadAll() throws IOException {
+    Scanner scanner = getScanner();
+    Tuple tuple;
+    int i = 0;
+    while ((tuple = scanner.next()) != null) {
+      assertEquals(i, tuple.getLong(0).asInt8());
+      if (i / 100 == 500) {
+        assertTrue(Double.isNaN(tuple.getDouble(1).asFloat8()));
+      } else {
+        assertEquals(i % 1000, tuple.getDouble(1).asFloat8(), 0);
+      }
+      if (i % 7 == 0) {
+        assertTrue(tuple.isNull(2));
+      } else {
+        assertEquals(DatumFactory.createText("name_" + i), tuple.get(2));
+      }
+      i++;
+    }
+    scanner.close();
+    assertEquals(TUPLE_NUM, i);
+  }
+
+  @Test
+  public void testSkipRowGroups() throws IOException {
+    Column ts = schema.getColumn("ts");
+    // 2% of the rows
+    Scanner scanner = getScanner(
+        new ColumnPredicate(ts, ColumnPredicate.Op.GEQ, DatumFactory.createInt4(30000)),
+        new ColumnPredicate(ts, ColumnPredicate.Op.LTH, DatumFactory.createInt8(32000)));
+
+    Tuple tuple;
+    int matched = 0;
+    int read = 0;
+    long value;
+    while ((tuple = scanner.next()) != null) {
+      value = tuple.getLong(0).asInt8();
+      if (value >= 30000 && value < 32000) {
+        matched++;
+      }
+      read++;
+    }
+    scanner.close();
+
+    assertEquals(2000, matched);
+    // only the row groups overlapping the range are read.
+    assertTrue(read + " rows are read", read < 2500);
+
+    scanner = getScanner(new ColumnPredicate(ts, ColumnPredicate.Op.EQUAL,
+        DatumFactory.createInt8(TUPLE_NUM)));
+    assertNull(scanner.next());
+    scanner.close();
+  }
+
+  @Test
+  public void testSkipFragments() throws IOException {
+    FileSystem fs = tablePath.getFileSystem(conf);
+    long fileLen = fs.getFileStatus(tablePath).getLen();
+    List<Fragment> fragments = new ArrayList<Fragment>();
+    for (long start = 0; start < fileLen; start += fileLen / 4) {
+      fragments.add(new Fragment("table", tablePath, meta, start,
+          Math.min(fileLen / 4, fileLen - start), null));
+    }
+
+    // the fragments except the last one have no matched row group.
+    Scanner scanner = new MergeScanner(conf, meta, fragments);
+    scanner.setSearchCondition(new ColumnPredicate[] {
+        new ColumnPredicate(schema.getColumn("ts"), ColumnPredicate.Op.GTH,
+            DatumFactory.createInt8(TUPLE_NUM - 1000))});
+    scanner.init();
+    Tuple tuple;
+    int matched = 0;
+    while ((tuple = scanner.next()) != null) {
+      if (tuple.getLong(0).asInt8() > TUPLE_NUM - 1000) {
+        matched++;
+      }
+    }
+    assertEquals(999, matched);
+
+    scanner.reset();
+    matched = 0;
+    while ((tuple = scanner.next()) != null) {
+      if (tuple.getLong(0).asInt8() > TUPLE_NUM - 1000) {
+        matched++;
+      }
+    }
+    scanner.close();
+    assertEquals(999, matched);
+  }
+
+  @Test
+  public void testUnorderedValues() throws IOException {
+    // a NaN value is compared as equal to any value.
+    Scanner scanner = getScanner(new ColumnPredicate(schema.getColumn("score"),
+        ColumnPredicate.Op.LEQ, DatumFactory.createFloat8(-1)));
+    Tuple tuple;
+    int nan = 0;
+    while ((tuple = scanner.next()) != null) {
+      if (Double.isNaN(tuple.getDouble(1).asFloat8())) {
+        nan++;
+      }
+    }
+    scanner.close();
+    assertEquals(100, nan);
+
+    // no row satisfies it except NaN, but NaN is never less than a value.
+    scanner = getScanner(new ColumnPredicate(schema.getColumn("score"),
+        ColumnPredicate.Op.LTH, DatumFactory.createFloat8(-1)));
+    assertNull(scanner.next());
+    scanner.close();
+
+    // the row groups having nulls are read.
+    scanner = getScanner(new ColumnPredicate(schema.getColumn("name"),
+        ColumnPredicate.Op.GEQ, DatumFactory.createText("zzz")));
+    int count = 0;
+    while ((tuple = scanner.next()) != null) {
+      count++;
+    }
+    scanner.close();
+    assertEquals(TUPLE_NUM, count);
+  }
+
+  @Test
+  public void testDictionaryEncoding() throws IOException {
+    String [] statuses = {"active", "inactive", "deleted"};
+    Schema dictSchema = new Schema();
+    dictSchema.addColumn("id", Type.INT4);
+    dictSchema.addColumn("status", Type.TEXT);
+    TableMeta dictMeta = CatalogUtil.newTableMeta(dictSchema, StoreType.COLFILE);
+
+    Path path = new Path(tablePath.getParent(), "dictionary.data");
+    Appender appender = StorageManager.getAppender(conf, dictMeta, path);
+    appender.init();
+    VTuple tuple;
+    for (int i = 0; i < TUPLE_NUM; i++) {
+      tuple = new VTuple(2);
+      tuple.put(0, DatumFactory.createInt4(i));
+      // the rows from 50000 have no "deleted" status.
+      tuple.put(1, i % 11 == 0 ? DatumFactory.createNullDatum() :
+          DatumFactory.createText(statuses[i % (i < 50000 ? 3 : 2)]));
+      appender.addTuple(tuple);
+    }
+    appender.close();
+
+    FileSystem fs = path.getFileSystem(conf);
+    Fragment fragment = new Fragment("dictionary", path, dictMeta, 0,
+        fs.getFileStatus(path).getLen(), null);
+    // the dictionary-encoded file is smaller than the plain values.
+    assertTrue(fragment.getLength() < TUPLE_NUM * (4 + 4 + 6));
+
+    Scanner scanner = StorageManager.getScanner(conf, dictMeta, fragment);
+    scanner.init();
+    Tuple result;
+    int i = 0;
+    while ((result = scanner.next()) != null) {
+      assertEquals(i, result.getInt(0).asInt4());
+      if (i % 11 == 0) {
+        assertTrue(result.isNull(1));
+      } else {
+        assertTrue(result.get(1) instanceof DictionaryTextDatum);
+        assertEquals(DatumFactory.createText(statuses[i % (i < 50000 ? 3 : 2)]),
+            result.get(1));
+      }
+      i++;
+    }
+    scanner.close();
+    assertEquals(TUPLE_NUM, i);
+
+    // the row groups whose dictionary has no "deleted" value are skipped.
+    scanner = StorageManager.getScanner(conf, dictMeta, fragment);
+    scanner.setSearchCondition(new ColumnPredicate[] {
+        new ColumnPredicate(dictSchema.getColumn("status"),
+            ColumnPredicate.Op.EQUAL, DatumFactory.createText("deleted"))});
+    scanner.init();
+    while ((result = scanner.next()) != null) {
+      assertTrue(result.getInt(0).asInt4() < 50000 + 1000);
+    }
+    scanner.close();
+  }
+}
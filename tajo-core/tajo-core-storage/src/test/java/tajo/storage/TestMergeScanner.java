@@ -65,6 +65,7 @@ public class TestMergeScanner {
         {StoreType.RAW},
         {StoreType.RCFILE},
         {StoreType.TREVNI},
+        {StoreType.COLFILE},
         // RowFile requires Byte-buffer read support, so we omitted RowFile.
         //{StoreType.ROWFILE},
 
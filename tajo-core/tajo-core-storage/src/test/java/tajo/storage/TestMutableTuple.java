@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.junit.Test;
+import tajo.catalog.Schema;
+import tajo.common.TajoDataTypes.Type;
+import tajo.datum.Datum;
+import tajo.datum.DatumFactory;
+import tajo.datum.NullDatum;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class TestMutableTuple {
+  private final Schema schema;
+
+  public TestMutableTuple() {
+    schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("age", Type.INT8);
+    schema.addColumn("score", Type.FLOAT4);
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("flag", Type.BOOLEAN);
+  }
+
+  @Test
+  public void testPutAndGet() {
+    MutableTuple tuple = new MutableTuple(schema);
+    assertFalse(tuple.contains(0));
+
+    byte [] buf = "xxhelloxx".getBytes();
+    tuple.putLong(0, 7);
+    tuple.putLong(1, 1234567890123l);
+    tuple.putDouble(2, 0.25f);
+    tuple.putBytes(3, buf, 2, 5);
+    tuple.put(4, DatumFactory.createBool(true));
+
+    assertEquals(7, tuple.getInt4Value(0));
+    assertEquals(1234567890123l, tuple.getInt8Value(1));
+    assertTrue(0.25f == tuple.getFloat4Value(2));
+
+    assertEquals(DatumFactory.createInt4(7), tuple.get(0));
+    assertEquals(Type.INT4, tuple.get(0).type());
+    assertEquals(DatumFactory.createInt8(1234567890123l), tuple.get(1));
+    assertEquals(DatumFactory.createFloat4(0.25f), tuple.get(2));
+    assertEquals(DatumFactory.createText("hello"), tuple.get(3));
+    assertEquals(DatumFactory.createBool(true), tuple.get(4));
+    // a datum is created only once until the tuple is filled again.
+    assertSame(tuple.get(0), tuple.get(0));
+
+    // the datum is not affected by the reused buffer.
+    Datum text = tuple.get(3);
+    System.arraycopy("world".getBytes(), 0, buf, 2, 5);
+    assertEquals(DatumFactory.createText("hello"), text);
+
+    tuple.putLong(0, 8);
+    assertEquals(DatumFactory.createInt4(8), tuple.get(0));
+  }
+
+  @Test
+  public void testNull() {
+    MutableTuple tuple = new MutableTuple(schema);
+    tuple.putNull(0);
+    tuple.put(1, NullDatum.get());
+    tuple.putLong(2, 1);
+
+    assertTrue(tuple.isNull(0));
+    assertTrue(tuple.isNull(1));
+    assertFalse(tuple.isNull(2));
+    assertTrue(tuple.get(0) instanceof NullDatum);
+
+    tuple.clear();
+    for (int i = 0; i < tuple.size(); i++) {
+      assertFalse(tuple.contains(i));
+      assertNull(tuple.get(i));
+    }
+  }
+
+  @Test
+  public void testPutBytesFromBuffer() {
+    MutableTuple tuple = new MutableTuple(schema);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+    buffer.put("abcdefghij".getBytes());
+    buffer.flip();
+
+    tuple.putBytes(3, buffer, 3);
+    assertEquals(DatumFactory.createText("abc"), tuple.get(3));
+    tuple.putBytes(3, buffer, 7);
+    assertEquals(DatumFactory.createText("defghij"), tuple.get(3));
+  }
+
+  @Test
+  public void testCopy() {
+    MutableTuple tuple = new MutableTuple(schema);
+    tuple.putLong(0, 1);
+    tuple.putLong(1, 2);
+    tuple.putDouble(2, 3.5f);
+    tuple.putBytes(3, "name".getBytes(), 0, 4);
+    tuple.putNull(4);
+    tuple.setOffset(10);
+
+    VTuple copy = new VTuple(tuple);
+    assertEquals(tuple, copy);
+    assertEquals(copy.hashCode(), tuple.hashCode());
+    assertEquals(10, copy.getOffset());
+    assertEquals(DatumFactory.createInt8(2), copy.get(1));
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestNumericEncoding {
+
+  private byte assertRoundTrip(long [] values, int valueWidth)
+      throws IOException {
+    int num = values.length;
+    byte encoding = NumericEncoding.getEncoding(values, num, valueWidth);
+    if (encoding == NumericEncoding.PLAIN) {
+      return encoding;
+    }
+
+    DataOutputBuffer out = new DataOutputBuffer();
+    NumericEncoding.encode(encoding, values, num, out);
+    assertEquals(NumericEncoding.getEncodedLength(values, num, valueWidth),
+        out.getLength());
+    assertTrue(out.getLength() < num * valueWidth);
+
+    // the values are followed by other bytes in a chunk.
+    out.writeInt(12345);
+    ByteBuffer buffer = ByteBuffer.wrap(out.getData(), 0, out.getLength());
+    long [] decoded = new long[num];
+    NumericEncoding.decode(encoding, buffer, num, decoded);
+    assertArrayEquals(values, decoded);
+    assertEquals(12345, buffer.getInt());
+    return encoding;
+  }
+
+  @Test
+  public void testRle() throws IOException {
+    long [] values = new long[1000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i < 500 ? Long.MIN_VALUE : (i < 900 ? 7 : Long.MAX_VALUE);
+    }
+    assertEquals(NumericEncoding.RLE, assertRoundTrip(values, 8));
+  }
+
+  @Test
+  public void testFrameOfReference() throws IOException {
+    Random random = new Random(1234);
+    long [] values = new long[1000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 1000000 + random.nextInt(1000);
+    }
+    assertEquals(NumericEncoding.FOR, assertRoundTrip(values, 4));
+
+    // the range does not fit in a long.
+    values[0] = Long.MIN_VALUE;
+    values[1] = Long.MAX_VALUE;
+    assertEquals(NumericEncoding.PLAIN,
+        NumericEncoding.getEncoding(values, values.length, 8));
+  }
+
+  @Test
+  public void testDelta() throws IOException {
+    Random random = new Random(5678);
+    long [] values = new long[1000];
+    values[0] = 1371000000000L;
+    for (int i = 1; i < values.length; i++) {
+      values[i] = values[i - 1] + 1000 + random.nextInt(16);
+    }
+    assertEquals(NumericEncoding.DELTA, assertRoundTrip(values, 8));
+
+    // sequential ids take no bit.
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i - 500;
+    }
+    assertEquals(NumericEncoding.DELTA, assertRoundTrip(values, 4));
+    assertEquals(8 + 8 + 1, NumericEncoding.getEncodedLength(values,
+        values.length, 4));
+  }
+
+  @Test
+  public void testFloat() throws IOException {
+    long [] values = new long[1000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = Double.doubleToRawLongBits(i % 100 == 0 ? Double.NaN : 0.5);
+    }
+    assertEquals(NumericEncoding.RLE, assertRoundTrip(values, 8));
+  }
+}
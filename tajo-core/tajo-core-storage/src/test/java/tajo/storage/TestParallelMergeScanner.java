@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.Options;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.DatumFactory;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class TestParallelMergeScanner {
+  private static String TEST_PATH = "target/test-data/TestParallelMergeScanner";
+  private static final int FILE_NUM = 10;
+  private static final int TUPLE_NUM = 3000;
+
+  private TajoConf conf;
+  private Path testDir;
+  private StoreType storeType;
+  private FileSystem fs;
+  private TableMeta meta;
+
+  public TestParallelMergeScanner(StoreType storeType) {
+    this.storeType = storeType;
+  }
+
+  @Parameters
+  public static Collection<Object[]> generateParameters() {
+    return Arrays.asList(new Object[][] {
+        {StoreType.CSV},
+        {StoreType.RAW},
+        {StoreType.RCFILE},
+        {StoreType.COLFILE},
+    });
+  }
+
+  @Before
+  public void setup() throws Exception {
+    conf = new TajoConf();
+    conf.setVar(ConfVars.ROOT_DIR, TEST_PATH);
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    fs = testDir.getFileSystem(conf);
+
+    Schema schema = new Schema();
+    schema.addColumn("file", Type.INT4);
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    meta = CatalogUtil.newTableMeta(schema, storeType, new Options());
+  }
+
+  private List<Fragment> writeFiles() throws IOException {
+    List<Fragment> fragments = new ArrayList<Fragment>();
+    for (int i = 0; i < FILE_NUM; i++) {
+      Path path = new Path(testDir, storeType + "_" + i + ".data");
+      Appender appender = StorageManager.getAppender(conf, meta, path);
+      appender.init();
+      VTuple tuple;
+      for (int j = 0; j < TUPLE_NUM; j++) {
+        tuple = new VTuple(3);
+        tuple.put(0, DatumFactory.createInt4(i));
+        tuple.put(1, DatumFactory.createInt4(j));
+        tuple.put(2, DatumFactory.createText("name_" + j));
+        appender.addTuple(tuple);
+      }
+      appender.close();
+
+      FileStatus status = fs.getFileStatus(path);
+      fragments.add(new Fragment("table", path, meta, 0, status.getLen(),
+          null));
+    }
+    return fragments;
+  }
+
+  private void assertScan(Scanner scanner) throws IOException {
+    int [] next = new int[FILE_NUM];
+    int count = 0;
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      int file = tuple.get(0).asInt4();
+      // the tuples of a fragment are in their order.
+      assertEquals(next[file], tuple.get(1).asInt4());
+      assertEquals("name_" + next[file], tuple.get(2).asChars());
+      next[file]++;
+      count++;
+    }
+    assertEquals(TUPLE_NUM * FILE_NUM, count);
+    assertNull(scanner.next());
+  }
+
+  @Test
+  public void testScan() throws IOException {
+    Scanner scanner = new ParallelMergeScanner(conf, meta, writeFiles(), 4);
+    scanner.init();
+    assertScan(scanner);
+    scanner.close();
+  }
+
+  @Test
+  public void testKeepTuples() throws IOException {
+    Scanner scanner = new ParallelMergeScanner(conf, meta, writeFiles(), 4);
+    scanner.init();
+    // the tuples are checked after all of them are read, so a tuple reused
+    // by an underlying scanner, e.g., of RAW, would be overwritten.
+    List<Tuple> tuples = new ArrayList<Tuple>();
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      tuples.add(tuple);
+    }
+    scanner.close();
+
+    int [] next = new int[FILE_NUM];
+    for (Tuple kept : tuples) {
+      int file = kept.get(0).asInt4();
+      assertEquals(next[file], kept.get(1).asInt4());
+      assertEquals("name_" + next[file], kept.get(2).asChars());
+      next[file]++;
+    }
+    assertEquals(TUPLE_NUM * FILE_NUM, tuples.size());
+  }
+
+  @Test
+  public void testReset() throws IOException {
+    Scanner scanner = new ParallelMergeScanner(conf, meta, writeFiles(), 3);
+    scanner.init();
+    for (int i = 0; i < 100; i++) {
+      assertNotNull(scanner.next());
+    }
+    scanner.reset();
+    assertScan(scanner);
+    scanner.reset();
+    assertScan(scanner);
+    scanner.close();
+  }
+
+  @Test
+  public void testCloseBeforeEnd() throws IOException {
+    Scanner scanner = new ParallelMergeScanner(conf, meta, writeFiles(), 2);
+    scanner.init();
+    assertNotNull(scanner.next());
+    scanner.close();
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+import tajo.conf.TajoConf;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestPartitionIndex {
+  private static String TEST_PATH = "target/test-data/TestPartitionIndex";
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    TajoConf conf = new TajoConf();
+    Path testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    FileSystem fs = testDir.getFileSystem(conf);
+
+    // the partition 1 and 3 are empty.
+    long [] offsets = {0, 100, 100, 250, 250, 1024};
+    Path path = new Path(testDir, PartitionIndex.INDEX_FILE_NAME);
+    new PartitionIndex(offsets).write(fs, path);
+
+    PartitionIndex index = PartitionIndex.read(fs, path);
+    assertEquals(5, index.getNumPartitions());
+    for (int i = 0; i < index.getNumPartitions(); i++) {
+      assertEquals(offsets[i], index.getOffset(i));
+      assertEquals(offsets[i + 1] - offsets[i], index.getLength(i));
+    }
+    assertEquals(0, index.getLength(1));
+    assertEquals(774, index.getLength(4));
+  }
+}
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.DatumFactory;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class TestRawFile {
+  private static String TEST_PATH = "target/test-data/TestRawFile";
+  private static final int TUPLE_NUM = 10000;
+
+  private final boolean mmap;
+  private TajoConf conf;
+  private FileSystem fs;
+  private Path testDir;
+  private Schema schema;
+  private TableMeta meta;
+
+  public TestRawFile(boolean mmap) {
+    this.mmap = mmap;
+  }
+
+  @Parameterized.Parameters
+  public static Collection<Object[]> generateParameters() {
+    return Arrays.asList(new Object[][] {{false}, {true}});
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new TajoConf();
+    // a window holds only a few records.
+    conf.setInt(ConfVars.RAWFILE_MMAP_WINDOW_SIZE.varname, 1024);
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    fs = FileSystem.getLocal(conf);
+
+    schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("score", Type.FLOAT8);
+    meta = newMeta(mmap);
+  }
+
+  private TableMeta newMeta(boolean mmap) {
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.RAW);
+    if (mmap) {
+      meta.putOption(RawFile.MMAP, "true");
+    }
+    return meta;
+  }
+
+  private static String getName(int i) {
+    StringBuilder sb = new StringBuilder();
+    for (int j = 0; j < i % 200; j++) {
+      sb.append((char) ('a' + j % 26));
+    }
+    return sb.toString();
+  }
+
+  private Path writeFile(String name, TableMeta meta, List<Long> offsets)
+      throws IOException {
+    Path path = new Path(testDir, name);
+    RawFile.RawFileAppender appender =
+        new RawFile.RawFileAppender(conf, meta, path);
+    appender.init();
+    VTuple tuple;
+    for (int i = 0; i < TUPLE_NUM; i++) {
+      tuple = new VTuple(3);
+      tuple.put(0, DatumFactory.createInt4(i));
+      tuple.put(1, i % 11 == 0 ? DatumFactory.createNullDatum() :
+          DatumFactory.createText(getName(i)));
+      tuple.put(2, DatumFactory.createFloat8(i / 2.0));
+      if (offsets != null) {
+        offsets.add(appender.getOffset());
+      }
+      appender.addTuple(tuple);
+    }
+    appender.close();
+    return path;
+  }
+
+  private void assertTuple(int i, Tuple tuple) {
+    assertEquals(i, tuple.getInt(0).asInt4());
+    if (i % 11 == 0) {
+      assertTrue(tuple.isNull(1));
+    } else {
+      assertEquals(DatumFactory.createText(getName(i)), tuple.get(1));
+    }
+    assertEquals(i / 2.0, tuple.getDouble(2).asFloat8(), 0);
+  }
+
+  @Test
+  public void testReadAll() throws IOException {
+    Path path = writeFile("table.raw", meta, null);
+    // the files are the same regardless of mmap.
+    Path other = writeFile("other.raw", newMeta(!mmap), null);
+    assertEquals(fs.getFileStatus(other).getLen(),
+        fs.getFileStatus(path).getLen());
+
+    RawFile.RawFileScanner scanner =
+        new RawFile.RawFileScanner(conf, meta, other);
+    Tuple tuple;
+    for (int pass = 0; pass < 2; pass++) {
+      int i = 0;
+      while ((tuple = scanner.next()) != null) {
+        assertTuple(i, tuple);
+        i++;
+      }
+      assertEquals(TUPLE_NUM, i);
+      scanner.reset();
+    }
+    scanner.close();
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    List<Long> offsets = new ArrayList<Long>();
+    Path path = writeFile("seek.raw", meta, offsets);
+
+    RawFile.RawFileScanner scanner =
+        new RawFile.RawFileScanner(conf, meta, path);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(offsets.get(i).longValue(), scanner.getNextOffset());
+      assertTuple(i, scanner.next());
+    }
+
+    for (int i : new int[] {9000, 101, 102, 9999, 0, 5000, 5001}) {
+      scanner.seek(offsets.get(i));
+      assertEquals(offsets.get(i).longValue(), scanner.getNextOffset());
+      assertTuple(i, scanner.next());
+    }
+    scanner.seek(offsets.get(TUPLE_NUM - 1));
+    assertNotNull(scanner.next());
+    assertNull(scanner.next());
+    scanner.close();
+  }
+
+  @Test
+  public void testReuseTuple() throws IOException {
+    Path path = writeFile("reuse.raw", meta, null);
+
+    RawFile.RawFileScanner scanner =
+        new RawFile.RawFileScanner(conf, meta, path);
+    scanner.setReuseTuple(false);
+    List<Tuple> tuples = new ArrayList<Tuple>();
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      tuples.add(tuple);
+    }
+    scanner.close();
+    // every tuple keeps its own values after the next ones are read.
+    assertEquals(TUPLE_NUM, tuples.size());
+    for (int i = 0; i < TUPLE_NUM; i++) {
+      assertTuple(i, tuples.get(i));
+    }
+
+    scanner = new RawFile.RawFileScanner(conf, meta, path);
+    scanner.setReuseTuple(true);
+    Tuple first = scanner.next();
+    assertSame(first, scanner.next());
+    scanner.close();
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    Path path = new Path(testDir, "empty.raw");
+    RawFile.RawFileAppender appender =
+        new RawFile.RawFileAppender(conf, meta, path);
+    appender.init();
+    appender.close();
+    assertEquals(0, fs.getFileStatus(path).getLen());
+
+    RawFile.RawFileScanner scanner =
+        new RawFile.RawFileScanner(conf, meta, path);
+    assertNull(scanner.next());
+    scanner.close();
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class TestReadAheadInputStream {
+  private static String TEST_PATH = "target/test-data/TestReadAheadInputStream";
+  private static final int FILE_SIZE = 100000;
+  private static final int BLOCK_SIZE = 1000;
+
+  private TajoConf conf;
+  private FileSystem fs;
+  private Path path;
+  private byte [] data;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new TajoConf();
+    Path testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    fs = testDir.getFileSystem(conf);
+
+    data = new byte[FILE_SIZE];
+    new Random(1234).nextBytes(data);
+    path = new Path(testDir, "data");
+    FSDataOutputStream out = fs.create(path);
+    out.write(data);
+    out.close();
+
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private FSDataInputStream open(long start, long end) throws IOException {
+    return new FSDataInputStream(new ReadAheadInputStream(fs.open(path),
+        start, end, BLOCK_SIZE, 3, executor));
+  }
+
+  private void assertRead(FSDataInputStream in, long offset, int len)
+      throws IOException {
+    byte [] buf = new byte[len];
+    in.readFully(buf);
+    for (int i = 0; i < len; i++) {
+      assertEquals("at " + (offset + i), data[(int) (offset + i)], buf[i]);
+    }
+  }
+
+  @Test
+  public void testSequentialRead() throws IOException {
+    // the bytes before 25000 and after 70000 are read synchronously.
+    FSDataInputStream in = open(25000, 70000);
+    assertRead(in, 0, 10);
+    in.seek(25000);
+    int len;
+    for (long offset = 25000; offset < FILE_SIZE; offset += len) {
+      len = (int) Math.min(777, FILE_SIZE - offset);
+      assertRead(in, offset, len);
+      assertEquals(offset + len, in.getPos());
+    }
+    assertEquals(-1, in.read());
+    assertEquals(-1, in.read(new byte[10], 0, 10));
+    in.close();
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    FSDataInputStream in = open(0, FILE_SIZE);
+    Random random = new Random(5678);
+    long offset;
+    for (int i = 0; i < 200; i++) {
+      offset = random.nextInt(FILE_SIZE - 3000);
+      in.seek(offset);
+      assertRead(in, offset, 3000);
+      // a short seek backward or forward
+      in.seek(offset + 2000 + random.nextInt(2000) - 1000);
+      assertRead(in, in.getPos(), 1);
+    }
+    in.seek(FILE_SIZE - 1);
+    assertEquals(data[FILE_SIZE - 1] & 0xff, in.read());
+    assertEquals(-1, in.read());
+
+    in.seek(10);
+    in.skip(5000);
+    assertRead(in, 5010, 100);
+
+    // the positional read does not change the position.
+    byte [] buf = new byte[10];
+    in.readFully(50000, buf);
+    assertEquals(data[50000], buf[0]);
+    assertRead(in, 5110, 100);
+    in.close();
+  }
+
+  @Test
+  public void testByteBufferRead() throws IOException {
+    FSDataInputStream in = open(0, FILE_SIZE);
+    ByteBuffer buffer = ByteBuffer.allocate(1500);
+    long offset = 0;
+    int read;
+    while ((read = in.read(buffer)) > 0) {
+      buffer.flip();
+      for (int i = 0; i < read; i++) {
+        assertEquals(data[(int) offset++], buffer.get());
+      }
+      buffer.clear();
+    }
+    assertEquals(FILE_SIZE, offset);
+    in.close();
+  }
+
+  @Test
+  public void testOpen() throws IOException {
+    conf.setInt(ConfVars.READ_AHEAD_BLOCK_SIZE.varname, BLOCK_SIZE);
+    FSDataInputStream in = ReadAheadInputStream.open(conf, fs, path, 100,
+        Long.MAX_VALUE);
+    assertTrue(in.getWrappedStream() instanceof ReadAheadInputStream);
+    in.seek(100);
+    assertRead(in, 100, FILE_SIZE - 100);
+    assertEquals(-1, in.read());
+    in.close();
+
+    conf.setBoolean(ConfVars.READ_AHEAD_ENABLED.varname, false);
+    in = ReadAheadInputStream.open(conf, fs, path, 0, FILE_SIZE);
+    assertFalse(in.getWrappedStream() instanceof ReadAheadInputStream);
+    in.close();
+  }
+}
@@ -78,6 +78,7 @@ public class TestStorages {
         {StoreType.RCFILE, true, true},
         {StoreType.TREVNI, false, true},
         {StoreType.RAW, false, false},
+        {StoreType.COLFILE, true, true},
     });
   }
 		
@@ -170,9 +171,7 @@ public class TestStorages {
     int tupleCnt = 0;
     Tuple tuple;
     while ((tuple = scanner.next()) != null) {
-      if (storeType == StoreType.RCFILE || storeType == StoreType.TREVNI) {
-        assertNull(tuple.get(0));
-      }
+      assertNull(tuple.get(0));
       assertEquals(DatumFactory.createInt8(tupleCnt + 2), tuple.getLong(1));
       assertEquals(DatumFactory.createFloat4(tupleCnt + 3), tuple.getFloat(2));
       tupleCnt++;
@@ -232,4 +231,75 @@ public class TestStorages {
       assertEquals(tuple.get(i), retrieved.get(i));
     }
   }
+
+  @Test
+  public void testProjectionOfVariousTypes() throws IOException {
+    Schema schema = new Schema();
+    schema.addColumn("col1", Type.BOOLEAN);
+    schema.addColumn("col2", Type.BIT);
+    schema.addColumn("col3", Type.CHAR);
+    schema.addColumn("col4", Type.INT2);
+    schema.addColumn("col5", Type.INT4);
+    schema.addColumn("col6", Type.INT8);
+    schema.addColumn("col7", Type.FLOAT4);
+    schema.addColumn("col8", Type.FLOAT8);
+    schema.addColumn("col9", Type.TEXT);
+    schema.addColumn("col10", Type.BLOB);
+    schema.addColumn("col11", Type.INET4);
+    schema.addColumn("col12", Type.TEXT);
+
+    TableMeta meta = CatalogUtil.newTableMeta(schema, storeType);
+    Path tablePath = new Path(testDir, "testProjectionOfVariousTypes.data");
+    Appender appender = StorageManager.getAppender(conf, meta, tablePath);
+    appender.init();
+    int tupleNum = 1000;
+    Tuple tuple;
+    for (int i = 0; i < tupleNum; i++) {
+      tuple = new VTuple(12);
+      tuple.put(new Datum[] {
+          DatumFactory.createBool(i % 2 == 0),
+          DatumFactory.createBit((byte) i),
+          DatumFactory.createChar('7'),
+          DatumFactory.createInt2((short) i),
+          DatumFactory.createInt4(i),
+          DatumFactory.createInt8(i),
+          DatumFactory.createFloat4(i),
+          DatumFactory.createFloat8(i),
+          i % 3 == 0 ? DatumFactory.createNullDatum() :
+              DatumFactory.createText("text_" + i),
+          DatumFactory.createBlob(("blob_" + i).getBytes()),
+          DatumFactory.createInet4("192.168.0.1"),
+          DatumFactory.createText("last_" + i)
+      });
+      appender.addTuple(tuple);
+    }
+    appender.close();
+
+    // the projected columns are placed after the variable length fields.
+    Schema target = new Schema();
+    target.addColumn("col11", Type.INET4);
+    target.addColumn("col6", Type.INT8);
+    target.addColumn("col12", Type.TEXT);
+
+    FileStatus status = fs.getFileStatus(tablePath);
+    Fragment fragment = new Fragment("table", tablePath, meta, 0,
+        status.getLen(), null);
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment, target);
+    scanner.init();
+    int tupleCnt = 0;
+    while ((tuple = scanner.next()) != null) {
+      if (scanner.isProjectable()) {
+        assertNull(tuple.get(4));
+        assertNull(tuple.get(8));
+        assertNull(tuple.get(9));
+      }
+      assertEquals(DatumFactory.createInt8(tupleCnt), tuple.get(5));
+      assertEquals(DatumFactory.createInet4("192.168.0.1"), tuple.get(10));
+      assertEquals(DatumFactory.createText("last_" + tupleCnt), tuple.get(11));
+      tupleCnt++;
+    }
+    scanner.close();
+
+    assertEquals(tupleNum, tupleCnt);
+  }
 }
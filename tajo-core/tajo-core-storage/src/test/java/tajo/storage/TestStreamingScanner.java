@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tajo.storage;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.Options;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.DatumFactory;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestStreamingScanner {
+  private static String TEST_PATH = "target/test-data/TestStreamingScanner";
+  private static final int FILE_NUM = 5;
+  private static final int TUPLE_NUM = 1000;
+
+  private TajoConf conf;
+  private Path testDir;
+  private FileSystem fs;
+  private TableMeta meta;
+
+  @Before
+  public void setup() throws Exception {
+    conf = new TajoConf();
+    conf.setVar(ConfVars.ROOT_DIR, TEST_PATH);
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    fs = testDir.getFileSystem(conf);
+
+    Schema schema = new Schema();
+    schema.addColumn("file", Type.INT4);
+    schema.addColumn("id", Type.INT4);
+    meta = CatalogUtil.newTableMeta(schema, StoreType.CSV, new Options());
+  }
+
+  private List<Fragment> writeFiles() throws IOException {
+    List<Fragment> fragments = new ArrayList<Fragment>();
+    for (int i = 0; i < FILE_NUM; i++) {
+      Path path = new Path(testDir, "file_" + i + ".csv");
+      Appender appender = StorageManager.getAppender(conf, meta, path);
+      appender.init();
+      VTuple tuple;
+      for (int j = 0; j < TUPLE_NUM; j++) {
+        tuple = new VTuple(2);
+        tuple.put(0, DatumFactory.createInt4(i));
+        tuple.put(1, DatumFactory.createInt4(j));
+        appender.addTuple(tuple);
+      }
+      appender.close();
+
+      FileStatus status = fs.getFileStatus(path);
+      fragments.add(new Fragment("table", path, meta, 0, status.getLen(),
+          null));
+    }
+    return fragments;
+  }
+
+  private void assertScan(Scanner scanner) throws IOException {
+    Tuple tuple;
+    for (int i = 0; i < FILE_NUM; i++) {
+      for (int j = 0; j < TUPLE_NUM; j++) {
+        tuple = scanner.next();
+        assertEquals(i, tuple.get(0).asInt4());
+        assertEquals(j, tuple.get(1).asInt4());
+      }
+    }
+    assertNull(scanner.next());
+  }
+
+  @Test
+  public void testScanWhileArriving() throws Exception {
+    final List<Fragment> fragments = writeFiles();
+    // an arrival without data is added between the fragments.
+    final FragmentQueue queue = new FragmentQueue(FILE_NUM * 2);
+    Thread fetcher = new Thread() {
+      public void run() {
+        for (Fragment fragment : fragments) {
+          try {
+            Thread.sleep(50);
+          } catch (InterruptedException e) {
+            return;
+          }
+          queue.add(fragment);
+          queue.add(null);
+        }
+      }
+    };
+
+    Scanner scanner = new StreamingScanner(conf, meta, queue);
+    scanner.init();
+    fetcher.start();
+    assertScan(scanner);
+    assertTrue(queue.isFinished());
+    fetcher.join();
+
+    // the arrived fragments are read again.
+    scanner.reset();
+    assertScan(scanner);
+    scanner.close();
+    assertEquals(FILE_NUM, queue.awaitAll().length);
+  }
+
+  @Test
+  public void testNoFragment() throws IOException {
+    FragmentQueue queue = new FragmentQueue(2);
+    queue.add(null);
+    queue.add(null);
+    assertFalse(queue.awaitFirst());
+
+    Scanner scanner = new StreamingScanner(conf, meta, queue);
+    scanner.init();
+    assertNull(scanner.next());
+    scanner.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testFail() throws Exception {
+    final FragmentQueue queue = new FragmentQueue(1);
+    Thread killer = new Thread() {
+      public void run() {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          return;
+        }
+        queue.fail(new IOException("killed"));
+      }
+    };
+    killer.start();
+
+    Scanner scanner = new StreamingScanner(conf, meta, queue);
+    scanner.init();
+    try {
+      scanner.next();
+    } finally {
+      scanner.close();
+      killer.join();
+    }
+  }
+}
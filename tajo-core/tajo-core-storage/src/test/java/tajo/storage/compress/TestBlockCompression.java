@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tajo.storage.compress;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import tajo.catalog.CatalogUtil;
+import tajo.catalog.Schema;
+import tajo.catalog.TableMeta;
+import tajo.catalog.proto.CatalogProtos.StoreType;
+import tajo.common.TajoDataTypes.Type;
+import tajo.conf.TajoConf;
+import tajo.conf.TajoConf.ConfVars;
+import tajo.datum.DatumFactory;
+import tajo.storage.*;
+import tajo.storage.exception.UnknownCodecException;
+import tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class TestBlockCompression {
+  private static String TEST_PATH = "target/test-data/TestBlockCompression";
+  private static final int TUPLE_NUM = 10000;
+
+  private TajoConf conf;
+  private FileSystem fs;
+  private Path testDir;
+  private Schema schema;
+  private StoreType storeType;
+  private boolean splitable;
+
+  public TestBlockCompression(StoreType storeType, boolean splitable) {
+    this.storeType = storeType;
+    this.splitable = splitable;
+  }
+
+  @Parameterized.Parameters
+  public static Collection<Object[]> generateParameters() {
+    return Arrays.asList(new Object[][]{
+        {StoreType.CSV, true},
+        {StoreType.ROWFILE, true},
+        {StoreType.RAW, false},
+    });
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new TajoConf();
+    // small blocks of a few hundred rows
+    conf.setInt(ConfVars.COMPRESSION_BLOCK_SIZE.varname, 4096);
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    fs = testDir.getFileSystem(conf);
+
+    schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("score", Type.FLOAT8);
+  }
+
+  private TableMeta newTableMeta(String codec) {
+    TableMeta meta = CatalogUtil.newTableMeta(schema, storeType);
+    if (codec != null) {
+      meta.putOption(BlockCompression.CODEC, codec);
+    }
+    return meta;
+  }
+
+  private Appender getAppender(TableMeta meta, Path path) throws IOException {
+    if (storeType == StoreType.ROWFILE) {
+      return new RowFile.RowFileAppender(conf, meta, path);
+    } else {
+      return StorageManager.getAppender(conf, meta, path);
+    }
+  }
+
+  private Scanner getScanner(TableMeta meta, Fragment fragment)
+      throws IOException {
+    if (storeType == StoreType.ROWFILE) {
+      return new RowFile.RowFileScanner(conf, meta, fragment);
+    } else {
+      return StorageManager.getScanner(conf, meta, fragment);
+    }
+  }
+
+  private long writeTable(TableMeta meta, Path path) throws IOException {
+    Appender appender = getAppender(meta, path);
+    appender.init();
+    VTuple tuple;
+    for (int i = 0; i < TUPLE_NUM; i++) {
+      tuple = new VTuple(3);
+      tuple.put(0, DatumFactory.createInt4(i));
+      tuple.put(1, i % 5 == 0 ? DatumFactory.createNullDatum() :
+          DatumFactory.createText("name_" + (i % 100)));
+      tuple.put(2, DatumFactory.createFloat8(i % 10));
+      appender.addTuple(tuple);
+    }
+    appender.close();
+    return fs.getFileStatus(path).getLen();
+  }
+
+  private List<Integer> readIds(TableMeta meta, Fragment fragment)
+      throws IOException {
+    List<Integer> ids = new ArrayList<Integer>();
+    Scanner scanner = getScanner(meta, fragment);
+    scanner.init();
+    Tuple tuple;
+    int id;
+    while ((tuple = scanner.next()) != null) {
+      id = tuple.getInt(0).asInt4();
+      if (id % 5 == 0) {
+        assertTrue(tuple.isNull(1));
+      } else {
+        assertEquals(DatumFactory.createText("name_" + (id % 100)), tuple.get(1));
+      }
+      assertEquals(id % 10, tuple.getDouble(2).asFloat8(), 0);
+      ids.add(id);
+    }
+    scanner.close();
+    return ids;
+  }
+
+  @Test
+  public void testReadAll() throws IOException {
+    long rawLength = writeTable(newTableMeta(null),
+        new Path(testDir, "raw.data"));
+
+    TableMeta meta = newTableMeta("deflate");
+    Path path = new Path(testDir, "compressed.data");
+    long length = writeTable(meta, path);
+    assertTrue(length + " bytes", length < rawLength / 2);
+
+    List<Integer> ids = readIds(meta,
+        new Fragment("table", path, meta, 0, length, null));
+    assertEquals(TUPLE_NUM, ids.size());
+    for (int i = 0; i < TUPLE_NUM; i++) {
+      assertEquals(i, ids.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void testSplit() throws IOException {
+    if (!splitable) {
+      return;
+    }
+
+    TableMeta meta = newTableMeta("default");
+    Path path = new Path(testDir, "split.data");
+    long length = writeTable(meta, path);
+
+    // the fragments are not aligned with the blocks
+    List<Integer> ids = new ArrayList<Integer>();
+    long fragmentSize = length / 7 + 13;
+    for (long start = 0; start < length; start += fragmentSize) {
+      ids.addAll(readIds(meta, new Fragment("table", path, meta, start,
+          Math.min(fragmentSize, length - start), null)));
+    }
+    assertEquals(TUPLE_NUM, ids.size());
+    for (int i = 0; i < TUPLE_NUM; i++) {
+      assertEquals(i, ids.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void testNoOffset() throws IOException {
+    if (storeType == StoreType.ROWFILE) {
+      return;
+    }
+
+    TableMeta meta = newTableMeta("deflate");
+    assertTrue(BlockCompression.isCompressed(meta));
+    Path path = new Path(testDir, "offset.data");
+    Appender appender = getAppender(meta, path);
+    appender.init();
+    try {
+      ((FileAppender) appender).getOffset();
+      fail("the offset of a compressed row is given");
+    } catch (UnsupportedOperationException e) {
+    }
+    VTuple tuple = new VTuple(3);
+    tuple.put(0, DatumFactory.createInt4(1));
+    tuple.put(1, DatumFactory.createText("name_1"));
+    tuple.put(2, DatumFactory.createFloat8(1));
+    appender.addTuple(tuple);
+    appender.close();
+
+    Scanner scanner = getScanner(meta, new Fragment("table", path, meta, 0,
+        fs.getFileStatus(path).getLen(), null));
+    scanner.init();
+    try {
+      ((SeekableScanner) scanner).getNextOffset();
+      fail("the offset of a compressed row is given");
+    } catch (UnsupportedOperationException e) {
+    }
+    scanner.close();
+  }
+
+  @Test
+  public void testProjection() throws IOException {
+    TableMeta meta = newTableMeta("deflate");
+    Path path = new Path(testDir, "projection.data");
+    long length = writeTable(meta, path);
+
+    Scanner scanner = getScanner(meta,
+        new Fragment("table", path, meta, 0, length, null));
+    Schema target = new Schema();
+    target.addColumn("score", Type.FLOAT8);
+    scanner.setTarget(target.toArray());
+    scanner.init();
+    Tuple tuple;
+    int count = 0;
+    while ((tuple = scanner.next()) != null) {
+      assertNull(tuple.get(0));
+      assertEquals(count % 10, tuple.getDouble(2).asFloat8(), 0);
+      count++;
+    }
+    scanner.close();
+    assertEquals(TUPLE_NUM, count);
+  }
+
+  @Test
+  public void testConcatenated() throws IOException {
+    // a row file has its own header before the blocks.
+    if (storeType == StoreType.ROWFILE) {
+      return;
+    }
+
+    TableMeta meta = newTableMeta("deflate");
+    Path [] paths = {new Path(testDir, "first.data"),
+        new Path(testDir, "second.data")};
+    Path path = new Path(testDir, "concatenated.data");
+    FSDataOutputStream out = fs.create(path);
+    for (Path part : paths) {
+      writeTable(meta, part);
+      FSDataInputStream in = fs.open(part);
+      IOUtils.copyBytes(in, out, 4096, false);
+      in.close();
+    }
+    out.close();
+
+    List<Integer> ids = readIds(meta, new Fragment("table", path, meta, 0,
+        fs.getFileStatus(path).getLen(), null));
+    assertEquals(TUPLE_NUM * 2, ids.size());
+    for (int i = 0; i < TUPLE_NUM * 2; i++) {
+      assertEquals(i % TUPLE_NUM, ids.get(i).intValue());
+    }
+  }
+
+  @Test(expected = UnknownCodecException.class)
+  public void testUnknownCodec() throws IOException {
+    writeTable(newTableMeta("nosuchcodec"), new Path(testDir, "unknown.data"));
+  }
+}